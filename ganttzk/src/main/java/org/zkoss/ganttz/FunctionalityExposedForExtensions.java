@@ -47,7 +47,7 @@ import org.zkoss.ganttz.data.Position;
 import org.zkoss.ganttz.data.Task;
 import org.zkoss.ganttz.data.TaskContainer;
 import org.zkoss.ganttz.data.TaskLeaf;
-import org.zkoss.ganttz.data.criticalpath.CriticalPathCalculator;
+import org.zkoss.ganttz.data.criticalpath.CompiledCriticalPathCalculator;
 import org.zkoss.ganttz.extensions.IContext;
 import org.zkoss.ganttz.timetracker.TimeTracker;
 import org.zkoss.ganttz.timetracker.zoom.IDetailItemModificator;
@@ -400,7 +400,7 @@ public class FunctionalityExposedForExtensions<T> implements IContext<T> {
 
     @Override
     public void showCriticalPath() {
-        CriticalPathCalculator<Task, Dependency> criticalPathCalculator = CriticalPathCalculator
+        CompiledCriticalPathCalculator<Task, Dependency> criticalPathCalculator = CompiledCriticalPathCalculator
                 .create(configuration.isDependenciesConstraintsHavePriority());
 
         List<Task> criticalPath = criticalPathCalculator
@@ -422,7 +422,7 @@ public class FunctionalityExposedForExtensions<T> implements IContext<T> {
     @Override
     public List<T> getCriticalPath() {
         List<T> result = new ArrayList<T>();
-        CriticalPathCalculator<Task, Dependency> criticalPathCalculator = CriticalPathCalculator
+        CompiledCriticalPathCalculator<Task, Dependency> criticalPathCalculator = CompiledCriticalPathCalculator
                 .create(configuration.isDependenciesConstraintsHavePriority());
         for (Task each : criticalPathCalculator
                 .calculateCriticalPath(diagramGraph)) {
@@ -32,6 +32,8 @@ import org.zkoss.ganttz.timetracker.TimeTrackerComponent;
 import org.zkoss.ganttz.timetracker.zoom.IZoomLevelChangedListener;
 import org.zkoss.ganttz.timetracker.zoom.ZoomLevel;
 import org.zkoss.ganttz.util.Interval;
+import org.zkoss.zk.au.AuRequest;
+import org.zkoss.zk.au.AuService;
 import org.zkoss.zk.au.out.AuInvoke;
 import org.zkoss.zk.ui.ext.AfterCompose;
 import org.zkoss.zul.impl.XulElement;
@@ -76,6 +78,15 @@ public class GanttPanel extends XulElement implements AfterCompose {
                 predicate);
         appendChild(tasksLists);
         appendChild(dependencyList);
+        setAuService(new AuService() {
+            public boolean service(AuRequest request, boolean everError) {
+                if (request.getCommand().equals("onMoreRowsNeeded")) {
+                    GanttPanel.this.planner.materializeMoreRows();
+                    return true;
+                }
+                return false;
+            }
+        });
     }
 
     private TimeTrackerComponent timeTrackerForGanttPanel(
@@ -146,6 +157,15 @@ public class GanttPanel extends XulElement implements AfterCompose {
         }
     }
 
+    /**
+     * Tells the client side if there are rows not created yet, so they are
+     * requested when the user scrolls near the end of the shown rows
+     */
+    public void setMoreRowsPending(boolean moreRowsPending) {
+        response("more_rows_pending", new AuInvoke(this, "setMoreRowsPending",
+                "" + moreRowsPending));
+    }
+
     public TimeTrackerComponent getTimeTrackerComponent() {
         return timeTrackerComponent;
     }
@@ -93,4 +93,8 @@ public class LeftPane extends HtmlMacroComponent {
         leftTasksTree.setPredicate(predicate);
     }
 
+    public void showNewlyAcceptedTasks() {
+        leftTasksTree.showNewlyAcceptedTasks();
+    }
+
 }
@@ -466,6 +466,21 @@ public class LeftTasksTree extends HtmlMacroComponent {
         this.goingDownInLastArrowCommand = goingDownInLastArrowCommand;
     }
 
+    /**
+     * Adds the tasks accepted by the current predicate that are not shown yet,
+     * keeping the items already created. It's used when the predicate just
+     * accepts more rows, instead of building the whole tree again.
+     */
+    public void showNewlyAcceptedTasks() {
+        if (predicate.isFilterContainers()) {
+            // the tree is flattened, so the insertion positions of the
+            // children would be wrong
+            setPredicate(predicate);
+            return;
+        }
+        fillModel(tasks, false);
+    }
+
     public void setPredicate(FilterAndParentExpandedPredicates predicate) {
         this.predicate = predicate;
 
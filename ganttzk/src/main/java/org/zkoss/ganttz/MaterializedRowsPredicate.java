@@ -0,0 +1,225 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zkoss.ganttz;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.commons.lang.Validate;
+import org.zkoss.ganttz.data.Task;
+import org.zkoss.ganttz.data.TaskContainer;
+import org.zkoss.ganttz.data.TaskContainer.IExpandListener;
+import org.zkoss.ganttz.extensions.IContext;
+
+/**
+ * Decorates a {@link FilterAndParentExpandedPredicates} so only the first
+ * rows shown by it are accepted. This way the components of the rest of rows
+ * are not created until the user scrolls near the end of the rows already
+ * shown and more rows are requested with {@link #materializeMoreRows()}.
+ * <p>
+ * Once a {@link Task} is materialized it remains so until another predicate
+ * is decorated. The children of a shown container are materialized with it,
+ * so they can be expanded without asking for more rows.
+ */
+public class MaterializedRowsPredicate extends
+        FilterAndParentExpandedPredicates {
+
+    /**
+     * Provides the tasks whose rows are materialized and is told when a
+     * container is expanded, so the materialized rows are calculated again
+     */
+    interface IRows {
+
+        List<? extends Task> getAllTasks();
+
+        void containerExpanded();
+    }
+
+    private final IRows rows;
+
+    private final int rowsPerPage;
+
+    private FilterAndParentExpandedPredicates decorated;
+
+    private int maxRows;
+
+    private int materializedRows;
+
+    private boolean moreRowsPending = false;
+
+    private final Set<Task> materialized = new HashSet<Task>();
+
+    private final Set<Task> considered = new HashSet<Task>();
+
+    private Map<TaskContainer, IExpandListener> expandListeners = new WeakHashMap<TaskContainer, IExpandListener>();
+
+    public MaterializedRowsPredicate(final Planner planner,
+            FilterAndParentExpandedPredicates decorated, int rowsPerPage) {
+        this(planner.getContext(), new IRows() {
+
+            @Override
+            public List<? extends Task> getAllTasks() {
+                return planner.getTaskList().getAllTasks();
+            }
+
+            @Override
+            public void containerExpanded() {
+                planner.scheduleMaterializedRowsRefresh();
+            }
+        }, decorated, rowsPerPage);
+    }
+
+    MaterializedRowsPredicate(IContext<?> context, IRows rows,
+            FilterAndParentExpandedPredicates decorated, int rowsPerPage) {
+        super(context);
+        Validate.notNull(rows);
+        Validate.isTrue(rowsPerPage > 0, "rowsPerPage must be positive");
+        this.rows = rows;
+        this.rowsPerPage = rowsPerPage;
+        setDecorated(decorated);
+    }
+
+    public void setDecorated(FilterAndParentExpandedPredicates decorated) {
+        Validate.notNull(decorated);
+        this.decorated = decorated;
+        this.maxRows = rowsPerPage;
+        materialized.clear();
+        considered.clear();
+        moreRowsPending = false;
+    }
+
+    public FilterAndParentExpandedPredicates getDecorated() {
+        return decorated;
+    }
+
+    public void materializeMoreRows() {
+        maxRows = Math.max(maxRows, materializedRows) + rowsPerPage;
+        recalculate();
+    }
+
+    public boolean hasMoreRowsPending() {
+        if (considered.isEmpty()) {
+            recalculate();
+        }
+        return moreRowsPending;
+    }
+
+    @Override
+    public boolean accepts(Object object) {
+        return decorated.accepts(object) && isMaterialized((Task) object);
+    }
+
+    @Override
+    public boolean acceptsContainers(Task task) {
+        return decorated.acceptsContainers(task);
+    }
+
+    @Override
+    public boolean accpetsFilterPredicateAndContainers(Task task) {
+        return decorated.accpetsFilterPredicateAndContainers(task)
+                && isMaterialized(task);
+    }
+
+    @Override
+    public boolean accpetsFilterPredicate(Task task) {
+        return decorated.accpetsFilterPredicate(task) && isMaterialized(task);
+    }
+
+    @Override
+    public void setFilterContainers(boolean filterContainers) {
+        decorated.setFilterContainers(filterContainers);
+    }
+
+    @Override
+    public boolean isFilterContainers() {
+        return decorated.isFilterContainers();
+    }
+
+    private boolean isMaterialized(Task task) {
+        if (!considered.contains(task)) {
+            // it's a new task, so the rows are calculated again
+            recalculate();
+            considered.add(task);
+        }
+        return materialized.contains(task);
+    }
+
+    /**
+     * Walks the tasks in the same order they are shown. A shown row is
+     * materialized if it already was or if the limit of rows hasn't been
+     * reached yet. A row not shown is materialized if its parent is a shown
+     * materialized row.
+     */
+    public void recalculate() {
+        considered.clear();
+        materializedRows = 0;
+        moreRowsPending = false;
+        recalculate(rows.getAllTasks(), true, true);
+    }
+
+    private void recalculate(List<? extends Task> tasks,
+            boolean parentMaterialized, boolean parentShown) {
+        for (Task each : tasks) {
+            considered.add(each);
+            boolean shown = decorated.accepts(each);
+            boolean isMaterialized = materialized.contains(each);
+            if (shown) {
+                if (isMaterialized || materializedRows < maxRows) {
+                    isMaterialized = true;
+                    materializedRows++;
+                } else {
+                    moreRowsPending = true;
+                }
+            } else {
+                isMaterialized |= parentMaterialized && parentShown;
+            }
+            if (isMaterialized) {
+                materialized.add(each);
+            }
+            if (each.isContainer()) {
+                addExpandListenerTo((TaskContainer) each);
+                recalculate(each.getTasks(), isMaterialized, shown);
+            }
+        }
+    }
+
+    private void addExpandListenerTo(TaskContainer container) {
+        if (expandListeners.containsKey(container)) {
+            return;
+        }
+        IExpandListener expandListener = new IExpandListener() {
+
+            @Override
+            public void expandStateChanged(boolean isNowExpanded) {
+                if (isNowExpanded) {
+                    rows.containerExpanded();
+                }
+            }
+        };
+        container.addExpandListener(expandListener);
+        expandListeners.put(container, expandListener);
+    }
+
+}
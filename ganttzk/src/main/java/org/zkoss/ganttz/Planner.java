@@ -80,6 +80,10 @@ public class Planner extends HtmlMacroComponent  {
     private static final Log PROFILING_LOG = ProfilingLogFactory
             .getLog(Planner.class);
 
+    private static final int MATERIALIZED_ROWS_PER_PAGE = 100;
+
+    private static final String ON_REFRESH_MATERIALIZED_ROWS = "onRefreshMaterializedRows";
+
     public static boolean guessContainersExpandedByDefaultGivenPrintParameters(
             Map<String, String> printParameters) {
         return guessContainersExpandedByDefault(convertToURLParameters(printParameters));
@@ -130,6 +134,15 @@ public class Planner extends HtmlMacroComponent  {
         return toLowercaseSet(values).contains("all");
     }
 
+    public static boolean guessAllRowsShownByDefault(
+            Map<String, String[]> queryURLParameters) {
+        String[] values = queryURLParameters.get("rows");
+        if (values == null) {
+            return false;
+        }
+        return toLowercaseSet(values).contains("all");
+    }
+
     private static Set<String> toLowercaseSet(String[] values) {
         Set<String> result = new HashSet<String>();
         for (String each : values) {
@@ -180,6 +193,17 @@ public class Planner extends HtmlMacroComponent  {
             .create();
 
     public Planner() {
+        addEventListener(ON_REFRESH_MATERIALIZED_ROWS, new EventListener() {
+
+            @Override
+            public void onEvent(Event event) {
+                materializedRowsRefreshScheduled = false;
+                if (materializedRowsPredicate != null && ganttPanel != null) {
+                    materializedRowsPredicate.recalculate();
+                    refreshShownRows(true);
+                }
+            }
+        });
     }
 
     TaskList getTaskList() {
@@ -352,6 +376,7 @@ public class Planner extends HtmlMacroComponent  {
         leftPane.afterCompose();
         setAt("insertionPointRightPanel", ganttPanel);
         ganttPanel.afterCompose();
+        updateMoreRowsPending();
         leftPane.setGoingDownInLastArrowCommand(goingDownInLastArrowCommand);
 
         TimeTrackerComponent timetrackerheader = new TimeTrackerComponentWithoutColumns(
@@ -481,10 +506,17 @@ public class Planner extends HtmlMacroComponent  {
                 return true;
             }
         };
-        this.leftPane = new LeftPane(disabilityConfiguration, this, predicate);
+        materializedRowsPredicate = null;
+        if (disabilityConfiguration.isVirtualizedRowsEnabled()
+                && !allRowsShownByDefault) {
+            materializedRowsPredicate = new MaterializedRowsPredicate(this,
+                    predicate, MATERIALIZED_ROWS_PER_PAGE);
+        }
+        this.leftPane = new LeftPane(disabilityConfiguration, this,
+                getShownRowsPredicate());
         this.ganttPanel = new GanttPanel(this,
                 commandsOnTasksContextualized, doubleClickCommand,
-                disabilityConfiguration, predicate);
+                disabilityConfiguration, getShownRowsPredicate());
 
         Button button = (Button) getFellow("btnPrint");
         button.setDisabled(!context.isPrintEnabled());
@@ -605,6 +637,12 @@ public class Planner extends HtmlMacroComponent  {
 
     private FilterAndParentExpandedPredicates predicate;
 
+    private MaterializedRowsPredicate materializedRowsPredicate;
+
+    private boolean allRowsShownByDefault = false;
+
+    private boolean materializedRowsRefreshScheduled = false;
+
     private boolean visibleChart;
 
     public void showCriticalPath() {
@@ -748,6 +786,14 @@ public class Planner extends HtmlMacroComponent  {
         this.containersExpandedByDefault = containersExpandedByDefault;
     }
 
+    public boolean areAllRowsShownByDefault() {
+        return allRowsShownByDefault;
+    }
+
+    public void setAreAllRowsShownByDefault(boolean allRowsShownByDefault) {
+        this.allRowsShownByDefault = allRowsShownByDefault;
+    }
+
     public boolean areShownAdvancesByDefault() {
         return shownAdvanceByDefault;
     }
@@ -823,9 +869,34 @@ public class Planner extends HtmlMacroComponent  {
 
     public void setTaskListPredicate(FilterAndParentExpandedPredicates predicate) {
         this.predicate = predicate;
-        leftPane.setPredicate(predicate);
-        getTaskList().setPredicate(predicate);
-        getDependencyList().redrawDependencies();
+        if (materializedRowsPredicate != null) {
+            materializedRowsPredicate.setDecorated(predicate);
+        }
+        refreshShownRows(false);
+    }
+
+    private FilterAndParentExpandedPredicates getShownRowsPredicate() {
+        if (materializedRowsPredicate != null) {
+            return materializedRowsPredicate;
+        }
+        return predicate;
+    }
+
+    /**
+     * @param onlyNewRows
+     *            if <code>true</code> the predicate only accepts more rows
+     *            than before, so the rows already in the left tree are kept
+     */
+    private void refreshShownRows(boolean onlyNewRows) {
+        FilterAndParentExpandedPredicates shownRowsPredicate = getShownRowsPredicate();
+        if (onlyNewRows) {
+            leftPane.showNewlyAcceptedTasks();
+        } else {
+            leftPane.setPredicate(shownRowsPredicate);
+        }
+        // the dependencies are redrawn by the task list
+        getTaskList().setPredicate(shownRowsPredicate);
+        updateMoreRowsPending();
 
         if (isShowingLabels) {
             Clients.evalJavaScript("ganttz.TaskList.getInstance().showAllTaskLabels();");
@@ -836,6 +907,33 @@ public class Planner extends HtmlMacroComponent  {
         }
     }
 
+    /**
+     * Called from the client side when the user scrolls near the end of the
+     * rows already shown
+     */
+    public void materializeMoreRows() {
+        if (materializedRowsPredicate == null) {
+            updateMoreRowsPending();
+            return;
+        }
+        materializedRowsPredicate.materializeMoreRows();
+        refreshShownRows(true);
+        Clients.evalJavaScript("ganttz.Planner.getInstance().adjustScrollableDimensions()");
+    }
+
+    void scheduleMaterializedRowsRefresh() {
+        if (materializedRowsRefreshScheduled) {
+            return;
+        }
+        materializedRowsRefreshScheduled = true;
+        Events.postEvent(new Event(ON_REFRESH_MATERIALIZED_ROWS, this));
+    }
+
+    private void updateMoreRowsPending() {
+        ganttPanel.setMoreRowsPending(materializedRowsPredicate != null
+                && materializedRowsPredicate.hasMoreRowsPending());
+    }
+
     public void flattenTree() {
         Button flattenTreeButton = (Button) getFellow("flattenTree");
         if (disabilityConfiguration.isFlattenTreeEnabled()) {
@@ -54,4 +54,6 @@ public interface IDisabilityConfiguration {
 
     public boolean isTreeEditable();
 
+    public boolean isVirtualizedRowsEnabled();
+
 }
@@ -165,6 +165,8 @@ public class PlannerConfiguration<T> implements IDisabilityConfiguration {
 
     private boolean treeEditable = true;
 
+    private boolean virtualizedRowsEnabled = false;
+
     // private String identifier = null;
 
     private IDetailItemModificator firstLevelModificators = SeveralModificators
@@ -499,6 +501,19 @@ public class PlannerConfiguration<T> implements IDisabilityConfiguration {
         return treeEditable;
     }
 
+    /**
+     * If enabled only the rows near the visible ones are created, the rest
+     * of rows are created when the user scrolls down
+     */
+    public void setVirtualizedRowsEnabled(boolean virtualizedRowsEnabled) {
+        this.virtualizedRowsEnabled = virtualizedRowsEnabled;
+    }
+
+    @Override
+    public boolean isVirtualizedRowsEnabled() {
+        return virtualizedRowsEnabled;
+    }
+
     public boolean isScheduleBackwards() {
         return scheduleBackwards;
     }
@@ -35,6 +35,7 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 
@@ -281,7 +282,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
 
     private final DirectedGraph<V, D> graph;
 
-    private final TopologicalSorter topologicalSorter;
+    private final TopologicalIndex<TaskPoint> topologicalIndex;
 
     private List<V> topLevelTasks = new ArrayList<V>();
 
@@ -380,7 +381,8 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         this.globalEndConstraints = globalEndConstraints;
         this.dependenciesConstraintsHavePriority = dependenciesConstraintsHavePriority;
         this.graph = new SimpleDirectedGraph<V, D>(adapter.getDependencyType());
-        this.topologicalSorter = new TopologicalSorter();
+        this.topologicalIndex = new TopologicalIndex<TaskPoint>(
+                new TaskPointsGraph());
     }
 
     public void enforceAllRestrictions() {
@@ -425,94 +427,54 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         }
     }
 
-    class TopologicalSorter {
+    private class TaskPointsGraph implements
+            TopologicalIndex.IGraph<TaskPoint> {
 
-        private Map<TaskPoint, Integer> taskPointsByDepthCached = null;
-
-        private Map<TaskPoint, Integer> taskPointsByDepth() {
-            if (taskPointsByDepthCached != null) {
-                return taskPointsByDepthCached;
-            }
-
-            Map<TaskPoint, Integer> result = new HashMap<TaskPoint, Integer>();
-            Map<TaskPoint, Set<TaskPoint>> visitedBy = new HashMap<TaskPoint, Set<TaskPoint>>();
-
-            Queue<TaskPoint> withoutIncoming = getInitial(withoutVisibleIncomingDependencies(getTopLevelTasks()));
-            for (TaskPoint each : withoutIncoming) {
-                initializeIfNeededForKey(result, each, 0);
-            }
-
-            while (!withoutIncoming.isEmpty()) {
-                TaskPoint current = withoutIncoming.poll();
-                for (TaskPoint each : current.getImmediateSuccessors()) {
-                    initializeIfNeededForKey(visitedBy, each,
-                            new HashSet<TaskPoint>());
-                    Set<TaskPoint> visitors = visitedBy.get(each);
-                    visitors.add(current);
-                    Set<TaskPoint> predecessorsRequired = each
-                            .getImmediatePredecessors();
-                    if (visitors.containsAll(predecessorsRequired)) {
-                        initializeIfNeededForKey(result, each,
-                                result.get(current) + 1);
-                        withoutIncoming.offer(each);
-                    }
-                }
-            }
-            return taskPointsByDepthCached = Collections
-                    .unmodifiableMap(result);
-        }
-
-        private <K, T> void initializeIfNeededForKey(Map<K, T> map, K key,
-                T initialValue) {
-            if (!map.containsKey(key)) {
-                map.put(key, initialValue);
-            }
-        }
-
-        private LinkedList<TaskPoint> getInitial(List<V> initial) {
-            LinkedList<TaskPoint> result = new LinkedList<TaskPoint>();
-            for (V each : initial) {
-                result.add(allPointsPotentiallyModified(each));
+        @Override
+        public Collection<TaskPoint> getAllPoints() {
+            List<TaskPoint> result = new ArrayList<TaskPoint>();
+            for (V each : graph.vertexSet()) {
+                result.addAll(pointsOf(each));
             }
             return result;
         }
 
-        public void recalculationNeeded() {
-            taskPointsByDepthCached = null;
+        @Override
+        public Collection<TaskPoint> getImmediateSuccessors(TaskPoint point) {
+            return point.getImmediateSuccessors();
         }
+    }
 
-        public List<Recalculation> sort(
-                Collection<? extends Recalculation> recalculationsToBeSorted) {
+    private List<TaskPoint> pointsOf(V task) {
+        return asList(allPointsPotentiallyModified(task), new TaskPoint(task,
+                getDominatingPoint().getOther()));
+    }
 
-            List<Recalculation> result = new ArrayList<Recalculation>(
-                    recalculationsToBeSorted);
-            final Map<TaskPoint, Integer> taskPointsByDepth = taskPointsByDepth();
-            Collections.sort(result, new Comparator<Recalculation>() {
+    private Comparator<Recalculation> byTopologicalOrder() {
+        return new Comparator<Recalculation>() {
 
-                @Override
-                public int compare(Recalculation o1, Recalculation o2) {
-                    int o1Depth = onNullDefault(
-                            taskPointsByDepth.get(o1.taskPoint),
-                            Integer.MAX_VALUE, "no depth value for "
-                                    + o1.taskPoint);
-                    int o2Depth = onNullDefault(
-                            taskPointsByDepth.get(o2.taskPoint),
-                            Integer.MAX_VALUE, "no depth value for "
-                                    + o2.taskPoint);
-                    int result = o1Depth - o2Depth;
-                    if (result == 0) {
-                        return asInt(o1.parentRecalculation)
-                                - asInt(o2.parentRecalculation);
-                    }
-                    return result;
+            @Override
+            public int compare(Recalculation o1, Recalculation o2) {
+                int o1Depth = depthOf(o1);
+                int o2Depth = depthOf(o2);
+                if (o1Depth != o2Depth) {
+                    return o1Depth < o2Depth ? -1 : 1;
                 }
+                return asInt(o1.parentRecalculation)
+                        - asInt(o2.parentRecalculation);
+            }
 
-                private int asInt(boolean b) {
-                    return b ? 1 : 0;
-                }
-            });
-            return result;
-        }
+            private int depthOf(Recalculation recalculation) {
+                return onNullDefault(
+                        topologicalIndex.getDepth(recalculation.taskPoint),
+                        Integer.MAX_VALUE, "no depth value for "
+                                + recalculation.taskPoint);
+            }
+
+            private int asInt(boolean b) {
+                return b ? 1 : 0;
+            }
+        };
     }
 
     private static <T> T onNullDefault(T value, T defaultValue,
@@ -533,7 +495,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         while (!stack.isEmpty()){
             V task = stack.remove(0);
             graph.addVertex(task);
-            topologicalSorter.recalculationNeeded();
+            topologicalIndex.raiseSuccessorsOf(pointsOf(task));
             adapter.registerDependenciesEnforcerHookOn(task, enforcer);
             if (adapter.isContainer(task)) {
                 for (V child : adapter.getChildren(task)) {
@@ -918,24 +880,20 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         }
 
         void enforceRestrictionsOn(Collection<? extends V> tasks) {
-            List<Recalculation> allRecalculations = new ArrayList<Recalculation>();
-            for (V each : tasks) {
-                allRecalculations.addAll(getRecalculationsNeededFrom(each));
-            }
-            enforceRestrictionsOn(allRecalculations, tasks);
+            enforceRestrictionsOn(new ArrayList<V>(tasks), tasks);
         }
 
         void enforceRestrictionsOn(V task) {
-            enforceRestrictionsOn(getRecalculationsNeededFrom(task),
+            enforceRestrictionsOn(Collections.singletonList(task),
                     Collections.singleton(task));
         }
 
-        void enforceRestrictionsOn(final List<Recalculation> recalculations,
+        void enforceRestrictionsOn(final List<V> modifiedTasks,
                 final Collection<? extends V> initiallyModified) {
             executeWithPreAndPostActionsOnlyIfNewEntrance(new IAction() {
                 @Override
                 public void doAction() {
-                    doRecalculations(recalculations, initiallyModified);
+                    doRecalculations(modifiedTasks, initiallyModified);
                 }
             });
         }
@@ -1019,26 +977,22 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
             executeWithPreAndPostActionsOnlyIfNewEntrance(new IAction() {
                 @Override
                 public void doAction() {
-                    List<Recalculation> recalculationsNeededFrom = getRecalculationsNeededFrom(task);
-                    doRecalculations(recalculationsNeededFrom,
+                    doRecalculations(Collections.singletonList(task),
                             Collections.singletonList(task));
                 }
             });
         }
 
-        private void doRecalculations(List<Recalculation> recalculationsNeeded,
+        private void doRecalculations(List<V> modifiedTasks,
                 Collection<? extends V> initiallyModified) {
             Set<V> allModified = new HashSet<V>();
             allModified.addAll(initiallyModified);
-            for (Recalculation each : recalculationsNeeded) {
-                boolean modified = each.doRecalculation();
-                if (modified) {
-                    allModified.add(each.taskPoint.task);
-                }
+            for (V each : modifiedTasks) {
+                allModified.addAll(recalculateFrom(each));
             }
             List<V> shrunkContainers = shrunkContainersOfModified(allModified);
             for (V each : getTaskAffectedByShrinking(shrunkContainers)) {
-                doRecalculations(getRecalculationsNeededFrom(each),
+                doRecalculations(Collections.singletonList(each),
                         Collections.singletonList(each));
             }
         }
@@ -1144,51 +1098,62 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         }
     }
 
-    List<Recalculation> getRecalculationsNeededFrom(V task) {
-        List<Recalculation> result = new ArrayList<Recalculation>();
+    /**
+     * Recalculates the positions of the task points that can be affected by
+     * the modification of the given task. The pending recalculations are kept
+     * in a queue ordered by the {@link TopologicalIndex}, and the successors
+     * of a point are only added if it has been modified. So only the part of
+     * the graph actually affected by the modification is visited.
+     *
+     * @return the tasks whose position has been modified
+     */
+    Set<V> recalculateFrom(V task) {
+        Set<V> result = new HashSet<V>();
         Set<Recalculation> parentRecalculationsAlreadyDone = new HashSet<Recalculation>();
+        Map<Recalculation, Recalculation> alreadyAdded = new HashMap<Recalculation, Recalculation>();
+        Queue<Recalculation> pending = new PriorityQueue<Recalculation>(11,
+                byTopologicalOrder());
+
         Recalculation first = recalculationFor(allPointsPotentiallyModified(task));
         first.couldHaveBeenModifiedBeforehand();
+        pending.addAll(getParentsRecalculations(
+                parentRecalculationsAlreadyDone, first.taskPoint));
+        pending.offer(first);
+        alreadyAdded.put(first, first);
 
-        result.addAll(getParentsRecalculations(parentRecalculationsAlreadyDone,
-                first.taskPoint));
-        result.add(first);
-
-        Queue<Recalculation> pendingOfVisit = new LinkedList<Recalculation>();
-        pendingOfVisit.offer(first);
-
-        Map<Recalculation, Recalculation> alreadyVisited = new HashMap<Recalculation, Recalculation>();
-        alreadyVisited.put(first, first);
-
-        while (!pendingOfVisit.isEmpty()) {
-            Recalculation current = pendingOfVisit.poll();
+        while (!pending.isEmpty()) {
+            Recalculation current = pending.poll();
+            if (current.doRecalculation()) {
+                result.add(current.taskPoint.task);
+            }
+            if (current.parentRecalculation
+                    || !current.couldHaveModifiedSuccessors()) {
+                continue;
+            }
             for (TaskPoint each : current.taskPoint.getImmediateSuccessors()) {
                 if (each.isImmediatelyDerivedFrom(current.taskPoint)) {
                     continue;
                 }
-                Recalculation recalculationToAdd = getRecalcualtionToAdd(each,
-                        alreadyVisited);
-                recalculationToAdd.comesFromPredecessor(current);
-                if (!alreadyVisited.containsKey(recalculationToAdd)) {
-                    result.addAll(getParentsRecalculations(
+                Recalculation recalculation = recalculationFor(each);
+                Recalculation existent = alreadyAdded.get(recalculation);
+                if (existent == null) {
+                    pending.addAll(getParentsRecalculations(
                             parentRecalculationsAlreadyDone, each));
-                    result.add(recalculationToAdd);
-                    pendingOfVisit.offer(recalculationToAdd);
-                    alreadyVisited.put(recalculationToAdd, recalculationToAdd);
+                    alreadyAdded.put(recalculation, recalculation);
+                    recalculation.comesFromPredecessor(current);
+                    pending.offer(recalculation);
+                } else {
+                    existent.comesFromPredecessor(current);
+                    if (existent.recalculationCalled) {
+                        LOG.warn(existent.taskPoint
+                                + " already recalculated before "
+                                + current.taskPoint);
+                        pending.offer(existent);
+                    }
                 }
             }
         }
-        return topologicalSorter.sort(result);
-    }
-
-    private Recalculation getRecalcualtionToAdd(TaskPoint taskPoint,
-            Map<Recalculation, Recalculation> alreadyVisited) {
-        Recalculation result = recalculationFor(taskPoint);
-        if (alreadyVisited.containsKey(result)) {
-            return alreadyVisited.get(result);
-        } else {
-            return result;
-        }
+        return result;
     }
 
     private List<Recalculation> getParentsRecalculations(
@@ -1280,6 +1245,10 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
             return dataPointModified;
         }
 
+        boolean couldHaveModifiedSuccessors() {
+            return dataPointModified || couldHaveBeenModifiedBeforehand;
+        }
+
         private boolean haveToDoCalculation() {
             return recalculationsCouldAffectThis.isEmpty()
                     || predecessorsHaveBeenModified();
@@ -1948,13 +1917,13 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
                 remove(t);
             }
         }
-        topologicalSorter.recalculationNeeded();
+        topologicalIndex.pointsRemoved(pointsOf(task));
         enforcer.enforceRestrictionsOn(needingEnforcing);
     }
 
     public void removeDependency(D dependency) {
         graph.removeEdge(dependency);
-        topologicalSorter.recalculationNeeded();
+        topologicalIndex.edgesRemoved();
         V destination = adapter.getDestination(dependency);
         V source = adapter.getSource(dependency);
         enforcer.enforceRestrictionsOn(destination);
@@ -2002,7 +1971,8 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         V source = adapter.getSource(dependency);
         V destination = adapter.getDestination(dependency);
         graph.addEdge(source, destination, dependency);
-        topologicalSorter.recalculationNeeded();
+        topologicalIndex
+                .raiseSuccessorsOf(pointsOf(getDependencySource(dependency)));
         if (enforceRestrictions) {
             enforceRestrictions(destination);
         }
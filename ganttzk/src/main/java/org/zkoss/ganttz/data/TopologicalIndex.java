@@ -0,0 +1,195 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2011 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zkoss.ganttz.data;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Keeps a depth for each point of a directed graph, so the depth of a point is
+ * always bigger than the depth of its immediate predecessors. The depth is the
+ * length of the longest path reaching the point.
+ * <p>
+ * When points or edges are added only the depths that must increase are
+ * updated. When points or edges are removed some depths could be too big, so
+ * all of them are calculated again the next time they are needed.
+ * <p>
+ * The points that are in a cycle, or after one, are put after the rest of
+ * points.
+ */
+class TopologicalIndex<P> {
+
+    private static final Log LOG = LogFactory.getLog(TopologicalIndex.class);
+
+    interface IGraph<P> {
+
+        Collection<? extends P> getAllPoints();
+
+        Collection<? extends P> getImmediateSuccessors(P point);
+    }
+
+    private final IGraph<P> graph;
+
+    private final Map<P, Integer> depths = new HashMap<P, Integer>();
+
+    private boolean recalculationNeeded = false;
+
+    TopologicalIndex(IGraph<P> graph) {
+        Validate.notNull(graph);
+        this.graph = graph;
+    }
+
+    /**
+     * It must be called when the points are added or when edges going out of
+     * them are added
+     */
+    void raiseSuccessorsOf(Collection<? extends P> points) {
+        if (recalculationNeeded) {
+            return;
+        }
+        Queue<P> pending = new LinkedList<P>();
+        for (P each : points) {
+            if (!depths.containsKey(each)) {
+                depths.put(each, 0);
+            }
+            pending.offer(each);
+        }
+        while (!pending.isEmpty()) {
+            P current = pending.poll();
+            int successorsDepth = depths.get(current) + 1;
+            for (P each : graph.getImmediateSuccessors(current)) {
+                Integer depth = depths.get(each);
+                if (depth != null && depth >= successorsDepth) {
+                    continue;
+                }
+                if (successorsDepth > depths.size()) {
+                    // a path can't be longer than the number of points if
+                    // there are no cycles
+                    recalculationNeeded = true;
+                    return;
+                }
+                depths.put(each, successorsDepth);
+                pending.offer(each);
+            }
+        }
+    }
+
+    void pointsRemoved(Collection<? extends P> points) {
+        for (P each : points) {
+            depths.remove(each);
+        }
+        recalculationNeeded = true;
+    }
+
+    void edgesRemoved() {
+        recalculationNeeded = true;
+    }
+
+    /**
+     * @return the depth of the point or <code>null</code> if the point is not
+     *         known
+     */
+    Integer getDepth(P point) {
+        if (recalculationNeeded) {
+            recalculateAll();
+        }
+        return depths.get(point);
+    }
+
+    private void recalculateAll() {
+        recalculationNeeded = false;
+        depths.clear();
+        Map<P, Integer> predecessorsPending = countPredecessors();
+        Queue<P> withoutPendingPredecessors = new LinkedList<P>();
+        for (P each : predecessorsPending.keySet()) {
+            if (predecessorsPending.get(each) == 0) {
+                depths.put(each, 0);
+                withoutPendingPredecessors.offer(each);
+            }
+        }
+        Set<P> done = new HashSet<P>();
+        int maxDepth = 0;
+        while (!withoutPendingPredecessors.isEmpty()) {
+            P current = withoutPendingPredecessors.poll();
+            done.add(current);
+            int successorsDepth = depths.get(current) + 1;
+            for (P each : graph.getImmediateSuccessors(current)) {
+                Integer depth = depths.get(each);
+                if (depth == null || depth < successorsDepth) {
+                    depths.put(each, successorsDepth);
+                    maxDepth = Math.max(maxDepth, successorsDepth);
+                }
+                int pending = predecessorsPending.get(each) - 1;
+                predecessorsPending.put(each, pending);
+                if (pending == 0) {
+                    withoutPendingPredecessors.offer(each);
+                }
+            }
+        }
+        if (done.size() < predecessorsPending.size()) {
+            putAfterTheRest(predecessorsPending.keySet(), done, maxDepth + 1);
+        }
+    }
+
+    private Map<P, Integer> countPredecessors() {
+        Map<P, Integer> result = new HashMap<P, Integer>();
+        Set<P> points = new LinkedHashSet<P>(graph.getAllPoints());
+        Queue<P> pending = new LinkedList<P>(points);
+        for (P each : points) {
+            result.put(each, 0);
+        }
+        while (!pending.isEmpty()) {
+            P current = pending.poll();
+            for (P each : graph.getImmediateSuccessors(current)) {
+                Integer count = result.get(each);
+                if (count == null) {
+                    pending.offer(each);
+                    count = 0;
+                }
+                result.put(each, count + 1);
+            }
+        }
+        return result;
+    }
+
+    private void putAfterTheRest(Collection<P> all, Set<P> done, int depth) {
+        Set<P> inCycles = new HashSet<P>();
+        for (P each : all) {
+            if (!done.contains(each)) {
+                inCycles.add(each);
+                depths.put(each, depth);
+            }
+        }
+        LOG.warn("there are cycles among " + inCycles);
+    }
+
+}
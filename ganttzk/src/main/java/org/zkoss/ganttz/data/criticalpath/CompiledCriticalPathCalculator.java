@@ -0,0 +1,860 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2011 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zkoss.ganttz.data.criticalpath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.zkoss.ganttz.data.DependencyType;
+import org.zkoss.ganttz.data.GanttDate;
+import org.zkoss.ganttz.data.IDependency;
+import org.zkoss.ganttz.data.constraint.Constraint;
+
+/**
+ * Calculates the critical path like {@link CriticalPathCalculator} but
+ * compiling the graph first into arrays indexed by <code>int</code>. The nodes
+ * are the tasks that aren't containers, and the dependencies of the
+ * containers are spread over their leaf tasks. The forward and backward
+ * passes are done iteratively using work queues, so big projects don't need
+ * deep recursion.
+ * <p>
+ * Once the critical path has been calculated,
+ * {@link #recalculateAfterChangeOf(Object)} updates it when the dates or the
+ * constraints of a task change, recalculating only the tasks that can be
+ * affected by the change. If the dependencies of the task have changed
+ * everything is calculated again.
+ */
+public class CompiledCriticalPathCalculator<T, D extends IDependency<T>>
+        implements ICriticalPathCalculator<T> {
+
+    public static <T, D extends IDependency<T>> CompiledCriticalPathCalculator<T, D> create(
+            boolean dependenciesConstraintsHavePriority) {
+        return new CompiledCriticalPathCalculator<T, D>(
+                dependenciesConstraintsHavePriority);
+    }
+
+    private final boolean dependenciesConstraintsHavePriority;
+
+    private ICriticalPathCalculable<T> graph;
+
+    private LocalDate initDate;
+
+    private List<T> tasks;
+
+    private Map<T, Integer> indexes;
+
+    private int[] durations;
+
+    private List<Constraint<GanttDate>> constraints;
+
+    /**
+     * Tasks following the beginning of the project
+     */
+    private boolean[] initial;
+
+    /**
+     * Tasks preceding the end of the project
+     */
+    private boolean[] latest;
+
+    /**
+     * Tasks that don't have next tasks or whose next tasks all start with
+     * them, so their end is a candidate for the end of the project
+     */
+    private boolean[] feedsEndOfProject;
+
+    private Edges next;
+
+    private Edges previous;
+
+    /**
+     * The indexes of the tasks directly connected with each task, without
+     * the dependencies coming from containers
+     */
+    private List<Set<Integer>> directNext;
+
+    private List<Set<Integer>> directPrevious;
+
+    private int[] topologicalPosition;
+
+    private int[] earliestStart;
+
+    private int[] latestFinish;
+
+    private boolean[] hasLatestFinish;
+
+    private boolean[] forwarded;
+
+    private boolean[] backwarded;
+
+    private int endOfProject;
+
+    private CompiledCriticalPathCalculator(
+            boolean dependenciesConstraintsHavePriority) {
+        this.dependenciesConstraintsHavePriority = dependenciesConstraintsHavePriority;
+    }
+
+    @Override
+    public List<T> calculateCriticalPath(ICriticalPathCalculable<T> graph) {
+        compile(graph);
+        if (tasks.isEmpty()) {
+            return new ArrayList<T>();
+        }
+        forward();
+        backward();
+        return getTasksOnCriticalPath();
+    }
+
+    /**
+     * Updates the critical path previously calculated after the dates or the
+     * constraints of the given task have changed. If the task has gained or
+     * lost dependencies with other tasks that aren't containers the whole
+     * critical path is calculated again. The changes in the dependencies of
+     * containers aren't detected, so
+     * {@link #calculateCriticalPath(ICriticalPathCalculable)} must be called
+     * for them.
+     */
+    public List<T> recalculateAfterChangeOf(T task) {
+        Validate.notNull(graph, "the critical path must be calculated first");
+        Integer index = indexes.get(task);
+        if (index == null || dependenciesChanged(task, index)) {
+            return calculateCriticalPath(graph);
+        }
+        durations[index] = durationOf(task);
+        constraints.set(index, getDateConstraints(task));
+
+        for (int each : inTopologicalOrder(next.reachableFrom(index))) {
+            recalculateEarliestStart(each);
+        }
+        int previousEndOfProject = endOfProject;
+        endOfProject = calculateEndOfProject();
+        if (previousEndOfProject != endOfProject) {
+            backward();
+        } else {
+            int[] affected = inTopologicalOrder(previous.reachableFrom(index));
+            for (int i = affected.length - 1; i >= 0; i--) {
+                recalculateLatestFinish(affected[i]);
+            }
+        }
+        return getTasksOnCriticalPath();
+    }
+
+    private boolean dependenciesChanged(T task, int index) {
+        Set<Integer> currentNext = new HashSet<Integer>();
+        addIndexesOf(currentNext, graph.getOutgoingTasksFor(task));
+        Set<Integer> currentPrevious = new HashSet<Integer>();
+        addIndexesOf(currentPrevious, graph.getIncomingTasksFor(task));
+        return !currentNext.equals(directNext.get(index))
+                || !currentPrevious.equals(directPrevious.get(index));
+    }
+
+    /**
+     * @return the days the task can be delayed without delaying the end of
+     *         the project or <code>null</code> if it's unknown
+     */
+    public Integer getSlack(T task) {
+        Integer index = indexes == null ? null : indexes.get(task);
+        if (index == null || !hasLatestFinish[index]) {
+            return null;
+        }
+        return latestFinish[index] - durations[index] - earliestStart[index];
+    }
+
+    private void compile(ICriticalPathCalculable<T> graph) {
+        this.graph = graph;
+        tasks = new ArrayList<T>();
+        indexes = new HashMap<T, Integer>();
+        for (T each : graph.getTasks()) {
+            if (!graph.isContainer(each)) {
+                indexes.put(each, tasks.size());
+                tasks.add(each);
+            }
+        }
+        int size = tasks.size();
+        initDate = calculateInitDate();
+        durations = new int[size];
+        constraints = new ArrayList<Constraint<GanttDate>>(size);
+        for (int i = 0; i < size; i++) {
+            durations[i] = durationOf(tasks.get(i));
+            constraints.add(getDateConstraints(tasks.get(i)));
+        }
+
+        List<Set<Integer>> nextTasks = emptyAdjacency(size);
+        List<Set<Integer>> previousTasks = emptyAdjacency(size);
+        for (int i = 0; i < size; i++) {
+            T task = tasks.get(i);
+            addIndexesOf(nextTasks.get(i), graph.getOutgoingTasksFor(task));
+            addIndexesOf(previousTasks.get(i), graph.getIncomingTasksFor(task));
+        }
+        directNext = copy(nextTasks);
+        directPrevious = copy(previousTasks);
+        Map<T, Map<T, DependencyType>> containerDependencies = new HashMap<T, Map<T, DependencyType>>();
+        for (T task : graph.getTasks()) {
+            if (graph.isContainer(task)) {
+                addContainerDependencies(task, nextTasks, previousTasks,
+                        containerDependencies);
+            }
+        }
+        next = new Edges(nextTasks, containerDependencies, false);
+        previous = new Edges(previousTasks, containerDependencies, true);
+        next.markGates(previous);
+        previous.markGates(next);
+
+        initial = markIndexes(removeWithVisibleIncomingDependencies(leavesOf(graph
+                .getInitialTasks())));
+        latest = markIndexes(removeWithVisibleOutcomingDependencies(leavesOf(graph
+                .getLatestTasks())));
+        feedsEndOfProject = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            feedsEndOfProject[i] = next.allStartStart(i);
+        }
+        topologicalPosition = calculateTopologicalPositions();
+
+        earliestStart = new int[size];
+        latestFinish = new int[size];
+        hasLatestFinish = new boolean[size];
+        forwarded = new boolean[size];
+        backwarded = new boolean[size];
+    }
+
+    private static List<Set<Integer>> emptyAdjacency(int size) {
+        List<Set<Integer>> result = new ArrayList<Set<Integer>>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new LinkedHashSet<Integer>());
+        }
+        return result;
+    }
+
+    private static List<Set<Integer>> copy(List<Set<Integer>> adjacency) {
+        List<Set<Integer>> result = new ArrayList<Set<Integer>>(
+                adjacency.size());
+        for (Set<Integer> each : adjacency) {
+            result.add(new HashSet<Integer>(each));
+        }
+        return result;
+    }
+
+    private void addIndexesOf(Set<Integer> result, Collection<T> tasks) {
+        if (tasks == null) {
+            return;
+        }
+        for (T each : tasks) {
+            Integer index = indexes.get(each);
+            if (index != null) {
+                result.add(index);
+            }
+        }
+    }
+
+    private void addContainerDependencies(T container,
+            List<Set<Integer>> nextTasks, List<Set<Integer>> previousTasks,
+            Map<T, Map<T, DependencyType>> containerDependencies) {
+        Collection<T> allChildren = leavesOf(Collections
+                .singletonList(container));
+        for (T each : removeChildrenAndParents(container,
+                graph.getIncomingTasksFor(container))) {
+            addDependencies(leavesOf(Collections.singletonList(each)),
+                    allChildren, typeOf(graph.getDependencyFrom(each, container)),
+                    nextTasks, previousTasks, containerDependencies);
+        }
+        for (T each : removeChildrenAndParents(container,
+                graph.getOutgoingTasksFor(container))) {
+            addDependencies(allChildren,
+                    leavesOf(Collections.singletonList(each)),
+                    typeOf(graph.getDependencyFrom(container, each)),
+                    nextTasks, previousTasks, containerDependencies);
+        }
+    }
+
+    private static DependencyType typeOf(IDependency<?> dependency) {
+        return dependency != null ? dependency.getType()
+                : DependencyType.END_START;
+    }
+
+    private void addDependencies(Collection<T> origins,
+            Collection<T> destinations, DependencyType type,
+            List<Set<Integer>> nextTasks, List<Set<Integer>> previousTasks,
+            Map<T, Map<T, DependencyType>> containerDependencies) {
+        for (T origin : origins) {
+            for (T destination : destinations) {
+                Integer from = indexes.get(origin);
+                Integer to = indexes.get(destination);
+                if (from == null || to == null) {
+                    continue;
+                }
+                nextTasks.get(from).add(to);
+                previousTasks.get(to).add(from);
+                Map<T, DependencyType> destinationsTypes = containerDependencies
+                        .get(origin);
+                if (destinationsTypes == null) {
+                    destinationsTypes = new HashMap<T, DependencyType>();
+                    containerDependencies.put(origin, destinationsTypes);
+                }
+                destinationsTypes.put(destination, type);
+            }
+        }
+    }
+
+    private List<T> removeChildrenAndParents(T container, Set<T> tasks) {
+        List<T> result = new ArrayList<T>();
+        if (tasks == null) {
+            return result;
+        }
+        for (T each : tasks) {
+            if (!graph.contains(container, each)
+                    && !graph.contains(each, container)) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    private Collection<T> leavesOf(Collection<T> tasks) {
+        if (tasks == null) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<T>();
+        for (T each : tasks) {
+            if (graph.isContainer(each)) {
+                result.addAll(leavesOf(graph.getChildren(each)));
+            } else {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    private List<T> removeWithVisibleIncomingDependencies(Collection<T> tasks) {
+        List<T> result = new ArrayList<T>();
+        for (T each : tasks) {
+            if (!graph.hasVisibleIncomingDependencies(each)) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    private List<T> removeWithVisibleOutcomingDependencies(Collection<T> tasks) {
+        List<T> result = new ArrayList<T>();
+        for (T each : tasks) {
+            if (!graph.hasVisibleOutcomingDependencies(each)) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    private boolean[] markIndexes(Collection<T> tasks) {
+        boolean[] result = new boolean[this.tasks.size()];
+        for (T each : tasks) {
+            Integer index = indexes.get(each);
+            if (index != null) {
+                result[index] = true;
+            }
+        }
+        return result;
+    }
+
+    private LocalDate calculateInitDate() {
+        if (graph.getTasks().isEmpty()) {
+            return null;
+        }
+        List<GanttDate> startDates = new ArrayList<GanttDate>();
+        for (T each : graph.getTasks()) {
+            startDates.add(graph.getStartDate(each));
+        }
+        GanttDate ganttDate = Collections.min(startDates);
+        return LocalDate.fromDateFields(ganttDate.toDayRoundedDate());
+    }
+
+    private int durationOf(T task) {
+        LocalDate begin = new LocalDate(graph.getStartDate(task)
+                .toDayRoundedDate());
+        LocalDate end = new LocalDate(graph.getEndDateFor(task)
+                .toDayRoundedDate());
+        return Days.daysBetween(begin, end).getDays();
+    }
+
+    private Constraint<GanttDate> getDateConstraints(T task) {
+        if (dependenciesConstraintsHavePriority) {
+            return null;
+        }
+        List<Constraint<GanttDate>> all = new ArrayList<Constraint<GanttDate>>();
+        List<Constraint<GanttDate>> startConstraints = graph
+                .getStartConstraintsFor(task);
+        if (startConstraints != null) {
+            all.addAll(startConstraints);
+        }
+        List<Constraint<GanttDate>> endConstraints = graph
+                .getEndConstraintsFor(task);
+        if (endConstraints != null) {
+            all.addAll(endConstraints);
+        }
+        return all.isEmpty() ? null : Constraint.coalesce(all);
+    }
+
+    private int[] calculateTopologicalPositions() {
+        int size = tasks.size();
+        List<Set<Integer>> successors = emptyAdjacency(size);
+        int[] pending = new int[size];
+        for (int u = 0; u < size; u++) {
+            for (int e = next.offsets[u]; e < next.offsets[u + 1]; e++) {
+                successors.get(u).add(next.targets[e]);
+            }
+            for (int e = previous.offsets[u]; e < previous.offsets[u + 1]; e++) {
+                successors.get(previous.targets[e]).add(u);
+            }
+        }
+        for (Set<Integer> each : successors) {
+            for (Integer successor : each) {
+                pending[successor]++;
+            }
+        }
+        int[] result = new int[size];
+        Arrays.fill(result, -1);
+        IntQueue queue = new IntQueue();
+        for (int i = 0; i < size; i++) {
+            if (pending[i] == 0) {
+                queue.offer(i);
+            }
+        }
+        int position = 0;
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            result[current] = position++;
+            for (Integer successor : successors.get(current)) {
+                if (--pending[successor] == 0) {
+                    queue.offer(successor);
+                }
+            }
+        }
+        // tasks in a cycle, it shouldn't happen
+        for (int i = 0; i < size; i++) {
+            if (result[i] == -1) {
+                result[i] = position++;
+            }
+        }
+        return result;
+    }
+
+    private int[] inTopologicalOrder(int[] nodes) {
+        int[] positions = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            positions[i] = topologicalPosition[nodes[i]];
+        }
+        Arrays.sort(positions);
+        int[] nodesByPosition = new int[tasks.size()];
+        for (int each : nodes) {
+            nodesByPosition[topologicalPosition[each]] = each;
+        }
+        int[] result = new int[nodes.length];
+        for (int i = 0; i < positions.length; i++) {
+            result[i] = nodesByPosition[positions[i]];
+        }
+        return result;
+    }
+
+    private int forwardCandidate(int edge) {
+        int origin = next.sources[edge];
+        int destination = next.targets[edge];
+        switch (next.types[edge]) {
+        case START_START:
+            return earliestStart[origin];
+        case END_END:
+            return earliestStart[origin] + durations[origin]
+                    - durations[destination];
+        case END_START:
+        default:
+            return earliestStart[origin] + durations[origin];
+        }
+    }
+
+    private int backwardCandidate(int edge) {
+        int task = previous.targets[edge];
+        int successor = previous.sources[edge];
+        int successorLatestStart = latestFinish[successor]
+                - durations[successor];
+        switch (previous.types[edge]) {
+        case START_START:
+            return successorLatestStart + durations[task];
+        case END_END:
+            return latestFinish[successor];
+        case END_START:
+        default:
+            return successorLatestStart;
+        }
+    }
+
+    private void forward() {
+        int size = tasks.size();
+        Arrays.fill(earliestStart, 0);
+        Arrays.fill(forwarded, false);
+        int[] pending = previous.degrees();
+        boolean[] visitedEdges = new boolean[next.targets.length];
+        boolean[] queued = new boolean[size];
+        IntQueue queue = new IntQueue();
+        endOfProject = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (initial[i]) {
+                boolean changed = raiseEarliestStart(i, 0);
+                enqueueIfReady(queue, queued, pending[i], i, changed, forwarded);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            queued[current] = false;
+            forwarded[current] = true;
+            for (int e = next.offsets[current]; e < next.offsets[current + 1]; e++) {
+                int each = next.targets[e];
+                boolean changed = raiseEarliestStart(each, forwardCandidate(e));
+                if (next.countsForGate[e] && !visitedEdges[e]) {
+                    visitedEdges[e] = true;
+                    pending[each]--;
+                }
+                enqueueIfReady(queue, queued, pending[each], each, changed,
+                        forwarded);
+            }
+            if (feedsEndOfProject[current]) {
+                endOfProject = Math.max(endOfProject, earliestStart[current]
+                        + durations[current]);
+            }
+        }
+    }
+
+    private void backward() {
+        int size = tasks.size();
+        Arrays.fill(hasLatestFinish, false);
+        Arrays.fill(backwarded, false);
+        int[] pending = next.degrees();
+        boolean[] visitedEdges = new boolean[previous.targets.length];
+        boolean[] queued = new boolean[size];
+        IntQueue queue = new IntQueue();
+
+        for (int i = 0; i < size; i++) {
+            if (latest[i]) {
+                boolean changed = lowerLatestFinish(i, endOfProject);
+                enqueueIfReady(queue, queued, pending[i], i, changed,
+                        backwarded);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            queued[current] = false;
+            backwarded[current] = true;
+            for (int e = previous.offsets[current]; e < previous.offsets[current + 1]; e++) {
+                int each = previous.targets[e];
+                boolean changed = lowerLatestFinish(each, backwardCandidate(e));
+                if (previous.countsForGate[e] && !visitedEdges[e]) {
+                    visitedEdges[e] = true;
+                    pending[each]--;
+                }
+                enqueueIfReady(queue, queued, pending[each], each, changed,
+                        backwarded);
+            }
+        }
+    }
+
+    /**
+     * A task is processed when all the tasks it depends on have been
+     * processed, and again if its value changes afterwards
+     */
+    private static void enqueueIfReady(IntQueue queue, boolean[] queued,
+            int pending, int task, boolean changed, boolean[] processed) {
+        if (pending <= 0 && !queued[task] && (changed || !processed[task])) {
+            queued[task] = true;
+            queue.offer(task);
+        }
+    }
+
+    private void recalculateEarliestStart(int task) {
+        int result = 0;
+        if (initial[task]) {
+            result = Math.max(result, constrainedStart(task, 0));
+        }
+        for (int e : next.incomingEdges(task)) {
+            if (forwarded[next.sources[e]]) {
+                result = Math.max(result,
+                        constrainedStart(task, forwardCandidate(e)));
+            }
+        }
+        earliestStart[task] = result;
+    }
+
+    private int calculateEndOfProject() {
+        int result = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            if (forwarded[i] && feedsEndOfProject[i]) {
+                result = Math.max(result, earliestStart[i] + durations[i]);
+            }
+        }
+        return result;
+    }
+
+    private void recalculateLatestFinish(int task) {
+        hasLatestFinish[task] = false;
+        if (latest[task]) {
+            lowerLatestFinish(task, endOfProject);
+        }
+        for (int e : previous.incomingEdges(task)) {
+            if (backwarded[previous.sources[e]]) {
+                lowerLatestFinish(task, backwardCandidate(e));
+            }
+        }
+    }
+
+    private boolean raiseEarliestStart(int task, int candidate) {
+        int value = constrainedStart(task, candidate);
+        if (earliestStart[task] < value) {
+            earliestStart[task] = value;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean lowerLatestFinish(int task, int candidate) {
+        int value = constrainedFinish(task, candidate);
+        if (!hasLatestFinish[task] || latestFinish[task] > value) {
+            latestFinish[task] = value;
+            hasLatestFinish[task] = true;
+            return true;
+        }
+        return false;
+    }
+
+    private int constrainedStart(int task, int start) {
+        Constraint<GanttDate> constraint = constraints.get(task);
+        if (constraint == null) {
+            return start;
+        }
+        GanttDate date = constraint.applyTo(GanttDate.createFrom(initDate
+                .plusDays(start)));
+        return Days.daysBetween(initDate,
+                LocalDate.fromDateFields(date.toDayRoundedDate())).getDays();
+    }
+
+    private int constrainedFinish(int task, int finish) {
+        Constraint<GanttDate> constraint = constraints.get(task);
+        if (constraint == null) {
+            return finish;
+        }
+        int duration = durations[task];
+        GanttDate date = constraint.applyTo(GanttDate.createFrom(initDate
+                .plusDays(finish - duration)));
+        return Days.daysBetween(initDate,
+                LocalDate.fromDateFields(date.toDayRoundedDate())).getDays()
+                + duration;
+    }
+
+    private List<T> getTasksOnCriticalPath() {
+        List<T> result = new ArrayList<T>();
+        for (int i = 0; i < tasks.size(); i++) {
+            if (hasLatestFinish[i]
+                    && latestFinish[i] - durations[i] == earliestStart[i]) {
+                result.add(tasks.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The dependencies stored in consecutive arrays. The edges of a task are
+     * between <code>offsets[task]</code> and <code>offsets[task + 1]</code>.
+     * <code>sources</code> has the task owning each edge and
+     * <code>targets</code> the other task.
+     */
+    private class Edges {
+
+        final int[] offsets;
+
+        final int[] sources;
+
+        final int[] targets;
+
+        final DependencyType[] types;
+
+        /**
+         * If the edge has its counterpart in the opposite direction, so the
+         * target task must wait for it before being processed
+         */
+        final boolean[] countsForGate;
+
+        private final int[] incomingOffsets;
+
+        private final int[] incoming;
+
+        Edges(List<Set<Integer>> adjacency,
+                Map<T, Map<T, DependencyType>> containerDependencies,
+                boolean reversed) {
+            int size = adjacency.size();
+            offsets = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[i + 1] = offsets[i] + adjacency.get(i).size();
+            }
+            int edges = offsets[size];
+            sources = new int[edges];
+            targets = new int[edges];
+            types = new DependencyType[edges];
+            countsForGate = new boolean[edges];
+            int[] incomingCount = new int[size + 1];
+            int e = 0;
+            for (int i = 0; i < size; i++) {
+                for (Integer each : adjacency.get(i)) {
+                    sources[e] = i;
+                    targets[e] = each;
+                    types[e] = reversed ? typeBetween(each, i,
+                            containerDependencies) : typeBetween(i, each,
+                            containerDependencies);
+                    incomingCount[each + 1]++;
+                    e++;
+                }
+            }
+            incomingOffsets = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                incomingOffsets[i + 1] = incomingOffsets[i]
+                        + incomingCount[i + 1];
+            }
+            incoming = new int[edges];
+            int[] filled = new int[size];
+            for (int i = 0; i < edges; i++) {
+                int target = targets[i];
+                incoming[incomingOffsets[target] + filled[target]++] = i;
+            }
+        }
+
+        private DependencyType typeBetween(int from, int to,
+                Map<T, Map<T, DependencyType>> containerDependencies) {
+            T origin = tasks.get(from);
+            T destination = tasks.get(to);
+            IDependency<T> dependency = graph.getDependencyFrom(origin,
+                    destination);
+            if (dependency != null) {
+                return dependency.getType();
+            }
+            Map<T, DependencyType> destinations = containerDependencies
+                    .get(origin);
+            if (destinations != null && destinations.get(destination) != null) {
+                return destinations.get(destination);
+            }
+            return DependencyType.END_START;
+        }
+
+        void markGates(Edges opposite) {
+            for (int e = 0; e < targets.length; e++) {
+                countsForGate[e] = opposite.contains(targets[e], sources[e]);
+            }
+        }
+
+        boolean contains(int source, int target) {
+            for (int e = offsets[source]; e < offsets[source + 1]; e++) {
+                if (targets[e] == target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int[] degrees() {
+            int[] result = new int[offsets.length - 1];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = offsets[i + 1] - offsets[i];
+            }
+            return result;
+        }
+
+        boolean allStartStart(int task) {
+            for (int e = offsets[task]; e < offsets[task + 1]; e++) {
+                if (types[e] != DependencyType.START_START) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int[] incomingEdges(int task) {
+            return Arrays.copyOfRange(incoming, incomingOffsets[task],
+                    incomingOffsets[task + 1]);
+        }
+
+        int[] reachableFrom(int task) {
+            boolean[] visited = new boolean[offsets.length - 1];
+            IntQueue pending = new IntQueue();
+            visited[task] = true;
+            pending.offer(task);
+            int count = 0;
+            int[] result = new int[visited.length];
+            while (!pending.isEmpty()) {
+                int current = pending.poll();
+                result[count++] = current;
+                for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                    if (!visited[targets[e]]) {
+                        visited[targets[e]] = true;
+                        pending.offer(targets[e]);
+                    }
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+
+    private static class IntQueue {
+
+        private int[] values = new int[16];
+
+        private int head = 0;
+
+        private int tail = 0;
+
+        void offer(int value) {
+            if (tail == values.length) {
+                if (head > 0) {
+                    System.arraycopy(values, head, values, 0, tail - head);
+                    tail -= head;
+                    head = 0;
+                } else {
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+            }
+            values[tail++] = value;
+        }
+
+        int poll() {
+            return values[head++];
+        }
+
+        boolean isEmpty() {
+            return head == tail;
+        }
+    }
+
+}
@@ -43,7 +43,8 @@ import org.zkoss.ganttz.data.constraint.Constraint;
  *
  * @author Manuel Rego Casasnovas <mrego@igalia.com>
  */
-public class CriticalPathCalculator<T, D extends IDependency<T>> {
+public class CriticalPathCalculator<T, D extends IDependency<T>> implements
+        ICriticalPathCalculator<T> {
 
     private final boolean dependenciesConstraintsHavePriority;
 
@@ -87,6 +88,7 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
 
     }
 
+    @Override
     public List<T> calculateCriticalPath(ICriticalPathCalculable<T> graph) {
         this.graph = graph;
 
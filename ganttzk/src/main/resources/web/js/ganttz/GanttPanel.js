@@ -6,6 +6,8 @@ ganttz.GanttPanel = zk.$extends(zk.Widget,{
         yMouse : null
     },
     scrollDay: 0,
+    _moreRowsPending: false,
+    _moreRowsRequested: false,
     $init : function(){
         this.$supers('$init', arguments);
         this.$class.setInstance(this);
@@ -46,6 +48,27 @@ ganttz.GanttPanel = zk.$extends(zk.Widget,{
         this._taskdetails.css("top", "-" + this._rightpannellayout.scrollTop() + "px");
         this._plannergraph.scrollLeft( this._rightpannellayout.scrollLeft() );
         this.timeplotContainerRescroll();
+        this._requestMoreRowsIfNeeded();
+    },
+    /*Called from the server telling if there are rows not created yet*/
+    setMoreRowsPending : function(pending){
+        this._moreRowsPending = (pending == 'true');
+        this._moreRowsRequested = false;
+        this._requestMoreRowsIfNeeded();
+    },
+    _requestMoreRowsIfNeeded : function(){
+        if (!this._moreRowsPending || this._moreRowsRequested) {
+            return;
+        }
+        var scroller = this._rightpannellayout.get(0);
+        if (!scroller) {
+            return;
+        }
+        var remaining = scroller.scrollHeight - scroller.scrollTop - scroller.clientHeight;
+        if (remaining <= ganttz.GanttPanel.MORE_ROWS_THRESHOLD) {
+            this._moreRowsRequested = true;
+            zAu.send(new zk.Event(this, 'onMoreRowsNeeded', {}));
+        }
     },
     /*The canvas is inserted in the DOM after this component so
      * it's not available right now. It is queried instead. Using throttle
@@ -66,6 +89,8 @@ ganttz.GanttPanel = zk.$extends(zk.Widget,{
         jq('#ganttpanel_inner_scroller_x').width(px);
     }
 },{
+    /*Pixels to the end of the shown rows when more rows are requested*/
+    MORE_ROWS_THRESHOLD : 500,
     getInstance : function(){
         return this._instance;
     },
@@ -0,0 +1,244 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zkoss.ganttz;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.zkoss.ganttz.data.ITaskFundamentalProperties;
+import org.zkoss.ganttz.data.Task;
+import org.zkoss.ganttz.data.TaskContainer;
+import org.zkoss.ganttz.data.TaskLeaf;
+
+/**
+ * Tests for {@link MaterializedRowsPredicate}
+ */
+public class MaterializedRowsPredicateTest {
+
+    /**
+     * Shows the tasks not filtered out whose ancestors are expanded. The
+     * expanded state is kept here, so the containers don't have to be
+     * expanded through the ZK client.
+     */
+    private class StubPredicate extends FilterAndParentExpandedPredicates {
+
+        private final Set<Task> filteredOut;
+
+        StubPredicate(Task... filteredOut) {
+            super(null);
+            this.filteredOut = new HashSet<Task>(Arrays.asList(filteredOut));
+        }
+
+        @Override
+        public boolean accepts(Object object) {
+            Task task = (Task) object;
+            for (Task parent = parents.get(task); parent != null; parent = parents
+                    .get(parent)) {
+                if (!expanded.contains(parent)) {
+                    return false;
+                }
+            }
+            return accpetsFilterPredicate(task);
+        }
+
+        @Override
+        public boolean accpetsFilterPredicate(Task task) {
+            return !filteredOut.contains(task);
+        }
+    }
+
+    private final List<Task> topLevel = new ArrayList<Task>();
+
+    private final Map<Task, Task> parents = new HashMap<Task, Task>();
+
+    private final Set<Task> expanded = new HashSet<Task>();
+
+    private MaterializedRowsPredicate predicate;
+
+    private static Task createLeaf() {
+        return new TaskLeaf(createNiceMock(ITaskFundamentalProperties.class));
+    }
+
+    private TaskContainer createContainer(Task... children) {
+        TaskContainer result = new TaskContainer(
+                createNiceMock(ITaskFundamentalProperties.class), false);
+        for (Task each : children) {
+            result.add(each);
+            parents.put(each, result);
+        }
+        return result;
+    }
+
+    private Task[] givenTopLevelLeaves(int number) {
+        Task[] result = new Task[number];
+        for (int i = 0; i < number; i++) {
+            result[i] = createLeaf();
+        }
+        topLevel.addAll(Arrays.asList(result));
+        return result;
+    }
+
+    private void givenPredicate(int rowsPerPage) {
+        predicate = new MaterializedRowsPredicate(null,
+                new MaterializedRowsPredicate.IRows() {
+
+                    @Override
+                    public List<? extends Task> getAllTasks() {
+                        return topLevel;
+                    }
+
+                    @Override
+                    public void containerExpanded() {
+                        predicate.recalculate();
+                    }
+                }, new StubPredicate(), rowsPerPage);
+    }
+
+    private void assertAccepted(Task... tasks) {
+        for (Task each : tasks) {
+            assertTrue(predicate.accepts(each));
+        }
+    }
+
+    private void assertNotAccepted(Task... tasks) {
+        for (Task each : tasks) {
+            assertFalse(predicate.accepts(each));
+        }
+    }
+
+    @Before
+    public void clearTasks() {
+        topLevel.clear();
+        parents.clear();
+        expanded.clear();
+    }
+
+    @Test
+    public void onlyTheFirstPageOfRowsIsAccepted() {
+        Task[] tasks = givenTopLevelLeaves(5);
+        givenPredicate(2);
+
+        assertAccepted(tasks[0], tasks[1]);
+        assertNotAccepted(tasks[2], tasks[3], tasks[4]);
+        assertTrue(predicate.hasMoreRowsPending());
+    }
+
+    @Test
+    public void eachRequestMaterializesAnotherPage() {
+        Task[] tasks = givenTopLevelLeaves(5);
+        givenPredicate(2);
+
+        predicate.materializeMoreRows();
+        assertAccepted(tasks[0], tasks[1], tasks[2], tasks[3]);
+        assertNotAccepted(tasks[4]);
+        assertTrue(predicate.hasMoreRowsPending());
+
+        predicate.materializeMoreRows();
+        assertAccepted(tasks);
+        assertFalse(predicate.hasMoreRowsPending());
+    }
+
+    @Test
+    public void theChildrenOfAShownContainerAreMaterializedWithIt() {
+        Task child1 = createLeaf();
+        Task child2 = createLeaf();
+        TaskContainer container = createContainer(child1, child2);
+        topLevel.add(container);
+        Task[] leaves = givenTopLevelLeaves(2);
+        givenPredicate(2);
+
+        assertAccepted(container, leaves[0]);
+        assertNotAccepted(leaves[1]);
+        // they are not shown because the container is collapsed
+        assertNotAccepted(child1, child2);
+        assertTrue(predicate.accpetsFilterPredicate(child1));
+        assertTrue(predicate.accpetsFilterPredicate(child2));
+    }
+
+    @Test
+    public void expandingAContainerKeepsTheRowsAlreadyMaterialized() {
+        Task child1 = createLeaf();
+        Task child2 = createLeaf();
+        TaskContainer container = createContainer(child1, child2);
+        topLevel.add(container);
+        Task[] leaves = givenTopLevelLeaves(2);
+        givenPredicate(2);
+        assertAccepted(container, leaves[0]);
+
+        expanded.add(container);
+        predicate.recalculate();
+
+        assertAccepted(container, child1, child2, leaves[0]);
+        assertNotAccepted(leaves[1]);
+
+        expanded.remove(container);
+        predicate.recalculate();
+
+        assertAccepted(container, leaves[0]);
+        assertNotAccepted(child1, child2, leaves[1]);
+    }
+
+    @Test
+    public void changingTheFilterStartsAgainFromTheFirstPage() {
+        Task[] tasks = givenTopLevelLeaves(5);
+        givenPredicate(2);
+        predicate.materializeMoreRows();
+        predicate.materializeMoreRows();
+        assertAccepted(tasks);
+
+        predicate.setDecorated(new StubPredicate(tasks[0]));
+
+        assertNotAccepted(tasks[0]);
+        assertAccepted(tasks[1], tasks[2]);
+        assertNotAccepted(tasks[3], tasks[4]);
+        assertTrue(predicate.hasMoreRowsPending());
+    }
+
+    @Test
+    public void aNewTaskIsAcceptedIfThereIsRoomInTheMaterializedRows() {
+        Task[] tasks = givenTopLevelLeaves(1);
+        givenPredicate(2);
+        assertAccepted(tasks[0]);
+        assertFalse(predicate.hasMoreRowsPending());
+
+        Task added = createLeaf();
+        topLevel.add(added);
+        assertAccepted(added);
+
+        Task another = createLeaf();
+        topLevel.add(another);
+        assertNotAccepted(another);
+        assertTrue(predicate.hasMoreRowsPending());
+    }
+
+}
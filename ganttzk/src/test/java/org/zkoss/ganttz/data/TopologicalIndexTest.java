@@ -0,0 +1,209 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2011 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zkoss.ganttz.data;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TopologicalIndex}
+ */
+public class TopologicalIndexTest {
+
+    private Map<String, Set<String>> successors;
+
+    private TopologicalIndex<String> index;
+
+    @Before
+    public void createEmptyGraph() {
+        successors = new LinkedHashMap<String, Set<String>>();
+        index = new TopologicalIndex<String>(
+                new TopologicalIndex.IGraph<String>() {
+
+                    @Override
+                    public Collection<String> getAllPoints() {
+                        return successors.keySet();
+                    }
+
+                    @Override
+                    public Collection<String> getImmediateSuccessors(
+                            String point) {
+                        Set<String> result = successors.get(point);
+                        return result != null ? result : Collections
+                                .<String> emptySet();
+                    }
+                });
+    }
+
+    private void addPoints(String... points) {
+        for (String each : points) {
+            successors.put(each, new LinkedHashSet<String>());
+        }
+        index.raiseSuccessorsOf(asList(points));
+    }
+
+    private void addEdge(String source, String destination) {
+        successors.get(source).add(destination);
+        index.raiseSuccessorsOf(asList(source));
+    }
+
+    private void removeEdge(String source, String destination) {
+        successors.get(source).remove(destination);
+        index.edgesRemoved();
+    }
+
+    private void removePoint(String point) {
+        successors.remove(point);
+        for (Set<String> each : successors.values()) {
+            each.remove(point);
+        }
+        index.pointsRemoved(asList(point));
+    }
+
+    private int depthOf(String point) {
+        Integer result = index.getDepth(point);
+        assertNotNull("no depth for " + point, result);
+        return result;
+    }
+
+    private void assertBefore(String first, String second) {
+        assertTrue(first + " must go before " + second,
+                depthOf(first) < depthOf(second));
+    }
+
+    @Test
+    public void thePointsWithoutPredecessorsHaveZeroDepth() {
+        addPoints("a", "b");
+        assertThat(depthOf("a"), equalTo(0));
+        assertThat(depthOf("b"), equalTo(0));
+    }
+
+    @Test
+    public void addingEdgesPutsTheDestinationsAfterTheSources() {
+        addPoints("a", "b", "c");
+        addEdge("b", "c");
+        addEdge("a", "b");
+        assertBefore("a", "b");
+        assertBefore("b", "c");
+        assertThat(depthOf("c"), equalTo(2));
+    }
+
+    @Test
+    public void theDepthIsTheLongestPathReachingThePoint() {
+        addPoints("a", "b", "c", "d");
+        addEdge("a", "d");
+        addEdge("a", "b");
+        addEdge("b", "c");
+        addEdge("c", "d");
+        assertThat(depthOf("d"), equalTo(3));
+    }
+
+    @Test
+    public void removingAnEdgeCompactsTheDepths() {
+        addPoints("a", "b", "c");
+        addEdge("a", "b");
+        addEdge("b", "c");
+        removeEdge("a", "b");
+        assertThat(depthOf("a"), equalTo(0));
+        assertThat(depthOf("b"), equalTo(0));
+        assertThat(depthOf("c"), equalTo(1));
+    }
+
+    @Test
+    public void removingAPointForgetsItsDepth() {
+        addPoints("a", "b", "c");
+        addEdge("a", "b");
+        addEdge("b", "c");
+        removePoint("b");
+        assertNull(index.getDepth("b"));
+        assertThat(depthOf("c"), equalTo(0));
+    }
+
+    @Test
+    public void reversingAnEdgeReversesTheOrder() {
+        addPoints("x", "y");
+        addEdge("x", "y");
+        assertBefore("x", "y");
+        removeEdge("x", "y");
+        addEdge("y", "x");
+        assertBefore("y", "x");
+    }
+
+    @Test
+    public void reversingEdgesSeveralTimesKeepsTheOrder() {
+        addPoints("a", "b", "c");
+        addEdge("a", "b");
+        addEdge("b", "c");
+        for (int i = 0; i < 10; i++) {
+            removeEdge("a", "b");
+            removeEdge("b", "c");
+            addEdge("c", "b");
+            addEdge("b", "a");
+            assertBefore("c", "b");
+            assertBefore("b", "a");
+            removeEdge("c", "b");
+            removeEdge("b", "a");
+            addEdge("a", "b");
+            addEdge("b", "c");
+            assertBefore("a", "b");
+            assertBefore("b", "c");
+        }
+        assertThat(depthOf("c"), equalTo(2));
+    }
+
+    @Test
+    public void thePointsInACycleAreAfterTheRest() {
+        addPoints("a", "b", "c", "d");
+        addEdge("a", "b");
+        addEdge("b", "c");
+        addEdge("c", "b");
+        assertBefore("a", "b");
+        assertBefore("d", "c");
+        assertThat(depthOf("b"), equalTo(depthOf("c")));
+    }
+
+    @Test
+    public void afterBreakingACycleTheOrderIsRecovered() {
+        addPoints("a", "b", "c");
+        addEdge("a", "b");
+        addEdge("b", "c");
+        addEdge("c", "b");
+        removeEdge("c", "b");
+        assertBefore("a", "b");
+        assertBefore("b", "c");
+    }
+
+}
@@ -0,0 +1,337 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2011 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zkoss.ganttz.data.criticalpath;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.zkoss.ganttz.data.DependencyType;
+import org.zkoss.ganttz.data.GanttDate;
+import org.zkoss.ganttz.data.IDependency;
+import org.zkoss.ganttz.data.ITaskFundamentalProperties;
+import org.zkoss.ganttz.data.constraint.Constraint;
+
+/**
+ * Runs the tests of {@link CriticalPathCalculatorTest} against
+ * {@link CompiledCriticalPathCalculator}, which must give the same results.
+ */
+public class CompiledCriticalPathCalculatorTest extends
+        CriticalPathCalculatorTest {
+
+    @Override
+    protected CompiledCriticalPathCalculator<ITaskFundamentalProperties, IDependency<ITaskFundamentalProperties>> buildCalculator() {
+        return CompiledCriticalPathCalculator.create(false);
+    }
+
+    @Test
+    public void theSlackIsTheMarginUntilTheEndOfTheProject() {
+        givenTwoTasksNotConnected(5, 10);
+        CompiledCriticalPathCalculator<ITaskFundamentalProperties, IDependency<ITaskFundamentalProperties>> calculator = buildCalculator();
+        calculator.calculateCriticalPath(diagramGraphExample);
+
+        for (ITaskFundamentalProperties each : diagramGraphExample.getTasks()) {
+            int days = daysBetweenStartAndEnd(each);
+            assertThat(calculator.getSlack(each), equalTo(10 - days));
+        }
+    }
+
+    @Test
+    public void recalculatingWithoutChangesKeepsTheCriticalPath() {
+        givenPairOfTasks(10, 5);
+        CompiledCriticalPathCalculator<ITaskFundamentalProperties, IDependency<ITaskFundamentalProperties>> calculator = buildCalculator();
+        List<ITaskFundamentalProperties> criticalPath = calculator
+                .calculateCriticalPath(diagramGraphExample);
+
+        for (ITaskFundamentalProperties each : diagramGraphExample.getTasks()) {
+            assertThat(calculator.recalculateAfterChangeOf(each),
+                    equalTo(criticalPath));
+        }
+    }
+
+    /**
+     * Graph of tasks without containers nor constraints, all of them starting
+     * at the same date, whose durations and dependencies can be modified
+     */
+    private static class ModifiableGraph implements
+            ICriticalPathCalculable<String> {
+
+        private static final LocalDate START = new LocalDate(2009, 12, 1);
+
+        private final Map<String, Integer> durations = new LinkedHashMap<String, Integer>();
+
+        private final Map<String, Set<String>> outgoing = new LinkedHashMap<String, Set<String>>();
+
+        private final Map<String, Set<String>> incoming = new LinkedHashMap<String, Set<String>>();
+
+        void add(String task, int duration) {
+            durations.put(task, duration);
+            outgoing.put(task, new LinkedHashSet<String>());
+            incoming.put(task, new LinkedHashSet<String>());
+        }
+
+        void setDuration(String task, int duration) {
+            durations.put(task, duration);
+        }
+
+        void addDependency(String source, String destination) {
+            outgoing.get(source).add(destination);
+            incoming.get(destination).add(source);
+        }
+
+        void removeDependency(String source, String destination) {
+            outgoing.get(source).remove(destination);
+            incoming.get(destination).remove(source);
+        }
+
+        @Override
+        public List<String> getInitialTasks() {
+            List<String> result = new ArrayList<String>();
+            for (String each : getTasks()) {
+                if (incoming.get(each).isEmpty()) {
+                    result.add(each);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public List<String> getLatestTasks() {
+            List<String> result = new ArrayList<String>();
+            for (String each : getTasks()) {
+                if (outgoing.get(each).isEmpty()) {
+                    result.add(each);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public boolean hasVisibleIncomingDependencies(String task) {
+            return !incoming.get(task).isEmpty();
+        }
+
+        @Override
+        public boolean hasVisibleOutcomingDependencies(String task) {
+            return !outgoing.get(task).isEmpty();
+        }
+
+        @Override
+        public Set<String> getIncomingTasksFor(String task) {
+            return new HashSet<String>(incoming.get(task));
+        }
+
+        @Override
+        public Set<String> getOutgoingTasksFor(String task) {
+            return new HashSet<String>(outgoing.get(task));
+        }
+
+        @Override
+        public IDependency<String> getDependencyFrom(final String from,
+                final String to) {
+            if (!outgoing.get(from).contains(to)) {
+                return null;
+            }
+            return new IDependency<String>() {
+
+                @Override
+                public String getSource() {
+                    return from;
+                }
+
+                @Override
+                public String getDestination() {
+                    return to;
+                }
+
+                @Override
+                public DependencyType getType() {
+                    return DependencyType.END_START;
+                }
+            };
+        }
+
+        @Override
+        public List<String> getTasks() {
+            return new ArrayList<String>(durations.keySet());
+        }
+
+        @Override
+        public boolean isContainer(String task) {
+            return false;
+        }
+
+        @Override
+        public boolean contains(String container, String task) {
+            return false;
+        }
+
+        @Override
+        public GanttDate getStartDate(String task) {
+            return GanttDate.createFrom(START);
+        }
+
+        @Override
+        public GanttDate getEndDateFor(String task) {
+            return GanttDate.createFrom(START.plusDays(durations.get(task)));
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getStartConstraintsFor(String task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getEndConstraintsFor(String task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> getChildren(String task) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * <pre>
+     * #### A ####
+     *       |---- #### B ####
+     *
+     * #### C ####
+     * </pre>
+     */
+    private ModifiableGraph givenModifiableGraph() {
+        ModifiableGraph result = new ModifiableGraph();
+        result.add("A", 2);
+        result.add("B", 3);
+        result.add("C", 4);
+        result.addDependency("A", "B");
+        return result;
+    }
+
+    private static void assertSameAsFullCalculation(ModifiableGraph graph,
+            CompiledCriticalPathCalculator<String, IDependency<String>> incremental,
+            List<String> recalculated) {
+        CompiledCriticalPathCalculator<String, IDependency<String>> full = CompiledCriticalPathCalculator
+                .create(false);
+        List<String> expected = full.calculateCriticalPath(graph);
+        assertThat(new HashSet<String>(recalculated),
+                equalTo(new HashSet<String>(expected)));
+        for (String each : graph.getTasks()) {
+            assertThat(incremental.getSlack(each), equalTo(full.getSlack(each)));
+        }
+    }
+
+    private static CompiledCriticalPathCalculator<String, IDependency<String>> calculated(
+            ModifiableGraph graph) {
+        CompiledCriticalPathCalculator<String, IDependency<String>> result = CompiledCriticalPathCalculator
+                .create(false);
+        result.calculateCriticalPath(graph);
+        return result;
+    }
+
+    @Test
+    public void recalculatingAfterMakingATaskLongerChangesTheCriticalPath() {
+        ModifiableGraph graph = givenModifiableGraph();
+        CompiledCriticalPathCalculator<String, IDependency<String>> calculator = calculated(graph);
+
+        graph.setDuration("C", 10);
+        List<String> criticalPath = calculator.recalculateAfterChangeOf("C");
+
+        assertThat(criticalPath, equalTo(Collections.singletonList("C")));
+        assertSameAsFullCalculation(graph, calculator, criticalPath);
+    }
+
+    @Test
+    public void recalculatingAfterMakingATaskShorterChangesTheCriticalPath() {
+        ModifiableGraph graph = givenModifiableGraph();
+        CompiledCriticalPathCalculator<String, IDependency<String>> calculator = calculated(graph);
+
+        graph.setDuration("B", 1);
+        List<String> criticalPath = calculator.recalculateAfterChangeOf("B");
+
+        assertThat(criticalPath, equalTo(Collections.singletonList("C")));
+        assertSameAsFullCalculation(graph, calculator, criticalPath);
+    }
+
+    @Test
+    public void recalculatingAfterAddingADependency() {
+        ModifiableGraph graph = givenModifiableGraph();
+        CompiledCriticalPathCalculator<String, IDependency<String>> calculator = calculated(graph);
+
+        graph.addDependency("C", "B");
+        List<String> criticalPath = calculator.recalculateAfterChangeOf("B");
+
+        assertThat(new HashSet<String>(criticalPath), equalTo(new HashSet<String>(
+                asList("C", "B"))));
+        assertSameAsFullCalculation(graph, calculator, criticalPath);
+    }
+
+    @Test
+    public void recalculatingAfterRemovingADependency() {
+        ModifiableGraph graph = givenModifiableGraph();
+        CompiledCriticalPathCalculator<String, IDependency<String>> calculator = calculated(graph);
+
+        graph.removeDependency("A", "B");
+        List<String> criticalPath = calculator.recalculateAfterChangeOf("A");
+
+        assertThat(criticalPath, equalTo(Collections.singletonList("C")));
+        assertSameAsFullCalculation(graph, calculator, criticalPath);
+    }
+
+    @Test
+    public void recalculatingAfterRandomChangesGivesTheSameThanTheFullCalculation() {
+        Random random = new Random(7);
+        ModifiableGraph graph = new ModifiableGraph();
+        int size = 20;
+        for (int i = 0; i < size; i++) {
+            graph.add("T" + i, 1 + random.nextInt(10));
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                if (random.nextInt(5) == 0) {
+                    graph.addDependency("T" + i, "T" + j);
+                }
+            }
+        }
+        CompiledCriticalPathCalculator<String, IDependency<String>> calculator = calculated(graph);
+        for (int k = 0; k < 100; k++) {
+            String task = "T" + random.nextInt(size);
+            graph.setDuration(task, 1 + random.nextInt(10));
+            assertSameAsFullCalculation(graph, calculator,
+                    calculator.recalculateAfterChangeOf(task));
+        }
+    }
+
+}
@@ -51,7 +51,7 @@ import org.zkoss.ganttz.data.constraint.ConstraintOnComparableValues;
  */
 public class CriticalPathCalculatorTest {
 
-    private ICriticalPathCalculable<ITaskFundamentalProperties> diagramGraphExample;
+    protected ICriticalPathCalculable<ITaskFundamentalProperties> diagramGraphExample;
 
     private final LocalDate START = new LocalDate(2009, 12, 1);
 
@@ -65,7 +65,7 @@ public class CriticalPathCalculatorTest {
         return result;
     }
 
-    private CriticalPathCalculator<ITaskFundamentalProperties, IDependency<ITaskFundamentalProperties>> buildCalculator() {
+    protected ICriticalPathCalculator<ITaskFundamentalProperties> buildCalculator() {
         return CriticalPathCalculator.create(false);
     }
 
@@ -117,7 +117,7 @@ public class CriticalPathCalculatorTest {
         return GanttDate.createFrom(localDate);
     }
 
-    private int daysBetweenStartAndEnd(ITaskFundamentalProperties task) {
+    protected int daysBetweenStartAndEnd(ITaskFundamentalProperties task) {
         LocalDate start = LocalDate.fromDateFields(task.getBeginDate()
                 .toDayRoundedDate());
         LocalDate end = LocalDate.fromDateFields(task.getEndDate()
@@ -181,7 +181,7 @@ public class CriticalPathCalculatorTest {
      * #### T2 ####
      * </pre>
      */
-    private void givenTwoTasksNotConnected(int daysTask1, int daysTask2) {
+    protected void givenTwoTasksNotConnected(int daysTask1, int daysTask2) {
         diagramGraphExample = createNiceMock(ICriticalPathCalculable.class);
 
         List<ITaskFundamentalProperties> listOfTasks = Arrays.asList(
@@ -220,7 +220,7 @@ public class CriticalPathCalculatorTest {
      *       |---- #### S1 ####
      * </pre>
      */
-    private void givenPairOfTasks(int daysTask1, int daysSubtask1) {
+    protected void givenPairOfTasks(int daysTask1, int daysSubtask1) {
         diagramGraphExample = createNiceMock(ICriticalPathCalculable.class);
 
         ITaskFundamentalProperties task1 = createTask(START, daysTask1);
@@ -77,6 +77,11 @@ public class AdvanceMeasurement extends BaseEntity {
             resetCommunicationDate();
         }
         this.date = date;
+        if (advanceAssignment != null
+                && advanceAssignment.getOrderElement() != null) {
+            advanceAssignment.getOrderElement()
+                    .markAsDirtyLastAdvanceMeasurementForSpreading();
+        }
     }
 
     @NotNull(message = "date not specified")
@@ -91,6 +91,9 @@ public class DirectAdvanceAssignment extends AdvanceAssignment {
         if (maxValue != null) {
             this.maxValue.setScale(2);
         }
+        if (getOrderElement() != null) {
+            getOrderElement().markAsDirtyLastAdvanceMeasurementForSpreading();
+        }
     }
 
     public SortedSet<AdvanceMeasurement> getAdvanceMeasurements() {
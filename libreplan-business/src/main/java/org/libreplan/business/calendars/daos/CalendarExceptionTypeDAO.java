@@ -59,7 +59,7 @@ public class CalendarExceptionTypeDAO extends
 
     @Override
     public List<CalendarExceptionType> getAll() {
-        return list(CalendarExceptionType.class);
+        return listCacheable(CalendarExceptionType.class);
     }
 
     @Override
@@ -96,7 +96,7 @@ public class CalendarExceptionTypeDAO extends
             throw new InstanceNotFoundException(null, CalendarExceptionType.class.getName());
         }
 
-        CalendarExceptionType calendarExceptionType = (CalendarExceptionType) getSession().createCriteria(
+        CalendarExceptionType calendarExceptionType = (CalendarExceptionType) createCacheableCriteria(
                 CalendarExceptionType.class).add(
                 Restrictions.eq("name", name.trim()).ignoreCase())
                 .uniqueResult();
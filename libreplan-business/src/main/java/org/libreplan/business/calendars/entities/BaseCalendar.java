@@ -43,9 +43,9 @@ import org.libreplan.business.common.IntegrationEntity;
 import org.libreplan.business.common.entities.EntitySequence;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.resources.entities.VirtualWorker;
+import org.libreplan.business.util.deepcopy.OnCopy;
+import org.libreplan.business.util.deepcopy.Strategy;
 import org.libreplan.business.workingday.EffortDuration;
-import org.libreplan.business.workingday.EffortDuration.IEffortFrom;
-import org.libreplan.business.workingday.IntraDayDate;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 import org.libreplan.business.workingday.ResourcesPerDay;
 
@@ -141,6 +141,9 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
     private Integer lastSequenceCode = 0;
 
+    @OnCopy(Strategy.IGNORE)
+    private transient volatile CapacityIndex capacityIndex;
+
     /**
      * Constructor for hibernate. Do not use!
      */
@@ -245,6 +248,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         }
 
         exceptions.add(day);
+        CapacityIndex.calendarsModified();
     }
 
     public void removeExceptionDay(LocalDate date)
@@ -256,6 +260,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         }
 
         exceptions.remove(day);
+        CapacityIndex.calendarsModified();
     }
 
     public void updateExceptionDay(LocalDate date, Capacity capacity,
@@ -298,18 +303,20 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
     }
 
     private Capacity findCapacityAt(LocalDate date) {
-        if (!isActive(date)) {
-            return Capacity.zero();
-        }
-        CalendarException exceptionDay = getExceptionDay(date);
-        if (exceptionDay != null) {
-            return exceptionDay.getCapacity();
-        }
-        return getCapacityConsideringCalendarDatasOn(date, getDayFrom(date));
+        return getCapacityIndex().getCapacityAt(date);
     }
 
-    private Days getDayFrom(LocalDate date) {
-        return Days.values()[date.getDayOfWeek() - 1];
+    /**
+     * Returns the index used to answer the capacity queries. It's rebuilt if
+     * some calendar has been modified since it was built.
+     */
+    private CapacityIndex getCapacityIndex() {
+        CapacityIndex result = capacityIndex;
+        if (result == null || !result.isUpToDate()) {
+            result = CapacityIndex.build(this);
+            capacityIndex = result;
+        }
+        return result;
     }
 
     public Capacity getCapacityConsideringCalendarDatasOn(LocalDate date, Days day) {
@@ -344,18 +351,11 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
      */
     public EffortDuration getWorkableDuration(LocalDate init,
             LocalDate endInclusive) {
-        Iterable<PartialDay> daysBetween = IntraDayDate.startOfDay(init)
-                .daysUntil(
-                        IntraDayDate.startOfDay(endInclusive).nextDayAtStart());
-
-        return EffortDuration.sum(daysBetween, new IEffortFrom<PartialDay>() {
-
-            @Override
-            public EffortDuration from(PartialDay each) {
-                return getCapacityOn(each);
-            }
-
-        });
+        Validate.isTrue(init.compareTo(endInclusive.plusDays(1)) <= 0);
+        EffortDuration standardEffort = getCapacityIndex()
+                .getStandardEffortBetween(init, endInclusive.plusDays(1));
+        return multiplyByCalendarUnits(Capacity.create(standardEffort))
+                .getStandardEffort();
     }
 
     /**
@@ -402,6 +402,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
     public CalendarData createNewVersionInsideIntersection(LocalDate startDate,
             LocalDate expiringDate) {
+        CapacityIndex.calendarsModified();
         for (CalendarData nextVersion : calendarDataVersions) {
             if ((nextVersion.getExpiringDate() == null)
                     || (expiringDate.compareTo(nextVersion.getExpiringDate()) <= 0)) {
@@ -487,6 +488,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
         CalendarData newCalendarData = CalendarData.create();
         calendarDataVersions.add(newCalendarData);
+        CapacityIndex.calendarsModified();
         Collections.sort(calendarDataVersions,
                 CalendarData.BY_EXPIRING_DATE_COMPARATOR);
         return newCalendarData;
@@ -506,6 +508,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         CalendarData newCalendarData = CalendarData.create();
         newCalendarData.setExpiringDate(expiringDate);
         calendarDataVersions.add(newCalendarData);
+        CapacityIndex.calendarsModified();
         Collections.sort(calendarDataVersions,
                 CalendarData.BY_EXPIRING_DATE_COMPARATOR);
         return newCalendarData;
@@ -555,6 +558,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
     }
 
     public void addNewVersion(CalendarData version){
+        CapacityIndex.calendarsModified();
         if (version.getExpiringDate() == null) {
             if (getLastCalendarData().getExpiringDate() == null) {
                 throw new IllegalArgumentException(
@@ -772,14 +776,17 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
      * depending on the calendar restrictions.
      */
     public Set<LocalDate> getNonWorkableDays(LocalDate init, LocalDate end) {
-        Set<LocalDate> result = new HashSet<LocalDate>();
-        for (LocalDate current = init; current.compareTo(end) <= 0; current = current
-                .plusDays(1)) {
-            if (getCapacityOn(PartialDay.wholeDay(current)).isZero()) {
+        if (multiplyByCalendarUnits(Capacity.create(EffortDuration.hours(1)))
+                .getStandardEffort().isZero()) {
+            Set<LocalDate> result = new HashSet<LocalDate>();
+            for (LocalDate current = init; current.compareTo(end) <= 0; current = current
+                    .plusDays(1)) {
                 result.add(current);
             }
+            return result;
         }
-        return result;
+        return new HashSet<LocalDate>(getCapacityIndex()
+                .getDaysWithoutStandardEffort(init, end.plusDays(1)));
     }
 
 
@@ -798,6 +805,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
             throw new IllegalArgumentException(
                     "You can not remove the last calendar data");
         }
+        CapacityIndex.calendarsModified();
 
         CalendarData lastCalendarData = getLastCalendarData();
         if (calendarData.equals(lastCalendarData)) {
@@ -857,6 +865,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
                 }
             }
             calendarAvailabilities.add(calendarAvailability);
+            CapacityIndex.calendarsModified();
         }
     }
 
@@ -864,6 +873,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
             CalendarAvailability calendarAvailability)
             throws IllegalArgumentException {
         calendarAvailabilities.remove(calendarAvailability);
+        CapacityIndex.calendarsModified();
     }
 
     public boolean isActive(LocalDate date) {
@@ -210,6 +210,17 @@ public class Capacity {
                 duration);
     }
 
+    /**
+     * Same as {@link #limitDuration(EffortDuration)} but with seconds
+     */
+    public int limitSeconds(int seconds) {
+        if (isOverAssignableWithoutLimit()) {
+            return seconds;
+        }
+        return Math.min(standardEffort.getSeconds()
+                + allowedExtraEffort.getSeconds(), seconds);
+    }
+
     /**
      * <p>
      * Is the provided duration below the allowed duration? In that case there
@@ -0,0 +1,361 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2011 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.calendars.entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * <p>
+ * Immutable index of the capacities given by a {@link BaseCalendar} without
+ * applying its calendar units. The time is divided in segments at the dates
+ * where some {@link CalendarData} of the calendar or its ancestors expires or
+ * where some {@link CalendarAvailability} starts or ends. Inside each segment
+ * the capacity only depends on the day of the week, except for the days with
+ * a {@link CalendarException}, which are stored apart.
+ * </p>
+ * <p>
+ * It allows to know the capacity of a day in logarithmic time and the
+ * standard effort of a period of days in logarithmic time too, using
+ * cumulative sums of the segments and the exceptions.
+ * </p>
+ * <p>
+ * Any modification in any calendar entity makes all the indexes out of date,
+ * see {@link #calendarsModified()}.
+ * </p>
+ */
+final class CapacityIndex {
+
+    private static final AtomicLong modificationsCount = new AtomicLong();
+
+    private static final LocalDate ANY_DATE = new LocalDate(2000, 1, 1);
+
+    private static final int DAYS_PER_WEEK = 7;
+
+    /**
+     * It must be called when some data that affects the capacities given by
+     * the calendars is modified. It makes all the existing indexes out of
+     * date, so they will be rebuilt when used again.
+     */
+    static void calendarsModified() {
+        modificationsCount.incrementAndGet();
+    }
+
+    static CapacityIndex build(BaseCalendar calendar) {
+        return new CapacityIndex(modificationsCount.get(), calendar);
+    }
+
+    private final long builtAtModification;
+
+    /**
+     * Segment <code>i</code> goes from <code>boundaries[i - 1]</code>
+     * inclusive to <code>boundaries[i]</code> exclusive. The first and last
+     * segments are unbounded.
+     */
+    private final LocalDate[] boundaries;
+
+    private final Capacity[][] capacitiesPerSegmentAndDay;
+
+    private final int[][] secondsPerSegmentAndDay;
+
+    /**
+     * The cumulative standard effort in seconds of the bounded segments.
+     * <code>accumulatedSegmentsSeconds[i]</code> is the effort from
+     * <code>boundaries[0]</code> to <code>boundaries[i]</code>
+     */
+    private final long[] accumulatedSegmentsSeconds;
+
+    private final LocalDate[] exceptionDates;
+
+    private final Capacity[] exceptionCapacities;
+
+    /**
+     * <code>accumulatedExceptionsDelta[i]</code> is the difference in seconds
+     * between the effort given by the first <code>i</code> exceptions and the
+     * effort that would be given by their segments
+     */
+    private final long[] accumulatedExceptionsDelta;
+
+    private CapacityIndex(long builtAtModification, BaseCalendar calendar) {
+        this.builtAtModification = builtAtModification;
+        this.boundaries = calculateBoundaries(calendar);
+        int segments = boundaries.length + 1;
+        this.capacitiesPerSegmentAndDay = new Capacity[segments][];
+        this.secondsPerSegmentAndDay = new int[segments][];
+        for (int i = 0; i < segments; i++) {
+            capacitiesPerSegmentAndDay[i] = capacitiesForSegment(calendar, i);
+            secondsPerSegmentAndDay[i] = toSeconds(capacitiesPerSegmentAndDay[i]);
+        }
+        this.accumulatedSegmentsSeconds = new long[boundaries.length];
+        for (int i = 1; i < boundaries.length; i++) {
+            accumulatedSegmentsSeconds[i] = accumulatedSegmentsSeconds[i - 1]
+                    + secondsBetweenInSegment(i, boundaries[i - 1],
+                            boundaries[i]);
+        }
+
+        List<LocalDate> dates = new ArrayList<LocalDate>();
+        List<Capacity> capacities = new ArrayList<Capacity>();
+        for (LocalDate each : candidateExceptionDates(calendar)) {
+            if (!calendar.isActive(each)) {
+                continue;
+            }
+            CalendarException exception = calendar.getExceptionDay(each);
+            if (exception != null) {
+                dates.add(each);
+                capacities.add(exception.getCapacity());
+            }
+        }
+        this.exceptionDates = dates.toArray(new LocalDate[0]);
+        this.exceptionCapacities = capacities.toArray(new Capacity[0]);
+        this.accumulatedExceptionsDelta = new long[exceptionDates.length + 1];
+        for (int i = 0; i < exceptionDates.length; i++) {
+            long delta = exceptionCapacities[i].getStandardEffort()
+                    .getSeconds()
+                    - secondsAt(segmentFor(exceptionDates[i]),
+                            exceptionDates[i]);
+            accumulatedExceptionsDelta[i + 1] = accumulatedExceptionsDelta[i]
+                    + delta;
+        }
+    }
+
+    private static LocalDate[] calculateBoundaries(BaseCalendar calendar) {
+        SortedSet<LocalDate> result = new TreeSet<LocalDate>();
+        addExpiringDates(result, calendar,
+                new IdentityHashMap<BaseCalendar, Object>());
+        for (CalendarAvailability each : calendar.getCalendarAvailabilities()) {
+            result.add(each.getStartDate());
+            if (each.getEndDate() != null) {
+                result.add(each.getEndDate().plusDays(1));
+            }
+        }
+        return result.toArray(new LocalDate[0]);
+    }
+
+    private static void addExpiringDates(Set<LocalDate> result,
+            BaseCalendar calendar, Map<BaseCalendar, Object> alreadyVisited) {
+        if (alreadyVisited.containsKey(calendar)) {
+            return;
+        }
+        alreadyVisited.put(calendar, null);
+        for (CalendarData each : calendar.getCalendarDataVersions()) {
+            if (each.getExpiringDate() != null) {
+                result.add(each.getExpiringDate());
+            }
+            if (each.getParent() != null) {
+                addExpiringDates(result, each.getParent(), alreadyVisited);
+            }
+        }
+    }
+
+    private Capacity[] capacitiesForSegment(BaseCalendar calendar, int segment) {
+        LocalDate representative = representativeDateOf(segment);
+        Capacity[] result = new Capacity[DAYS_PER_WEEK];
+        boolean active = calendar.isActive(representative);
+        for (CalendarData.Days each : CalendarData.Days.values()) {
+            result[each.ordinal()] = active ? calendar
+                    .getCapacityConsideringCalendarDatasOn(representative,
+                            each) : Capacity.zero();
+        }
+        return result;
+    }
+
+    private LocalDate representativeDateOf(int segment) {
+        if (boundaries.length == 0) {
+            return ANY_DATE;
+        }
+        if (segment == 0) {
+            return boundaries[0].minusDays(1);
+        }
+        return boundaries[segment - 1];
+    }
+
+    private static int[] toSeconds(Capacity[] capacities) {
+        int[] result = new int[capacities.length];
+        for (int i = 0; i < capacities.length; i++) {
+            result[i] = capacities[i].getStandardEffort().getSeconds();
+        }
+        return result;
+    }
+
+    /**
+     * The dates of the exceptions of the calendar and its ancestors. Only
+     * these dates can have an exception day.
+     */
+    private static SortedSet<LocalDate> candidateExceptionDates(
+            BaseCalendar calendar) {
+        SortedSet<LocalDate> result = new TreeSet<LocalDate>();
+        for (CalendarException each : calendar.getOwnExceptions()) {
+            result.add(each.getDate());
+        }
+        Map<BaseCalendar, Object> parents = new IdentityHashMap<BaseCalendar, Object>();
+        for (CalendarData each : calendar.getCalendarDataVersions()) {
+            if (each.getParent() != null
+                    && !parents.containsKey(each.getParent())) {
+                parents.put(each.getParent(), null);
+                for (CalendarException exception : each.getParent()
+                        .getExceptions()) {
+                    result.add(exception.getDate());
+                }
+            }
+        }
+        return result;
+    }
+
+    boolean isUpToDate() {
+        return builtAtModification == modificationsCount.get();
+    }
+
+    /**
+     * @return the same capacity as the calendar would return for the day, but
+     *         without multiplying it by the calendar units
+     */
+    Capacity getCapacityAt(LocalDate date) {
+        int exception = Arrays.binarySearch(exceptionDates, date);
+        if (exception >= 0) {
+            return exceptionCapacities[exception];
+        }
+        return capacitiesPerSegmentAndDay[segmentFor(date)][dayOfWeek(date)];
+    }
+
+    /**
+     * @return the sum of the standard effort of the days from
+     *         <code>start</code> inclusive to <code>end</code> exclusive
+     */
+    EffortDuration getStandardEffortBetween(LocalDate start, LocalDate end) {
+        if (start.compareTo(end) >= 0) {
+            return EffortDuration.zero();
+        }
+        long seconds = secondsBetween(start, end)
+                + exceptionsDeltaBetween(start, end);
+        return EffortDuration.seconds(toInt(seconds));
+    }
+
+    /**
+     * @return the days from <code>start</code> inclusive to <code>end</code>
+     *         exclusive that have no standard effort
+     */
+    List<LocalDate> getDaysWithoutStandardEffort(LocalDate start, LocalDate end) {
+        if (start.compareTo(end) >= 0) {
+            return Collections.emptyList();
+        }
+        List<LocalDate> result = new ArrayList<LocalDate>();
+        int exception = insertionPoint(Arrays.binarySearch(exceptionDates,
+                start));
+        int segment = segmentFor(start);
+        for (LocalDate current = start; current.compareTo(end) < 0; current = current
+                .plusDays(1)) {
+            while (segment < boundaries.length
+                    && current.compareTo(boundaries[segment]) >= 0) {
+                segment++;
+            }
+            boolean isException = exception < exceptionDates.length
+                    && exceptionDates[exception].equals(current);
+            int seconds;
+            if (isException) {
+                seconds = exceptionCapacities[exception].getStandardEffort()
+                        .getSeconds();
+                exception++;
+            } else {
+                seconds = secondsAt(segment, current);
+            }
+            if (seconds == 0) {
+                result.add(current);
+            }
+        }
+        return result;
+    }
+
+    private long secondsBetween(LocalDate start, LocalDate end) {
+        int startSegment = segmentFor(start);
+        int endSegment = segmentFor(end);
+        if (startSegment == endSegment) {
+            return secondsBetweenInSegment(startSegment, start, end);
+        }
+        // start is before boundaries[startSegment] and end is on or after
+        // boundaries[endSegment - 1]
+        return secondsBetweenInSegment(startSegment, start,
+                boundaries[startSegment])
+                + accumulatedSegmentsSeconds[endSegment - 1]
+                - accumulatedSegmentsSeconds[startSegment]
+                + secondsBetweenInSegment(endSegment,
+                        boundaries[endSegment - 1], end);
+    }
+
+    private long secondsBetweenInSegment(int segment, LocalDate start,
+            LocalDate end) {
+        int[] secondsPerDay = secondsPerSegmentAndDay[segment];
+        int days = Days.daysBetween(start, end).getDays();
+        long weekSeconds = 0;
+        for (int each : secondsPerDay) {
+            weekSeconds += each;
+        }
+        long result = (days / DAYS_PER_WEEK) * weekSeconds;
+        int day = dayOfWeek(start);
+        for (int i = 0; i < days % DAYS_PER_WEEK; i++) {
+            result += secondsPerDay[(day + i) % DAYS_PER_WEEK];
+        }
+        return result;
+    }
+
+    private long exceptionsDeltaBetween(LocalDate start, LocalDate end) {
+        int from = insertionPoint(Arrays.binarySearch(exceptionDates, start));
+        int to = insertionPoint(Arrays.binarySearch(exceptionDates, end));
+        return accumulatedExceptionsDelta[to] - accumulatedExceptionsDelta[from];
+    }
+
+    private static int insertionPoint(int binarySearchResult) {
+        return binarySearchResult >= 0 ? binarySearchResult
+                : -binarySearchResult - 1;
+    }
+
+    private int secondsAt(int segment, LocalDate date) {
+        return secondsPerSegmentAndDay[segment][dayOfWeek(date)];
+    }
+
+    private int segmentFor(LocalDate date) {
+        int position = Arrays.binarySearch(boundaries, date);
+        // a date equal to a boundary belongs to the segment starting there
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private static int dayOfWeek(LocalDate date) {
+        return date.getDayOfWeek() - 1;
+    }
+
+    private static int toInt(long seconds) {
+        if (seconds > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("the effort " + seconds
+                    + " seconds is too big");
+        }
+        return (int) seconds;
+    }
+
+}
@@ -43,7 +43,7 @@ public class ConfigurationDAO extends GenericDAOHibernate<Configuration, Long>
 
     @Override
     public Configuration getConfiguration() {
-        List<Configuration> list = list(Configuration.class);
+        List<Configuration> list = listCacheable(Configuration.class);
         if (list.isEmpty()) {
             return null;
         }
@@ -24,9 +24,12 @@ package org.libreplan.business.common.daos;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.commons.lang.Validate;
+import org.hibernate.Criteria;
 import org.hibernate.Hibernate;
 import org.hibernate.LockMode;
 import org.hibernate.Session;
@@ -61,6 +64,18 @@ import org.springframework.transaction.annotation.Transactional;
 public class GenericDAOHibernate<E extends BaseEntity,
         PK extends Serializable> implements IGenericDAO<E, PK> {
 
+    /**
+     * Maximum number of parameters used in a single IN clause
+     */
+    protected static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
+    /**
+     * Query cache region for the finders of read-mostly master data (criteria,
+     * types of work hours, cost categories...). It's configured in
+     * <code>ehcache.xml</code>.
+     */
+    protected static final String MASTER_DATA_QUERY_CACHE_REGION = "org.libreplan.business.masterdata";
+
     private Class<E> entityClass;
 
     @Autowired
@@ -196,6 +211,27 @@ public class GenericDAOHibernate<E extends BaseEntity,
 
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    @Transactional(readOnly = true)
+    public List<E> findByIds(Collection<? extends PK> ids) {
+        List<E> result = new ArrayList<E>(ids.size());
+        List<PK> chunk = new ArrayList<PK>(IN_CLAUSE_CHUNK_SIZE);
+        for (PK each : ids) {
+            chunk.add(each);
+            if (chunk.size() == IN_CLAUSE_CHUNK_SIZE) {
+                result.addAll(getSession().createCriteria(entityClass)
+                        .add(Restrictions.in("id", chunk)).list());
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            result.addAll(getSession().createCriteria(entityClass)
+                    .add(Restrictions.in("id", chunk)).list());
+        }
+        return result;
+    }
+
     public void remove(PK id) throws InstanceNotFoundException {
         getSession().delete(find(id));
     }
@@ -207,6 +243,27 @@ public class GenericDAOHibernate<E extends BaseEntity,
         return getSession().createCriteria(klass).list();
     }
 
+    /**
+     * Creates a {@link Criteria} whose results are kept in the query cache.
+     * Only to be used for entities that are cached in the second level cache
+     * and are rarely modified, otherwise the query cache is invalidated all
+     * the time.
+     */
+    protected Criteria createCacheableCriteria(Class<?> klass) {
+        return getSession().createCriteria(klass).setCacheable(true)
+                .setCacheRegion(MASTER_DATA_QUERY_CACHE_REGION);
+    }
+
+    /**
+     * Like {@link #list(Class)} but using the query cache.
+     *
+     * @see #createCacheableCriteria(Class)
+     */
+    @SuppressWarnings("unchecked")
+    protected <T extends E> List<T> listCacheable(Class<T> klass) {
+        return createCacheableCriteria(klass).list();
+    }
+
     @Override
     public void flush() {
         getSession().flush();
@@ -22,6 +22,7 @@
 package org.libreplan.business.common.daos;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
@@ -146,6 +147,13 @@ public interface IGenericDAO <E, PK extends Serializable>{
 
     public boolean exists(PK id);
 
+    /**
+     * It retrieves the entities whose keys are in the collection passed as a
+     * parameter. Keys without a matching entity are silently ignored. The
+     * keys are queried in chunks, so the collection can be arbitrarily large.
+     */
+    public List<E> findByIds(Collection<? extends PK> ids);
+
     public void remove(PK id) throws InstanceNotFoundException;
 
     public <T extends E> List<T> list(Class<T> klass);
@@ -36,6 +36,16 @@ import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 public interface IIntegrationEntityDAO<E extends IntegrationEntity>
     extends IGenericDAO<E, Long> {
 
+    /**
+     * Receives the entities iterated by
+     * {@link IIntegrationEntityDAO#scrollAll(IEntityConsumer)}.
+     */
+    public interface IEntityConsumer<E> {
+
+        void consume(E entity);
+
+    }
+
     /**
      * If <code>code</code> is blank (whitespace, empty ("") or
      * <code>null</code>), it returns <code>false</code>.
@@ -68,4 +78,12 @@ public interface IIntegrationEntityDAO<E extends IntegrationEntity>
      */
     public List<E> findAll();
 
+    /**
+     * It iterates over all entities ordered by ascending code, like
+     * {@link #findAll()}, but without loading all of them in memory. The
+     * entities are fetched from a scrollable result and the session is
+     * cleared periodically, so the consumer must not keep references to them.
+     */
+    public void scrollAll(IEntityConsumer<E> consumer);
+
 }
@@ -24,6 +24,9 @@ package org.libreplan.business.common.daos;
 import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.Criteria;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.libreplan.business.common.IntegrationEntity;
@@ -41,6 +44,12 @@ import org.springframework.transaction.annotation.Transactional;
 public class IntegrationEntityDAO<E extends IntegrationEntity>
     extends GenericDAOHibernate<E, Long> implements IIntegrationEntityDAO<E> {
 
+    /**
+     * Number of entities fetched in each round trip while scrolling. The
+     * session is cleared each time this number of entities is processed.
+     */
+    protected static final int SCROLL_FETCH_SIZE = 100;
+
     @Override
     public boolean existsByCode(String code) {
 
@@ -108,4 +117,28 @@ public class IntegrationEntityDAO<E extends IntegrationEntity>
             addOrder(Order.asc("code")).list();
     }
 
+    @Override
+    public void scrollAll(IEntityConsumer<E> consumer) {
+        scroll(getSession().createCriteria(getEntityClass()).addOrder(
+                Order.asc("code")), consumer);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void scroll(Criteria criteria, IEntityConsumer<E> consumer) {
+        ScrollableResults results = criteria.setReadOnly(true)
+                .setFetchSize(SCROLL_FETCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            int processed = 0;
+            while (results.next()) {
+                consumer.consume((E) results.get(0));
+                if (++processed % SCROLL_FETCH_SIZE == 0) {
+                    getSession().clear();
+                }
+            }
+        } finally {
+            results.close();
+        }
+    }
+
 }
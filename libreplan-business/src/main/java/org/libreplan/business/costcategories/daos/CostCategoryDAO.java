@@ -54,7 +54,7 @@ public class CostCategoryDAO extends IntegrationEntityDAO<CostCategory>
     @Override
     public List<CostCategory> findActive() {
 
-        Criteria c = getSession().createCriteria(CostCategory.class);
+        Criteria c = createCacheableCriteria(CostCategory.class);
         c.add(Restrictions.eq("enabled", true));
 
         List<CostCategory> list = new ArrayList<CostCategory>();
@@ -65,7 +65,7 @@ public class CostCategoryDAO extends IntegrationEntityDAO<CostCategory>
     @Override
     public CostCategory findUniqueByName(String name)
     throws InstanceNotFoundException {
-        Criteria c = getSession().createCriteria(CostCategory.class).
+        Criteria c = createCacheableCriteria(CostCategory.class).
         add(Restrictions.eq("name", name).ignoreCase());
         CostCategory costCategory = (CostCategory) c.uniqueResult();
 
@@ -82,7 +82,7 @@ public class CostCategoryDAO extends IntegrationEntityDAO<CostCategory>
             throws InstanceNotFoundException {
         Validate.notNull(code);
 
-        Criteria c = getSession().createCriteria(CostCategory.class).add(
+        Criteria c = createCacheableCriteria(CostCategory.class).add(
                 Restrictions.eq("code", code).ignoreCase());
         CostCategory costCategory = (CostCategory) c.uniqueResult();
 
@@ -75,7 +75,7 @@ public class TypeOfWorkHoursDAO extends IntegrationEntityDAO<TypeOfWorkHours>
     public TypeOfWorkHours findUniqueByCode(String code)
             throws InstanceNotFoundException {
 
-        Criteria c = getSession().createCriteria(TypeOfWorkHours.class);
+        Criteria c = createCacheableCriteria(TypeOfWorkHours.class);
         c.add(Restrictions.eq("code", code));
 
         TypeOfWorkHours found = (TypeOfWorkHours) c.uniqueResult();
@@ -88,7 +88,7 @@ public class TypeOfWorkHoursDAO extends IntegrationEntityDAO<TypeOfWorkHours>
     @Override
     public List<TypeOfWorkHours> findActive() {
 
-        Criteria c = getSession().createCriteria(TypeOfWorkHours.class);
+        Criteria c = createCacheableCriteria(TypeOfWorkHours.class);
         c.add(Restrictions.eq("enabled", true));
 
         List<TypeOfWorkHours> list = new ArrayList<TypeOfWorkHours>();
@@ -134,7 +134,7 @@ public class TypeOfWorkHoursDAO extends IntegrationEntityDAO<TypeOfWorkHours>
     public TypeOfWorkHours findUniqueByName(String name)
             throws InstanceNotFoundException {
 
-        Criteria c = getSession().createCriteria(TypeOfWorkHours.class);
+        Criteria c = createCacheableCriteria(TypeOfWorkHours.class);
         c.add(Restrictions.eq("name", name.trim()).ignoreCase());
 
         TypeOfWorkHours found = (TypeOfWorkHours) c.uniqueResult();
@@ -147,7 +147,7 @@ public class TypeOfWorkHoursDAO extends IntegrationEntityDAO<TypeOfWorkHours>
 
     @Override
     public List<TypeOfWorkHours> hoursTypeByNameAsc() {
-        return getSession().createCriteria(TypeOfWorkHours.class)
+        return createCacheableCriteria(TypeOfWorkHours.class)
                 .addOrder(Order.asc("name")).list();
     }
 
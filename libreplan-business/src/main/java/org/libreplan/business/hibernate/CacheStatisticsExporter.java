@@ -0,0 +1,87 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate;
+
+import java.lang.management.ManagementFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.management.ManagementService;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.jmx.support.RegistrationPolicy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes through JMX the Hibernate statistics and the ehcache regions used as
+ * second level and query cache, so the sizes configured in
+ * <code>ehcache.xml</code> can be tuned looking at the hits and misses of each
+ * region.
+ *
+ * Collecting statistics has a cost, so both Hibernate and ehcache statistics
+ * are disabled by default. They can be enabled at runtime with the
+ * <code>StatisticsEnabled</code> attribute of the MBeans.
+ */
+@Component
+public class CacheStatisticsExporter {
+
+    private static final Log LOG = LogFactory
+            .getLog(CacheStatisticsExporter.class);
+
+    public static final String HIBERNATE_STATISTICS_OBJECT_NAME = "org.libreplan:type=HibernateStatistics";
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    private final MBeanExporter exporter = new MBeanExporter();
+
+    @PostConstruct
+    private void exportStatistics() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        exporter.setServer(server);
+        exporter.setRegistrationPolicy(RegistrationPolicy.REPLACE_EXISTING);
+        try {
+            exporter.registerManagedResource(sessionFactory.getStatistics(),
+                    new ObjectName(HIBERNATE_STATISTICS_OBJECT_NAME));
+            for (CacheManager each : CacheManager.ALL_CACHE_MANAGERS) {
+                ManagementService.registerMBeans(each, server, false, true,
+                        true, true);
+            }
+        } catch (Exception e) {
+            LOG.warn("cache statistics couldn't be exported through JMX", e);
+        }
+    }
+
+    @PreDestroy
+    private void unregisterStatistics() {
+        exporter.destroy();
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2011 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.hibernate.notification;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the ids of the entities inserted, updated or deleted in a
+ * transaction, grouped by entity class. It's used by
+ * {@link IDeltaRefresher} implementations to update a snapshot without
+ * recalculating it from scratch.
+ * <p>
+ * If the id of some modified entity can't be known the changes are marked as
+ * unknown and a full reload must be done.
+ */
+public class ChangedEntities {
+
+    private final Map<Class<?>, Set<Long>> insertedOrUpdated = new HashMap<Class<?>, Set<Long>>();
+
+    private final Map<Class<?>, Set<Long>> deleted = new HashMap<Class<?>, Set<Long>>();
+
+    private boolean unknownChanges = false;
+
+    ChangedEntities() {
+    }
+
+    synchronized void insertedOrUpdated(Class<?> entityClass, Serializable id) {
+        if (!(id instanceof Long)) {
+            unknownChanges = true;
+            idsFor(insertedOrUpdated, entityClass);
+            return;
+        }
+        idsFor(insertedOrUpdated, entityClass).add((Long) id);
+    }
+
+    synchronized void deleted(Class<?> entityClass, Serializable id) {
+        if (!(id instanceof Long)) {
+            unknownChanges = true;
+            idsFor(deleted, entityClass);
+            return;
+        }
+        idsFor(insertedOrUpdated, entityClass).remove(id);
+        idsFor(deleted, entityClass).add((Long) id);
+    }
+
+    private static Set<Long> idsFor(Map<Class<?>, Set<Long>> map,
+            Class<?> entityClass) {
+        Set<Long> result = map.get(entityClass);
+        if (result == null) {
+            result = new HashSet<Long>();
+            map.put(entityClass, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return <code>true</code> if some of the changes couldn't be identified,
+     *         so the snapshots affected must be fully reloaded
+     */
+    public synchronized boolean hasUnknownChanges() {
+        return unknownChanges;
+    }
+
+    public synchronized Set<Class<?>> getModifiedClasses() {
+        Set<Class<?>> result = new HashSet<Class<?>>(insertedOrUpdated.keySet());
+        result.addAll(deleted.keySet());
+        return result;
+    }
+
+    public synchronized Set<Long> getInsertedOrUpdated(Class<?> entityClass) {
+        return copy(insertedOrUpdated.get(entityClass));
+    }
+
+    public synchronized Set<Long> getDeleted(Class<?> entityClass) {
+        return copy(deleted.get(entityClass));
+    }
+
+    private static Set<Long> copy(Set<Long> ids) {
+        if (ids == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new HashSet<Long>(ids));
+    }
+
+    /**
+     * @return the number of changes done over entities of the given classes
+     */
+    public synchronized int countChangesOn(
+            Collection<? extends Class<?>> entityClasses) {
+        int result = 0;
+        for (Class<?> each : new HashSet<Class<?>>(entityClasses)) {
+            result += sizeOf(insertedOrUpdated.get(each));
+            result += sizeOf(deleted.get(each));
+        }
+        return result;
+    }
+
+    private static int sizeOf(Set<Long> ids) {
+        return ids == null ? 0 : ids.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "inserted or updated: " + insertedOrUpdated + ", deleted: "
+                + deleted + (unknownChanges ? " (with unknown changes)" : "");
+    }
+
+}
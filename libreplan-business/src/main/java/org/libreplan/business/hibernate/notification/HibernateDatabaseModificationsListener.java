@@ -20,10 +20,9 @@
  */
 package org.libreplan.business.hibernate.notification;
 
-import java.util.ArrayList;
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
@@ -74,13 +73,6 @@ public class HibernateDatabaseModificationsListener implements
 
     private ConcurrentMap<Transaction, Dispatcher> pending = new ConcurrentHashMap<Transaction, Dispatcher>();
 
-    private Set<NotBlockingAutoUpdatedSnapshot<?>> snapshotsInterestedOn(
-            Class<?> entityClass) {
-        List<Class<?>> list = new ArrayList<Class<?>>(1);
-        list.add(entityClass);
-        return snapshotsInterestedOn(list);
-    }
-
     private Set<NotBlockingAutoUpdatedSnapshot<?>> snapshotsInterestedOn(
             Collection<? extends Class<?>> classesList) {
         Set<NotBlockingAutoUpdatedSnapshot<?>> result = new HashSet<NotBlockingAutoUpdatedSnapshot<?>>();
@@ -96,16 +88,15 @@ public class HibernateDatabaseModificationsListener implements
 
     private final class Dispatcher implements Synchronization {
 
-        private BlockingQueue<Class<?>> classes = new LinkedBlockingQueue<Class<?>>();
+        private final ChangedEntities changes = new ChangedEntities();
         private final Transaction transaction;
 
-        public Dispatcher(Transaction transaction, Class<?> entityClass) {
-            classes.offer(entityClass);
+        public Dispatcher(Transaction transaction) {
             this.transaction = transaction;
         }
 
-        public void add(Class<?> entityClass) {
-            classes.offer(entityClass);
+        public ChangedEntities getChanges() {
+            return changes;
         }
 
         @Override
@@ -117,14 +108,13 @@ public class HibernateDatabaseModificationsListener implements
             LOG.debug("transaction completed with status: " + status);
             pending.remove(transaction);
             if (isProbablySucessful(status)) {
-                List<Class<?>> list = new ArrayList<Class<?>>();
-                classes.drainTo(list);
-                LOG.debug(list.size() + " modification events recorded");
-                Set<NotBlockingAutoUpdatedSnapshot<?>> toDispatch = snapshotsInterestedOn(list);
+                LOG.debug("modification events recorded: " + changes);
+                Set<NotBlockingAutoUpdatedSnapshot<?>> toDispatch = snapshotsInterestedOn(changes
+                        .getModifiedClasses());
                 LOG.debug("dispatching "
                         + toDispatch
                         + " snapshots to reload due to transaction successful completion");
-                dispatch(toDispatch);
+                dispatch(toDispatch, changes);
             }
         }
 
@@ -164,19 +154,22 @@ public class HibernateDatabaseModificationsListener implements
     @Override
     public void onPostDelete(PostDeleteEvent event) {
         modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+                inferEntityClass(getEntityObject(event)), event.getId(),
+                true);
     }
 
     @Override
     public void onPostUpdate(PostUpdateEvent event) {
         modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+                inferEntityClass(getEntityObject(event)), event.getId(),
+                false);
     }
 
     @Override
     public void onPostInsert(PostInsertEvent event) {
         modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+                inferEntityClass(getEntityObject(event)), event.getId(),
+                false);
     }
 
 
@@ -204,43 +197,63 @@ public class HibernateDatabaseModificationsListener implements
         return entity.getClass();
     }
 
-    void modificationOn(Transaction transaction, Class<?> entityClass) {
+    void modificationOn(Transaction transaction, Class<?> entityClass,
+            Serializable id, boolean deletion) {
         if (transaction == null) {
-            dispatch(snapshotsInterestedOn(entityClass));
+            ChangedEntities changes = new ChangedEntities();
+            record(changes, entityClass, id, deletion);
+            dispatch(snapshotsInterestedOn(changes.getModifiedClasses()),
+                    changes);
             return;
         }
-        Dispatcher newDispatcher = new Dispatcher(transaction, entityClass);
+        Dispatcher newDispatcher = new Dispatcher(transaction);
         Dispatcher previous = null;
         previous = pending.putIfAbsent(transaction, newDispatcher);
 
         boolean dispatcherAlreadyExisted = previous != null;
         if (dispatcherAlreadyExisted) {
-            previous.add(entityClass);
+            record(previous.getChanges(), entityClass, id, deletion);
         } else {
+            record(newDispatcher.getChanges(), entityClass, id, deletion);
             transaction.registerSynchronization(newDispatcher);
         }
     }
 
-    private void dispatch(Set<NotBlockingAutoUpdatedSnapshot<?>> toBeDispatched) {
-        for (NotBlockingAutoUpdatedSnapshot<?> each : toBeDispatched) {
-            dispatch(each);
+    private static void record(ChangedEntities changes, Class<?> entityClass,
+            Serializable id, boolean deletion) {
+        if (deletion) {
+            changes.deleted(entityClass, id);
+        } else {
+            changes.insertedOrUpdated(entityClass, id);
         }
     }
 
-    private void dispatch(NotBlockingAutoUpdatedSnapshot<?> each) {
-        each.reloadNeeded(executor);
+    private void dispatch(
+            Set<NotBlockingAutoUpdatedSnapshot<?>> toBeDispatched,
+            ChangedEntities changes) {
+        for (NotBlockingAutoUpdatedSnapshot<?> each : toBeDispatched) {
+            each.reloadNeeded(executor, changes);
+        }
     }
 
     @Override
     public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
             Callable<T> callable, ReloadOn reloadOn) {
+        return takeSnapshot(name, callable, null, reloadOn);
+    }
+
+    @Override
+    public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
+            Callable<T> callable, IDeltaRefresher<T> deltaRefresher,
+            ReloadOn reloadOn) {
         if (!hibernateListenersRegistered) {
             throw new IllegalStateException(
                     "The hibernate listeners has not been registered. There is some configuration problem.");
         }
 
         final NotBlockingAutoUpdatedSnapshot<T> result;
-        result = new NotBlockingAutoUpdatedSnapshot<T>(name, callable);
+        result = new NotBlockingAutoUpdatedSnapshot<T>(name, callable,
+                deltaRefresher, reloadOn);
         for (Class<?> each : reloadOn.getClassesOnWhichToReload()) {
             interested.putIfAbsent(each, emptyQueue());
             BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>> queue = interested
@@ -30,4 +30,15 @@ public interface ISnapshotRefresherService {
 
     public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name, Callable<T> callable, ReloadOn reloadOn);
 
+    /**
+     * Like {@link #takeSnapshot(String, Callable, ReloadOn)} but when the
+     * number of changed entities is small the new value is calculated
+     * applying the changes to the previous value with the provided
+     * {@link IDeltaRefresher}, instead of calling the <code>callable</code>
+     * again.
+     */
+    public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
+            Callable<T> callable, IDeltaRefresher<T> deltaRefresher,
+            ReloadOn reloadOn);
+
 }
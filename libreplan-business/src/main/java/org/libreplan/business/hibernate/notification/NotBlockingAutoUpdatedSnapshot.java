@@ -38,8 +38,18 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
     private static final Log LOG = LogFactory
             .getLog(NotBlockingAutoUpdatedSnapshot.class);
 
+    /**
+     * Above this number of changed entities a full reload is done even if
+     * there is a {@link IDeltaRefresher}
+     */
+    static final int MAX_CHANGES_FOR_DELTA_REFRESH = 1000;
+
     private final Callable<T> callable;
 
+    private final IDeltaRefresher<T> deltaRefresher;
+
+    private final ReloadOn reloadOn;
+
     private final AtomicReference<State> currentState;
 
     private final String name;
@@ -59,6 +69,14 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         boolean hasBeenInitialized() {
             return true;
         }
+
+        /**
+         * @return the value already calculated that is the most recent one,
+         *         or <code>null</code> if a calculation is ongoing
+         */
+        T getSettledValue() {
+            return null;
+        }
     }
 
     private class NotLaunchState extends State {
@@ -91,6 +109,11 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         T getValue() {
             return value;
         }
+
+        @Override
+        T getSettledValue() {
+            return value;
+        }
     }
 
     private class PreviousValueAndOngoingCalculation extends State {
@@ -130,6 +153,11 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
             }
         }
 
+        @Override
+        T getSettledValue() {
+            return valueIfSuccessfullyDone(ongoingCalculation);
+        }
+
         @Override
         void cancel() {
             if (ongoingCalculation.isDone() || ongoingCalculation.isCancelled()) {
@@ -160,6 +188,11 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
             }
         }
 
+        @Override
+        T getSettledValue() {
+            return valueIfSuccessfullyDone(ongoingCalculation);
+        }
+
         @Override
         void cancel() {
             ongoingCalculation.cancel(true);
@@ -167,11 +200,39 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
 
     }
 
+    private T valueIfSuccessfullyDone(Future<T> calculation) {
+        if (calculation.isCancelled() || !calculation.isDone()) {
+            return null;
+        }
+        try {
+            return calculation.get();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     public NotBlockingAutoUpdatedSnapshot(String name, Callable<T> callable) {
+        this(name, callable, null, null);
+    }
+
+    /**
+     * @param deltaRefresher
+     *            it can be <code>null</code>. In that case the snapshot is
+     *            always fully reloaded
+     * @param reloadOn
+     *            the classes whose changes are taken into account to decide
+     *            if a delta refresh can be done. It can be <code>null</code>
+     *            if no <code>deltaRefresher</code> is provided
+     */
+    public NotBlockingAutoUpdatedSnapshot(String name, Callable<T> callable,
+            IDeltaRefresher<T> deltaRefresher, ReloadOn reloadOn) {
         Validate.notNull(callable);
         Validate.notNull(name);
+        Validate.isTrue(deltaRefresher == null || reloadOn != null);
         this.name = "*" + name + "*";
         this.callable = callable;
+        this.deltaRefresher = deltaRefresher;
+        this.reloadOn = reloadOn;
         this.currentState = new AtomicReference<State>(new NotLaunchState());
         this.executionsReport = new ExecutionsReport();
     }
@@ -183,7 +244,7 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
 
     public void reloadNeeded(ExecutorService executorService) {
         Future<T> future = executorService
-                .submit(callableDecoratedWithStatistics());
+                .submit(callableDecoratedWithStatistics(callable));
         State previousState;
         State newState = null;
         do {
@@ -196,12 +257,71 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         previousState.cancel();
     }
 
+    /**
+     * If the <code>changes</code> are few enough and there is a value already
+     * calculated, the new value is calculated applying the changes to it.
+     * Otherwise it behaves like {@link #reloadNeeded(ExecutorService)}.
+     */
+    public void reloadNeeded(ExecutorService executorService,
+            ChangedEntities changes) {
+        State previousState;
+        State newState;
+        while (true) {
+            previousState = currentState.get();
+            T base = previousState.getSettledValue();
+            if (base == null || !canBeRefreshedWithDelta(changes)) {
+                reloadNeeded(executorService);
+                return;
+            }
+            Future<T> future = executorService
+                    .submit(callableDecoratedWithStatistics(deltaCalculation(
+                            base, changes)));
+            newState = previousState.nextState(future);
+            if (currentState.compareAndSet(previousState, newState)) {
+                break;
+            }
+            newState.cancel();
+        }
+        previousState.cancel();
+    }
+
+    private boolean canBeRefreshedWithDelta(ChangedEntities changes) {
+        if (deltaRefresher == null || changes.hasUnknownChanges()) {
+            return false;
+        }
+        int numberOfChanges = changes.countChangesOn(reloadOn
+                .getClassesOnWhichToReload());
+        if (numberOfChanges > MAX_CHANGES_FOR_DELTA_REFRESH) {
+            LOG.debug(name + " " + numberOfChanges
+                    + " changes, doing full reload");
+            return false;
+        }
+        return true;
+    }
+
+    private Callable<T> deltaCalculation(final T base,
+            final ChangedEntities changes) {
+        return new Callable<T>() {
+
+            @Override
+            public T call() throws Exception {
+                try {
+                    return deltaRefresher.refresh(base, changes);
+                } catch (Exception e) {
+                    LOG.error("error applying changes to " + name
+                            + ", doing full reload", e);
+                    return callable.call();
+                }
+            }
+        };
+    }
+
     public void ensureFirstLoad(ExecutorService executorService) {
         if (hasBeenInitialized()) {
             return;
         }
         Future<T> future = executorService
-                .submit(callableDecoratedWithStatistics());
+                .submit(callableDecoratedWithStatistics(callable));
         State previous = currentState.get();
         State newState = previous.nextState(future);
         boolean compareAndSet = currentState.compareAndSet(previous, newState);
@@ -219,7 +339,8 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         return currentState.get().hasBeenInitialized();
     }
 
-    private Callable<T> callableDecoratedWithStatistics() {
+    private Callable<T> callableDecoratedWithStatistics(
+            final Callable<T> calculation) {
         final long requestTime = System.currentTimeMillis();
         return new Callable<T>() {
 
@@ -229,7 +350,7 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
                 long timeWaiting = start - requestTime;
                 Exception error = null;
                 try {
-                    return callable.call();
+                    return calculation.call();
                 } catch (Exception e) {
                     error = e;
                     LOG.error("error executing snapshot " + name);
@@ -22,14 +22,20 @@ package org.libreplan.business.hibernate.notification;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 
+import org.apache.commons.lang.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.joda.time.LocalDate;
@@ -38,7 +44,9 @@ import org.libreplan.business.calendars.entities.CalendarAvailability;
 import org.libreplan.business.calendars.entities.CalendarData;
 import org.libreplan.business.calendars.entities.CalendarException;
 import org.libreplan.business.common.AdHocTransactionService;
+import org.libreplan.business.common.BaseEntity;
 import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.daos.IGenericDAO;
 import org.libreplan.business.costcategories.daos.ICostCategoryDAO;
 import org.libreplan.business.costcategories.entities.CostCategory;
 import org.libreplan.business.externalcompanies.daos.IExternalCompanyDAO;
@@ -53,9 +61,12 @@ import org.libreplan.business.planner.chart.ResourceLoadChartData;
 import org.libreplan.business.planner.daos.IDayAssignmentDAO;
 import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.DerivedDayAssignment;
+import org.libreplan.business.planner.entities.GenericDayAssignment;
 import org.libreplan.business.planner.entities.GenericResourceAllocation;
 import org.libreplan.business.planner.entities.ICostCalculator;
 import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
 import org.libreplan.business.planner.entities.SpecificResourceAllocation;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
@@ -188,7 +199,8 @@ public class PredefinedDatabaseSnapshots {
                 CriterionType.class, Criterion.class);
         labelsMap = snapshot("labels map", calculateLabelsMap(),
                 LabelType.class, Label.class);
-        listWorkers = snapshot("workers", calculateWorkers(), Worker.class);
+        listWorkers = snapshot("workers", calculateWorkers(),
+                refreshWorkers(), Worker.class);
         listCostCategories = snapshot("list cost categories",
                 calculateListCostCategories(),
                 CostCategory.class);
@@ -210,12 +222,16 @@ public class PredefinedDatabaseSnapshots {
                 CalendarData.class, TaskElement.class, SpecificResourceAllocation.class,
                 GenericResourceAllocation.class, ResourceAllocation.class);
         workReportLines = snapshot("work report lines", calculateWorkReportLines(),
-                WorkReportLine.class);
+                refreshWorkReportLines(), WorkReportLine.class);
         estimatedCostPerTask = snapshot("estimated cost per task",
                 calculateEstimatedCostPerTask(),
-                TaskElement.class, Task.class, TaskGroup.class, DayAssignment.class);
+                refreshCostPerTask(estimatedCost()),
+                TaskElement.class, Task.class, TaskGroup.class, DayAssignment.class,
+                SpecificDayAssignment.class, GenericDayAssignment.class,
+                DerivedDayAssignment.class);
         advanceCostPerTask = snapshot("advance cost per task",
                 calculateAdvanceCostPerTask(),
+                refreshCostPerTask(advanceCost()),
                 TaskElement.class, Task.class, TaskGroup.class,
                 DirectAdvanceAssignment.class);
     }
@@ -228,12 +244,52 @@ public class PredefinedDatabaseSnapshots {
                 ReloadOn.onChangeOf(reloadOnChangesOf));
     }
 
+    private <T> IAutoUpdatedSnapshot<T> snapshot(String name,
+            Callable<T> callable, IDeltaRefresher<T> deltaRefresher,
+            Class<?>... reloadOnChangesOf) {
+        return snapshotRefresherService.takeSnapshot(name,
+                callableOnReadOnlyTransaction(callable),
+                deltaRefresherOnReadOnlyTransaction(deltaRefresher),
+                ReloadOn.onChangeOf(reloadOnChangesOf));
+    }
+
     @SuppressWarnings("unchecked")
     private <T> Callable<T> callableOnReadOnlyTransaction(Callable<T> callable) {
         return AdHocTransactionService.readOnlyProxy(transactionService,
                 Callable.class, callable);
     }
 
+    @SuppressWarnings("unchecked")
+    private <T> IDeltaRefresher<T> deltaRefresherOnReadOnlyTransaction(
+            IDeltaRefresher<T> deltaRefresher) {
+        return AdHocTransactionService.readOnlyProxy(transactionService,
+                IDeltaRefresher.class, deltaRefresher);
+    }
+
+    /**
+     * Returns a new list without the deleted or modified entities of
+     * <code>previous</code> and with the inserted or modified ones retrieved
+     * again from the database.
+     */
+    private static <E extends BaseEntity> List<E> withChangesApplied(
+            List<E> previous, ChangedEntities changes, Class<E> klass,
+            IGenericDAO<E, Long> dao) {
+        Set<Long> insertedOrUpdated = changes.getInsertedOrUpdated(klass);
+        Set<Long> deleted = changes.getDeleted(klass);
+        List<E> result = new ArrayList<E>(previous.size()
+                + insertedOrUpdated.size());
+        for (E each : previous) {
+            if (!insertedOrUpdated.contains(each.getId())
+                    && !deleted.contains(each.getId())) {
+                result.add(each);
+            }
+        }
+        if (!insertedOrUpdated.isEmpty()) {
+            result.addAll(dao.findByIds(insertedOrUpdated));
+        }
+        return result;
+    }
+
     @Autowired
     private ICriterionTypeDAO criterionTypeDAO;
 
@@ -302,6 +358,18 @@ public class PredefinedDatabaseSnapshots {
         };
     }
 
+    private IDeltaRefresher<List<Worker>> refreshWorkers() {
+        return new IDeltaRefresher<List<Worker>>() {
+
+            @Override
+            public List<Worker> refresh(List<Worker> previousValue,
+                    ChangedEntities changes) {
+                return withChangesApplied(previousValue, changes,
+                        Worker.class, workerDAO);
+            }
+        };
+    }
+
     @Autowired
     private ICostCategoryDAO costCategoryDAO;
 
@@ -424,42 +492,195 @@ public class PredefinedDatabaseSnapshots {
         };
     }
 
+    private IDeltaRefresher<List<WorkReportLine>> refreshWorkReportLines() {
+        return new IDeltaRefresher<List<WorkReportLine>>() {
+            @Override
+            public List<WorkReportLine> refresh(
+                    List<WorkReportLine> previousValue, ChangedEntities changes) {
+                return withChangesApplied(previousValue, changes,
+                        WorkReportLine.class, workReportLineDAO);
+            }
+        };
+    }
+
     @Autowired
     private ICostCalculator hoursCostCalculator;
 
     @Autowired
     private ITaskElementDAO taskElementDAO;
 
-    private Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculateEstimatedCostPerTask() {
-        return new Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>>() {
+    /**
+     * Calculates the cost of a {@link Task} per day
+     */
+    interface ICostPerTask {
+
+        SortedMap<LocalDate, BigDecimal> calculate(Task task);
+
+        /**
+         * @return <code>true</code> if the changes can't be mapped to the
+         *         tasks affected by them, so the costs of all the tasks must
+         *         be calculated again
+         */
+        boolean needsFullReload(ChangedEntities changes);
+    }
+
+    private ICostPerTask estimatedCost() {
+        return new ICostPerTask() {
+
             @Override
-            public Map<TaskElement, SortedMap<LocalDate, BigDecimal>> call() {
-                Map<TaskElement, SortedMap<LocalDate, BigDecimal>> map =
-                    new HashMap<TaskElement, SortedMap<LocalDate,BigDecimal>>();
-                for(TaskElement task : taskElementDAO.list(TaskElement.class)) {
-                    if(task instanceof Task) {
-                        map.put(task, hoursCostCalculator.getEstimatedCost((Task)task));
-                    }
-                }
-                return map;
+            public SortedMap<LocalDate, BigDecimal> calculate(Task task) {
+                return hoursCostCalculator.getEstimatedCost(task);
+            }
+
+            @Override
+            public boolean needsFullReload(ChangedEntities changes) {
+                return false;
             }
         };
     }
 
+    private ICostPerTask advanceCost() {
+        return new ICostPerTask() {
+
+            @Override
+            public SortedMap<LocalDate, BigDecimal> calculate(Task task) {
+                return hoursCostCalculator.getAdvanceCost(task);
+            }
+
+            @Override
+            public boolean needsFullReload(ChangedEntities changes) {
+                return changes.countChangesOn(Collections
+                        .singleton(DirectAdvanceAssignment.class)) > 0;
+            }
+        };
+    }
+
+    private Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculateEstimatedCostPerTask() {
+        return calculateCostPerTask(estimatedCost());
+    }
+
     private Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculateAdvanceCostPerTask() {
+        return calculateCostPerTask(advanceCost());
+    }
+
+    private Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculateCostPerTask(
+            final ICostPerTask costPerTask) {
         return new Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>>() {
             @Override
             public Map<TaskElement, SortedMap<LocalDate, BigDecimal>> call() {
-                Map<TaskElement, SortedMap<LocalDate, BigDecimal>> map =
-                    new HashMap<TaskElement, SortedMap<LocalDate,BigDecimal>>();
-                for(TaskElement task : taskElementDAO.list(TaskElement.class)) {
-                    if(task instanceof Task) {
-                        map.put(task, hoursCostCalculator.getAdvanceCost((Task)task));
+                return costPerAllTasks(costPerTask, taskElementDAO);
+            }
+        };
+    }
+
+    private static Map<TaskElement, SortedMap<LocalDate, BigDecimal>> costPerAllTasks(
+            ICostPerTask costPerTask, ITaskElementDAO taskElementDAO) {
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> map =
+            new HashMap<TaskElement, SortedMap<LocalDate,BigDecimal>>();
+        for(TaskElement task : taskElementDAO.list(TaskElement.class)) {
+            if(task instanceof Task) {
+                map.put(task, costPerTask.calculate((Task) task));
+            }
+        }
+        return map;
+    }
+
+    private IDeltaRefresher<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> refreshCostPerTask(
+            ICostPerTask costPerTask) {
+        return new CostPerTaskRefresher(costPerTask, taskElementDAO,
+                dayAssignmentDAO);
+    }
+
+    /**
+     * Only the costs of the tasks inserted, updated or deleted, and of the
+     * tasks whose day assignments were inserted or updated, are calculated
+     * again. The costs of the rest of tasks are kept from the previous value.
+     * <p>
+     * The task of a deleted day assignment can't be retrieved anymore, so if
+     * some day assignment was deleted the costs of all the tasks are
+     * calculated again.
+     */
+    static class CostPerTaskRefresher implements
+            IDeltaRefresher<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> {
+
+        private static final List<Class<?>> TASK_CLASSES = Arrays
+                .<Class<?>> asList(TaskElement.class, Task.class,
+                        TaskGroup.class);
+
+        private static final List<Class<?>> DAY_ASSIGNMENT_CLASSES = Arrays
+                .<Class<?>> asList(DayAssignment.class,
+                        SpecificDayAssignment.class,
+                        GenericDayAssignment.class, DerivedDayAssignment.class);
+
+        private final ICostPerTask costPerTask;
+
+        private final ITaskElementDAO taskElementDAO;
+
+        private final IDayAssignmentDAO dayAssignmentDAO;
+
+        CostPerTaskRefresher(ICostPerTask costPerTask,
+                ITaskElementDAO taskElementDAO,
+                IDayAssignmentDAO dayAssignmentDAO) {
+            Validate.notNull(costPerTask);
+            Validate.notNull(taskElementDAO);
+            Validate.notNull(dayAssignmentDAO);
+            this.costPerTask = costPerTask;
+            this.taskElementDAO = taskElementDAO;
+            this.dayAssignmentDAO = dayAssignmentDAO;
+        }
+
+        @Override
+        public Map<TaskElement, SortedMap<LocalDate, BigDecimal>> refresh(
+                Map<TaskElement, SortedMap<LocalDate, BigDecimal>> previousValue,
+                ChangedEntities changes) {
+            if (costPerTask.needsFullReload(changes)
+                    || someDayAssignmentDeleted(changes)) {
+                return costPerAllTasks(costPerTask, taskElementDAO);
+            }
+            Set<Long> toCalculate = new HashSet<Long>(
+                    changes.getInsertedOrUpdated(Task.class));
+            toCalculate.addAll(tasksOfUpdatedDayAssignments(changes));
+            Set<Long> changed = new HashSet<Long>(toCalculate);
+            for (Class<?> each : TASK_CLASSES) {
+                changed.addAll(changes.getInsertedOrUpdated(each));
+                changed.addAll(changes.getDeleted(each));
+            }
+            Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = new HashMap<TaskElement, SortedMap<LocalDate, BigDecimal>>();
+            for (Entry<TaskElement, SortedMap<LocalDate, BigDecimal>> each : previousValue
+                    .entrySet()) {
+                if (!changed.contains(each.getKey().getId())) {
+                    result.put(each.getKey(), each.getValue());
+                }
+            }
+            if (!toCalculate.isEmpty()) {
+                for (TaskElement each : taskElementDAO.findByIds(toCalculate)) {
+                    if (each instanceof Task) {
+                        result.put(each, costPerTask.calculate((Task) each));
                     }
                 }
-                return map;
             }
-        };
+            return result;
+        }
+
+        private boolean someDayAssignmentDeleted(ChangedEntities changes) {
+            for (Class<?> each : DAY_ASSIGNMENT_CLASSES) {
+                if (!changes.getDeleted(each).isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Set<Long> tasksOfUpdatedDayAssignments(ChangedEntities changes) {
+            Set<Long> dayAssignments = new HashSet<Long>();
+            for (Class<?> each : DAY_ASSIGNMENT_CLASSES) {
+                dayAssignments.addAll(changes.getInsertedOrUpdated(each));
+            }
+            if (dayAssignments.isEmpty()) {
+                return Collections.emptySet();
+            }
+            return dayAssignmentDAO.findTaskIdsOf(dayAssignments);
+        }
     }
 
 }
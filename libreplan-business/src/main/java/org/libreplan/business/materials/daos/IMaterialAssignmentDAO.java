@@ -23,6 +23,7 @@ package org.libreplan.business.materials.daos;
 
 
 
+import java.util.Collection;
 import java.util.List;
 
 import org.libreplan.business.common.daos.IGenericDAO;
@@ -39,4 +40,10 @@ public interface IMaterialAssignmentDAO extends
 
     List<MaterialAssignment> getByMaterial(Material material);
 
+    /**
+     * Returns the {@link MaterialAssignment material assignments} with the
+     * given ids in any order
+     */
+    List<MaterialAssignment> getByIds(Collection<Long> ids);
+
 }
@@ -21,6 +21,8 @@
 
 package org.libreplan.business.materials.daos;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.hibernate.criterion.Restrictions;
@@ -50,4 +52,14 @@ public class MaterialAssignmentDAO extends GenericDAOHibernate<MaterialAssignmen
             .add(Restrictions.eq("materialInfo.material", material)).list();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<MaterialAssignment> getByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return getSession().createCriteria(MaterialAssignment.class)
+                .add(Restrictions.in("id", ids)).list();
+    }
+
 }
@@ -54,13 +54,22 @@ public interface IOrderDAO extends IIntegrationEntityDAO<Order> {
     List<Order> getOrders();
 
     /**
-     * Builds contents for OrderCostsPerResource report
+     * Returns a page of the {@link OrderElement order elements} with work
+     * report lines of workers or expenses between the dates, ordered by name
+     * and code. The report of costs is built for a page of them at a time
+     */
+    List<OrderElement> getOrderElementsWithCosts(Date startingDate,
+            Date endingDate, int firstResult, int maxResults);
+
+    /**
+     * Builds contents for OrderCostsPerResource report of the
+     * <code>orderElements</code> that belong to the <code>orders</code>
      * @return A {@link List} of {@link OrderCostsPerResourceDTO} objects for
      * reporting
      */
-    List<OrderCostsPerResourceDTO> getOrderCostsPerResource(List<Order> orders,
-            Date startingDate, Date endingDate,
-            List<Criterion> criterions);
+    List<OrderCostsPerResourceDTO> getOrderCostsPerResource(
+            List<OrderElement> orderElements, List<Order> orders,
+            Date startingDate, Date endingDate, List<Criterion> criterions);
 
     /**
      * Returns a list of orders filtered by the read authorizations of the indicated
@@ -111,7 +120,8 @@ public interface IOrderDAO extends IIntegrationEntityDAO<Order> {
 
     List<Order> getActiveOrders();
 
-    List<CostExpenseSheetDTO> getCostExpenseSheet(List<Order> orders, Date startingDate,
-            Date endingDate, List<Criterion> criterions);
+    List<CostExpenseSheetDTO> getCostExpenseSheet(
+            List<OrderElement> orderElements, List<Order> orders,
+            Date startingDate, Date endingDate, List<Criterion> criterions);
 
 }
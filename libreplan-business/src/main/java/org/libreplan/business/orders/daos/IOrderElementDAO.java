@@ -138,4 +138,13 @@ public interface IOrderElementDAO extends IIntegrationEntityDAO<OrderElement> {
     boolean existsByCodeInAnotherOrderAnotherTransaction(
             OrderElement orderElement);
 
+    /**
+     * Checks at once the codes of <code>order</code> and all its children,
+     * querying the database by chunks of codes instead of one query per
+     * element.
+     *
+     * @return the codes of the tree that are already used in another order
+     */
+    Set<String> findCodesInAnotherOrderAnotherTransaction(Order order);
+
 }
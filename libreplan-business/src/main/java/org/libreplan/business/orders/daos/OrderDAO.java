@@ -24,7 +24,11 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
@@ -33,6 +37,7 @@ import org.hibernate.criterion.Restrictions;
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.common.daos.IIntegrationEntityDAO.IEntityConsumer;
 import org.libreplan.business.common.daos.IntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.costcategories.daos.CostCategoryDAO;
@@ -111,85 +116,154 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
         return false;
     }
 
-    private boolean matchFilterCriterion(OrderElement orderElement,
+    /**
+     * Returns the {@link Order} of each of the order elements that belongs to
+     * one of the <code>orders</code> and that has tasks with some of the
+     * <code>criterions</code>, by the id of the order element
+     */
+    private Map<Long, Order> ordersOfMatchingOrderElements(
+            List<OrderElement> orderElements, List<Order> orders,
             List<Criterion> criterions) {
+        Set<Long> matchingCriterions = null;
         if ((criterions != null) && (!criterions.isEmpty())) {
-            List<OrderElement> orderElements = new ArrayList<OrderElement>();
-            orderElements.add(orderElement);
-            List<Task> tasks = this.getFilteredTask(orderElements, criterions);
-            return (!tasks.isEmpty());
+            matchingCriterions = new HashSet<Long>();
+            for (Task each : getFilteredTask(orderElements, criterions)) {
+                matchingCriterions.add(each.getOrderElement().getId());
+            }
+        }
+        List<Order> ordersOfElements = loadOrdersAvoidingProxyFor(orderElements);
+
+        Map<Long, Order> result = new HashMap<Long, Order>();
+        for (int i = 0; i < orderElements.size(); i++) {
+            Long orderElementId = orderElements.get(i).getId();
+            Order order = ordersOfElements.get(i);
+            if (order != null
+                    && isOrderContained(order, orders)
+                    && (matchingCriterions == null || matchingCriterions
+                            .contains(orderElementId))) {
+                result.put(orderElementId, order);
+            }
         }
-        return true;
+        return result;
     }
 
-    @Transactional(readOnly = true)
-    public List<OrderCostsPerResourceDTO> getOrderCostsPerResource(
-            List<Order> orders, Date startingDate, Date endingDate,
-            List<Criterion> criterions) {
-
-        String strQuery = "SELECT new org.libreplan.business.reports.dtos.OrderCostsPerResourceDTO(worker, wrl) "
-                + "FROM Worker worker, WorkReportLine wrl "
-                + "LEFT OUTER JOIN wrl.resource resource "
-                + "WHERE resource.id = worker.id ";
-
-        // Set date range
+    private static String dateRange(String property, Date startingDate,
+            Date endingDate, String startingParameter, String endingParameter) {
         if (startingDate != null && endingDate != null) {
-            strQuery += "AND wrl.date BETWEEN :startingDate AND :endingDate ";
+            return "AND " + property + " BETWEEN :" + startingParameter
+                    + " AND :" + endingParameter + " ";
+        }
+        if (startingDate != null) {
+            return "AND " + property + " >= :" + startingParameter + " ";
+        }
+        if (endingDate != null) {
+            return "AND " + property + " <= :" + endingParameter + " ";
         }
-        if (startingDate != null && endingDate == null) {
-            strQuery += "AND wrl.date >= :startingDate ";
+        return "";
+    }
+
+    private static void setDateRange(Query query, Object startingDate,
+            Object endingDate, String startingParameter, String endingParameter) {
+        if (startingDate != null) {
+            query.setParameter(startingParameter, startingDate);
         }
-        if (startingDate == null && endingDate != null) {
-            strQuery += "AND wrl.date <= :endingDate ";
+        if (endingDate != null) {
+            query.setParameter(endingParameter, endingDate);
         }
+    }
 
-        // Order by
-        strQuery += "ORDER BY worker.id, wrl.date";
+    private static LocalDate toLocalDate(Date date) {
+        return date != null ? new LocalDate(date) : null;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<OrderElement> getOrderElementsWithCosts(Date startingDate,
+            Date endingDate, int firstResult, int maxResults) {
+        String strQuery = "SELECT orderElement FROM OrderElement orderElement "
+                + "WHERE EXISTS (SELECT wrl.id FROM WorkReportLine wrl, Worker worker "
+                + "WHERE wrl.resource.id = worker.id "
+                + "AND wrl.orderElement.id = orderElement.id "
+                + dateRange("wrl.date", startingDate, endingDate,
+                        "startingDate", "endingDate")
+                + ") OR EXISTS (SELECT expense.id FROM ExpenseSheetLine expense "
+                + "WHERE expense.orderElement.id = orderElement.id "
+                + dateRange("expense.date", startingDate, endingDate,
+                        "startingDay", "endingDay")
+                + ") ORDER BY LOWER(orderElement.infoComponent.name), "
+                + "LOWER(orderElement.infoComponent.code), orderElement.id";
 
         Query query = getSession().createQuery(strQuery);
+        setDateRange(query, startingDate, endingDate, "startingDate",
+                "endingDate");
+        setDateRange(query, toLocalDate(startingDate),
+                toLocalDate(endingDate), "startingDay", "endingDay");
+        return query.setFirstResult(firstResult).setMaxResults(maxResults)
+                .list();
+    }
 
-        if (startingDate != null) {
-            query.setParameter("startingDate", startingDate);
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<OrderCostsPerResourceDTO> getOrderCostsPerResource(
+            List<OrderElement> orderElements, List<Order> orders,
+            Date startingDate, Date endingDate, List<Criterion> criterions) {
+        if (orderElements.isEmpty()) {
+            return new ArrayList<OrderCostsPerResourceDTO>();
         }
-        if (endingDate != null) {
-            query.setParameter("endingDate", endingDate);
+        Map<Long, Order> ordersByOrderElement = ordersOfMatchingOrderElements(
+                orderElements, orders, criterions);
+        if (ordersByOrderElement.isEmpty()) {
+            return new ArrayList<OrderCostsPerResourceDTO>();
         }
 
+        String strQuery = "SELECT new org.libreplan.business.reports.dtos.OrderCostsPerResourceDTO(worker, wrl) "
+                + "FROM Worker worker, WorkReportLine wrl "
+                + "LEFT OUTER JOIN wrl.resource resource "
+                + "WHERE resource.id = worker.id "
+                + "AND wrl.orderElement.id IN (:orderElements) "
+                + dateRange("wrl.date", startingDate, endingDate,
+                        "startingDate", "endingDate")
+                + "ORDER BY worker.id, wrl.date";
+
+        Query query = getSession().createQuery(strQuery);
+        query.setParameterList("orderElements", ordersByOrderElement.keySet());
+        setDateRange(query, startingDate, endingDate, "startingDate",
+                "endingDate");
+
         List<OrderCostsPerResourceDTO> list = query.list();
 
-        List<OrderCostsPerResourceDTO> filteredList = new ArrayList<OrderCostsPerResourceDTO>();
+        List<TypeOfWorkHours> typesOfWorkHours = null;
         for (OrderCostsPerResourceDTO each : list) {
-
-            Order order = loadOrderAvoidingProxyFor(each.getOrderElement());
-
-            // Apply filtering
-            if (matchFilterCriterion(each.getOrderElement(), criterions)
-                    && isOrderContained(order, orders)) {
-
-                // Attach ordername value
-                each.setOrderName(order.getName());
-                each.setOrderCode(order.getCode());
-                // Attach calculated pricePerHour
-                BigDecimal pricePerHour = CostCategoryDAO
-                        .getPriceByResourceDateAndHourType(each.getWorker(),
-                                new LocalDate(each.getDate()), each
-                                        .getHoursTypeCode());
-                if (pricePerHour == null) {
-                    for (TypeOfWorkHours defaultprice : typeOfWorkHoursDAO
-                            .list(TypeOfWorkHours.class)) {
-                        if (defaultprice.getCode().equals(
-                                each.getHoursTypeCode())) {
-                            pricePerHour = defaultprice.getDefaultPrice();
-                        }
+            Order order = ordersByOrderElement.get(each.getOrderElement()
+                    .getId());
+
+            // Attach ordername value
+            each.setOrderName(order.getName());
+            each.setOrderCode(order.getCode());
+            // Attach calculated pricePerHour
+            BigDecimal pricePerHour = CostCategoryDAO
+                    .getPriceByResourceDateAndHourType(each.getWorker(),
+                            new LocalDate(each.getDate()), each
+                                    .getHoursTypeCode());
+            if (pricePerHour == null) {
+                if (typesOfWorkHours == null) {
+                    typesOfWorkHours = typeOfWorkHoursDAO
+                            .list(TypeOfWorkHours.class);
+                }
+                for (TypeOfWorkHours defaultprice : typesOfWorkHours) {
+                    if (defaultprice.getCode().equals(
+                            each.getHoursTypeCode())) {
+                        pricePerHour = defaultprice.getDefaultPrice();
                     }
                 }
-
-                each.setCostPerHour(pricePerHour);
-                each.setCost(each.getCostPerHour().multiply(each.getNumHours()));
-                filteredList.add(each);
             }
+
+            each.setCostPerHour(pricePerHour);
+            each.setCost(each.getCostPerHour().multiply(each.getNumHours()));
         }
-        return filteredList;
+        return list;
     }
 
     @Override
@@ -485,6 +559,13 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
                 org.hibernate.criterion.Order.asc("infoComponent.code")).list();
     }
 
+    @Override
+    public void scrollAll(IEntityConsumer<Order> consumer) {
+        scroll(getSession().createCriteria(getEntityClass()).addOrder(
+                org.hibernate.criterion.Order.asc("infoComponent.code")),
+                consumer);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     @Transactional(readOnly = true)
@@ -698,50 +779,40 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
     }
 
     @Override
-    public List<CostExpenseSheetDTO> getCostExpenseSheet(List<Order> orders, Date startingDate,
-            Date endingDate, List<Criterion> criterions) {
+    @SuppressWarnings("unchecked")
+    public List<CostExpenseSheetDTO> getCostExpenseSheet(
+            List<OrderElement> orderElements, List<Order> orders,
+            Date startingDate, Date endingDate, List<Criterion> criterions) {
+        if (orderElements.isEmpty()) {
+            return new ArrayList<CostExpenseSheetDTO>();
+        }
+        Map<Long, Order> ordersByOrderElement = ordersOfMatchingOrderElements(
+                orderElements, orders, criterions);
+        if (ordersByOrderElement.isEmpty()) {
+            return new ArrayList<CostExpenseSheetDTO>();
+        }
 
         String strQuery = "SELECT new org.libreplan.business.reports.dtos.CostExpenseSheetDTO(expense) "
                 + "FROM OrderElement orderElement, ExpenseSheetLine expense "
                 + "LEFT OUTER JOIN expense.orderElement exp_ord "
-                + "WHERE orderElement.id = exp_ord.id ";
-
-        if (startingDate != null && endingDate != null) {
-            strQuery += "AND expense.date BETWEEN :startingDate AND :endingDate ";
-        }
-        if (startingDate != null && endingDate == null) {
-            strQuery += "AND expense.date >= :startingDate ";
-        }
-        if (startingDate == null && endingDate != null) {
-            strQuery += "AND expense.date <= :endingDate ";
-        }
-
-        // Order by date
-        strQuery += "ORDER BY expense.date";
+                + "WHERE orderElement.id = exp_ord.id "
+                + "AND exp_ord.id IN (:orderElements) "
+                + dateRange("expense.date", startingDate, endingDate,
+                        "startingDate", "endingDate")
+                // Order by date
+                + "ORDER BY expense.date";
 
         Query query = getSession().createQuery(strQuery);
-
-        // Set parameters
-        if (startingDate != null) {
-            query.setParameter("startingDate", new LocalDate(startingDate));
-        }
-        if (endingDate != null) {
-            query.setParameter("endingDate", new LocalDate(endingDate));
-        }
+        query.setParameterList("orderElements", ordersByOrderElement.keySet());
+        setDateRange(query, toLocalDate(startingDate),
+                toLocalDate(endingDate), "startingDate", "endingDate");
 
         List<CostExpenseSheetDTO> list = query.list();
-
-        List<CostExpenseSheetDTO> filteredList = new ArrayList<CostExpenseSheetDTO>();
         for (CostExpenseSheetDTO each : list) {
-            Order order = loadOrderAvoidingProxyFor(each.getOrderElement());
-            // Apply filtering
-            if (matchFilterCriterion(each.getOrderElement(), criterions)
-                    && isOrderContained(order, orders)) {
-                each.setOrder(order);
-                filteredList.add(each);
-            }
+            each.setOrder(ordersByOrderElement.get(each.getOrderElement()
+                    .getId()));
         }
-        return filteredList;
+        return list;
     }
 
 }
@@ -25,6 +25,7 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -40,6 +41,7 @@ import org.hibernate.Query;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Restrictions;
 import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.daos.IIntegrationEntityDAO.IEntityConsumer;
 import org.libreplan.business.common.daos.IntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.expensesheet.daos.IExpenseSheetLineDAO;
@@ -76,6 +78,12 @@ import org.springframework.transaction.annotation.Transactional;
 public class OrderElementDAO extends IntegrationEntityDAO<OrderElement>
         implements IOrderElementDAO {
 
+    /**
+     * Maximum number of codes in the IN clause of the queries checking the
+     * codes of a whole order
+     */
+    private static final int CODES_PER_QUERY = 1000;
+
     @Autowired
     private IWorkReportLineDAO workReportLineDAO;
 
@@ -205,6 +213,13 @@ public class OrderElementDAO extends IntegrationEntityDAO<OrderElement>
                 org.hibernate.criterion.Order.asc("infoComponent.code")).list();
     }
 
+    @Override
+    public void scrollAll(IEntityConsumer<OrderElement> consumer) {
+        scroll(getSession().createCriteria(getEntityClass()).addOrder(
+                org.hibernate.criterion.Order.asc("infoComponent.code")),
+                consumer);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     @Transactional(readOnly = true)
@@ -585,6 +600,57 @@ public class OrderElementDAO extends IntegrationEntityDAO<OrderElement>
         return existsByCodeInAnotherOrder(orderElement);
     }
 
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
+    public Set<String> findCodesInAnotherOrderAnotherTransaction(Order order) {
+        Set<Long> idsInTree = new HashSet<Long>();
+        Set<String> codesInTree = new HashSet<String>();
+        List<OrderElement> tree = order.getAllChildren();
+        tree.add(order);
+        for (OrderElement each : tree) {
+            if (each.getId() != null) {
+                idsInTree.add(each.getId());
+            }
+            if (!StringUtils.isBlank(each.getCode())) {
+                codesInTree.add(each.getCode());
+            }
+        }
+
+        Set<String> result = new HashSet<String>();
+        List<String> codes = new ArrayList<String>(codesInTree);
+        for (int i = 0; i < codes.size(); i += CODES_PER_QUERY) {
+            List<String> chunk = codes.subList(i,
+                    Math.min(i + CODES_PER_QUERY, codes.size()));
+            for (Object[] each : findIdAndCodeByCodes(chunk)) {
+                Long id = (Long) each[0];
+                String code = (String) each[1];
+                // The elements of the tree are in the same order, the rest of
+                // elements found are only loaded to check their order
+                if (!idsInTree.contains(id)
+                        && !isInOrder((OrderElement) getSession().load(
+                                OrderElement.class, id), order)) {
+                    result.add(code);
+                }
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> findIdAndCodeByCodes(Collection<String> codes) {
+        return getSession()
+                .createQuery(
+                        "SELECT oe.id, oe.infoComponent.code FROM OrderElement oe "
+                                + "WHERE oe.infoComponent.code IN (:codes)")
+                .setParameterList("codes", codes).list();
+    }
+
+    private boolean isInOrder(OrderElement orderElement, Order order) {
+        Order found = orderElement.getOrder();
+        return found != null && order.getId() != null
+                && order.getId().equals(found.getId());
+    }
+
     private boolean existsByCodeInAnotherOrder(OrderElement orderElement) {
         try {
             OrderElement found = findUniqueByCode(orderElement.getCode());
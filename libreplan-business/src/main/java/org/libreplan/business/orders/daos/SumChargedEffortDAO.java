@@ -19,16 +19,22 @@
 
 package org.libreplan.business.orders.daos;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.LongType;
+import org.hibernate.type.TimestampType;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.daos.GenericDAOHibernate;
@@ -254,67 +260,196 @@ public class SumChargedEffortDAO extends
         try {
             Order order = orderDAO.find(orderId);
             resetMapSumChargedEfforts();
-            resetSumChargedEffort(order);
-            calculateDirectChargedEffort(order);
-            calculateTimesheetData(order);
+            recalculateInBulk(order);
         } catch (InstanceNotFoundException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private void resetSumChargedEffort(OrderElement orderElement) {
-        SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-        sumChargedEffort.reset();
+    /**
+     * Data of the work report lines charged to an {@link OrderElement}
+     * directly or through its children
+     */
+    private static class ChargedData {
+
+        private EffortDuration directEffort = EffortDuration.zero();
+
+        private EffortDuration indirectEffort = EffortDuration.zero();
+
+        private Date firstDate;
 
-        for (OrderElement each : orderElement.getChildren()) {
-            resetSumChargedEffort(each);
+        private Date lastDate;
+
+        private boolean finished = false;
+
+        void addChild(ChargedData child) {
+            indirectEffort = indirectEffort.plus(child.directEffort).plus(
+                    child.indirectEffort);
+            firstDate = earliest(firstDate, child.firstDate);
+            lastDate = latest(lastDate, child.lastDate);
         }
-    }
 
-    private void calculateDirectChargedEffort(OrderElement orderElement) {
-        for (OrderElement each : orderElement.getChildren()) {
-            calculateDirectChargedEffort(each);
+        void applyTo(SumChargedEffort sumChargedEffort) {
+            sumChargedEffort.reset();
+            sumChargedEffort.addDirectChargedEffort(directEffort);
+            sumChargedEffort.addIndirectChargedEffort(indirectEffort);
+            sumChargedEffort.setTimesheetDates(firstDate, lastDate);
+            sumChargedEffort.setFinishedTimesheets(finished);
         }
 
-        EffortDuration effort = EffortDuration.zero();
-        for (WorkReportLine line : workReportLineDAO
-                .findByOrderElement(orderElement)) {
-            effort = effort.plus(line.getEffort());
+        private static Date earliest(Date a, Date b) {
+            if (a == null || b == null) {
+                return a == null ? b : a;
+            }
+            return a.before(b) ? a : b;
         }
-        addDirectChargedEffort(orderElement, effort);
-    }
 
-    private void calculateTimesheetData(OrderElement orderElement) {
-        calculateTimesheetDatesAndChildren(orderElement);
-        calculateFinishedTimesheetsAndChildren(orderElement);
-    }
+        private static Date latest(Date a, Date b) {
+            if (a == null || b == null) {
+                return a == null ? b : a;
+            }
+            return a.after(b) ? a : b;
+        }
 
-    private Pair<Date, Date> calculateTimesheetDatesAndChildren(
-            OrderElement orderElement) {
-        Pair<Date, Date> minMax = workReportLineDAO
-                .findMinAndMaxDatesByOrderElement(orderElement);
+    }
 
-        Set<Date> minDates = new HashSet<Date>();
-        Set<Date> maxDates = new HashSet<Date>();
+    /**
+     * Recalculates the {@link SumChargedEffort} of all the elements of the
+     * order with a fixed number of queries: one per level of the tree to get
+     * the elements, one grouped aggregate over the work report lines and one
+     * to retrieve the current {@link SumChargedEffort} (each of them split in
+     * chunks of {@link #IN_CLAUSE_CHUNK_SIZE} ids). The values are rolled up
+     * the tree in memory and only the rows that changed are written when the
+     * session is flushed.
+     */
+    private void recalculateInBulk(Order order) {
+        Map<Long, List<Long>> childrenById = getOrderElementsTree(order
+                .getId());
+        Map<Long, ChargedData> chargedData = getChargedDataFromWorkReportLines(new ArrayList<Long>(
+                childrenById.keySet()));
+        rollUp(order.getId(), childrenById, chargedData);
+
+        Map<Long, SumChargedEffort> existent = findByOrderElementIds(new ArrayList<Long>(
+                childrenById.keySet()));
+        for (Long each : childrenById.keySet()) {
+            SumChargedEffort sumChargedEffort = existent.get(each);
+            if (sumChargedEffort == null) {
+                sumChargedEffort = SumChargedEffort
+                        .create((OrderElement) getSession().load(
+                                OrderElement.class, each));
+            }
+            chargedData.get(each).applyTo(sumChargedEffort);
+            save(sumChargedEffort);
+        }
+        getSession().flush();
+    }
 
-        addIfNotNull(minDates, minMax.getFirst());
-        addIfNotNull(maxDates, minMax.getSecond());
+    /**
+     * @return the ids of the children of each element of the order, including
+     *         the order itself. The keys are sorted from the root to the
+     *         leaves
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, List<Long>> getOrderElementsTree(Long orderId) {
+        Map<Long, List<Long>> result = new LinkedHashMap<Long, List<Long>>();
+        result.put(orderId, new ArrayList<Long>());
+        List<Long> level = Collections.singletonList(orderId);
+        while (!level.isEmpty()) {
+            List<Long> nextLevel = new ArrayList<Long>();
+            for (List<Long> chunk : chunks(level)) {
+                List<Object[]> rows = getSession()
+                        .createQuery(
+                                "SELECT e.id, e.parent.id FROM OrderElement e "
+                                        + "WHERE e.parent.id IN (:ids) "
+                                        + "ORDER BY e.parent.id, e.id")
+                        .setParameterList("ids", chunk).list();
+                for (Object[] each : rows) {
+                    Long id = (Long) each[0];
+                    result.get((Long) each[1]).add(id);
+                    result.put(id, new ArrayList<Long>());
+                    nextLevel.add(id);
+                }
+            }
+            level = nextLevel;
+        }
+        return result;
+    }
 
-        for (OrderElement child : orderElement.getChildren()) {
-            Pair<Date, Date> minMaxChild = calculateTimesheetDatesAndChildren(child);
-            addIfNotNull(minDates, minMaxChild.getFirst());
-            addIfNotNull(maxDates, minMaxChild.getSecond());
+    /**
+     * The effort is stored as seconds in an integer column, so it can be
+     * summed directly by the database. A SQL query is used because HQL can't
+     * aggregate custom types.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, ChargedData> getChargedDataFromWorkReportLines(
+            List<Long> orderElementIds) {
+        Map<Long, ChargedData> result = new HashMap<Long, ChargedData>();
+        for (Long each : orderElementIds) {
+            result.put(each, new ChargedData());
+        }
+        for (List<Long> chunk : chunks(orderElementIds)) {
+            List<Object[]> rows = getSession()
+                    .createSQLQuery(
+                            "SELECT order_element_id AS id, "
+                                    + "SUM(effort) AS effort, "
+                                    + "MIN(date) AS first_date, "
+                                    + "MAX(date) AS last_date, "
+                                    + "MAX(CASE WHEN finished THEN 1 ELSE 0 END) AS finished "
+                                    + "FROM work_report_line "
+                                    + "WHERE order_element_id IN (:ids) "
+                                    + "GROUP BY order_element_id")
+                    .addScalar("id", LongType.INSTANCE)
+                    .addScalar("effort", LongType.INSTANCE)
+                    .addScalar("first_date", TimestampType.INSTANCE)
+                    .addScalar("last_date", TimestampType.INSTANCE)
+                    .addScalar("finished", IntegerType.INSTANCE)
+                    .setParameterList("ids", chunk).list();
+            for (Object[] each : rows) {
+                ChargedData data = result.get((Long) each[0]);
+                Long effort = (Long) each[1];
+                data.directEffort = EffortDuration.seconds(effort == null ? 0
+                        : effort.intValue());
+                data.firstDate = (Date) each[2];
+                data.lastDate = (Date) each[3];
+                data.finished = Integer.valueOf(1).equals(each[4]);
+            }
         }
+        return result;
+    }
 
-        Pair<Date, Date> result = Pair.create(
-                minDates.isEmpty() ? null : Collections.min(minDates),
-                maxDates.isEmpty() ? null : Collections.max(maxDates));
+    private static void rollUp(Long orderElementId,
+            Map<Long, List<Long>> childrenById,
+            Map<Long, ChargedData> chargedData) {
+        ChargedData data = chargedData.get(orderElementId);
+        for (Long child : childrenById.get(orderElementId)) {
+            rollUp(child, childrenById, chargedData);
+            data.addChild(chargedData.get(child));
+        }
+    }
 
-        SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-        sumChargedEffort.setTimesheetDates(result.getFirst(),
-                result.getSecond());
-        save(sumChargedEffort);
+    @SuppressWarnings("unchecked")
+    private Map<Long, SumChargedEffort> findByOrderElementIds(
+            List<Long> orderElementIds) {
+        Map<Long, SumChargedEffort> result = new HashMap<Long, SumChargedEffort>();
+        for (List<Long> chunk : chunks(orderElementIds)) {
+            List<SumChargedEffort> found = getSession()
+                    .createQuery(
+                            "FROM SumChargedEffort s "
+                                    + "WHERE s.orderElement.id IN (:ids)")
+                    .setParameterList("ids", chunk).list();
+            for (SumChargedEffort each : found) {
+                result.put(each.getOrderElement().getId(), each);
+            }
+        }
+        return result;
+    }
 
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> result = new ArrayList<List<Long>>();
+        for (int i = 0; i < ids.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            result.add(ids.subList(i,
+                    Math.min(ids.size(), i + IN_CLAUSE_CHUNK_SIZE)));
+        }
         return result;
     }
 
@@ -324,15 +459,6 @@ public class SumChargedEffortDAO extends
         }
     }
 
-    private void calculateFinishedTimesheetsAndChildren(
-            OrderElement orderElement) {
-        calculateFinishedTimesheets(orderElement);
-
-        for (OrderElement child : orderElement.getChildren()) {
-            calculateFinishedTimesheetsAndChildren(child);
-        }
-    }
-
     private void calculateFinishedTimesheets(OrderElement orderElement) {
         SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
         sumChargedEffort.setFinishedTimesheets(workReportLineDAO
@@ -183,6 +183,9 @@ public class HoursGroup extends IntegrationEntity implements Cloneable,
             workingHours = 0;
         }
         this.workingHours = workingHours;
+        if (parentOrderLine != null) {
+            parentOrderLine.clearCachedAdvancePercentages();
+        }
     }
 
     @NotNull(message = "working hours not specified")
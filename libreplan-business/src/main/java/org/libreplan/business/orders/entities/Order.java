@@ -46,6 +46,7 @@ import org.libreplan.business.calendars.entities.BaseCalendar;
 import org.libreplan.business.common.Registry;
 import org.libreplan.business.common.entities.EntitySequence;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.externalcompanies.entities.CustomerCommunication;
 import org.libreplan.business.externalcompanies.entities.DeadlineCommunication;
 import org.libreplan.business.externalcompanies.entities.DeliverDateComparator;
@@ -143,6 +144,13 @@ public class Order extends OrderLineGroup implements Comparable {
 
     private Integer budgetMargin;
 
+    /**
+     * Codes of this order already used in other orders. It's only calculated
+     * while the order is being validated, so each element doesn't need to
+     * query the database.
+     */
+    private Set<String> codesInAnotherOrder = null;
+
     public static class CurrentVersionInfo {
 
         private final OrderVersion orderVersion;
@@ -447,6 +455,28 @@ public class Order extends OrderLineGroup implements Comparable {
         return this;
     }
 
+    @Override
+    public void validate() throws ValidationException {
+        codesInAnotherOrder = Registry.getOrderElementDAO()
+                .findCodesInAnotherOrderAnotherTransaction(this);
+        try {
+            super.validate();
+        } finally {
+            codesInAnotherOrder = null;
+        }
+    }
+
+    /**
+     * @return <code>null</code> if the codes have not been checked at once,
+     *         this happens if the order is not being validated
+     */
+    Boolean isCodeInAnotherOrder(String code) {
+        if (codesInAnotherOrder == null) {
+            return null;
+        }
+        return codesInAnotherOrder.contains(code);
+    }
+
     @Override
     public OrderTemplate createTemplate() {
         return OrderTemplate.create(this);
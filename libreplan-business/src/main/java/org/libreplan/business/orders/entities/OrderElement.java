@@ -121,6 +121,13 @@ public abstract class OrderElement extends IntegrationEntity implements
 
     private Boolean dirtyLastAdvanceMeasurementForSpreading = true;
 
+    /**
+     * This field is transient. It keeps the advance percentages already
+     * calculated for a date, they are discarded when something below this
+     * element changes.
+     */
+    private Map<LocalDate, BigDecimal> advancePercentageByDate = new HashMap<LocalDate, BigDecimal>();
+
     private SumChargedEffort sumChargedEffort;
 
     private SumExpenses sumExpenses;
@@ -741,6 +748,7 @@ public abstract class OrderElement extends IntegrationEntity implements
             this.getParent().addIndirectAdvanceAssignment(
                     newAdvanceAssignment.createIndirectAdvanceFor(this.getParent()));
         }
+        markAsDirtyLastAdvanceMeasurementForSpreading();
     }
 
     public void addChildrenAdvanceInParents(OrderLineGroup parent) {
@@ -1180,6 +1188,12 @@ public abstract class OrderElement extends IntegrationEntity implements
             return true;
         }
 
+        Order order = getOrder();
+        Boolean inAnotherOrder = order != null ? order
+                .isCodeInAnotherOrder(getCode()) : null;
+        if (inAnotherOrder != null) {
+            return !inAnotherOrder;
+        }
         return !Registry.getOrderElementDAO()
                 .existsByCodeInAnotherOrderAnotherTransaction(this);
     }
@@ -1464,6 +1478,26 @@ public abstract class OrderElement extends IntegrationEntity implements
             parent.markAsDirtyLastAdvanceMeasurementForSpreading();
         }
         dirtyLastAdvanceMeasurementForSpreading = true;
+        advancePercentageByDate.clear();
+    }
+
+    /**
+     * Discards the advance percentages cached for this element and its
+     * ancestors, for example when the hours or the children change
+     */
+    public void clearCachedAdvancePercentages() {
+        if (parent != null) {
+            parent.clearCachedAdvancePercentages();
+        }
+        advancePercentageByDate.clear();
+    }
+
+    protected BigDecimal getCachedAdvancePercentage(LocalDate date) {
+        return advancePercentageByDate.get(date);
+    }
+
+    protected void cacheAdvancePercentage(LocalDate date, BigDecimal value) {
+        advancePercentageByDate.put(date, value);
     }
 
     public void setSumChargedEffort(SumChargedEffort sumChargedHours) {
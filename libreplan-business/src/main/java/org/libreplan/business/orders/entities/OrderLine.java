@@ -199,6 +199,7 @@ public class OrderLine extends OrderElement {
 
     public void setWorkHours(Integer workHours) throws IllegalArgumentException {
         hoursGroupOrderLineHandler.setWorkHours(this, workHours);
+        clearCachedAdvancePercentages();
     }
 
     public boolean isTotalHoursValid(Integer total) {
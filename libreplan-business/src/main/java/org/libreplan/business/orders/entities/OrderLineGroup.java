@@ -100,6 +100,7 @@ public class OrderLineGroup extends OrderElement implements
 
         @Override
         protected void onChildAddedAdditionalActions(OrderElement newChild) {
+            getThis().clearCachedAdvancePercentages();
             updateCriterionRequirements();
             newChild.updateLabels();
             if (!newChild.isNewObject()) {
@@ -110,6 +111,7 @@ public class OrderLineGroup extends OrderElement implements
 
         @Override
         protected void onChildRemovedAdditionalActions(OrderElement removedChild) {
+            getThis().clearCachedAdvancePercentages();
             if (removedChild.isScheduled() && getThis().isScheduled()) {
                 removeChildTask(removedChild);
             }
@@ -450,6 +452,18 @@ public class OrderLineGroup extends OrderElement implements
 
     @Override
     public BigDecimal getAdvancePercentage(LocalDate date) {
+        if (date == null) {
+            return calculateAdvancePercentage(null);
+        }
+        BigDecimal result = getCachedAdvancePercentage(date);
+        if (result == null) {
+            result = calculateAdvancePercentage(date);
+            cacheAdvancePercentage(date, result);
+        }
+        return result;
+    }
+
+    private BigDecimal calculateAdvancePercentage(LocalDate date) {
         for (DirectAdvanceAssignment directAdvanceAssignment : directAdvanceAssignments) {
             if (directAdvanceAssignment.getReportGlobalAdvance()) {
                 if (date == null) {
@@ -485,25 +499,33 @@ public class OrderLineGroup extends OrderElement implements
         return getAdvancePercentageChildren(null);
     }
 
+    /**
+     * The percentages of the children are weighted by their hours. The hours
+     * of each child are only calculated once, as the hours of this element
+     * are their sum.
+     */
     public BigDecimal getAdvancePercentageChildren(LocalDate date) {
-        Integer hours = getWorkHours();
+        int hours = 0;
         BigDecimal result = new BigDecimal(0);
 
-        if (hours > 0) {
-            for (OrderElement orderElement : children) {
-                BigDecimal childPercentage;
-                if (date == null) {
-                    childPercentage = orderElement.getAdvancePercentage();
-                } else {
-                    childPercentage = orderElement.getAdvancePercentage(date);
-                }
-                Integer childHours = orderElement.getWorkHours();
-                result = result.add(childPercentage.multiply(new BigDecimal(
-                        childHours)));
+        for (OrderElement orderElement : children) {
+            Integer childHours = orderElement.getWorkHours();
+            hours += childHours;
+            if (childHours == 0) {
+                continue;
+            }
+            BigDecimal childPercentage;
+            if (date == null) {
+                childPercentage = orderElement.getAdvancePercentage();
+            } else {
+                childPercentage = orderElement.getAdvancePercentage(date);
             }
+            result = result.add(childPercentage.multiply(new BigDecimal(
+                    childHours)));
+        }
+        if (hours > 0) {
             result = result.divide(new BigDecimal(hours).setScale(2), 4,
                     RoundingMode.DOWN);
-
         }
 
         return result;
@@ -0,0 +1,332 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2011 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.chart;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.libreplan.business.planner.chart.ContiguousDaysLine.OnDay;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Specialization of {@link ContiguousDaysLine} for {@link EffortDuration}
+ * values. The efforts are kept as seconds in an <code>int</code> array, so the
+ * operations over the lines don't create an {@link EffortDuration} per day.
+ * They are only created when the line is converted with
+ * {@link #toSortedMap()} or {@link #get(LocalDate)}.
+ * <p>
+ * A {@link #subInterval(LocalDate, LocalDate) sub interval} is a view that
+ * shares the values of the original line.
+ */
+public class EffortDurationDaysLine {
+
+    /**
+     * Calculates the seconds for each of the days of a
+     * {@link ContiguousDaysLine}
+     */
+    public interface ISecondsOnDay<T> {
+
+        int secondsOn(LocalDate day, T value);
+    }
+
+    public static EffortDurationDaysLine create(LocalDate fromInclusive,
+            LocalDate endExclusive) {
+        if (fromInclusive.isAfter(endExclusive)) {
+            throw new IllegalArgumentException("fromInclusive ("
+                    + fromInclusive + ") is after endExclusive ("
+                    + endExclusive + ")");
+        }
+        int size = Days.daysBetween(fromInclusive, endExclusive).getDays();
+        return new EffortDurationDaysLine(fromInclusive, new int[size], 0,
+                size);
+    }
+
+    public static EffortDurationDaysLine invalid() {
+        return new EffortDurationDaysLine(null, new int[0], 0, 0);
+    }
+
+    /**
+     * Creates a line with the same days than the provided one. The
+     * <code>null</code> values are considered zero.
+     */
+    public static EffortDurationDaysLine from(
+            ContiguousDaysLine<EffortDuration> line) {
+        return from(line, new ISecondsOnDay<EffortDuration>() {
+
+            @Override
+            public int secondsOn(LocalDate day, EffortDuration value) {
+                return value == null ? 0 : value.getSeconds();
+            }
+        });
+    }
+
+    public static <T> EffortDurationDaysLine from(ContiguousDaysLine<T> line,
+            ISecondsOnDay<? super T> calculator) {
+        if (line.isNotValid()) {
+            return invalid();
+        }
+        EffortDurationDaysLine result = create(line.getStart(),
+                line.getEndExclusive());
+        int i = 0;
+        for (OnDay<T> each : line) {
+            result.seconds[i++] = calculator.secondsOn(each.getDay(),
+                    each.getValue());
+        }
+        return result;
+    }
+
+    public static EffortDurationDaysLine min(EffortDurationDaysLine a,
+            EffortDurationDaysLine b) {
+        if (a.isNotValid()) {
+            return invalid();
+        }
+        checkSameDays(a, b);
+        EffortDurationDaysLine result = create(a.getStart(),
+                a.getEndExclusive());
+        int[] r = result.seconds;
+        int[] x = a.seconds;
+        int[] y = b.seconds;
+        int xOffset = a.offset;
+        int yOffset = b.offset;
+        for (int i = 0; i < r.length; i++) {
+            int first = x[xOffset + i];
+            int second = y[yOffset + i];
+            r[i] = first <= second ? first : second;
+        }
+        return result;
+    }
+
+    public static EffortDurationDaysLine sum(EffortDurationDaysLine summandA,
+            EffortDurationDaysLine summandB) {
+        if (summandA.isNotValid()) {
+            return invalid();
+        }
+        checkSameDays(summandA, summandB);
+        EffortDurationDaysLine result = create(summandA.getStart(),
+                summandA.getEndExclusive());
+        int[] r = result.seconds;
+        int[] x = summandA.seconds;
+        int[] y = summandB.seconds;
+        int xOffset = summandA.offset;
+        int yOffset = summandB.offset;
+        for (int i = 0; i < r.length; i++) {
+            r[i] = x[xOffset + i] + y[yOffset + i];
+        }
+        return result;
+    }
+
+    /**
+     * Substracts the subtrahend line from the minuend line. An effort can't be
+     * negative so, if the subtrahend is at some point bigger than the minuend,
+     * zero is returned at that point.
+     *
+     * @see ContiguousDaysLine#substract(ContiguousDaysLine, ContiguousDaysLine)
+     */
+    public static EffortDurationDaysLine substract(
+            EffortDurationDaysLine minuend, EffortDurationDaysLine subtrahend) {
+        if (minuend.isNotValid()) {
+            return invalid();
+        }
+        checkSameDays(minuend, subtrahend);
+        EffortDurationDaysLine result = create(minuend.getStart(),
+                minuend.getEndExclusive());
+        int[] r = result.seconds;
+        int[] x = minuend.seconds;
+        int[] y = subtrahend.seconds;
+        int xOffset = minuend.offset;
+        int yOffset = subtrahend.offset;
+        for (int i = 0; i < r.length; i++) {
+            int difference = x[xOffset + i] - y[yOffset + i];
+            r[i] = difference > 0 ? difference : 0;
+        }
+        return result;
+    }
+
+    private static void checkSameDays(EffortDurationDaysLine a,
+            EffortDurationDaysLine b) {
+        Validate.isTrue(a.getStart().equals(b.getStart()),
+                "the start of all lines must be same date");
+        Validate.isTrue(a.size() == b.size(),
+                "the end of all lines must be same date");
+    }
+
+    private final LocalDate startInclusive;
+
+    private final int[] seconds;
+
+    private final int offset;
+
+    private final int size;
+
+    private EffortDurationDaysLine(LocalDate startInclusive, int[] seconds,
+            int offset, int size) {
+        this.startInclusive = startInclusive;
+        this.seconds = seconds;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    public boolean isNotValid() {
+        return startInclusive == null;
+    }
+
+    public LocalDate getStart() {
+        mustBeValid();
+        return startInclusive;
+    }
+
+    private void mustBeValid() {
+        if (isNotValid()) {
+            throw new IllegalStateException("this line is invalid");
+        }
+    }
+
+    public LocalDate getEndExclusive() {
+        return getStart().plusDays(size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a view of this line restricted to the given interval. The
+     * returned line shares the values with this one, so modifications on any
+     * of them are visible on the other.
+     */
+    public EffortDurationDaysLine subInterval(LocalDate startInclusive,
+            LocalDate endExclusive) {
+        if (isNotValid() || startInclusive.compareTo(endExclusive) >= 0
+                || startInclusive.compareTo(getEndExclusive()) >= 0
+                || endExclusive.compareTo(getStart()) <= 0) {
+            return invalid();
+        }
+        int from = Math.max(0, indexOf(startInclusive));
+        int to = Math.min(size, indexOf(endExclusive));
+        return new EffortDurationDaysLine(this.startInclusive.plusDays(from),
+                seconds, offset + from, to - from);
+    }
+
+    private int indexOf(LocalDate day) {
+        return Days.daysBetween(startInclusive, day).getDays();
+    }
+
+    private int positionOf(LocalDate day) throws IndexOutOfBoundsException {
+        Validate.notNull(day);
+        int index = indexOf(day);
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(day + " is not in ["
+                    + startInclusive + ", " + getEndExclusive() + ")");
+        }
+        return offset + index;
+    }
+
+    public int getSeconds(LocalDate day) throws IndexOutOfBoundsException {
+        return seconds[positionOf(day)];
+    }
+
+    /**
+     * @param index
+     *            the number of days from the start of the line
+     */
+    public int getSecondsAt(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index
+                    + ", size: " + size);
+        }
+        return seconds[offset + index];
+    }
+
+    public EffortDuration get(LocalDate day) throws IndexOutOfBoundsException {
+        return EffortDuration.seconds(getSeconds(day));
+    }
+
+    public void setSeconds(LocalDate day, int value)
+            throws IndexOutOfBoundsException {
+        seconds[positionOf(day)] = value;
+    }
+
+    public void set(LocalDate day, EffortDuration value)
+            throws IndexOutOfBoundsException {
+        Validate.notNull(value);
+        setSeconds(day, value.getSeconds());
+    }
+
+    public void add(LocalDate day, EffortDuration value)
+            throws IndexOutOfBoundsException {
+        Validate.notNull(value);
+        seconds[positionOf(day)] += value.getSeconds();
+    }
+
+    /**
+     * @return the sum of the efforts of all the days of the line
+     * @throws ArithmeticException
+     *             if the sum doesn't fit in an {@link EffortDuration}
+     */
+    public EffortDuration sumAll() throws ArithmeticException {
+        long result = 0;
+        for (int i = offset; i < offset + size; i++) {
+            result += seconds[i];
+        }
+        return EffortDuration.seconds(toIntExact(result));
+    }
+
+    private static int toIntExact(long value) throws ArithmeticException {
+        if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+            throw new ArithmeticException("integer overflow: " + value
+                    + " seconds");
+        }
+        return (int) value;
+    }
+
+    public SortedMap<LocalDate, EffortDuration> toSortedMap() {
+        SortedMap<LocalDate, EffortDuration> result = new TreeMap<LocalDate, EffortDuration>();
+        LocalDate current = startInclusive;
+        for (int i = offset; i < offset + size; i++) {
+            result.put(current, EffortDuration.seconds(seconds[i]));
+            current = current.plusDays(1);
+        }
+        return result;
+    }
+
+    public ContiguousDaysLine<EffortDuration> toContiguousDaysLine() {
+        if (isNotValid()) {
+            return ContiguousDaysLine.invalid();
+        }
+        ContiguousDaysLine<EffortDuration> result = ContiguousDaysLine.create(
+                startInclusive, getEndExclusive());
+        LocalDate current = startInclusive;
+        for (int i = offset; i < offset + size; i++) {
+            result.set(current, EffortDuration.seconds(seconds[i]));
+            current = current.plusDays(1);
+        }
+        return result;
+    }
+
+}
@@ -21,11 +21,6 @@
 
 package org.libreplan.business.planner.chart;
 
-import static org.libreplan.business.planner.chart.ContiguousDaysLine.compound;
-import static org.libreplan.business.planner.chart.ContiguousDaysLine.sum;
-import static org.libreplan.business.planner.chart.ContiguousDaysLine.toSortedMap;
-import static org.libreplan.business.workingday.EffortDuration.min;
-
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -37,11 +32,11 @@ import java.util.SortedMap;
 
 import org.joda.time.LocalDate;
 import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots;
-import org.libreplan.business.planner.chart.ContiguousDaysLine.IValueTransformer;
+import org.libreplan.business.planner.chart.EffortDurationDaysLine.ISecondsOnDay;
 import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.workingday.EffortDuration;
-import org.libreplan.business.workingday.EffortDuration.IEffortFrom;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 
 /**
@@ -74,111 +69,185 @@ public class ResourceLoadChartData implements ILoadChartData {
         if (startInclusive != null && endExclusive != null) {
             assignments = assignments.subInterval(startInclusive, endExclusive);
         }
-        ContiguousDaysLine<EffortDuration> load = assignments
-                .transform(extractLoad());
+        EffortDurationDaysLine load = EffortDurationDaysLine.from(
+                assignments, loadInSeconds());
 
-        ContiguousDaysLine<EffortDuration> overload = assignments
-                .transform(extractOverload());
+        EffortDurationDaysLine overload = EffortDurationDaysLine.from(
+                assignments, overloadInSeconds());
 
-        ContiguousDaysLine<EffortDuration> availabilityOnAllResources = assignments
-                .transform(extractAvailabilityOnAllResources(resources));
+        EffortDurationDaysLine availabilityOnAllResources = EffortDurationDaysLine
+                .from(assignments, availabilityOnAllResourcesInSeconds(resources));
 
-        this.load = toSortedMap(ContiguousDaysLine.min(load,
-                availabilityOnAllResources));
-        this.overload = toSortedMap(sum(overload, availabilityOnAllResources));
-        this.availability = toSortedMap(availabilityOnAllResources);
+        setValues(load, overload, availabilityOnAllResources);
     }
 
-    public static IValueTransformer<List<DayAssignment>, EffortDuration> extractOverload() {
-        return compound(effortByResource(), calculateOverload());
+    private ResourceLoadChartData(EffortDurationDaysLine load,
+            EffortDurationDaysLine overload,
+            EffortDurationDaysLine availabilityOnAllResources) {
+        setValues(load, overload, availabilityOnAllResources);
     }
 
-    private static IValueTransformer<List<DayAssignment>, Map<Resource, EffortDuration>> effortByResource() {
-        return new IValueTransformer<List<DayAssignment>, Map<Resource, EffortDuration>>() {
+    private void setValues(EffortDurationDaysLine load,
+            EffortDurationDaysLine overload,
+            EffortDurationDaysLine availabilityOnAllResources) {
+        this.load = EffortDurationDaysLine.min(load,
+                availabilityOnAllResources).toSortedMap();
+        this.overload = EffortDurationDaysLine.sum(overload,
+                availabilityOnAllResources).toSortedMap();
+        this.availability = availabilityOnAllResources.toSortedMap();
+    }
 
-            @Override
-            public Map<Resource, EffortDuration> transform(LocalDate day,
-                    List<DayAssignment> previousValue) {
-                Map<Resource, List<DayAssignment>> byResource = DayAssignment
-                        .byResource(previousValue);
-                Map<Resource, EffortDuration> result = new HashMap<Resource, EffortDuration>();
-                for (Entry<Resource, List<DayAssignment>> each : byResource
-                        .entrySet()) {
-                    result.put(each.getKey(),
-                            DayAssignment.sum(each.getValue()));
+    /**
+     * Calculates the data from the effort assigned per day to each resource,
+     * as kept in {@link ResourceDailyLoad}, so the day assignments don't need
+     * to be loaded.
+     *
+     * @param loadsByResource
+     *            the effort assigned per day to each resource. The days
+     *            without load can be omitted
+     * @param resources
+     *            the resources whose capacity is considered as available
+     */
+    public static ResourceLoadChartData fromDailyLoads(
+            Map<Resource, SortedMap<LocalDate, EffortDuration>> loadsByResource,
+            List<Resource> resources, LocalDate startInclusive,
+            LocalDate endExclusive) {
+        LocalDate start = null;
+        LocalDate end = null;
+        for (SortedMap<LocalDate, EffortDuration> each : loadsByResource
+                .values()) {
+            if (!each.isEmpty()) {
+                start = earliest(start, each.firstKey());
+                end = latest(end, each.lastKey().plusDays(1));
+            }
+        }
+        if (start != null && startInclusive != null && endExclusive != null) {
+            start = latest(start, startInclusive);
+            end = earliest(end, endExclusive);
+        }
+        if (start == null || !start.isBefore(end)) {
+            EffortDurationDaysLine invalid = EffortDurationDaysLine.invalid();
+            return new ResourceLoadChartData(invalid, invalid, invalid);
+        }
+
+        EffortDurationDaysLine load = EffortDurationDaysLine.create(start, end);
+        EffortDurationDaysLine overload = EffortDurationDaysLine.create(start,
+                end);
+        EffortDurationDaysLine availability = EffortDurationDaysLine.create(
+                start, end);
+        for (LocalDate day = start; day.isBefore(end); day = day.plusDays(1)) {
+            availability.setSeconds(day,
+                    sumCalendarCapacitiesInSeconds(resources, day));
+        }
+        for (Entry<Resource, SortedMap<LocalDate, EffortDuration>> each : loadsByResource
+                .entrySet()) {
+            Resource resource = each.getKey();
+            for (Entry<LocalDate, EffortDuration> loadOnDay : each.getValue()
+                    .subMap(start, end).entrySet()) {
+                LocalDate day = loadOnDay.getKey();
+                int assigned = loadOnDay.getValue().getSeconds();
+                int capacity = calendarCapacityFor(resource,
+                        PartialDay.wholeDay(day)).getSeconds();
+                load.setSeconds(day, load.getSeconds(day) + assigned);
+                if (assigned > capacity) {
+                    overload.setSeconds(day, overload.getSeconds(day)
+                            + assigned - capacity);
                 }
-                return result;
             }
-        };
+        }
+        return new ResourceLoadChartData(load, overload, availability);
     }
 
-    public static IValueTransformer<Map<Resource, EffortDuration>, EffortDuration> calculateOverload() {
-        return new IValueTransformer<Map<Resource, EffortDuration>, EffortDuration>() {
+    private static LocalDate earliest(LocalDate a, LocalDate b) {
+        return a == null || b.isBefore(a) ? b : a;
+    }
+
+    private static LocalDate latest(LocalDate a, LocalDate b) {
+        return a == null || b.isAfter(a) ? b : a;
+    }
+
+    public static ISecondsOnDay<List<DayAssignment>> loadInSeconds() {
+        return new ISecondsOnDay<List<DayAssignment>>() {
 
             @Override
-            public EffortDuration transform(LocalDate day,
-                    Map<Resource, EffortDuration> previousValue) {
-
-                final PartialDay wholeDay = PartialDay.wholeDay(day);
-                return EffortDuration.sum(previousValue.entrySet(),
-                        new IEffortFrom<Entry<Resource, EffortDuration>>() {
-
-                            @Override
-                            public EffortDuration from(
-                                    Entry<Resource, EffortDuration> each) {
-                                EffortDuration capacity = calendarCapacityFor(
-                                        each.getKey(), wholeDay);
-                                EffortDuration assigned = each.getValue();
-                                return assigned.minus(min(capacity, assigned));
-                            }
-                        });
+            public int secondsOn(LocalDate day, List<DayAssignment> value) {
+                int result = 0;
+                for (DayAssignment each : value) {
+                    result += each.getDuration().getSeconds();
+                }
+                return result;
             }
         };
     }
 
-    public static IValueTransformer<List<DayAssignment>, EffortDuration> extractLoad() {
-        return new IValueTransformer<List<DayAssignment>, EffortDuration>() {
+    public static ISecondsOnDay<List<DayAssignment>> overloadInSeconds() {
+        return new ISecondsOnDay<List<DayAssignment>>() {
 
             @Override
-            public EffortDuration transform(LocalDate day,
-                    List<DayAssignment> previousValue) {
-                return DayAssignment.sum(previousValue);
+            public int secondsOn(LocalDate day, List<DayAssignment> value) {
+                if (value.isEmpty()) {
+                    return 0;
+                }
+                Map<Resource, int[]> assignedByResource = new HashMap<Resource, int[]>();
+                for (DayAssignment each : value) {
+                    int[] assigned = assignedByResource.get(each.getResource());
+                    if (assigned == null) {
+                        assigned = new int[1];
+                        assignedByResource.put(each.getResource(), assigned);
+                    }
+                    assigned[0] += each.getDuration().getSeconds();
+                }
+                PartialDay wholeDay = PartialDay.wholeDay(day);
+                int result = 0;
+                for (Entry<Resource, int[]> each : assignedByResource
+                        .entrySet()) {
+                    int capacity = calendarCapacityFor(each.getKey(), wholeDay)
+                            .getSeconds();
+                    int assigned = each.getValue()[0];
+                    if (assigned > capacity) {
+                        result += assigned - capacity;
+                    }
+                }
+                return result;
             }
         };
     }
 
-    public static IValueTransformer<List<DayAssignment>, EffortDuration> extractAvailabilityOnAssignedResources() {
-        return new IValueTransformer<List<DayAssignment>, EffortDuration>() {
+    public static ISecondsOnDay<List<DayAssignment>> availabilityOnAssignedResourcesInSeconds() {
+        return new ISecondsOnDay<List<DayAssignment>>() {
 
             @Override
-            public EffortDuration transform(LocalDate day,
-                    List<DayAssignment> previousValue) {
-                Set<Resource> resources = getResources(previousValue);
-                return sumCalendarCapacitiesForDay(resources, day);
-            }
-
-            private Set<Resource> getResources(List<DayAssignment> assignments) {
+            public int secondsOn(LocalDate day, List<DayAssignment> value) {
                 Set<Resource> resources = new HashSet<Resource>();
-                for (DayAssignment dayAssignment : assignments) {
-                    resources.add(dayAssignment.getResource());
+                for (DayAssignment each : value) {
+                    resources.add(each.getResource());
                 }
-                return resources;
+                return sumCalendarCapacitiesInSeconds(resources, day);
             }
         };
     }
 
-    private IValueTransformer<List<DayAssignment>, EffortDuration> extractAvailabilityOnAllResources(
+    private static ISecondsOnDay<List<DayAssignment>> availabilityOnAllResourcesInSeconds(
             final List<Resource> resources) {
-        return new IValueTransformer<List<DayAssignment>, EffortDuration>() {
+        return new ISecondsOnDay<List<DayAssignment>>() {
 
             @Override
-            public EffortDuration transform(LocalDate day,
-                    List<DayAssignment> previousValue) {
-                return sumCalendarCapacitiesForDay(resources, day);
+            public int secondsOn(LocalDate day, List<DayAssignment> value) {
+                return sumCalendarCapacitiesInSeconds(resources, day);
             }
         };
     }
 
+    private static int sumCalendarCapacitiesInSeconds(
+            Collection<? extends Resource> resources, LocalDate day) {
+        PartialDay wholeDay = PartialDay.wholeDay(day);
+        int result = 0;
+        for (Resource each : resources) {
+            result += calendarCapacityFor(each, wholeDay).getSeconds();
+        }
+        return result;
+    }
+
     public SortedMap<LocalDate, EffortDuration> getLoad() {
         return load;
     }
@@ -228,19 +297,6 @@ public class ResourceLoadChartData implements ILoadChartData {
         };
     }
 
-    private static EffortDuration sumCalendarCapacitiesForDay(
-            Collection<? extends Resource> resources, LocalDate day) {
-
-        final PartialDay wholeDay = PartialDay.wholeDay(day);
-
-        return EffortDuration.sum(resources, new IEffortFrom<Resource>() {
-            @Override
-            public EffortDuration from(Resource each) {
-                return calendarCapacityFor(each, wholeDay);
-            }
-        });
-    }
-
     protected static EffortDuration calendarCapacityFor(Resource resource,
             PartialDay day) {
         return resource.getCalendarOrDefault().getCapacityOn(day);
@@ -22,9 +22,12 @@
 package org.libreplan.business.planner.daos;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
@@ -196,4 +199,28 @@ public class DayAssignmentDAO extends GenericDAOHibernate<DayAssignment, Long>
         return criteria.list();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<Long> findTaskIdsOf(Collection<Long> dayAssignmentIds) {
+        if (dayAssignmentIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Long> result = new HashSet<Long>();
+        for (String each : Arrays.asList(
+                "select t.id from SpecificDayAssignmentsContainer c "
+                        + "JOIN c.dayAssignments d JOIN c.resourceAllocation a "
+                        + "JOIN a.task t where d.id in (:ids)",
+                "select t.id from GenericDayAssignmentsContainer c "
+                        + "JOIN c.dayAssignments d JOIN c.resourceAllocation a "
+                        + "JOIN a.task t where d.id in (:ids)",
+                "select t.id from DerivedDayAssignmentsContainer c "
+                        + "JOIN c.dayAssignments d JOIN c.resourceAllocation derived "
+                        + "JOIN derived.derivedFrom a "
+                        + "JOIN a.task t where d.id in (:ids)")) {
+            result.addAll(getSession().createQuery(each)
+                    .setParameterList("ids", dayAssignmentIds).list());
+        }
+        return result;
+    }
+
 }
@@ -23,6 +23,7 @@ package org.libreplan.business.planner.daos;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.IGenericDAO;
@@ -58,4 +59,11 @@ public interface IDayAssignmentDAO extends IGenericDAO<DayAssignment, Long> {
 
     public List<DayAssignment> findByResources(List<Resource> resources);
 
+    /**
+     * @return the ids of the tasks the given day assignments belong to. The
+     *         task of a derived day assignment is the task of the allocation
+     *         it's derived from
+     */
+    Set<Long> findTaskIdsOf(Collection<Long> dayAssignmentIds);
+
 }
@@ -0,0 +1,46 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.daos;
+
+import org.libreplan.business.orders.entities.Order;
+
+/**
+ * Loads in the current session all the data needed to plan an {@link Order}
+ * using set based queries instead of navigating the associations one entity
+ * at a time.
+ */
+public interface IPlanningDataBatchLoader {
+
+    /**
+     * Initializes the order elements tree, the task elements tree, the
+     * resource allocations with their day assignments, the dependencies, the
+     * labels and the criterion requirements of the given order.
+     *
+     * The number of queries executed depends on the depth of the trees and on
+     * the number of entities divided by the size of the chunks used in the
+     * <code>IN</code> clauses, but not on the number of entities itself. Once
+     * this method returns, navigating these associations doesn't hit the
+     * database.
+     */
+    void loadPlanningDataOf(Order order);
+
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.daos;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.common.daos.IGenericDAO;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * DAO interface for {@link ResourceDailyLoad}
+ */
+public interface IResourceDailyLoadDAO extends
+        IGenericDAO<ResourceDailyLoad, Long> {
+
+    /**
+     * Returns the effort assigned to the resource per day between the dates,
+     * both inclusive. The days without load are not included. If a date is
+     * <code>null</code> the interval is not limited on that side.
+     */
+    SortedMap<LocalDate, EffortDuration> getLoadPerDay(Scenario scenario,
+            Resource resource, LocalDate startInclusive,
+            LocalDate endInclusive);
+
+    /**
+     * Like {@link #getLoadPerDay(Scenario, Resource, LocalDate, LocalDate)}
+     * but for several resources at once. All the resources are included in the
+     * result, even if they don't have any load.
+     */
+    Map<Resource, SortedMap<LocalDate, EffortDuration>> getLoadPerDay(
+            Scenario scenario, Collection<? extends Resource> resources,
+            LocalDate startInclusive, LocalDate endInclusive);
+
+    /**
+     * Recalculates the loads of the days of each resource, in all scenarios,
+     * from the {@link DayAssignment day assignments} stored in the database
+     *
+     * @param daysByResourceId
+     *            the days to recalculate for each resource id
+     */
+    void recalculate(Map<Long, Set<LocalDate>> daysByResourceId);
+
+    /**
+     * Discards all the loads and calculates them again from the
+     * {@link DayAssignment day assignments} stored in the database
+     */
+    void recalculateAll();
+
+    boolean isEmpty();
+
+}
@@ -0,0 +1,332 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.daos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.orders.entities.HoursGroup;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.orders.entities.OrderLine;
+import org.libreplan.business.orders.entities.OrderLineGroup;
+import org.libreplan.business.planner.entities.DerivedAllocation;
+import org.libreplan.business.planner.entities.GenericResourceAllocation;
+import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.entities.TaskElement;
+import org.libreplan.business.planner.entities.TaskGroup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Implementation of {@link IPlanningDataBatchLoader} based on HQL
+ * <code>join fetch</code> queries. Hibernate initializes the collections of the
+ * entities already attached to the session with the rows retrieved, so after
+ * each phase the associations are available without further queries.
+ */
+@Repository
+@Scope(BeanDefinition.SCOPE_SINGLETON)
+public class PlanningDataBatchLoader implements IPlanningDataBatchLoader {
+
+    private static final Log LOG = LogFactory
+            .getLog(PlanningDataBatchLoader.class);
+
+    /**
+     * Maximum number of ids sent in the <code>IN</code> clause of a query
+     */
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    /**
+     * Keeps the time spent in each of the phases of a load
+     */
+    private static class Timings {
+
+        private final StringBuilder summary = new StringBuilder();
+
+        private long phaseStart = System.currentTimeMillis();
+
+        private final long start = phaseStart;
+
+        private int queries = 0;
+
+        void phaseDone(String phase, int entities) {
+            long now = System.currentTimeMillis();
+            summary.append(String.format(" %s: %d entities in %d ms;", phase,
+                    entities, now - phaseStart));
+            phaseStart = now;
+        }
+
+        void queryExecuted() {
+            queries++;
+        }
+
+        String summary() {
+            return String.format("%d queries in %d ms:%s", queries,
+                    System.currentTimeMillis() - start, summary);
+        }
+    }
+
+    @Override
+    public void loadPlanningDataOf(Order order) {
+        Validate.notNull(order);
+        if (order.isNewObject()) {
+            return;
+        }
+        Timings timings = new Timings();
+
+        List<OrderElement> orderElements = loadOrderElementsTree(timings,
+                order);
+        timings.phaseDone("order elements", orderElements.size());
+
+        List<TaskElement> taskElements = loadTaskElementsTree(timings,
+                order.getAssociatedTaskElement());
+        timings.phaseDone("task elements", taskElements.size());
+
+        List<ResourceAllocation<?>> allocations = loadResourceAllocations(
+                timings, taskElements);
+        timings.phaseDone("resource allocations", allocations.size());
+
+        int containers = loadDayAssignments(timings, allocations);
+        timings.phaseDone("day assignments containers", containers);
+
+        loadDependencies(timings, taskElements);
+        timings.phaseDone("dependencies", taskElements.size());
+
+        loadLabels(timings, orderElements);
+        timings.phaseDone("labels", orderElements.size());
+
+        int hoursGroups = loadCriterionRequirements(timings, orderElements);
+        timings.phaseDone("criterion requirements", orderElements.size()
+                + hoursGroups);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("planning data of order (id=" + order.getId()
+                    + ") loaded with " + timings.summary());
+        }
+    }
+
+    private List<OrderElement> loadOrderElementsTree(Timings timings,
+            Order order) {
+        List<OrderElement> result = new ArrayList<OrderElement>();
+        result.add(order);
+        List<OrderLineGroup> level = new ArrayList<OrderLineGroup>();
+        level.add(order);
+        while (!level.isEmpty()) {
+            List<OrderLineGroup> loaded = list(timings, OrderLineGroup.class,
+                    "select distinct g from OrderLineGroup g "
+                            + "left join fetch g.children "
+                            + "where g.id in (:ids)", level);
+            List<OrderLineGroup> nextLevel = new ArrayList<OrderLineGroup>();
+            for (OrderLineGroup each : loaded) {
+                for (OrderElement child : each.getChildren()) {
+                    result.add(child);
+                    if (child instanceof OrderLineGroup) {
+                        nextLevel.add((OrderLineGroup) child);
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+        return result;
+    }
+
+    private List<TaskElement> loadTaskElementsTree(Timings timings,
+            TaskGroup root) {
+        List<TaskElement> result = new ArrayList<TaskElement>();
+        if (root == null) {
+            return result;
+        }
+        result.add(root);
+        List<TaskGroup> level = new ArrayList<TaskGroup>();
+        level.add(root);
+        while (!level.isEmpty()) {
+            List<TaskGroup> loaded = list(timings, TaskGroup.class,
+                    "select distinct g from TaskGroup g "
+                            + "left join fetch g.taskElements "
+                            + "where g.id in (:ids)", level);
+            List<TaskGroup> nextLevel = new ArrayList<TaskGroup>();
+            for (TaskGroup each : loaded) {
+                for (TaskElement child : each.getChildren()) {
+                    result.add(child);
+                    if (child instanceof TaskGroup) {
+                        nextLevel.add((TaskGroup) child);
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+        return result;
+    }
+
+    private List<ResourceAllocation<?>> loadResourceAllocations(
+            Timings timings, List<TaskElement> taskElements) {
+        List<Task> tasks = new ArrayList<Task>();
+        for (TaskElement each : taskElements) {
+            if (each instanceof Task) {
+                tasks.add((Task) each);
+            }
+        }
+        List<Task> loaded = list(timings, Task.class,
+                "select distinct t from Task t "
+                        + "left join fetch t.resourceAllocations a "
+                        + "left join fetch a.assignmentFunction "
+                        + "where t.id in (:ids)", tasks);
+        List<ResourceAllocation<?>> result = new ArrayList<ResourceAllocation<?>>();
+        for (Task each : loaded) {
+            result.addAll(each.getAllResourceAllocations());
+        }
+        return result;
+    }
+
+    private int loadDayAssignments(Timings timings,
+            List<ResourceAllocation<?>> allocations) {
+        List<SpecificResourceAllocation> specific = ResourceAllocation
+                .getOfType(SpecificResourceAllocation.class, allocations);
+        List<GenericResourceAllocation> generic = ResourceAllocation
+                .getOfType(GenericResourceAllocation.class, allocations);
+
+        List<SpecificResourceAllocation> specificLoaded = list(timings,
+                SpecificResourceAllocation.class,
+                "select distinct a from SpecificResourceAllocation a "
+                        + "left join fetch a.resource "
+                        + "left join fetch a.specificDayAssignmentsContainers c "
+                        + "left join fetch c.dayAssignments "
+                        + "where a.id in (:ids)", specific);
+        list(timings, GenericResourceAllocation.class,
+                "select distinct a from GenericResourceAllocation a "
+                        + "left join fetch a.criterions "
+                        + "where a.id in (:ids)", generic);
+        List<GenericResourceAllocation> genericLoaded = list(timings,
+                GenericResourceAllocation.class,
+                "select distinct a from GenericResourceAllocation a "
+                        + "left join fetch a.genericDayAssignmentsContainers c "
+                        + "left join fetch c.dayAssignments "
+                        + "where a.id in (:ids)", generic);
+        list(timings, ResourceAllocation.class,
+                "select distinct a from ResourceAllocation a "
+                        + "left join fetch a.derivedAllocations "
+                        + "where a.id in (:ids)", allocations);
+
+        List<DerivedAllocation> derived = new ArrayList<DerivedAllocation>();
+        for (ResourceAllocation<?> each : allocations) {
+            derived.addAll(each.getDerivedAllocations());
+        }
+        list(timings, DerivedAllocation.class,
+                "select distinct d from DerivedAllocation d "
+                        + "left join fetch d.derivedDayAssignmentsContainers c "
+                        + "left join fetch c.dayAssignments "
+                        + "where d.id in (:ids)", derived);
+        return specificLoaded.size() + genericLoaded.size() + derived.size();
+    }
+
+    private void loadDependencies(Timings timings,
+            List<TaskElement> taskElements) {
+        list(timings, TaskElement.class, "select distinct t from TaskElement t "
+                + "left join fetch t.dependenciesWithThisOrigin "
+                + "where t.id in (:ids)", taskElements);
+        list(timings, TaskElement.class, "select distinct t from TaskElement t "
+                + "left join fetch t.dependenciesWithThisDestination "
+                + "where t.id in (:ids)", taskElements);
+    }
+
+    private void loadLabels(Timings timings, List<OrderElement> orderElements) {
+        list(timings, OrderElement.class,
+                "select distinct o from OrderElement o "
+                        + "left join fetch o.labels l "
+                        + "left join fetch l.type "
+                        + "where o.id in (:ids)", orderElements);
+    }
+
+    private int loadCriterionRequirements(Timings timings,
+            List<OrderElement> orderElements) {
+        list(timings, OrderElement.class,
+                "select distinct o from OrderElement o "
+                        + "left join fetch o.criterionRequirements "
+                        + "where o.id in (:ids)", orderElements);
+        List<OrderLine> lines = new ArrayList<OrderLine>();
+        for (OrderElement each : orderElements) {
+            if (each instanceof OrderLine) {
+                lines.add((OrderLine) each);
+            }
+        }
+        List<OrderLine> loaded = list(timings, OrderLine.class,
+                "select distinct l from OrderLine l "
+                        + "left join fetch l.hoursGroups "
+                        + "where l.id in (:ids)", lines);
+        List<HoursGroup> hoursGroups = new ArrayList<HoursGroup>();
+        for (OrderLine each : loaded) {
+            hoursGroups.addAll(each.getHoursGroups());
+        }
+        list(timings, HoursGroup.class, "select distinct h from HoursGroup h "
+                + "left join fetch h.criterionRequirements "
+                + "where h.id in (:ids)", hoursGroups);
+        return hoursGroups.size();
+    }
+
+    /**
+     * Executes the query for the ids of the entities received, splitting them
+     * in chunks of {@link #CHUNK_SIZE}. The query must have an <code>ids</code>
+     * parameter.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> list(Timings timings, Class<T> klass, String hql,
+            Collection<? extends BaseEntity> entities) {
+        List<Long> ids = new ArrayList<Long>(idsOf(entities));
+        List<T> result = new ArrayList<T>();
+        Session session = sessionFactory.getCurrentSession();
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(i,
+                    Math.min(ids.size(), i + CHUNK_SIZE));
+            result.addAll(session.createQuery(hql)
+                    .setParameterList("ids", chunk).list());
+            timings.queryExecuted();
+        }
+        return result;
+    }
+
+    private static Set<Long> idsOf(Collection<? extends BaseEntity> entities) {
+        Set<Long> result = new LinkedHashSet<Long>();
+        for (BaseEntity each : entities) {
+            if (each.getId() != null) {
+                result.add(each.getId());
+            }
+        }
+        return result;
+    }
+
+}
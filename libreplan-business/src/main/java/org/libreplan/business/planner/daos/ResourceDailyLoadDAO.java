@@ -0,0 +1,270 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.daos;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.hibernate.Query;
+import org.joda.time.LocalDate;
+import org.libreplan.business.common.daos.GenericDAOHibernate;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * DAO for {@link ResourceDailyLoad}
+ */
+@Repository
+@Scope(BeanDefinition.SCOPE_SINGLETON)
+public class ResourceDailyLoadDAO extends
+        GenericDAOHibernate<ResourceDailyLoad, Long> implements
+        IResourceDailyLoadDAO {
+
+    private static final String[] DAY_ASSIGNMENTS_CONTAINERS = {
+            "SpecificDayAssignmentsContainer",
+            "GenericDayAssignmentsContainer",
+            "DerivedDayAssignmentsContainer" };
+
+    private static class LoadKey {
+
+        private final Long scenarioId;
+
+        private final Long resourceId;
+
+        private final LocalDate day;
+
+        LoadKey(Long scenarioId, Long resourceId, LocalDate day) {
+            this.scenarioId = scenarioId;
+            this.resourceId = resourceId;
+            this.day = day;
+        }
+
+        boolean isIncludedIn(Map<Long, Set<LocalDate>> daysByResourceId) {
+            Set<LocalDate> days = daysByResourceId.get(resourceId);
+            return days != null && days.contains(day);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof LoadKey)) {
+                return false;
+            }
+            LoadKey other = (LoadKey) obj;
+            return new EqualsBuilder().append(scenarioId, other.scenarioId)
+                    .append(resourceId, other.resourceId)
+                    .append(day, other.day).isEquals();
+        }
+
+        @Override
+        public int hashCode() {
+            return new HashCodeBuilder().append(scenarioId)
+                    .append(resourceId).append(day).toHashCode();
+        }
+
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SortedMap<LocalDate, EffortDuration> getLoadPerDay(
+            Scenario scenario, Resource resource, LocalDate startInclusive,
+            LocalDate endInclusive) {
+        return getLoadPerDay(scenario, Collections.singletonList(resource),
+                startInclusive, endInclusive).get(resource);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public Map<Resource, SortedMap<LocalDate, EffortDuration>> getLoadPerDay(
+            Scenario scenario, Collection<? extends Resource> resources,
+            LocalDate startInclusive, LocalDate endInclusive) {
+        Map<Long, SortedMap<LocalDate, EffortDuration>> byResourceId = new HashMap<Long, SortedMap<LocalDate, EffortDuration>>();
+        Map<Resource, SortedMap<LocalDate, EffortDuration>> result = new LinkedHashMap<Resource, SortedMap<LocalDate, EffortDuration>>();
+        for (Resource each : resources) {
+            SortedMap<LocalDate, EffortDuration> loads = new TreeMap<LocalDate, EffortDuration>();
+            result.put(each, loads);
+            byResourceId.put(each.getId(), loads);
+        }
+        if (resources.isEmpty()) {
+            return result;
+        }
+        String queryString = "select l.resource.id, l.day, l.effort "
+                + "from ResourceDailyLoad l "
+                + "where l.scenario = :scenario "
+                + "and l.resource.id in (:resources)"
+                + (startInclusive != null ? " and l.day >= :start" : "")
+                + (endInclusive != null ? " and l.day <= :end" : "");
+        Query query = getSession().createQuery(queryString)
+                .setParameter("scenario", scenario)
+                .setParameterList("resources", byResourceId.keySet());
+        if (startInclusive != null) {
+            query.setParameter("start", startInclusive);
+        }
+        if (endInclusive != null) {
+            query.setParameter("end", endInclusive);
+        }
+        for (Object[] each : (List<Object[]>) query.list()) {
+            byResourceId.get(each[0]).put((LocalDate) each[1],
+                    (EffortDuration) each[2]);
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public void recalculate(Map<Long, Set<LocalDate>> daysByResourceId) {
+        if (daysByResourceId.isEmpty()) {
+            return;
+        }
+        LocalDate start = null;
+        LocalDate end = null;
+        for (Set<LocalDate> days : daysByResourceId.values()) {
+            for (LocalDate each : days) {
+                start = start == null || each.isBefore(start) ? each : start;
+                end = end == null || each.isAfter(end) ? each : end;
+            }
+        }
+        Set<Long> resourceIds = daysByResourceId.keySet();
+        Map<LoadKey, EffortDuration> assigned = sumAssignedEfforts(
+                resourceIds, start, end);
+        Map<LoadKey, ResourceDailyLoad> stored = findStored(resourceIds,
+                start, end);
+
+        for (Entry<LoadKey, ResourceDailyLoad> each : stored.entrySet()) {
+            if (each.getKey().isIncludedIn(daysByResourceId)) {
+                update(each.getValue(), assigned.get(each.getKey()));
+            }
+        }
+        for (Entry<LoadKey, EffortDuration> each : assigned.entrySet()) {
+            LoadKey key = each.getKey();
+            if (!stored.containsKey(key) && key.isIncludedIn(daysByResourceId)) {
+                createLoad(key, each.getValue());
+            }
+        }
+    }
+
+    private void update(ResourceDailyLoad load, EffortDuration effort) {
+        if (effort == null || effort.isZero()) {
+            getSession().delete(load);
+        } else if (!effort.equals(load.getEffort())) {
+            load.setEffort(effort);
+        }
+    }
+
+    private void createLoad(LoadKey key, EffortDuration effort) {
+        if (effort.isZero()) {
+            return;
+        }
+        Resource resource = (Resource) getSession().load(Resource.class,
+                key.resourceId);
+        Scenario scenario = (Scenario) getSession().load(Scenario.class,
+                key.scenarioId);
+        ResourceDailyLoad load = ResourceDailyLoad.create(resource, scenario,
+                key.day);
+        load.setEffort(effort);
+        getSession().save(load);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<LoadKey, EffortDuration> sumAssignedEfforts(
+            Collection<Long> resourceIds, LocalDate start, LocalDate end) {
+        Map<LoadKey, EffortDuration> result = new HashMap<LoadKey, EffortDuration>();
+        for (String container : DAY_ASSIGNMENTS_CONTAINERS) {
+            String queryString = "select c.scenario.id, d.resource.id, d.day, d.duration "
+                    + "from "
+                    + container
+                    + " c JOIN c.dayAssignments d "
+                    + (resourceIds != null ? "where d.resource.id in (:resources) "
+                            + "and d.day >= :start and d.day <= :end"
+                            : "");
+            Query query = getSession().createQuery(queryString);
+            if (resourceIds != null) {
+                query.setParameterList("resources", resourceIds)
+                        .setParameter("start", start)
+                        .setParameter("end", end);
+            }
+            for (Object[] each : (List<Object[]>) query.list()) {
+                LoadKey key = new LoadKey((Long) each[0], (Long) each[1],
+                        (LocalDate) each[2]);
+                EffortDuration previous = result.get(key);
+                EffortDuration duration = (EffortDuration) each[3];
+                result.put(key, previous == null ? duration : previous
+                        .plus(duration));
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<LoadKey, ResourceDailyLoad> findStored(
+            Collection<Long> resourceIds, LocalDate start, LocalDate end) {
+        Map<LoadKey, ResourceDailyLoad> result = new HashMap<LoadKey, ResourceDailyLoad>();
+        List<ResourceDailyLoad> loads = getSession()
+                .createQuery(
+                        "from ResourceDailyLoad l "
+                                + "where l.resource.id in (:resources) "
+                                + "and l.day >= :start and l.day <= :end")
+                .setParameterList("resources", resourceIds)
+                .setParameter("start", start).setParameter("end", end).list();
+        for (ResourceDailyLoad each : loads) {
+            result.put(new LoadKey(each.getScenario().getId(), each
+                    .getResource().getId(), each.getDay()), each);
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public void recalculateAll() {
+        getSession().createQuery("delete from ResourceDailyLoad")
+                .executeUpdate();
+        for (Entry<LoadKey, EffortDuration> each : sumAssignedEfforts(null,
+                null, null).entrySet()) {
+            createLoad(each.getKey(), each.getValue());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean isEmpty() {
+        Long count = (Long) getSession().createQuery(
+                "select count(l) from ResourceDailyLoad l").uniqueResult();
+        return count == 0;
+    }
+
+}
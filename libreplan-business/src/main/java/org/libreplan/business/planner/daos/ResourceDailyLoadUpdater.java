@@ -0,0 +1,280 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.daos;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.joda.time.LocalDate;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
+import org.libreplan.business.resources.entities.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link ResourceDailyLoad} table updated. It records the resources
+ * and days of the {@link DayAssignment day assignments} inserted, updated or
+ * deleted in each session and, once the transaction has been committed, it
+ * recalculates the loads of those days.<br />
+ *
+ * The recalculation is done in its own transaction by a single thread, so the
+ * recalculations never run concurrently and a failure on them can't roll back
+ * the transaction that modified the day assignments. Meanwhile the days not yet
+ * recalculated are accumulated and recalculated together. If there's any
+ * concurrency issue the recalculation is repeated (with
+ * <code>MAX_ATTEMPTS_BECAUSE_CONCURRENCY</code> as maximum).
+ */
+@Component
+public class ResourceDailyLoadUpdater implements PostInsertEventListener,
+        PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final Log LOG = LogFactory
+            .getLog(ResourceDailyLoadUpdater.class);
+
+    /**
+     * Number of times that a recalculation is tried if there is any
+     * concurrency issue, for example with other nodes using the same database.
+     */
+    protected static final int MAX_ATTEMPTS_BECAUSE_CONCURRENCY = 10;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private IResourceDailyLoadDAO resourceDailyLoadDAO;
+
+    private final ConcurrentMap<EventSource, Map<Long, Set<LocalDate>>> pending = new ConcurrentHashMap<EventSource, Map<Long, Set<LocalDate>>>();
+
+    /**
+     * Days committed but not recalculated yet. Access must be synchronized on
+     * it.
+     */
+    private final Map<Long, Set<LocalDate>> toRecalculate = new HashMap<Long, Set<LocalDate>>();
+
+    private boolean recalculationScheduled = false;
+
+    /**
+     * Single thread executor in order to perform the recalculations one by one.
+     */
+    private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @PostConstruct
+    private void registerHibernateListeners() {
+        SessionFactoryImpl impl = (SessionFactoryImpl) sessionFactory;
+        EventListenerRegistry registry = impl.getServiceRegistry().getService(
+                EventListenerRegistry.class);
+
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof DayAssignment) {
+            DayAssignment dayAssignment = (DayAssignment) event.getEntity();
+            modified(event.getSession(), dayAssignment.getResource(),
+                    dayAssignment.getDay());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof DayAssignment) {
+            DayAssignment dayAssignment = (DayAssignment) event.getEntity();
+            modified(event.getSession(), dayAssignment.getResource(),
+                    dayAssignment.getDay());
+
+            Object[] oldState = event.getOldState();
+            if (oldState != null) {
+                String[] properties = event.getPersister().getPropertyNames();
+                modified(event.getSession(), (Resource) valueOf("resource",
+                        properties, oldState), (LocalDate) valueOf("day",
+                        properties, oldState));
+            }
+        }
+    }
+
+    private static Object valueOf(String property, String[] properties,
+            Object[] state) {
+        int index = ArrayUtils.indexOf(properties, property);
+        return index >= 0 ? state[index] : null;
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof DayAssignment) {
+            DayAssignment dayAssignment = (DayAssignment) event.getEntity();
+            modified(event.getSession(), dayAssignment.getResource(),
+                    dayAssignment.getDay());
+        }
+    }
+
+    private void modified(EventSource session, Resource resource,
+            LocalDate day) {
+        if (resource == null || resource.getId() == null || day == null) {
+            return;
+        }
+        Map<Long, Set<LocalDate>> daysByResource = pending.get(session);
+        if (daysByResource == null) {
+            daysByResource = new HashMap<Long, Set<LocalDate>>();
+            pending.put(session, daysByResource);
+            recalculateAfterCommit(session);
+        }
+        Set<LocalDate> days = daysByResource.get(resource.getId());
+        if (days == null) {
+            days = new HashSet<LocalDate>();
+            daysByResource.put(resource.getId(), days);
+        }
+        days.add(day);
+    }
+
+    private void recalculateAfterCommit(final EventSource session) {
+        session.getActionQueue().registerProcess(
+                new AfterTransactionCompletionProcess() {
+
+                    @Override
+                    public void doAfterTransactionCompletion(boolean success,
+                            SessionImplementor sessionImplementor) {
+                        Map<Long, Set<LocalDate>> daysByResource = pending
+                                .remove(session);
+                        if (success && daysByResource != null) {
+                            scheduleRecalculation(daysByResource);
+                        }
+                    }
+                });
+    }
+
+    private void scheduleRecalculation(Map<Long, Set<LocalDate>> daysByResource) {
+        synchronized (toRecalculate) {
+            addAll(toRecalculate, daysByResource);
+            if (recalculationScheduled) {
+                return;
+            }
+            recalculationScheduled = true;
+        }
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                recalculate(takeDaysToRecalculate(), 0);
+            }
+        });
+    }
+
+    private static void addAll(Map<Long, Set<LocalDate>> destination,
+            Map<Long, Set<LocalDate>> daysByResource) {
+        for (Entry<Long, Set<LocalDate>> each : daysByResource.entrySet()) {
+            Set<LocalDate> days = destination.get(each.getKey());
+            if (days == null) {
+                days = new HashSet<LocalDate>();
+                destination.put(each.getKey(), days);
+            }
+            days.addAll(each.getValue());
+        }
+    }
+
+    private Map<Long, Set<LocalDate>> takeDaysToRecalculate() {
+        synchronized (toRecalculate) {
+            Map<Long, Set<LocalDate>> result = new HashMap<Long, Set<LocalDate>>(
+                    toRecalculate);
+            toRecalculate.clear();
+            recalculationScheduled = false;
+            return result;
+        }
+    }
+
+    private void recalculate(Map<Long, Set<LocalDate>> daysByResource,
+            int attempt) {
+        if (daysByResource.isEmpty()) {
+            return;
+        }
+        try {
+            LOG.debug("recalculating loads of " + daysByResource.size()
+                    + " resources");
+            resourceDailyLoadDAO.recalculate(daysByResource);
+        } catch (ConcurrencyFailureException e) {
+            retry(daysByResource, attempt, e);
+        } catch (DataIntegrityViolationException e) {
+            // the same load has been inserted concurrently
+            retry(daysByResource, attempt, e);
+        } catch (RuntimeException e) {
+            LOG.error("error recalculating the loads of the resources "
+                    + daysByResource.keySet(), e);
+        }
+    }
+
+    private void retry(Map<Long, Set<LocalDate>> daysByResource, int attempt,
+            RuntimeException cause) {
+        if (attempt >= MAX_ATTEMPTS_BECAUSE_CONCURRENCY) {
+            LOG.error("impossible to recalculate the loads of the resources "
+                    + daysByResource.keySet() + " due to concurrency problems",
+                    cause);
+            return;
+        }
+        LOG.info("concurrency problem recalculating the loads of the resources "
+                + daysByResource.keySet() + ", trying again (attempt "
+                + attempt + ")");
+        recalculate(daysByResource, attempt + 1);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdown();
+    }
+
+}
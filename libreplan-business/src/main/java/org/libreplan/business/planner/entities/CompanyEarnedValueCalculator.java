@@ -24,9 +24,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.joda.time.LocalDate;
 import org.libreplan.business.calendars.entities.AvailabilityTimeLine;
 import org.libreplan.business.calendars.entities.AvailabilityTimeLine.Interval;
@@ -40,27 +42,83 @@ import org.springframework.transaction.annotation.Transactional;
 
 /**
  * @author Diego Pino García <dpino@igalia.com>
+ *
+ *         The costs per task are taken from {@link PredefinedDatabaseSnapshots},
+ *         which only recalculates the tasks modified when something is saved.
+ *         The accumulated results are kept while the snapshots don't change,
+ *         so the same indicators are not calculated again for the same
+ *         interval.
  */
 @Component
 @Scope(BeanDefinition.SCOPE_SINGLETON)
 public class CompanyEarnedValueCalculator extends EarnedValueCalculator implements ICompanyEarnedValueCalculator {
 
+    /**
+     * Result calculated from a snapshot value for an interval
+     */
+    private static class CachedCost {
+
+        private final Object snapshotValue;
+
+        private final Interval interval;
+
+        private final SortedMap<LocalDate, BigDecimal> cost;
+
+        CachedCost(Object snapshotValue, Interval interval,
+                SortedMap<LocalDate, BigDecimal> cost) {
+            this.snapshotValue = snapshotValue;
+            this.interval = interval;
+            this.cost = cost;
+        }
+
+        static boolean isValid(CachedCost cached, Object snapshotValue,
+                Interval interval) {
+            return cached != null && cached.snapshotValue == snapshotValue
+                    && ObjectUtils.equals(cached.interval, interval);
+        }
+
+        /**
+         * @return a copy, as the callers can modify the returned map
+         */
+        SortedMap<LocalDate, BigDecimal> getCost() {
+            return new TreeMap<LocalDate, BigDecimal>(cost);
+        }
+
+    }
+
     @Autowired
     private PredefinedDatabaseSnapshots databaseSnapshots;
 
+    private volatile CachedCost budgetedCostWorkScheduled;
+
+    private volatile CachedCost actualCostWorkPerformed;
+
+    private volatile CachedCost budgetedCostWorkPerformed;
+
     @Override
     @Transactional(readOnly = true)
     public SortedMap<LocalDate, BigDecimal> calculateBudgetedCostWorkScheduled(AvailabilityTimeLine.Interval interval) {
         Map<TaskElement, SortedMap<LocalDate, BigDecimal>> estimatedCostPerTask = databaseSnapshots
                 .snapshotEstimatedCostPerTask();
-        Collection<TaskElement> list = filterTasksByDate(
-                estimatedCostPerTask.keySet(), interval);
-        SortedMap<LocalDate, BigDecimal> estimatedCost = new TreeMap<LocalDate, BigDecimal>();
+        CachedCost cached = budgetedCostWorkScheduled;
+        if (!CachedCost.isValid(cached, estimatedCostPerTask, interval)) {
+            cached = new CachedCost(estimatedCostPerTask, interval,
+                    accumulateResult(sumCosts(estimatedCostPerTask,
+                            interval)));
+            budgetedCostWorkScheduled = cached;
+        }
+        return cached.getCost();
+    }
 
-        for (TaskElement each : list) {
-            addCost(estimatedCost, estimatedCostPerTask.get(each));
+    private SortedMap<LocalDate, BigDecimal> sumCosts(
+            Map<TaskElement, SortedMap<LocalDate, BigDecimal>> costPerTask,
+            Interval interval) {
+        SortedMap<LocalDate, BigDecimal> result = new TreeMap<LocalDate, BigDecimal>();
+        for (TaskElement each : filterTasksByDate(costPerTask.keySet(),
+                interval)) {
+            addCost(result, costPerTask.get(each));
         }
-        return accumulateResult(estimatedCost);
+        return result;
     }
 
     private List<TaskElement> filterTasksByDate(
@@ -90,12 +148,10 @@ public class CompanyEarnedValueCalculator extends EarnedValueCalculator implemen
 
     private void addCost(SortedMap<LocalDate, BigDecimal> currentCost,
             SortedMap<LocalDate, BigDecimal> additionalCost) {
-        for (LocalDate day : additionalCost.keySet()) {
-            if (!currentCost.containsKey(day)) {
-                currentCost.put(day, BigDecimal.ZERO);
-            }
-            currentCost.put(day, currentCost.get(day).add(
-                    additionalCost.get(day)));
+        for (Entry<LocalDate, BigDecimal> each : additionalCost.entrySet()) {
+            BigDecimal previous = currentCost.get(each.getKey());
+            currentCost.put(each.getKey(), previous == null ? each.getValue()
+                    : previous.add(each.getValue()));
         }
     }
 
@@ -107,10 +163,9 @@ public class CompanyEarnedValueCalculator extends EarnedValueCalculator implemen
         }
 
         BigDecimal accumulatedResult = BigDecimal.ZERO;
-        for (LocalDate day : map.keySet()) {
-            BigDecimal value = map.get(day);
-            accumulatedResult = accumulatedResult.add(value);
-            result.put(day, accumulatedResult);
+        for (Entry<LocalDate, BigDecimal> each : map.entrySet()) {
+            accumulatedResult = accumulatedResult.add(each.getValue());
+            result.put(each.getKey(), accumulatedResult);
         }
 
         return result;
@@ -119,10 +174,23 @@ public class CompanyEarnedValueCalculator extends EarnedValueCalculator implemen
     @Override
     public SortedMap<LocalDate, BigDecimal> calculateActualCostWorkPerformed(
             Interval interval) {
+        List<WorkReportLine> allWorkReportLines = databaseSnapshots
+                .snapshotWorkReportLines();
+        CachedCost cached = actualCostWorkPerformed;
+        if (!CachedCost.isValid(cached, allWorkReportLines, interval)) {
+            cached = new CachedCost(allWorkReportLines, interval,
+                    calculateActualCostWorkPerformed(allWorkReportLines,
+                            interval));
+            actualCostWorkPerformed = cached;
+        }
+        return cached.getCost();
+    }
+
+    private SortedMap<LocalDate, BigDecimal> calculateActualCostWorkPerformed(
+            List<WorkReportLine> allWorkReportLines, Interval interval) {
         SortedMap<LocalDate, BigDecimal> result = new TreeMap<LocalDate, BigDecimal>();
         Collection<WorkReportLine> workReportLines = filterWorkReportLinesByDate(
-                databaseSnapshots.snapshotWorkReportLines(),
-                interval);
+                allWorkReportLines, interval);
 
         if (workReportLines.isEmpty()) {
             return result;
@@ -146,14 +214,13 @@ public class CompanyEarnedValueCalculator extends EarnedValueCalculator implemen
             Interval interval) {
         Map<TaskElement, SortedMap<LocalDate, BigDecimal>> advanceCostPerTask = databaseSnapshots
                 .snapshotAdvanceCostPerTask();
-        Collection<TaskElement> tasks = filterTasksByDate(
-                advanceCostPerTask.keySet(), interval);
-
-        SortedMap<LocalDate, BigDecimal> result = new TreeMap<LocalDate, BigDecimal>();
-        for (TaskElement each : tasks) {
-            addCost(result, advanceCostPerTask.get(each));
+        CachedCost cached = budgetedCostWorkPerformed;
+        if (!CachedCost.isValid(cached, advanceCostPerTask, interval)) {
+            cached = new CachedCost(advanceCostPerTask, interval, sumCosts(
+                    advanceCostPerTask, interval));
+            budgetedCostWorkPerformed = cached;
         }
-        return result;
+        return cached.getCost();
     }
 
 }
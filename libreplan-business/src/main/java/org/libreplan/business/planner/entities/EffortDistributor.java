@@ -312,6 +312,8 @@ public class EffortDistributor {
 
     private Set<Resource> resourcesAlreadyPicked = new HashSet<Resource>();
 
+    private final SecondsDivision secondsDivision = SecondsDivision.create();
+
     public EffortDistributor(List<Resource> resources,
             IAssignedEffortForResource assignedHoursForResource) {
         this(resources, assignedHoursForResource, null);
@@ -504,92 +506,68 @@ public class EffortDistributor {
             LocalDate date, EffortDuration remainingDuration,
             IAssignedEffortForResource assignedEffortForEachResource,
             List<ResourceWithDerivedData> resourcesWithAvailableOvertime) {
-        List<ShareSource> shares = divisionAt(resourcesWithAvailableOvertime,
+        int[] shares = sharesAt(resourcesWithAvailableOvertime,
                 assignedEffortForEachResource, date);
-        ShareDivision currentDivision = ShareSource.all(shares);
-        ShareDivision newDivison = currentDivision.plus(remainingDuration
-                .getSeconds());
-        int[] differences = currentDivision.to(newDivison);
-        return ShareSource.durationsForEachResource(shares, differences,
-                ResourceWithDerivedData
-                        .resources(resourcesWithAvailableOvertime));
+        int[] increments = new int[shares.length];
+        secondsDivision.divide(shares, shares.length,
+                remainingDuration.getSeconds(), increments);
+        return durationsForEachResource(resourcesWithAvailableOvertime,
+                increments);
     }
 
-    private List<ShareSource> divisionAt(
-            List<ResourceWithDerivedData> resources,
+    /**
+     * Each resource has as many shares as capacity units. Their value is the
+     * seconds already assigned minus the capacity of one unit.
+     */
+    private int[] sharesAt(List<ResourceWithDerivedData> resources,
             IAssignedEffortForResource assignedEffortForEachResource,
             LocalDate date) {
-        List<ShareSource> result = new ArrayList<ShareSource>();
-        for (int i = 0; i < resources.size(); i++) {
-            List<Share> shares = new ArrayList<Share>();
-            Resource resource = resources.get(i).resource;
-            ICalendar calendarForResource = resources.get(i).calendar;
+        int[] result = new int[totalCapacityUnits(resources)];
+        int position = 0;
+        for (ResourceWithDerivedData each : resources) {
             EffortDuration alreadyAssigned = assignedEffortForEachResource
-                    .getAssignedDurationAt(resource, date);
+                    .getAssignedDurationAt(each.resource, date);
             final int alreadyAssignedSeconds = alreadyAssigned.getSeconds();
-            Integer capacityEachOneSeconds = calendarForResource.asDurationOn(
+            int capacityEachOneSeconds = each.calendar.asDurationOn(
                     PartialDay.wholeDay(date), ONE).getSeconds();
-            final int capacityUnits = resources.get(i).capacityUnits;
+            final int capacityUnits = each.capacityUnits;
             assert capacityUnits >= 1;
             final int assignedForEach = alreadyAssignedSeconds / capacityUnits;
             final int remainder = alreadyAssignedSeconds % capacityUnits;
             for (int j = 0; j < capacityUnits; j++) {
                 int assignedSeconds = assignedForEach + (j < remainder ? 1 : 0);
-                shares.add(new Share(assignedSeconds - capacityEachOneSeconds));
+                result[position++] = assignedSeconds - capacityEachOneSeconds;
             }
-            result.add(new ShareSource(shares));
         }
         return result;
     }
 
-    private static final ResourcesPerDay ONE = ResourcesPerDay.amount(1);
-
-    private static class ShareSource {
-
-        public static ShareDivision all(Collection<ShareSource> sources) {
-            List<Share> shares = new ArrayList<Share>();
-            for (ShareSource shareSource : sources) {
-                shares.addAll(shareSource.shares);
-            }
-            return ShareDivision.create(shares);
-        }
-
-        public static List<ResourceWithAssignedDuration> durationsForEachResource(
-                List<ShareSource> sources, int[] differencesInSeconds,
-                List<Resource> resources) {
-            List<ResourceWithAssignedDuration> result = new ArrayList<ResourceWithAssignedDuration>();
-            int differencesIndex = 0;
-            for (int i = 0; i < resources.size(); i++) {
-                Resource resource = resources.get(i);
-                ShareSource shareSource = sources.get(i);
-                final int differencesToTake = shareSource.shares.size();
-                int sum = sumDifferences(differencesInSeconds, differencesIndex,
-                        differencesToTake);
-                differencesIndex += differencesToTake;
-                ResourceWithAssignedDuration withAssignedDuration = new ResourceWithAssignedDuration(
-                        seconds(sum), resource);
-                if (!withAssignedDuration.duration.isZero()) {
-                    result.add(withAssignedDuration);
-                }
-            }
-            return result;
+    private static int totalCapacityUnits(
+            List<ResourceWithDerivedData> resources) {
+        int result = 0;
+        for (ResourceWithDerivedData each : resources) {
+            result += each.capacityUnits;
         }
+        return result;
+    }
 
-        private static int sumDifferences(int[] differences, int start,
-                final int toTake) {
+    private static List<ResourceWithAssignedDuration> durationsForEachResource(
+            List<ResourceWithDerivedData> resources, int[] incrementsInSeconds) {
+        List<ResourceWithAssignedDuration> result = new ArrayList<ResourceWithAssignedDuration>();
+        int position = 0;
+        for (ResourceWithDerivedData each : resources) {
             int sum = 0;
-            for (int i = 0; i < toTake; i++) {
-                sum += differences[start + i];
+            for (int j = 0; j < each.capacityUnits; j++) {
+                sum += incrementsInSeconds[position++];
+            }
+            if (sum != 0) {
+                result.add(new ResourceWithAssignedDuration(seconds(sum),
+                        each.resource));
             }
-            return sum;
-        }
-
-        private final List<Share> shares;
-
-        private ShareSource(List<Share> shares) {
-            this.shares = shares;
         }
-
+        return result;
     }
 
+    private static final ResourcesPerDay ONE = ResourcesPerDay.amount(1);
+
 }
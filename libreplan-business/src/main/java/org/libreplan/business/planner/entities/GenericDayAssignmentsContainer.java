@@ -55,6 +55,15 @@ public class GenericDayAssignmentsContainer extends BaseEntity implements
 
     private Set<GenericDayAssignment> dayAssignments = new HashSet<GenericDayAssignment>();
 
+    /**
+     * Assignments of other container that are exposed by this one until it's
+     * modified. They aren't persisted and they still belong to the
+     * other container, so {@link #copySharedAssignments()} must be called
+     * before using or saving this container. It can be <code>null</code>
+     */
+    @OnCopy(Strategy.SHARE_COLLECTION_ELEMENTS)
+    private Set<GenericDayAssignment> sharedAssignments = null;
+
     /**
      * It can be <code>null</code>
      */
@@ -91,22 +100,55 @@ public class GenericDayAssignmentsContainer extends BaseEntity implements
 
     @Valid
     public Set<GenericDayAssignment> getDayAssignments() {
+        if (sharedAssignments != null) {
+            return new HashSet<GenericDayAssignment>(sharedAssignments);
+        }
         return new HashSet<GenericDayAssignment>(dayAssignments);
     }
 
     public void addAll(Collection<? extends GenericDayAssignment> assignments) {
+        copySharedAssignments();
         dayAssignments.addAll(copyToThisContainer(assignments));
     }
 
     public void removeAll(Collection<? extends DayAssignment> assignments) {
+        if (sharedAssignments != null) {
+            Set<GenericDayAssignment> remaining = new HashSet<GenericDayAssignment>(sharedAssignments);
+            remaining.removeAll(assignments);
+            resetTo(remaining);
+            return;
+        }
         dayAssignments.removeAll(assignments);
     }
 
     public void resetTo(Collection<GenericDayAssignment> assignments) {
+        sharedAssignments = null;
         dayAssignments.clear();
         dayAssignments.addAll(copyToThisContainer(assignments));
     }
 
+    public void shareAssignmentsOf(
+            IDayAssignmentsContainer<GenericDayAssignment> container) {
+        Validate.notNull(container);
+        Validate.isTrue(container != this);
+        dayAssignments.clear();
+        sharedAssignments = container.getDayAssignments();
+    }
+
+    public boolean isSharingAssignments() {
+        return sharedAssignments != null;
+    }
+
+    public void copySharedAssignments() {
+        if (sharedAssignments == null) {
+            return;
+        }
+        Set<GenericDayAssignment> shared = sharedAssignments;
+        sharedAssignments = null;
+        dayAssignments.clear();
+        dayAssignments.addAll(copyToThisContainer(shared));
+    }
+
     private Set<GenericDayAssignment> copyToThisContainer(
             Collection<? extends GenericDayAssignment> assignments) {
         return GenericDayAssignment.copy(this, assignments);
@@ -193,10 +193,11 @@ public class GenericResourceAllocation extends
     private final class ResourcesSatisfyingCriterionsSelector implements
             IResourceSelector {
 
+        private final ICriterion compoundCriterion = CriterionCompounder
+                .buildAnd(criterions).getResult();
+
         @Override
         public boolean isSelectable(Resource resource, LocalDate day) {
-            ICriterion compoundCriterion = CriterionCompounder.buildAnd(
-                    criterions).getResult();
             return compoundCriterion.isSatisfiedBy(resource, day);
         }
     }
@@ -328,11 +329,18 @@ public class GenericResourceAllocation extends
         }
     }
 
+    @Override
+    public void copySharedAssignments() {
+        for (GenericDayAssignmentsContainer each : genericDayAssignmentsContainers) {
+            each.copySharedAssignments();
+        }
+    }
+
     @Override
     public void copyAssignments(Scenario from, Scenario to) {
         GenericDayAssignmentsContainer fromContainer = retrieveOrCreateContainerFor(from);
         GenericDayAssignmentsContainer toContainer = retrieveOrCreateContainerFor(to);
-        toContainer.resetTo(fromContainer.getDayAssignments());
+        toContainer.shareAssignmentsOf(fromContainer);
     }
 
     @Override
@@ -24,7 +24,11 @@ package org.libreplan.business.planner.entities;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
@@ -32,6 +36,7 @@ import java.util.TreeMap;
 import org.joda.time.LocalDate;
 import org.libreplan.business.advance.entities.AdvanceMeasurement;
 import org.libreplan.business.advance.entities.DirectAdvanceAssignment;
+import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.planner.entities.DayAssignment.FilterType;
 import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
 import org.libreplan.business.workreports.entities.WorkReportLine;
@@ -135,10 +140,14 @@ public class HoursCostCalculator implements ICostCalculator {
             return getAdvanceCost(task);
         }
 
-        SortedMap<LocalDate, BigDecimal> result = new TreeMap<LocalDate, BigDecimal>();
         List<WorkReportLine> workReportLines = workReportLineDAO
                 .findByOrderElementAndChildren(task.getOrderElement());
+        return sumEffortPerDay(workReportLines);
+    }
 
+    private SortedMap<LocalDate, BigDecimal> sumEffortPerDay(
+            Collection<WorkReportLine> workReportLines) {
+        SortedMap<LocalDate, BigDecimal> result = new TreeMap<LocalDate, BigDecimal>();
         if (workReportLines.isEmpty()) {
             return result;
         }
@@ -157,4 +166,55 @@ public class HoursCostCalculator implements ICostCalculator {
         return result;
     }
 
+    @Override
+    public Map<Task, SortedMap<LocalDate, BigDecimal>> getWorkReportCost(
+            OrderElement root, Collection<? extends Task> tasks) {
+        Map<Long, List<WorkReportLine>> linesPerOrderElement = groupByOrderElement(workReportLineDAO
+                .findByOrderElementAndChildren(root));
+
+        Map<Task, SortedMap<LocalDate, BigDecimal>> result = new HashMap<Task, SortedMap<LocalDate, BigDecimal>>();
+        for (Task each : tasks) {
+            if (each.isSubcontracted()) {
+                result.put(each, getAdvanceCost(each));
+                continue;
+            }
+            List<WorkReportLine> workReportLines = new ArrayList<WorkReportLine>();
+            OrderElement orderElement = each.getOrderElement();
+            addLinesOf(workReportLines, linesPerOrderElement, orderElement);
+            for (OrderElement child : orderElement.getAllChildren()) {
+                addLinesOf(workReportLines, linesPerOrderElement, child);
+            }
+            result.put(each, sumEffortPerDay(workReportLines));
+        }
+        return result;
+    }
+
+    private static Map<Long, List<WorkReportLine>> groupByOrderElement(
+            List<WorkReportLine> workReportLines) {
+        Map<Long, List<WorkReportLine>> result = new HashMap<Long, List<WorkReportLine>>();
+        for (WorkReportLine each : workReportLines) {
+            Long orderElementId = each.getOrderElement().getId();
+            List<WorkReportLine> lines = result.get(orderElementId);
+            if (lines == null) {
+                lines = new ArrayList<WorkReportLine>();
+                result.put(orderElementId, lines);
+            }
+            lines.add(each);
+        }
+        return result;
+    }
+
+    private static void addLinesOf(List<WorkReportLine> result,
+            Map<Long, List<WorkReportLine>> linesPerOrderElement,
+            OrderElement orderElement) {
+        if (orderElement.getId() == null) {
+            return;
+        }
+        List<WorkReportLine> lines = linesPerOrderElement.get(orderElement
+                .getId());
+        if (lines != null) {
+            result.addAll(lines);
+        }
+    }
+
 }
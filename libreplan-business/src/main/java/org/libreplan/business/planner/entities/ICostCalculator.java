@@ -22,9 +22,12 @@
 package org.libreplan.business.planner.entities;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
 import java.util.SortedMap;
 
 import org.joda.time.LocalDate;
+import org.libreplan.business.orders.entities.OrderElement;
 
 /**
  * Interface to calculate the cost of a {@link Task}.
@@ -45,4 +48,13 @@ public interface ICostCalculator {
     SortedMap<LocalDate, BigDecimal> getAdvanceCost(Task task,
             LocalDate filterStartDate, LocalDate filterEndDate);
 
+    /**
+     * Calculates {@link #getWorkReportCost(Task)} for several tasks at once.
+     * The work report lines of <code>root</code> and its children are
+     * retrieved in only one query, so all the tasks must be associated to
+     * <code>root</code> or some of its children.
+     */
+    Map<Task, SortedMap<LocalDate, BigDecimal>> getWorkReportCost(
+            OrderElement root, Collection<? extends Task> tasks);
+
 }
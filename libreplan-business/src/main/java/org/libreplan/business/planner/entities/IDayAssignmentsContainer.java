@@ -44,6 +44,17 @@ public interface IDayAssignmentsContainer<T extends DayAssignment> {
 
     void resetTo(Collection<T> assignments);
 
+    /**
+     * Makes this container expose the assignments of the provided one instead
+     * of copying them. They are copied the first time this container is
+     * modified or when {@link #copySharedAssignments()} is called.
+     */
+    void shareAssignmentsOf(IDayAssignmentsContainer<T> container);
+
+    boolean isSharingAssignments();
+
+    void copySharedAssignments();
+
     IntraDayDate getIntraDayStart();
 
     void setIntraDayStart(IntraDayDate intraDayStart);
@@ -21,7 +21,10 @@ package org.libreplan.business.planner.entities;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -55,10 +58,9 @@ public class OrderEarnedValueCalculator extends EarnedValueCalculator implements
     public SortedMap<LocalDate, BigDecimal> calculateActualCostWorkPerformed(
             Order order) {
         SortedMap<LocalDate, BigDecimal> result = new TreeMap<LocalDate, BigDecimal>();
-        for (TaskElement taskElement : getAllTaskElements(order)) {
-            if (taskElement instanceof Task) {
-                addCost(result, getWorkReportCost((Task) taskElement));
-            }
+        for (SortedMap<LocalDate, BigDecimal> each : getWorkReportCost(order)
+                .values()) {
+            addCost(result, each);
         }
         return accumulateResult(result);
     }
@@ -71,22 +73,19 @@ public class OrderEarnedValueCalculator extends EarnedValueCalculator implements
         }
 
         BigDecimal accumulatedResult = BigDecimal.ZERO;
-        for (LocalDate day : map.keySet()) {
-            BigDecimal value = map.get(day);
-            accumulatedResult = accumulatedResult.add(value);
-            result.put(day, accumulatedResult);
+        for (Entry<LocalDate, BigDecimal> each : map.entrySet()) {
+            accumulatedResult = accumulatedResult.add(each.getValue());
+            result.put(each.getKey(), accumulatedResult);
         }
         return result;
     }
 
     private void addCost(SortedMap<LocalDate, BigDecimal> currentCost,
             SortedMap<LocalDate, BigDecimal> additionalCost) {
-        for (LocalDate day : additionalCost.keySet()) {
-            if (!currentCost.containsKey(day)) {
-                currentCost.put(day, BigDecimal.ZERO);
-            }
-            currentCost.put(day,
-                    currentCost.get(day).add(additionalCost.get(day)));
+        for (Entry<LocalDate, BigDecimal> each : additionalCost.entrySet()) {
+            BigDecimal previous = currentCost.get(each.getKey());
+            currentCost.put(each.getKey(), previous == null ? each.getValue()
+                    : previous.add(each.getValue()));
         }
     }
 
@@ -96,8 +95,15 @@ public class OrderEarnedValueCalculator extends EarnedValueCalculator implements
         return result;
     }
 
-    private SortedMap<LocalDate, BigDecimal> getWorkReportCost(Task taskElement) {
-        return hoursCostCalculator.getWorkReportCost(taskElement);
+    private Map<Task, SortedMap<LocalDate, BigDecimal>> getWorkReportCost(
+            Order order) {
+        List<Task> tasks = new ArrayList<Task>();
+        for (TaskElement taskElement : getAllTaskElements(order)) {
+            if (taskElement instanceof Task) {
+                tasks.add((Task) taskElement);
+            }
+        }
+        return hoursCostCalculator.getWorkReportCost(order, tasks);
     }
 
     @Override
@@ -141,15 +147,11 @@ public class OrderEarnedValueCalculator extends EarnedValueCalculator implements
         if (result != null) {
             return result;
         }
-        for (LocalDate each : map.keySet()) {
-            if (date.isBefore(each)) {
-                return map.get(each);
-            }
-        }
-        if (date.isAfter(map.lastKey())) {
-            return map.get(map.lastKey());
+        SortedMap<LocalDate, BigDecimal> after = map.tailMap(date);
+        if (!after.isEmpty()) {
+            return after.get(after.firstKey());
         }
-        return BigDecimal.ZERO;
+        return map.get(map.lastKey());
     }
 
     @Override
@@ -30,11 +30,11 @@ import org.libreplan.business.calendars.entities.AvailabilityTimeLine;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.planner.chart.ContiguousDaysLine;
 import org.libreplan.business.planner.chart.ContiguousDaysLine.OnDay;
+import org.libreplan.business.planner.chart.EffortDurationDaysLine;
 import org.libreplan.business.planner.chart.ResourceLoadChartData;
 import org.libreplan.business.planner.entities.DayAssignment.FilterType;
 import org.libreplan.business.resources.entities.IAssignmentsOnResourceCalculator;
 import org.libreplan.business.resources.entities.Resource;
-import org.libreplan.business.workingday.EffortDuration;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -55,15 +55,15 @@ public class OrderResourceLoadCalculator implements IOrderResourceLoadCalculator
 
     private ContiguousDaysLine<List<DayAssignment>> filteredAssignments;
 
-    private ContiguousDaysLine<EffortDuration> maxCapacityOnResources;
+    private EffortDurationDaysLine maxCapacityOnResources;
 
-    private ContiguousDaysLine<EffortDuration> orderLoad;
+    private EffortDurationDaysLine orderLoad;
 
-    private ContiguousDaysLine<EffortDuration> allLoad;
+    private EffortDurationDaysLine allLoad;
 
-    private ContiguousDaysLine<EffortDuration> orderOverload;
+    private EffortDurationDaysLine orderOverload;
 
-    private ContiguousDaysLine<EffortDuration> allOverload;
+    private EffortDurationDaysLine allOverload;
 
     @Override
     public void setOrder(Order order,
@@ -84,11 +84,11 @@ public class OrderResourceLoadCalculator implements IOrderResourceLoadCalculator
     }
 
     @Override
-    public ContiguousDaysLine<EffortDuration> getMaxCapacityOnResources() {
+    public EffortDurationDaysLine getMaxCapacityOnResources() {
         if (maxCapacityOnResources == null) {
-            maxCapacityOnResources = getOrderAssignments()
-                     .transform(ResourceLoadChartData
-                             .extractAvailabilityOnAssignedResources());
+            maxCapacityOnResources = EffortDurationDaysLine.from(
+                    getOrderAssignments(), ResourceLoadChartData
+                            .availabilityOnAssignedResourcesInSeconds());
         }
         return maxCapacityOnResources;
     }
@@ -103,19 +103,19 @@ public class OrderResourceLoadCalculator implements IOrderResourceLoadCalculator
     }
 
     @Override
-    public ContiguousDaysLine<EffortDuration> getOrderLoad() {
+    public EffortDurationDaysLine getOrderLoad() {
         if (orderLoad == null) {
-            orderLoad = getOrderAssignments()
-                     .transform(ResourceLoadChartData.extractLoad());
+            orderLoad = EffortDurationDaysLine.from(getOrderAssignments(),
+                    ResourceLoadChartData.loadInSeconds());
         }
         return orderLoad;
     }
 
     @Override
-    public ContiguousDaysLine<EffortDuration> getAllLoad() {
+    public EffortDurationDaysLine getAllLoad() {
         if (allLoad == null) {
-            allLoad = getFilteredAssignments()
-                     .transform(ResourceLoadChartData.extractLoad());
+            allLoad = EffortDurationDaysLine.from(getFilteredAssignments(),
+                    ResourceLoadChartData.loadInSeconds());
         }
         return allLoad;
     }
@@ -198,19 +198,19 @@ public class OrderResourceLoadCalculator implements IOrderResourceLoadCalculator
     }
 
     @Override
-    public ContiguousDaysLine<EffortDuration> getOrderOverload() {
+    public EffortDurationDaysLine getOrderOverload() {
         if (orderOverload == null) {
-            orderOverload = getOrderAssignments()
-                     .transform(ResourceLoadChartData.extractOverload());
+            orderOverload = EffortDurationDaysLine.from(getOrderAssignments(),
+                    ResourceLoadChartData.overloadInSeconds());
         }
         return orderOverload;
     }
 
     @Override
-    public ContiguousDaysLine<EffortDuration> getAllOverload() {
+    public EffortDurationDaysLine getAllOverload() {
         if (allOverload == null) {
-            allOverload = getFilteredAssignments()
-                     .transform(ResourceLoadChartData.extractOverload());
+            allOverload = EffortDurationDaysLine.from(getFilteredAssignments(),
+                    ResourceLoadChartData.overloadInSeconds());
         }
         return allOverload;
     }
@@ -22,6 +22,7 @@
 package org.libreplan.business.planner.entities;
 
 import static org.libreplan.business.workingday.EffortDuration.hours;
+import static org.libreplan.business.workingday.EffortDuration.seconds;
 import static org.libreplan.business.workingday.EffortDuration.zero;
 
 import java.math.BigDecimal;
@@ -969,14 +970,13 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
 
             Iterable<PartialDay> days = getDays(interval.getStartInclusive(),
                     interval.getEndExclusive());
-            EffortDuration[] durationsEachDay = secondsDistribution(
-                    availability, days, durationToAssign);
-            return createAssignments(interval, availability, durationsEachDay);
+            int[] secondsEachDay = secondsDistribution(availability, days,
+                    durationToAssign);
+            return createAssignments(interval, availability, secondsEachDay);
         }
 
         private List<T> createAssignments(AllocationInterval interval,
-                AvailabilityTimeLine availability,
-                EffortDuration[] durationsEachDay) {
+                AvailabilityTimeLine availability, int[] secondsEachDay) {
             List<T> result = new ArrayList<T>();
             int i = 0;
             for (PartialDay day : getDays(interval.getStartInclusive(),
@@ -984,7 +984,8 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
                 // if all days are not available, it would try to assign
                 // them anyway, preventing it with a check
                 if (availability.isValid(day.getDate())) {
-                    result.addAll(distributeForDay(day, durationsEachDay[i]));
+                    result.addAll(distributeForDay(day,
+                            seconds(secondsEachDay[i])));
                 }
                 i++;
             }
@@ -1012,16 +1013,16 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
             return result;
         }
 
-        private EffortDuration[] secondsDistribution(
-                AvailabilityTimeLine availability, Iterable<PartialDay> days,
-                EffortDuration duration) {
+        private int[] secondsDistribution(AvailabilityTimeLine availability,
+                Iterable<PartialDay> days, EffortDuration duration) {
             List<Capacity> capacities = new ArrayList<Capacity>();
             for (PartialDay each : days) {
                 capacities.add(getCapacity(availability, each));
             }
-            Distributor distributor = Distributor.among(capacities);
-            return distributor.distribute(duration).toArray(
-                    new EffortDuration[0]);
+            int[] result = new int[capacities.size()];
+            Distributor.among(capacities).distribute(duration.getSeconds(),
+                    result);
+            return result;
         }
 
         private Capacity getCapacity(AvailabilityTimeLine availability,
@@ -1785,6 +1786,28 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
             container.resetTo(assignmentsCopied);
         }
 
+        @Override
+        protected void removingAssignments(
+                List<? extends DayAssignment> assignments) {
+            if (!container.isSharingAssignments()) {
+                super.removingAssignments(assignments);
+                return;
+            }
+            // the removed ones still belong to the container they are shared
+            // from, so the removal listener must not be called for them
+            removeAssignments(assignments);
+            clearCachedData();
+        }
+
+        @Override
+        void detachAssignments() {
+            if (container.isSharingAssignments()) {
+                // they still belong to the container they are shared from
+                return;
+            }
+            super.detachAssignments();
+        }
+
         @Override
         IntraDayDate getIntraDayStart() {
             return container.getIntraDayStart();
@@ -2201,6 +2224,15 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
 
     public abstract void makeAssignmentsContainersDontPoseAsTransientAnyMore();
 
+    /**
+     * Copies the day assignments that the containers of this allocation are
+     * still sharing with the containers they were copied from. It must be
+     * called after {@link #copyAssignmentsFromOneScenarioToAnother(Scenario,
+     * Scenario)} before the target scenario is used or saved, because the
+     * shared assignments still belong to the source scenario
+     */
+    public abstract void copySharedAssignments();
+
     public void removePredecessorsDayAssignmentsFor(Scenario scenario) {
         for (DerivedAllocation each : getDerivedAllocations()) {
             each.removePredecessorContainersFor(scenario);
@@ -0,0 +1,89 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.entities;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * It represents the effort assigned to a {@link Resource} on a day in a
+ * {@link Scenario}, that is, the sum of the durations of its
+ * {@link DayAssignment day assignments}. It avoids the need to load all the
+ * day assignments to know the load of the resources.
+ * <p>
+ * It's kept updated by
+ * {@link org.libreplan.business.planner.daos.ResourceDailyLoadUpdater} just
+ * after the day assignments are saved or removed.
+ */
+public class ResourceDailyLoad extends BaseEntity {
+
+    private Resource resource;
+
+    private Scenario scenario;
+
+    private LocalDate day;
+
+    private EffortDuration effort = EffortDuration.zero();
+
+    protected ResourceDailyLoad() {}
+
+    private ResourceDailyLoad(Resource resource, Scenario scenario,
+            LocalDate day) {
+        Validate.notNull(resource);
+        Validate.notNull(scenario);
+        Validate.notNull(day);
+        this.resource = resource;
+        this.scenario = scenario;
+        this.day = day;
+    }
+
+    public static ResourceDailyLoad create(Resource resource,
+            Scenario scenario, LocalDate day) {
+        return create(new ResourceDailyLoad(resource, scenario, day));
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public EffortDuration getEffort() {
+        return effort;
+    }
+
+    public void setEffort(EffortDuration effort) {
+        Validate.notNull(effort);
+        this.effort = effort;
+    }
+
+}
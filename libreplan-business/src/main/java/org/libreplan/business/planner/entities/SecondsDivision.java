@@ -0,0 +1,144 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.entities;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Primitive counterpart of {@link ShareDivision}. The shares are
+ * <code>int</code> values and the working buffers are kept between calls, so
+ * dividing effort among many days or resources doesn't create a {@link Share}
+ * for each of them. The increments calculated are the same than the ones of
+ * {@link ShareDivision#plus(int)}: the shares with less are given more until
+ * they are equal to the next ones, and the remainder is given to the first
+ * shares.
+ *
+ * The instances are not thread safe.
+ */
+public class SecondsDivision {
+
+    public static SecondsDivision create() {
+        return new SecondsDivision();
+    }
+
+    /**
+     * Each element has the value of a share in the high bits and its position
+     * in the low ones, so sorting them orders by value and then by position
+     */
+    private long[] sorted = new long[0];
+
+    private int[] positions = new int[0];
+
+    private SecondsDivision() {
+    }
+
+    public int[] divide(int[] shares, int increase) {
+        int[] result = new int[shares.length];
+        divide(shares, shares.length, increase, result);
+        return result;
+    }
+
+    /**
+     * Divides the increase among the first <code>length</code> shares.
+     *
+     * @param shares
+     *            the current value of each share. It's not modified
+     * @param increments
+     *            where the increment for each share is written
+     */
+    public void divide(int[] shares, int length, int increase,
+            int[] increments) {
+        Validate.isTrue(length <= shares.length);
+        Validate.isTrue(length <= increments.length);
+        Arrays.fill(increments, 0, length, 0);
+        if (length == 0 || increase <= 0) {
+            return;
+        }
+        long[] sorted = sortedBuffer(length);
+        for (int i = 0; i < length; i++) {
+            sorted[i] = ((long) shares[i] << 32) | i;
+        }
+        Arrays.sort(sorted, 0, length);
+
+        int level = valueAt(sorted, 0);
+        int remaining = increase;
+        int raised = 0;
+        int remainder = 0;
+        while (raised < length && remaining > 0) {
+            int next = raised + 1;
+            while (next < length && valueAt(sorted, next) == level) {
+                next++;
+            }
+            // long in order to avoid integer overflow
+            int increment = next == length ? remaining : (int) Math.min(
+                    (long) next * ((long) valueAt(sorted, next) - level),
+                    remaining);
+            level += increment / next;
+            remainder = increment % next;
+            remaining -= increment;
+            raised = next;
+        }
+        for (int i = 0; i < raised; i++) {
+            increments[positionAt(sorted, i)] = level - valueAt(sorted, i);
+        }
+        if (remainder > 0) {
+            giveOneMoreToFirstPositions(sorted, raised, remainder, increments);
+        }
+    }
+
+    private void giveOneMoreToFirstPositions(long[] sorted, int raised,
+            int remainder, int[] increments) {
+        int[] positions = positionsBuffer(raised);
+        for (int i = 0; i < raised; i++) {
+            positions[i] = positionAt(sorted, i);
+        }
+        Arrays.sort(positions, 0, raised);
+        for (int i = 0; i < remainder; i++) {
+            increments[positions[i]]++;
+        }
+    }
+
+    private static int valueAt(long[] sorted, int index) {
+        return (int) (sorted[index] >> 32);
+    }
+
+    private static int positionAt(long[] sorted, int index) {
+        return (int) sorted[index];
+    }
+
+    private long[] sortedBuffer(int length) {
+        if (sorted.length < length) {
+            sorted = new long[length];
+        }
+        return sorted;
+    }
+
+    private int[] positionsBuffer(int length) {
+        if (positions.length < length) {
+            positions = new int[length];
+        }
+        return positions;
+    }
+
+}
@@ -55,6 +55,15 @@ public class SpecificDayAssignmentsContainer extends BaseEntity implements
 
     private Set<SpecificDayAssignment> dayAssignments = new HashSet<SpecificDayAssignment>();
 
+    /**
+     * Assignments of other container that are exposed by this one until it's
+     * modified. They aren't persisted and they still belong to the
+     * other container, so {@link #copySharedAssignments()} must be called
+     * before using or saving this container. It can be <code>null</code>
+     */
+    @OnCopy(Strategy.SHARE_COLLECTION_ELEMENTS)
+    private Set<SpecificDayAssignment> sharedAssignments = null;
+
     /**
      * It can be <code>null</code>
      */
@@ -68,6 +77,9 @@ public class SpecificDayAssignmentsContainer extends BaseEntity implements
     @Valid
     @Override
     public Set<SpecificDayAssignment> getDayAssignments() {
+        if (sharedAssignments != null) {
+            return new HashSet<SpecificDayAssignment>(sharedAssignments);
+        }
         return new HashSet<SpecificDayAssignment>(dayAssignments);
     }
 
@@ -98,20 +110,53 @@ public class SpecificDayAssignmentsContainer extends BaseEntity implements
 
     @Override
     public void addAll(Collection<? extends SpecificDayAssignment> assignments) {
+        copySharedAssignments();
         dayAssignments.addAll(copyToThisContainer(assignments));
     }
 
     @Override
     public void removeAll(Collection<? extends DayAssignment> assignments) {
+        if (sharedAssignments != null) {
+            Set<SpecificDayAssignment> remaining = new HashSet<SpecificDayAssignment>(sharedAssignments);
+            remaining.removeAll(assignments);
+            resetTo(remaining);
+            return;
+        }
         dayAssignments.removeAll(assignments);
     }
 
     @Override
     public void resetTo(Collection<SpecificDayAssignment> assignments) {
+        sharedAssignments = null;
         dayAssignments.clear();
         dayAssignments.addAll(copyToThisContainer(assignments));
     }
 
+    @Override
+    public void shareAssignmentsOf(
+            IDayAssignmentsContainer<SpecificDayAssignment> container) {
+        Validate.notNull(container);
+        Validate.isTrue(container != this);
+        dayAssignments.clear();
+        sharedAssignments = container.getDayAssignments();
+    }
+
+    @Override
+    public boolean isSharingAssignments() {
+        return sharedAssignments != null;
+    }
+
+    @Override
+    public void copySharedAssignments() {
+        if (sharedAssignments == null) {
+            return;
+        }
+        Set<SpecificDayAssignment> shared = sharedAssignments;
+        sharedAssignments = null;
+        dayAssignments.clear();
+        dayAssignments.addAll(copyToThisContainer(shared));
+    }
+
     private Set<SpecificDayAssignment> copyToThisContainer(
             Collection<? extends SpecificDayAssignment> assignments) {
         return SpecificDayAssignment.copy(this, assignments);
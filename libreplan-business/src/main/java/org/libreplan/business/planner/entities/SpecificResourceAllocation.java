@@ -292,11 +292,18 @@ public class SpecificResourceAllocation extends
         }
     }
 
+    @Override
+    public void copySharedAssignments() {
+        for (SpecificDayAssignmentsContainer each : specificDayAssignmentsContainers) {
+            each.copySharedAssignments();
+        }
+    }
+
     @Override
     public void copyAssignments(Scenario from, Scenario to) {
         SpecificDayAssignmentsContainer fromContainer = retrieveOrCreateContainerFor(from);
         SpecificDayAssignmentsContainer toContainer = retrieveOrCreateContainerFor(to);
-        toContainer.resetTo(fromContainer.getDayAssignments());
+        toContainer.shareAssignmentsOf(fromContainer);
     }
 
     @Override
@@ -542,6 +542,19 @@ public class Task extends TaskElement implements ITaskPositionConstrained {
         }
     }
 
+    /**
+     * The assignments copied with
+     * {@link #copyAssignmentsFromOneScenarioToAnother(Scenario, Scenario)} are
+     * shared until they are modified. This must be called before using the
+     * target scenario or saving the task, so the resources see them in the
+     * target scenario and the ones not modified are stored too.
+     */
+    public void copySharedAssignments() {
+        for (ResourceAllocation<?> each : getAllResourceAllocations()) {
+            each.copySharedAssignments();
+        }
+    }
+
     @Override
     protected IDatesHandler createDatesHandler(final Scenario scenario,
             final IResourcesSearcher searcher) {
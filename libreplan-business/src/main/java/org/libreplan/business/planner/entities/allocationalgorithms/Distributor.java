@@ -31,16 +31,18 @@ import java.util.List;
 
 import org.apache.commons.lang.Validate;
 import org.libreplan.business.calendars.entities.Capacity;
-import org.libreplan.business.planner.entities.Share;
-import org.libreplan.business.planner.entities.ShareDivision;
+import org.libreplan.business.planner.entities.SecondsDivision;
 import org.libreplan.business.workingday.EffortDuration;
-import org.libreplan.business.workingday.EffortDuration.IEffortFrom;
 
 /**
  * Distributes an EffortDuration among several capacities. It respects the extra
  * hours requirements of the {@link Capacity capacities} and distributes the
  * effort evenly.
  *
+ * The distributions are calculated with a {@link SecondsDivision} whose
+ * buffers are reused, so a {@link Distributor} must not be shared between
+ * threads.
+ *
  * @author Óscar González Fernández <ogonzalez@igalia.com>
  */
 public class Distributor {
@@ -55,41 +57,43 @@ public class Distributor {
         return new Distributor(capacities.toArray(new Capacity[0]));
     }
 
-    private final Capacity[] capacities;
+    private static final int NO_SPACE_AVAILABLE = Integer.MAX_VALUE;
 
-    private final List<Share> normalCapacityShares;
+    private final Capacity[] capacities;
 
-    private final List<Share> limitedOverloadShares;
+    /**
+     * The shares in seconds of each phase: normal capacity, limited overload
+     * and unlimited overload
+     */
+    private final int[][] phases;
 
-    private final List<Share> unlimitedOverloadShares;
+    private final SecondsDivision division = SecondsDivision.create();
 
-    private final List<List<Share>> phases = new ArrayList<List<Share>>();
+    private final int[] increments;
 
     private Distributor(Capacity[] capacities) {
         Validate.notNull(capacities);
         this.capacities = capacities;
-        this.normalCapacityShares = createNormalCapacityShares(capacities);
-        this.limitedOverloadShares = createOverloadShares(capacities);
-        this.unlimitedOverloadShares = createUnlimitedShares(capacities);
-        this.phases.add(normalCapacityShares);
-        this.phases.add(limitedOverloadShares);
-        this.phases.add(this.unlimitedOverloadShares);
+        this.phases = new int[][] { createNormalCapacityShares(capacities),
+                createOverloadShares(capacities),
+                createUnlimitedShares(capacities) };
+        this.increments = new int[capacities.length];
     }
 
-    private static List<Share> createNormalCapacityShares(Capacity[] capacities) {
-        List<Share> result = new ArrayList<Share>();
-        for (Capacity each : capacities) {
-            result.add(createNormalCapacityShare(each));
+    private static int[] createNormalCapacityShares(Capacity[] capacities) {
+        int[] result = new int[capacities.length];
+        for (int i = 0; i < capacities.length; i++) {
+            result[i] = -capacities[i].getStandardEffort().getSeconds();
         }
         return result;
     }
 
-    private List<Share> createOverloadShares(Capacity[] capacities) {
-        List<Share> result = new ArrayList<Share>();
+    private int[] createOverloadShares(Capacity[] capacities) {
+        int[] result = new int[capacities.length];
         EffortDuration maxExtraEffort = getMaxExtraEffort(capacities);
-        for (Capacity each : capacities) {
-            result.add(maxExtraEffort == null ? noSpaceAvailable()
-                    : createOverloadShare(each, maxExtraEffort));
+        for (int i = 0; i < capacities.length; i++) {
+            result[i] = maxExtraEffort == null ? NO_SPACE_AVAILABLE
+                    : createOverloadShare(capacities[i], maxExtraEffort);
         }
         return result;
     }
@@ -117,91 +121,62 @@ public class Distributor {
 
     }
 
-    private static Share createNormalCapacityShare(Capacity each) {
-        return new Share(-each.getStandardEffort().getSeconds());
-    }
-
-    private Share createOverloadShare(Capacity each,
+    private int createOverloadShare(Capacity each,
             EffortDuration maxExtraEffort) {
         if (each.getAllowedExtraEffort() == null && !each.isOverAssignableWithoutLimit()) {
-            return noSpaceAvailable();
+            return NO_SPACE_AVAILABLE;
         }
         EffortDuration effort = each.getAllowedExtraEffort() != null ? each
                 .getAllowedExtraEffort() : maxExtraEffort;
-        return new Share(-effort.getSeconds());
-    }
-
-    private Share noSpaceAvailable() {
-        return new Share(Integer.MAX_VALUE);
+        return -effort.getSeconds();
     }
 
-    private List<Share> createUnlimitedShares(Capacity[] capacities) {
-        List<Share> result = new ArrayList<Share>();
-        for (Capacity each : capacities) {
-            result.add(each.isOverAssignableWithoutLimit() ? new Share(0)
-                    : noSpaceAvailable());
+    private static int[] createUnlimitedShares(Capacity[] capacities) {
+        int[] result = new int[capacities.length];
+        for (int i = 0; i < capacities.length; i++) {
+            result[i] = capacities[i].isOverAssignableWithoutLimit() ? 0
+                    : NO_SPACE_AVAILABLE;
         }
         return result;
     }
 
     public List<EffortDuration> distribute(EffortDuration effort) {
-        EffortDuration[] result = new EffortDuration[capacities.length];
-        Arrays.fill(result, EffortDuration.zero());
-
-        for (List<Share> shares : phases) {
-            EffortDuration remaining = effort.minus(sum(result));
-            if (remaining.isZero()) {
-                return asList(result);
-            }
-            result = limitByCapacities(sum(result,
-                    distribute(remaining, shares)));
-        }
-        return asList(result);
-    }
-
-    private EffortDuration[] sum(EffortDuration[] a, EffortDuration[] b) {
-        EffortDuration[] result = new EffortDuration[a.length];
-        for (int i = 0; i < result.length; i++) {
-            result[i] = a[i].plus(b[i]);
+        int[] secondsEachCapacity = new int[capacities.length];
+        distribute(effort.getSeconds(), secondsEachCapacity);
+        List<EffortDuration> result = new ArrayList<EffortDuration>(
+                secondsEachCapacity.length);
+        for (int each : secondsEachCapacity) {
+            result.add(seconds(each));
         }
         return result;
     }
 
-    private EffortDuration[] distribute(EffortDuration effort,
-            List<Share> shares) {
-        ShareDivision division = ShareDivision.create(shares);
-        return fromSecondsToDurations(division.to(division.plus(effort
-                .getSeconds())));
-    }
-
-    private List<EffortDuration> asList(EffortDuration[] acc) {
-        return new ArrayList<EffortDuration>(Arrays.asList(acc));
-    }
-
-    private EffortDuration[] limitByCapacities(EffortDuration[] efforts) {
-        EffortDuration[] result = new EffortDuration[efforts.length];
-        for (int i = 0; i < efforts.length; i++) {
-            result[i] = capacities[i].limitDuration(efforts[i]);
-        }
-        return result;
-    }
-
-    private EffortDuration[] fromSecondsToDurations(int[] seconds) {
-        EffortDuration[] result = new EffortDuration[seconds.length];
-        for (int i = 0; i < result.length; i++) {
-            result[i] = seconds(seconds[i]);
+    /**
+     * Same as {@link #distribute(EffortDuration)} but working with seconds,
+     * so no {@link EffortDuration} is created for each capacity.
+     *
+     * @param result
+     *            where the seconds assigned to each capacity are written. It
+     *            must have at least the same length than the number of
+     *            capacities and it can be reused between calls
+     */
+    public void distribute(int effortSeconds, int[] result) {
+        Validate.isTrue(result.length >= capacities.length);
+        Arrays.fill(result, 0, capacities.length, 0);
+        int assigned = 0;
+        for (int[] shares : phases) {
+            int remaining = effortSeconds - assigned;
+            if (remaining == 0) {
+                return;
+            }
+            division.divide(shares, shares.length, remaining, increments);
+            assigned = 0;
+            for (int i = 0; i < capacities.length; i++) {
+                result[i] = capacities[i].limitSeconds(result[i]
+                        + increments[i]);
+                assigned += result[i];
+            }
         }
-        return result;
-    }
-
-    private EffortDuration sum(EffortDuration[] durations) {
-        return EffortDuration.sum(asList(durations),
-                new IEffortFrom<EffortDuration>() {
-
-            @Override
-            public EffortDuration from(EffortDuration each) {
-                return each;
-            }});
     }
 
 }
@@ -182,25 +182,28 @@ public class Gap implements Comparable<Gap> {
 
     private Integer hoursInGap;
 
+    private EffortDuration capacityUpperBound;
+
     public Gap(Resource resource, DateAndHour startTime,
             DateAndHour endTime) {
         this.startTime = startTime;
         this.endTime = endTime;
-        hoursInGap = calculateHoursInGap(resource, startTime, endTime);
+        calculateHoursInGap(resource, startTime, endTime);
     }
 
     public GapOnQueue onQueue(LimitingResourceQueue queue) {
         return new GapOnQueue(queue, this);
     }
 
-    private Integer calculateHoursInGap(Resource resource, DateAndHour startTime, DateAndHour endTime) {
+    private void calculateHoursInGap(Resource resource, DateAndHour startTime, DateAndHour endTime) {
         // TODO remove this method. Use GapRequirements instead
         if (endTime == null || startTime == null) {
             // startTime is never null when hours in gap is really use
-            return Integer.MAX_VALUE;
+            hoursInGap = Integer.MAX_VALUE;
+            capacityUpperBound = null;
         } else {
-            return calculateHoursInGap(resource, startTime.getDate(), startTime
-                    .getHour(), endTime.getDate(), endTime.getHour());
+            calculateHoursInGap(resource, startTime.toIntraDayDate(),
+                    endTime.toIntraDayDate());
         }
     }
 
@@ -208,23 +211,31 @@ public class Gap implements Comparable<Gap> {
         return hoursInGap;
     }
 
-    private Integer calculateHoursInGap(Resource resource, LocalDate startDate,
-            int startHour, LocalDate endDate, int endHour) {
-        IntraDayDate intraStart = IntraDayDate.create(startDate,
-                hours(startHour));
-        IntraDayDate intraEnd = IntraDayDate.create(endDate, hours(endHour));
-        return calculateHoursInGap(resource, intraStart, intraEnd);
+    /**
+     * It's the sum of the capacity of each day of the gap rounded to hours,
+     * like {@link #getHoursInGapUntilAllocatingAndGoingToTheEnd} does. So no
+     * allocation done in the gap, or in a part of it, can have more hours.
+     *
+     * @return <code>null</code> if the gap has no start or no end, i.e. it's
+     *         not bounded
+     */
+    public EffortDuration getCapacityUpperBound() {
+        return capacityUpperBound;
     }
 
-    private Integer calculateHoursInGap(Resource resource, IntraDayDate start,
+    private void calculateHoursInGap(Resource resource, IntraDayDate start,
             IntraDayDate end) {
         final ResourceCalendar calendar = resource.getCalendar();
         Iterable<PartialDay> days = start.daysUntil(end);
         EffortDuration result = zero();
+        int roundedHours = 0;
         for (PartialDay each : days) {
-            result = result.plus(calendar.getCapacityOn(each));
+            EffortDuration capacity = calendar.getCapacityOn(each);
+            result = result.plus(capacity);
+            roundedHours += capacity.roundToHours();
         }
-        return result.roundToHours();
+        hoursInGap = result.roundToHours();
+        capacityUpperBound = hours(roundedHours);
     }
 
     public List<Integer> getHoursInGapUntilAllocatingAndGoingToTheEnd(
@@ -0,0 +1,362 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.limiting.entities;
+
+import static org.libreplan.business.workingday.EffortDuration.zero;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Index of the gaps of a {@link LimitingResourceQueue} ordered by start time.
+ * <p>
+ * It's an interval tree implemented as a treap. Each node keeps the latest
+ * end time and the biggest {@link Gap#getCapacityUpperBound()} of the gaps in
+ * its subtree, so the subtrees that only have gaps ending before the time
+ * searched or without enough capacity are skipped. Adding or removing a gap
+ * are logarithmic operations, so the queue can update its gaps when an
+ * element is added or removed without calculating all of them again.
+ * <p>
+ * The gaps of a queue don't overlap, so the ones ending after a time are the
+ * last ones by start time. That's why the first gap ending after a time and
+ * with enough capacity is found in logarithmic time too.
+ * <p>
+ * A <code>null</code> start time is considered the start of time and a
+ * <code>null</code> end time the end of time, like in {@link Gap}. A
+ * <code>null</code> capacity is considered unbounded.
+ */
+public class GapsIndex {
+
+    private static class Node {
+
+        private final GapOnQueue gapOnQueue;
+
+        private final int priority;
+
+        private Node left;
+
+        private Node right;
+
+        private DateAndHour maxEnd;
+
+        private EffortDuration maxCapacity;
+
+        private Node(GapOnQueue gapOnQueue, int priority) {
+            this.gapOnQueue = gapOnQueue;
+            this.priority = priority;
+            update();
+        }
+
+        private Gap getGap() {
+            return gapOnQueue.getGap();
+        }
+
+        private void update() {
+            maxEnd = getGap().getEndTime();
+            maxCapacity = getGap().getCapacityUpperBound();
+            for (Node child : new Node[] { left, right }) {
+                if (child != null) {
+                    maxEnd = latestEnd(maxEnd, child.maxEnd);
+                    maxCapacity = biggestCapacity(maxCapacity,
+                            child.maxCapacity);
+                }
+            }
+        }
+
+        private boolean mayHave(DateAndHour time, EffortDuration capacity) {
+            return endsAfter(maxEnd, time)
+                    && hasAtLeast(maxCapacity, capacity);
+        }
+
+        private boolean fits(DateAndHour time, EffortDuration capacity) {
+            return endsAfter(getGap().getEndTime(), time)
+                    && hasAtLeast(getGap().getCapacityUpperBound(), capacity);
+        }
+
+    }
+
+    public static GapsIndex create() {
+        return new GapsIndex();
+    }
+
+    public static GapsIndex create(Collection<? extends GapOnQueue> gaps) {
+        GapsIndex result = create();
+        for (GapOnQueue each : gaps) {
+            result.add(each);
+        }
+        return result;
+    }
+
+    private static DateAndHour latestEnd(DateAndHour a, DateAndHour b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private static EffortDuration biggestCapacity(EffortDuration a,
+            EffortDuration b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private static boolean hasAtLeast(EffortDuration available,
+            EffortDuration capacity) {
+        return available == null || available.compareTo(capacity) >= 0;
+    }
+
+    private static boolean endsAfter(DateAndHour end, DateAndHour time) {
+        return end == null || time == null || end.isAfter(time);
+    }
+
+    private static int compareStarts(DateAndHour a, DateAndHour b) {
+        if (a == null) {
+            return b == null ? 0 : -1;
+        }
+        return b == null ? 1 : a.compareTo(b);
+    }
+
+    private final Random random = new Random(0);
+
+    private Node root;
+
+    private int size = 0;
+
+    private GapsIndex() {
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(GapOnQueue gapOnQueue) {
+        Node node = new Node(gapOnQueue, random.nextInt());
+        Node[] parts = split(root, gapOnQueue.getGap().getStartTime());
+        root = merge(merge(parts[0], node), parts[1]);
+        size++;
+    }
+
+    public void addAll(Collection<? extends GapOnQueue> gaps) {
+        for (GapOnQueue each : gaps) {
+            add(each);
+        }
+    }
+
+    public void remove(GapOnQueue gapOnQueue) {
+        root = remove(root, gapOnQueue);
+    }
+
+    public void removeAll(Collection<? extends GapOnQueue> gaps) {
+        for (GapOnQueue each : gaps) {
+            remove(each);
+        }
+    }
+
+    private Node remove(Node node, GapOnQueue gapOnQueue) {
+        if (node == null) {
+            return null;
+        }
+        if (node.gapOnQueue == gapOnQueue) {
+            size--;
+            return merge(node.left, node.right);
+        }
+        int comparison = compareStarts(gapOnQueue.getGap().getStartTime(),
+                node.getGap().getStartTime());
+        // gaps with the same start can be at both sides
+        if (comparison <= 0) {
+            node.left = remove(node.left, gapOnQueue);
+        }
+        if (comparison >= 0) {
+            node.right = remove(node.right, gapOnQueue);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * @return all the gaps ordered by start time
+     */
+    public List<GapOnQueue> asList() {
+        return getGapsWithAtLeast(null, zero());
+    }
+
+    /**
+     * @return the gaps that end after <code>time</code> ordered by start time
+     */
+    public List<GapOnQueue> getGapsEndingAfter(DateAndHour time) {
+        return getGapsWithAtLeast(time, zero());
+    }
+
+    /**
+     * @return the gaps that end after <code>time</code> and whose capacity
+     *         upper bound is at least <code>capacity</code>, ordered by start
+     *         time
+     */
+    public List<GapOnQueue> getGapsWithAtLeast(DateAndHour time,
+            EffortDuration capacity) {
+        List<GapOnQueue> result = new ArrayList<GapOnQueue>();
+        Iterator<GapOnQueue> iterator = iterateGapsWithAtLeast(time, capacity);
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    /**
+     * @return the first gap by start time that ends after <code>time</code>
+     *         and whose capacity upper bound is at least
+     *         <code>capacity</code>. <code>null</code> if there is none
+     */
+    public GapOnQueue getFirstGapWithAtLeast(DateAndHour time,
+            EffortDuration capacity) {
+        Iterator<GapOnQueue> iterator = iterateGapsWithAtLeast(time, capacity);
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * Like {@link #getGapsWithAtLeast(DateAndHour, EffortDuration)} but the
+     * gaps are searched as they are requested, so the first one costs the
+     * same as {@link #getFirstGapWithAtLeast(DateAndHour, EffortDuration)}.
+     * The index must not be modified while iterating.
+     */
+    public Iterator<GapOnQueue> iterateGapsWithAtLeast(DateAndHour time,
+            EffortDuration capacity) {
+        return new GapsIterator(root, time, capacity);
+    }
+
+    /**
+     * In order traversal skipping the subtrees that can't have any gap ending
+     * after the time and with enough capacity
+     */
+    private static class GapsIterator implements Iterator<GapOnQueue> {
+
+        private final DateAndHour time;
+
+        private final EffortDuration capacity;
+
+        private final LinkedList<Node> pending = new LinkedList<Node>();
+
+        private Node next;
+
+        private GapsIterator(Node root, DateAndHour time,
+                EffortDuration capacity) {
+            this.time = time;
+            this.capacity = capacity;
+            pushLeftmost(root);
+            next = advance();
+        }
+
+        private void pushLeftmost(Node node) {
+            while (node != null && node.mayHave(time, capacity)) {
+                pending.push(node);
+                node = node.left;
+            }
+        }
+
+        private Node advance() {
+            while (!pending.isEmpty()) {
+                Node node = pending.pop();
+                pushLeftmost(node.right);
+                if (node.fits(time, capacity)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public GapOnQueue next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            GapOnQueue result = next.gapOnQueue;
+            next = advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+    /**
+     * Splits the tree in the nodes starting before <code>start</code> and the
+     * rest
+     */
+    private static Node[] split(Node node, DateAndHour start) {
+        if (node == null) {
+            return new Node[] { null, null };
+        }
+        if (compareStarts(node.getGap().getStartTime(), start) < 0) {
+            Node[] parts = split(node.right, start);
+            node.right = parts[0];
+            node.update();
+            return new Node[] { node, parts[1] };
+        } else {
+            Node[] parts = split(node.left, start);
+            node.left = parts[1];
+            node.update();
+            return new Node[] { parts[0], node };
+        }
+    }
+
+    /**
+     * All the nodes of <code>first</code> must start before the ones of
+     * <code>second</code>
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            first.update();
+            return first;
+        } else {
+            second.left = merge(first, second.left);
+            second.update();
+            return second;
+        }
+    }
+
+}
@@ -107,7 +107,7 @@ public class LimitingResourceAllocator {
             LimitingResourceQueue queue, LimitingResourceQueueElement element) {
 
         final Resource resource = queue.getResource();
-        final List<LimitingResourceQueueElement> elements = new LinkedList<LimitingResourceQueueElement>(
+        final List<LimitingResourceQueueElement> elements = new ArrayList<LimitingResourceQueueElement>(
                 queue.getLimitingResourceQueueElements());
         final int size = elements.size();
         final DateAndHour startTime = getStartTimeBecauseOfGantt(element);
@@ -167,7 +167,7 @@ public class LimitingResourceAllocator {
         List<Gap> result = new ArrayList<Gap>();
 
         final Resource resource = queue.getResource();
-        final List<LimitingResourceQueueElement> elements = new LinkedList<LimitingResourceQueueElement>(
+        final List<LimitingResourceQueueElement> elements = new ArrayList<LimitingResourceQueueElement>(
                 queue.getLimitingResourceQueueElements());
         final int size = elements.size();
 
@@ -190,25 +190,30 @@ public class LimitingResourceAllocator {
         return result;
     }
 
+    /**
+     * Returns the position of the first element, except the first one, that
+     * starts at or after <code>until</code>. If <code>until</code> is before
+     * the start of the first element it returns 0. The elements are sorted by
+     * start time, so it's a binary search.
+     */
     private static int moveUntil(List<LimitingResourceQueueElement> elements, DateAndHour until) {
-        int pos = 0;
-
-        if (elements.size() > 0) {
-            // Space between until and first element start time
-            LimitingResourceQueueElement first = elements.get(0);
-            if (until.isBefore(first.getStartTime())) {
-                return 0;
-            }
-
-            for (pos = 1; pos < elements.size(); pos++) {
-                final LimitingResourceQueueElement each = elements.get(pos);
-                final DateAndHour startTime = each.getStartTime();
-                if (until.isBefore(startTime) || until.isEquals(startTime)) {
-                    return pos;
-                }
+        if (elements.isEmpty()) {
+            return 0;
+        }
+        if (until.isBefore(elements.get(0).getStartTime())) {
+            return 0;
+        }
+        int low = 1;
+        int high = elements.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (elements.get(middle).getStartTime().isBefore(until)) {
+                low = middle + 1;
+            } else {
+                high = middle;
             }
         }
-        return pos;
+        return low;
     }
 
     private static boolean isGeneric(LimitingResourceQueueElement element) {
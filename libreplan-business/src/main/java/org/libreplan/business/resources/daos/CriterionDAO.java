@@ -91,7 +91,7 @@ public class CriterionDAO extends IntegrationEntityDAO<Criterion>
             return new ArrayList<Criterion>();
         }
 
-        Criteria c = getSession().createCriteria(Criterion.class);
+        Criteria c = createCacheableCriteria(Criterion.class);
         c.add(Restrictions.eq("name", name).ignoreCase())
                 .createCriteria("type").add(
                         Restrictions.eq("name", type).ignoreCase());
@@ -155,7 +155,7 @@ public class CriterionDAO extends IntegrationEntityDAO<Criterion>
 
     @Override
     public List<Criterion> findByType(ICriterionType<?> type) {
-        List<Criterion> list = list(Criterion.class);
+        List<Criterion> list = listCacheable(Criterion.class);
         ArrayList<Criterion> result = new ArrayList<Criterion>();
         for (Criterion criterion : list) {
             if (type.contains(criterion)) {
@@ -166,11 +166,11 @@ public class CriterionDAO extends IntegrationEntityDAO<Criterion>
     }
 
     public List<Criterion> getAll() {
-        return list(Criterion.class);
+        return listCacheable(Criterion.class);
     }
 
     public List<Criterion> getAllSorted() {
-        Criteria c = getSession().createCriteria(Criterion.class);
+        Criteria c = createCacheableCriteria(Criterion.class);
         c.addOrder(Order.asc("name"));
         return (List<Criterion>) c.list();
     }
@@ -182,7 +182,9 @@ public class CriterionDAO extends IntegrationEntityDAO<Criterion>
                 .createQuery(
                 "select criterion from Criterion criterion "
                         + "JOIN criterion.type type "
-                        + "order by type.name asc, criterion.name asc");
+                        + "order by type.name asc, criterion.name asc")
+                .setCacheable(true)
+                .setCacheRegion(MASTER_DATA_QUERY_CACHE_REGION);
         return (List<Criterion>) query.list();
     }
 
@@ -49,7 +49,7 @@ public class CriterionTypeDAO extends IntegrationEntityDAO<CriterionType>
 
     @Override
     public CriterionType findByName(String name) {
-        return (CriterionType) getSession().createCriteria(CriterionType.class)
+        return (CriterionType) createCacheableCriteria(CriterionType.class)
                 .add(Restrictions.eq("name", name).ignoreCase()).uniqueResult();
     }
 
@@ -173,12 +173,12 @@ public class CriterionTypeDAO extends IntegrationEntityDAO<CriterionType>
 
     @Override
     public List<CriterionType> getCriterionTypes() {
-        return list(CriterionType.class);
+        return listCacheable(CriterionType.class);
     }
 
     @Override
     public List<CriterionType> getSortedCriterionTypes() {
-        return getSession().createCriteria(CriterionType.class).addOrder(
+        return createCacheableCriteria(CriterionType.class).addOrder(
                 Order.asc("name")).list();
     }
 
@@ -186,7 +186,7 @@ public class CriterionTypeDAO extends IntegrationEntityDAO<CriterionType>
     @Override
     public List<CriterionType> getCriterionTypesByResources(
             Collection<ResourceEnum> resources) {
-        return getSession().createCriteria(CriterionType.class).add(
+        return createCacheableCriteria(CriterionType.class).add(
                 Restrictions.in("resource", resources)).addOrder(
                 Order.asc("name")).list();
     }
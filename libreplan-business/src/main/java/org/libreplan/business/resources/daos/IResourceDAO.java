@@ -111,6 +111,26 @@ public interface IResourceDAO extends IIntegrationEntityDAO<Resource> {
             Date startingDate,
             Date endingDate);
 
+    /**
+     * Returns the {@link Resource resources} that would appear in
+     * {@link #getWorkingHoursPerWorker(List, List, LabelFilterType, List, Date, Date)}
+     * ordered by name
+     */
+    List<Resource> getResourcesWithWorkingHours(List<Resource> resources,
+            List<Label> labels, LabelFilterType labelFilterType,
+            List<Criterion> criterions, Date startingDate, Date endingDate);
+
+    /**
+     * Returns a page of the {@link HoursWorkedPerResourceDTO} of a single
+     * {@link Resource} ordered by date. It allows to go through the lines of
+     * each resource without loading all of them at once.
+     */
+    List<HoursWorkedPerResourceDTO> getWorkingHoursPerWorker(
+            Resource resource, List<Label> labels,
+            LabelFilterType labelFilterType, List<Criterion> criterions,
+            Date startingDate, Date endingDate, int firstResult,
+            int maxResults);
+
     /**
      * Returns all {@link HoursWorkedPerWorkerInAMonthDTO} in year and month
      *
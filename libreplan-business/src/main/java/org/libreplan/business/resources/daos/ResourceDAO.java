@@ -26,6 +26,7 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
+import org.apache.commons.lang.Validate;
 import org.hibernate.Query;
 import org.hibernate.criterion.Restrictions;
 import org.libreplan.business.common.daos.IntegrationEntityDAO;
@@ -57,6 +58,18 @@ import org.springframework.transaction.annotation.Transactional;
 public class ResourceDAO extends IntegrationEntityDAO<Resource> implements
     IResourceDAO {
 
+    private static final String HOURS_WORKED_PER_RESOURCE_DTO = "SELECT new org.libreplan.business.reports.dtos.HoursWorkedPerResourceDTO(resource, wrl)";
+
+    /**
+     * Same value as {@link Resource#getName()}, so the resources come sorted
+     * from the database in the order they are shown
+     */
+    private static final String RESOURCE_NAME = "CASE "
+            + "WHEN resource.class = VirtualWorker THEN resource.firstName "
+            + "WHEN resource.class = Worker "
+            + "THEN CONCAT(resource.surname, ', ', resource.firstName) "
+            + "ELSE resource.name END";
+
     @Autowired
     private IScenarioManager scenarioManager;
 
@@ -132,16 +145,77 @@ public class ResourceDAO extends IntegrationEntityDAO<Resource> implements
 
     @Override
     @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
     public List<HoursWorkedPerResourceDTO> getWorkingHoursPerWorker(
             List<Resource> resources, List<Label> labels,
             LabelFilterType labelFilterType, List<Criterion> criterions,
             Date startingDate,
             Date endingDate) {
+        return createWorkingHoursPerWorkerQuery(
+                HOURS_WORKED_PER_RESOURCE_DTO, "ORDER BY resource.id, wrl.date",
+                resources, null, labels, labelFilterType, criterions,
+                startingDate, endingDate).list();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<Resource> getResourcesWithWorkingHours(
+            List<Resource> resources, List<Label> labels,
+            LabelFilterType labelFilterType, List<Criterion> criterions,
+            Date startingDate, Date endingDate) {
+        String strQuery = "SELECT resource FROM Resource resource "
+                + "WHERE EXISTS (SELECT wrl.id FROM WorkReportLine wrl "
+                + "LEFT OUTER JOIN wrl.resource wrlresource "
+                + "WHERE wrlresource.id = resource.id "
+                + workingHoursPerWorkerConditions(resources, null, labels,
+                        labelFilterType, criterions, startingDate, endingDate)
+                + ") ORDER BY " + RESOURCE_NAME + ", resource.id";
+        Query query = getSession().createQuery(strQuery);
+        setWorkingHoursPerWorkerParameters(query, resources, null, labels,
+                criterions, startingDate, endingDate);
+        return query.list();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<HoursWorkedPerResourceDTO> getWorkingHoursPerWorker(
+            Resource resource, List<Label> labels,
+            LabelFilterType labelFilterType, List<Criterion> criterions,
+            Date startingDate, Date endingDate, int firstResult,
+            int maxResults) {
+        Validate.notNull(resource);
+        return createWorkingHoursPerWorkerQuery(
+                HOURS_WORKED_PER_RESOURCE_DTO, "ORDER BY wrl.date, wrl.id",
+                null, resource, labels, labelFilterType, criterions,
+                startingDate, endingDate).setFirstResult(firstResult)
+                .setMaxResults(maxResults).list();
+    }
+
+    private Query createWorkingHoursPerWorkerQuery(String select,
+            String orderBy, List<Resource> resources, Resource resource,
+            List<Label> labels, LabelFilterType labelFilterType,
+            List<Criterion> criterions, Date startingDate, Date endingDate) {
 
-        String strQuery = "SELECT new org.libreplan.business.reports.dtos.HoursWorkedPerResourceDTO(resource, wrl) "
-                + "FROM Resource resource, WorkReportLine wrl "
+        String strQuery = select
+                + " FROM Resource resource, WorkReportLine wrl "
                 + "LEFT OUTER JOIN wrl.resource wrlresource "
-                + "WHERE wrlresource.id = resource.id ";
+                + "WHERE wrlresource.id = resource.id "
+                + workingHoursPerWorkerConditions(resources, resource, labels,
+                        labelFilterType, criterions, startingDate, endingDate)
+                + orderBy;
+        Query query = getSession().createQuery(strQuery);
+        setWorkingHoursPerWorkerParameters(query, resources, resource, labels,
+                criterions, startingDate, endingDate);
+        return query;
+    }
+
+    private String workingHoursPerWorkerConditions(List<Resource> resources,
+            Resource resource, List<Label> labels,
+            LabelFilterType labelFilterType, List<Criterion> criterions,
+            Date startingDate, Date endingDate) {
+        String strQuery = "";
 
         // Set date range
         if (startingDate != null && endingDate != null) {
@@ -158,6 +232,9 @@ public class ResourceDAO extends IntegrationEntityDAO<Resource> implements
         if (resources != null && !resources.isEmpty()) {
             strQuery += "AND resource IN (:resources) ";
         }
+        if (resource != null) {
+            strQuery += "AND resource = :resource ";
+        }
 
         // Set labels
         if (labels != null && !labels.isEmpty()) {
@@ -192,11 +269,12 @@ public class ResourceDAO extends IntegrationEntityDAO<Resource> implements
                     + " WHERE satisfaction.criterion IN (:criterions)) ";
         }
 
-        // Order by
-        strQuery += "ORDER BY resource.id, wrl.date";
+        return strQuery;
+    }
 
-        // Set parameters
-        Query query = getSession().createQuery(strQuery);
+    private void setWorkingHoursPerWorkerParameters(Query query,
+            List<Resource> resources, Resource resource, List<Label> labels,
+            List<Criterion> criterions, Date startingDate, Date endingDate) {
         if (startingDate != null) {
             query.setParameter("startingDate", startingDate);
         }
@@ -206,6 +284,9 @@ public class ResourceDAO extends IntegrationEntityDAO<Resource> implements
         if (resources != null && !resources.isEmpty()) {
             query.setParameterList("resources", resources);
         }
+        if (resource != null) {
+            query.setParameter("resource", resource);
+        }
 
         if (labels != null && !labels.isEmpty()) {
             query.setParameterList("labels", labels);
@@ -214,9 +295,6 @@ public class ResourceDAO extends IntegrationEntityDAO<Resource> implements
             query.setParameterList("criterions",
                     Criterion.withAllDescendants(criterions));
         }
-
-        // Get result
-        return query.list();
     }
 
     @Override
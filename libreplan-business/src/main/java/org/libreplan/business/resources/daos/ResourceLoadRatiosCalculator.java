@@ -20,14 +20,15 @@
 package org.libreplan.business.resources.daos;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
 
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.IAdHocTransactionService;
-import org.libreplan.business.planner.daos.IDayAssignmentDAO;
-import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.daos.IResourceDailyLoadDAO;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.scenarios.entities.Scenario;
 import org.libreplan.business.workingday.EffortDuration;
@@ -52,7 +53,7 @@ public class ResourceLoadRatiosCalculator implements
         IResourceLoadRatiosCalculator {
 
     @Autowired
-    private IDayAssignmentDAO dayAssigmentDAO;
+    private IResourceDailyLoadDAO resourceDailyLoadDAO;
 
     @Autowired
     private IResourceDAO resourceDAO;
@@ -126,11 +127,36 @@ public class ResourceLoadRatiosCalculator implements
 
         resourceDAO.reattach(resource);
 
+        return calculateLoadRatios(resource, startDate, endDate,
+                getAllEffortPerDateFor(scenario, startDate, endDate, resource));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Resource, ILoadRatiosDataType> calculateLoadRatios(
+            Collection<? extends Resource> resources, LocalDate startDate,
+            LocalDate endDate, Scenario scenario) {
+        for (Resource each : resources) {
+            resourceDAO.reattach(each);
+        }
+        Map<Resource, ILoadRatiosDataType> result = new LinkedHashMap<Resource, ILoadRatiosDataType>();
+        for (Entry<Resource, SortedMap<LocalDate, EffortDuration>> each : resourceDailyLoadDAO
+                .getLoadPerDay(scenario, resources, startDate, endDate)
+                .entrySet()) {
+            result.put(each.getKey(), calculateLoadRatios(each.getKey(),
+                    startDate, endDate, each.getValue()));
+        }
+        return result;
+    }
+
+    private LoadRatiosDataType calculateLoadRatios(Resource resource,
+            LocalDate startDate, LocalDate endDate,
+            Map<LocalDate, EffortDuration> effortPerDate) {
         EffortDuration totalLoad = EffortDuration.zero(), totalOverload = EffortDuration
                 .zero(), totalCapacity = EffortDuration.zero();
 
-        for (Map.Entry<LocalDate, EffortDuration> each : getAllEffortPerDateFor(
-                scenario, startDate, endDate, resource).entrySet()) {
+        for (Map.Entry<LocalDate, EffortDuration> each : effortPerDate
+                .entrySet()) {
             totalLoad = totalLoad.plus(each.getValue());
             totalOverload = addOverload(totalOverload, resource,
                     each.getValue(), each.getKey());
@@ -143,22 +169,8 @@ public class ResourceLoadRatiosCalculator implements
     private Map<LocalDate, EffortDuration> getAllEffortPerDateFor(
             Scenario scenario, LocalDate startDate, LocalDate endDate,
             Resource resource) {
-
-        HashMap<LocalDate, EffortDuration> result = new HashMap<LocalDate, EffortDuration>();
-
-        List<DayAssignment> l = dayAssigmentDAO.getAllFor(scenario, startDate,
-                endDate, resource);
-
-        EffortDuration newValue = EffortDuration.zero();
-        for (DayAssignment each : l) {
-            if (result.containsKey(each.getDay())) {
-                newValue = result.get(each.getDay()).plus(each.getDuration());
-            } else {
-                newValue = each.getDuration();
-            }
-            result.put(each.getDay(), newValue);
-        }
-        return result;
+        return resourceDailyLoadDAO.getLoadPerDay(scenario, resource,
+                startDate, endDate);
     }
 
     private EffortDuration calculateTotalCapacity(Resource resource,
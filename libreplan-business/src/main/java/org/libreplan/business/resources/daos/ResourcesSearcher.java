@@ -28,6 +28,7 @@ import static org.hibernate.criterion.Restrictions.like;
 import static org.hibernate.criterion.Restrictions.or;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -41,9 +42,11 @@ import org.apache.commons.logging.LogFactory;
 import org.hibernate.Criteria;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.joda.time.LocalDate;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.resources.entities.Criterion;
+import org.libreplan.business.resources.entities.CriterionSatisfactionsIndex;
 import org.libreplan.business.resources.entities.CriterionType;
 import org.libreplan.business.resources.entities.Machine;
 import org.libreplan.business.resources.entities.Resource;
@@ -70,6 +73,72 @@ public class ResourcesSearcher implements IResourcesSearcher {
     @Autowired
     private SessionFactory sessionFactory;
 
+    /**
+     * A {@link CriterionSatisfactionsIndex} together with the signature of the
+     * criterion satisfactions it was built from. Both are replaced at once so
+     * an index is never paired with the signature of another one.
+     */
+    private static class SignedIndex {
+
+        private final List<Object> signature;
+
+        private final CriterionSatisfactionsIndex index;
+
+        private SignedIndex(List<Object> signature,
+                CriterionSatisfactionsIndex index) {
+            this.signature = signature;
+            this.index = index;
+        }
+
+        private boolean isSignedWith(List<Object> signature) {
+            return this.signature.equals(signature);
+        }
+
+    }
+
+    private volatile SignedIndex criterionSatisfactionsIndex;
+
+    /**
+     * The index is shared by all the queries. It's built again only when the
+     * criterion satisfactions stored change, what is detected comparing their
+     * number, greatest id and sum of versions.
+     */
+    private CriterionSatisfactionsIndex getCriterionSatisfactionsIndex(
+            Session session) {
+        List<Object> signature = Arrays.asList((Object[]) session
+                .createQuery(
+                        "select count(cs.id), max(cs.id), sum(cs.version) "
+                                + "from CriterionSatisfaction cs")
+                .uniqueResult());
+        SignedIndex current = criterionSatisfactionsIndex;
+        if (current == null || !current.isSignedWith(signature)) {
+            current = new SignedIndex(signature,
+                    buildCriterionSatisfactionsIndex(session));
+            criterionSatisfactionsIndex = current;
+        }
+        return current.index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CriterionSatisfactionsIndex buildCriterionSatisfactionsIndex(
+            Session session) {
+        List<Object[]> rows = session
+                .createQuery(
+                        "select cs.resource.id, cs.criterion.id, cs.startDate, "
+                                + "cs.finishDate from CriterionSatisfaction cs "
+                                + "where cs.isDeleted is null "
+                                + "or cs.isDeleted = false").list();
+        CriterionSatisfactionsIndex result = CriterionSatisfactionsIndex
+                .create();
+        for (Object[] each : rows) {
+            result.add((Long) each[0], (Long) each[1], (LocalDate) each[2],
+                    (LocalDate) each[3]);
+        }
+        LOG.debug("criterion satisfactions index built for " + result.size()
+                + " resources");
+        return result;
+    }
+
     public IResourcesQuery<Machine> searchMachines() {
         return new Query<Machine>(Machine.class);
     }
@@ -123,7 +192,8 @@ public class ResourcesSearcher implements IResourcesSearcher {
                             Session session = sessionFactory
                                     .getCurrentSession();
                             List<T> resources = buildCriteria(session).list();
-                            return restrictToSatisfyAllCriteria(resources);
+                            return restrictToSatisfyAllCriteria(session,
+                                    resources);
                         }
 
                     });
@@ -168,13 +238,16 @@ public class ResourcesSearcher implements IResourcesSearcher {
             }
         }
 
-        private List<T> restrictToSatisfyAllCriteria(List<T> resources) {
+        private List<T> restrictToSatisfyAllCriteria(Session session,
+                List<T> resources) {
             if (!criteriaSpecified()) {
                 return resources;
             }
+            Set<Long> satisfying = getCriterionSatisfactionsIndex(session)
+                    .findSatisfyingAtSomePoint(criteria);
             List<T> result = new ArrayList<T>();
             for (T each : resources) {
-                if (each.satisfiesCriterionsAtSomePoint(criteria)) {
+                if (satisfying.contains(each.getId())) {
                     result.add(each);
                 }
             }
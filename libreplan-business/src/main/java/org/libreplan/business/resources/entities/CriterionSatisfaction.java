@@ -87,6 +87,20 @@ public class CriterionSatisfaction extends IntegrationEntity {
         CriterionType criterionType = criterionTypeDAO.findUniqueByName(
             criterionTypeName);
 
+        return createUnvalidated(code, criterionType, criterionName, resource,
+                startDate, finishDate);
+
+    }
+
+    /**
+     * @throws InstanceNotFoundException if criterion does not exist in the
+     *         criterion type
+     */
+    public static CriterionSatisfaction createUnvalidated(String code,
+            CriterionType criterionType, String criterionName,
+            Resource resource, LocalDate startDate, LocalDate finishDate)
+            throws InstanceNotFoundException {
+
         /* Get Criterion. */
         Criterion criterion = criterionType.getCriterion(
             criterionName);
@@ -114,13 +128,30 @@ public class CriterionSatisfaction extends IntegrationEntity {
 
         CriterionType criterionType = null;
 
-        if (StringUtils.isBlank(criterionTypeName)) {
-            criterionType = criterion.getType();
-        } else {
+        if (!StringUtils.isBlank(criterionTypeName)) {
             criterionType = Registry.getCriterionTypeDAO().findUniqueByName(
                 criterionTypeName);
         }
 
+        updateUnvalidated(criterionType, criterionName, startDate, finishDate);
+
+    }
+
+    /**
+     * @param criterionType
+     *            if <code>null</code> the type of the current criterion is
+     *            kept
+     * @throws InstanceNotFoundException if criterion does not exist in the
+     *         criterion type
+     */
+    public void updateUnvalidated(CriterionType criterionType,
+            String criterionName, LocalDate startDate, LocalDate finishDate)
+        throws InstanceNotFoundException {
+
+        if (criterionType == null) {
+            criterionType = criterion.getType();
+        }
+
         String newCriterionName = null;
 
         if (StringUtils.isBlank(criterionName)) {
@@ -0,0 +1,188 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.resources.entities;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.calendars.entities.AvailabilityTimeLine;
+
+/**
+ * Inverted index from {@link Criterion} to the resources satisfying it. For
+ * each criterion it keeps a bitmap with the resources that have some
+ * {@link CriterionSatisfaction} for it and the intervals of those
+ * satisfactions, so the resources satisfying some criteria can be found
+ * without loading the resources nor their satisfactions.<br />
+ *
+ * The resources are identified by their id. As {@link Criterion} does, a
+ * criterion is satisfied by the satisfactions of any of its descendants too.
+ * Deleted satisfactions must not be added.
+ */
+public class CriterionSatisfactionsIndex {
+
+    public static CriterionSatisfactionsIndex create() {
+        return new CriterionSatisfactionsIndex();
+    }
+
+    private final Map<Long, Integer> positionByResourceId = new HashMap<Long, Integer>();
+
+    private final List<Long> resourceIds = new ArrayList<Long>();
+
+    private final Map<Long, BitSet> resourcesByCriterion = new HashMap<Long, BitSet>();
+
+    private final Map<Long, Map<Integer, List<Interval>>> intervalsByCriterion = new HashMap<Long, Map<Integer, List<Interval>>>();
+
+    private CriterionSatisfactionsIndex() {
+    }
+
+    public void add(Long resourceId, Long criterionId, LocalDate start,
+            LocalDate finish) {
+        Validate.notNull(resourceId);
+        Validate.notNull(criterionId);
+        int position = positionFor(resourceId);
+        BitSet resources = resourcesByCriterion.get(criterionId);
+        if (resources == null) {
+            resources = new BitSet();
+            resourcesByCriterion.put(criterionId, resources);
+            intervalsByCriterion.put(criterionId,
+                    new HashMap<Integer, List<Interval>>());
+        }
+        resources.set(position);
+        Map<Integer, List<Interval>> intervals = intervalsByCriterion
+                .get(criterionId);
+        List<Interval> forResource = intervals.get(position);
+        if (forResource == null) {
+            forResource = new ArrayList<Interval>(1);
+            intervals.put(position, forResource);
+        }
+        forResource.add(Interval.range(start, finish));
+    }
+
+    private int positionFor(Long resourceId) {
+        Integer result = positionByResourceId.get(resourceId);
+        if (result == null) {
+            result = resourceIds.size();
+            resourceIds.add(resourceId);
+            positionByResourceId.put(resourceId, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of resources with satisfactions
+     */
+    public int size() {
+        return resourceIds.size();
+    }
+
+    /**
+     * @return the ids of the resources that satisfy all the
+     *         <code>criteria</code> at the same time at some point
+     * @see Resource#satisfiesCriterionsAtSomePoint(Collection)
+     */
+    public Set<Long> findSatisfyingAtSomePoint(
+            Collection<? extends Criterion> criteria) {
+        Validate.noNullElements(criteria);
+        BitSet candidates = all();
+        List<Set<Long>> idsForEachCriterion = new ArrayList<Set<Long>>();
+        for (Criterion each : criteria) {
+            Set<Long> ids = withDescendantsIds(each);
+            candidates.and(resourcesFor(ids));
+            idsForEachCriterion.add(ids);
+        }
+        Set<Long> result = new HashSet<Long>();
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates
+                .nextSetBit(i + 1)) {
+            AvailabilityTimeLine availability = AvailabilityTimeLine
+                    .allValid();
+            for (Set<Long> each : idsForEachCriterion) {
+                availability = availability.and(timeLineFor(each, i));
+            }
+            if (!availability.getValidPeriods().isEmpty()) {
+                result.add(resourceIds.get(i));
+            }
+        }
+        return result;
+    }
+
+    private AvailabilityTimeLine timeLineFor(Set<Long> criterionIds,
+            int position) {
+        AvailabilityTimeLine result = AvailabilityTimeLine.createAllInvalid();
+        for (Interval each : intervalsFor(criterionIds, position)) {
+            AvailabilityTimeLine valid = AvailabilityTimeLine.allValid();
+            valid.invalidUntil(each.getStart());
+            if (each.getEnd() != null) {
+                valid.invalidFrom(each.getEnd());
+            }
+            result = result.or(valid);
+        }
+        return result;
+    }
+
+    private BitSet all() {
+        BitSet result = new BitSet(resourceIds.size());
+        result.set(0, resourceIds.size());
+        return result;
+    }
+
+    private BitSet resourcesFor(Set<Long> criterionIds) {
+        BitSet result = new BitSet();
+        for (Long each : criterionIds) {
+            BitSet resources = resourcesByCriterion.get(each);
+            if (resources != null) {
+                result.or(resources);
+            }
+        }
+        return result;
+    }
+
+    private List<Interval> intervalsFor(Set<Long> criterionIds, int position) {
+        List<Interval> result = new ArrayList<Interval>();
+        for (Long each : criterionIds) {
+            Map<Integer, List<Interval>> intervals = intervalsByCriterion
+                    .get(each);
+            if (intervals != null && intervals.containsKey(position)) {
+                result.addAll(intervals.get(position));
+            }
+        }
+        return result;
+    }
+
+    private static Set<Long> withDescendantsIds(Criterion criterion) {
+        Set<Long> result = new HashSet<Long>();
+        for (Criterion each : Criterion.withAllDescendants(Collections
+                .singletonList(criterion))) {
+            result.add(each.getId());
+        }
+        return result;
+    }
+
+}
@@ -23,23 +23,28 @@ package org.libreplan.business.resources.entities;
 
 import static org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement.isAfter;
 import static org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement.isInTheMiddle;
+import static org.libreplan.business.workingday.EffortDuration.hours;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import org.libreplan.business.calendars.entities.CalendarAvailability;
-import org.libreplan.business.calendars.entities.ResourceCalendar;
 import org.libreplan.business.common.BaseEntity;
 import org.libreplan.business.planner.limiting.entities.DateAndHour;
 import org.libreplan.business.planner.limiting.entities.Gap;
 import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
 import org.libreplan.business.planner.limiting.entities.GapInterval;
+import org.libreplan.business.planner.limiting.entities.GapsIndex;
 import org.libreplan.business.planner.limiting.entities.InsertionRequirements;
 import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
 /**
@@ -54,6 +59,14 @@ public class LimitingResourceQueue extends BaseEntity {
     private SortedSet<LimitingResourceQueueElement> limitingResourceQueueElements =
         new TreeSet<LimitingResourceQueueElement>(new LimitingResourceQueueElementComparator());
 
+    private GapsIndex gapsIndex;
+
+    /**
+     * The gaps of {@link #gapsIndex} by the element they follow, the ones at
+     * the start of the queue have a <code>null</code> key
+     */
+    private Map<LimitingResourceQueueElement, List<GapOnQueue>> gapsAfter;
+
     private List<GapOnQueue> cachedGaps;
 
     public static Collection<LimitingResourceQueue> queuesOf(
@@ -83,47 +96,122 @@ public class LimitingResourceQueue extends BaseEntity {
 
     public void addLimitingResourceQueueElement(LimitingResourceQueueElement element) {
         element.setLimitingResourceQueue(this);
-        limitingResourceQueueElements.add(element);
-        invalidCachedGaps();
+        boolean added = limitingResourceQueueElements.add(element);
+        if (gapsIndex != null && added && isPositioned(element)) {
+            LimitingResourceQueueElement previous = getPrevious(element);
+            LimitingResourceQueueElement next = getNext(element);
+            removeGapsAfter(previous);
+            addGapsBetween(previous, element);
+            addGapsBetween(element, next);
+            cachedGaps = null;
+        } else {
+            invalidCachedGaps();
+        }
     }
 
     public void removeLimitingResourceQueueElement(LimitingResourceQueueElement element) {
-        limitingResourceQueueElements.remove(element);
+        if (gapsIndex != null && gapsAfter.containsKey(element)) {
+            LimitingResourceQueueElement previous = getPrevious(element);
+            LimitingResourceQueueElement next = getNext(element);
+            limitingResourceQueueElements.remove(element);
+            removeGapsAfter(previous);
+            removeGapsAfter(element);
+            addGapsBetween(previous, next);
+            cachedGaps = null;
+        } else {
+            limitingResourceQueueElements.remove(element);
+            invalidCachedGaps();
+        }
         element.detach();
-        invalidCachedGaps();
+    }
+
+    private static boolean isPositioned(LimitingResourceQueueElement element) {
+        return element.getStartDate() != null && element.getEndDate() != null;
+    }
+
+    private LimitingResourceQueueElement getPrevious(
+            LimitingResourceQueueElement element) {
+        SortedSet<LimitingResourceQueueElement> previous = limitingResourceQueueElements
+                .headSet(element);
+        return previous.isEmpty() ? null : previous.last();
+    }
+
+    private LimitingResourceQueueElement getNext(
+            LimitingResourceQueueElement element) {
+        Iterator<LimitingResourceQueueElement> iterator = limitingResourceQueueElements
+                .tailSet(element).iterator();
+        iterator.next();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private void removeGapsAfter(LimitingResourceQueueElement element) {
+        List<GapOnQueue> gaps = gapsAfter.remove(element);
+        if (gaps != null) {
+            gapsIndex.removeAll(gaps);
+        }
+    }
+
+    private void addGapsBetween(LimitingResourceQueueElement previous,
+            LimitingResourceQueueElement next) {
+        List<GapOnQueue> gaps = GapOnQueue.onQueue(this,
+                gapsBetween(previous, next));
+        gapsAfter.put(previous, gaps);
+        gapsIndex.addAll(gaps);
     }
 
     private void invalidCachedGaps() {
+        gapsIndex = null;
+        gapsAfter = null;
         cachedGaps = null;
     }
 
+    private GapsIndex getGapsIndex() {
+        if (gapsIndex == null) {
+            gapsIndex = GapsIndex.create();
+            gapsAfter = new IdentityHashMap<LimitingResourceQueueElement, List<GapOnQueue>>();
+            LimitingResourceQueueElement previous = null;
+            for (LimitingResourceQueueElement each : limitingResourceQueueElements) {
+                addGapsBetween(previous, each);
+                previous = each;
+            }
+            addGapsBetween(previous, null);
+        }
+        return gapsIndex;
+    }
+
     public List<GapOnQueue> getGaps() {
         if (cachedGaps == null) {
-            cachedGaps = calculateGaps();
+            cachedGaps = getGapsIndex().asList();
         }
         return cachedGaps;
     }
 
-    private List<GapOnQueue> calculateGaps() {
+    /**
+     * Calculates the gaps between two consecutive elements of the queue. A
+     * <code>null</code> <code>previous</code> means the start of the queue and
+     * a <code>null</code> <code>next</code> the end of the queue.
+     */
+    private List<Gap> gapsBetween(LimitingResourceQueueElement previous,
+            LimitingResourceQueueElement next) {
         List<Gap> result = new ArrayList<Gap>();
-        DateAndHour previousEnd = null;
-        ResourceCalendar calendar = resource.getCalendar();
-        List<CalendarAvailability> activationPeriods = calendar.getCalendarAvailabilities();
-
-        for (LimitingResourceQueueElement each : limitingResourceQueueElements) {
-            DateAndHour startTime = each.getStartTime();
-            if (previousEnd == null || startTime.isAfter(previousEnd)) {
-                List<GapInterval> gapIntervals = GapInterval.
-                        create(previousEnd, startTime).
-                        delimitByActivationPeriods(activationPeriods);
-                if (!gapIntervals.isEmpty()) {
-                    result.addAll(GapInterval.gapsOn(gapIntervals, resource));
-                }
+        DateAndHour previousEnd = previous != null ? previous.getEndTime()
+                : null;
+        if (next == null) {
+            result.add(Gap.create(resource, previousEnd, null));
+            return result;
+        }
+        DateAndHour startTime = next.getStartTime();
+        if (previousEnd == null || startTime.isAfter(previousEnd)) {
+            List<CalendarAvailability> activationPeriods = resource
+                    .getCalendar().getCalendarAvailabilities();
+            List<GapInterval> gapIntervals = GapInterval.
+                    create(previousEnd, startTime).
+                    delimitByActivationPeriods(activationPeriods);
+            if (!gapIntervals.isEmpty()) {
+                result.addAll(GapInterval.gapsOn(gapIntervals, resource));
             }
-            previousEnd = each.getEndTime();
         }
-        result.add(Gap.create(resource, previousEnd, null));
-        return GapOnQueue.onQueue(this, result);
+        return result;
     }
 
     public SortedSet<LimitingResourceQueueElement> getLimitingResourceQueueElements() {
@@ -132,17 +220,53 @@ public class LimitingResourceQueue extends BaseEntity {
 
     /**
      * @return the gaps that could potentially be valid for
-     *         <code>requirements</code> ordered by start date
+     *         <code>requirements</code> ordered by start date. They are
+     *         searched as they are requested, so the first one is found in
+     *         logarithmic time
      */
-    public List<GapOnQueue> getGapsPotentiallyValidFor(
-            InsertionRequirements requirements) {
-        List<GapOnQueue> result = new ArrayList<GapOnQueue>();
-        for (GapOnQueue each : getGaps()) {
-            if (requirements.isPotentiallyValid(each.getGap())) {
-                result.add(each);
+    public Iterator<GapOnQueue> getGapsPotentiallyValidFor(
+            final InsertionRequirements requirements) {
+        // the gaps ending before the earliest start or that can't hold the
+        // hours of the element can't be valid
+        final Iterator<GapOnQueue> candidates = getGapsIndex()
+                .iterateGapsWithAtLeast(
+                        requirements.getEarliestPossibleStart(),
+                        hours(requirements.getElement()
+                                .getIntentedTotalHours()));
+        return new Iterator<GapOnQueue>() {
+
+            private GapOnQueue next = advance();
+
+            private GapOnQueue advance() {
+                while (candidates.hasNext()) {
+                    GapOnQueue each = candidates.next();
+                    if (requirements.isPotentiallyValid(each.getGap())) {
+                        return each;
+                    }
+                }
+                return null;
             }
-        }
-        return result;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public GapOnQueue next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                GapOnQueue result = next;
+                next = advance();
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
     public List<LimitingResourceQueueElement> getElementsAfter(
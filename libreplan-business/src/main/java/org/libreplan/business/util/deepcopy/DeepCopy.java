@@ -31,14 +31,16 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import org.apache.commons.lang.Validate;
 import org.hibernate.proxy.HibernateProxy;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
@@ -61,6 +63,132 @@ public class DeepCopy {
                 || inmmutableTypes.contains(klass);
     }
 
+    /**
+     * The way of copying the instances of a class is calculated only once, so
+     * the class hierarchy is not walked for each copied object
+     */
+    private static final ConcurrentMap<Class<?>, CopyPlan> copyPlans = new ConcurrentHashMap<Class<?>, CopyPlan>();
+
+    private static CopyPlan getCopyPlan(Class<?> klass) {
+        CopyPlan result = copyPlans.get(klass);
+        if (result == null) {
+            result = new CopyPlan(klass);
+            CopyPlan previous = copyPlans.putIfAbsent(klass, result);
+            if (previous != null) {
+                result = previous;
+            }
+        }
+        return result;
+    }
+
+    private static class CopyPlan {
+
+        private final Class<?> klass;
+
+        private final boolean immutable;
+
+        private final ICustomCopy customCopy;
+
+        private Constructor<?> constructor;
+
+        private Field[] fields;
+
+        private Strategy[] strategies;
+
+        private Method[] afterCopyHooks;
+
+        CopyPlan(Class<?> klass) {
+            this.klass = klass;
+            this.immutable = isImmutableType(klass);
+            this.customCopy = immutable ? null : findCopier(klass);
+            if (!immutable && customCopy == null) {
+                this.constructor = findDefaultConstructor(klass);
+                initializeFields(klass);
+                this.afterCopyHooks = getAfterCopyHooks(klass).toArray(
+                        new Method[0]);
+            }
+        }
+
+        private static ICustomCopy findCopier(Class<?> klass) {
+            for (ICustomCopy each : DEFAULT_CUSTOM_COPIERS) {
+                if (each.canHandle(klass)) {
+                    return each;
+                }
+            }
+            return null;
+        }
+
+        private static Constructor<?> findDefaultConstructor(Class<?> klass) {
+            try {
+                return klass.getConstructor();
+            } catch (SecurityException e) {
+                throw new RuntimeException(e);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        private void initializeFields(Class<?> klass) {
+            List<Field> copied = new ArrayList<Field>();
+            List<Strategy> copiedStrategies = new ArrayList<Strategy>();
+            for (Field each : getAllFieldsFor(klass)) {
+                if (!isIgnored(each)) {
+                    each.setAccessible(true);
+                    copied.add(each);
+                    copiedStrategies.add(getStrategy(each));
+                }
+            }
+            this.fields = copied.toArray(new Field[0]);
+            this.strategies = copiedStrategies.toArray(new Strategy[0]);
+        }
+
+        boolean isImmutable() {
+            return immutable;
+        }
+
+        ICustomCopy getCustomCopy() {
+            return customCopy;
+        }
+
+        Object instantiate() {
+            if (constructor == null) {
+                throw new IllegalArgumentException(
+                        "could not invoke default no-args constructor for "
+                                + klass);
+            }
+            try {
+                return constructor.newInstance();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void copyProperties(DeepCopy deepCopy, Object source, Object target) {
+            for (int i = 0; i < fields.length; i++) {
+                Object sourceValue = readFieldValue(source, fields[i]);
+                if (sourceValue != null) {
+                    try {
+                        writeFieldValue(target, fields[i],
+                                deepCopy.copy(sourceValue, strategies[i]));
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+        }
+
+        void callAfterCopyHooks(Object value) {
+            for (Method each : afterCopyHooks) {
+                try {
+                    each.invoke(value);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+
     private static boolean isEnum(Class<?> klass) {
         Class<?> currentClass = klass;
         do {
@@ -73,7 +201,7 @@ public class DeepCopy {
     }
 
     public interface ICustomCopy {
-        public boolean canHandle(Object object);
+        public boolean canHandle(Class<?> klass);
 
         public Object instantiateCopy(Strategy strategy, Object originValue);
 
@@ -84,8 +212,8 @@ public class DeepCopy {
     private static class DateCopy implements ICustomCopy {
 
         @Override
-        public boolean canHandle(Object object) {
-            return object instanceof Date;
+        public boolean canHandle(Class<?> klass) {
+            return Date.class.isAssignableFrom(klass);
         }
 
         @Override
@@ -140,8 +268,8 @@ public class DeepCopy {
     private static class SetCopy extends CollectionCopy {
 
         @Override
-        public boolean canHandle(Object object) {
-            return object instanceof Set;
+        public boolean canHandle(Class<?> klass) {
+            return Set.class.isAssignableFrom(klass);
         }
 
         @Override
@@ -164,8 +292,8 @@ public class DeepCopy {
 
     private static class MapCopy implements ICustomCopy {
         @Override
-        public boolean canHandle(Object object) {
-            return object instanceof Map;
+        public boolean canHandle(Class<?> klass) {
+            return Map.class.isAssignableFrom(klass);
         }
 
         @Override
@@ -219,8 +347,8 @@ public class DeepCopy {
     private static class ListCopy extends CollectionCopy {
 
         @Override
-        public boolean canHandle(Object object) {
-            return object instanceof List;
+        public boolean canHandle(Class<?> klass) {
+            return List.class.isAssignableFrom(klass);
         }
 
         @Override
@@ -277,38 +405,14 @@ public class DeepCopy {
             .<ICustomCopy> asList(new DateCopy(), new SetCopy(), new MapCopy(),
                     new ListCopy());
 
-    private Map<ByIdentity, Object> alreadyCopiedObjects = new HashMap<ByIdentity, Object>();
-
-    private static class ByIdentity {
-
-        private final Object wrapped;
-
-        ByIdentity(Object wrapped) {
-            Validate.notNull(wrapped);
-            this.wrapped = wrapped;
-        }
-
-        @Override
-        public int hashCode() {
-            return wrapped.hashCode();
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj instanceof ByIdentity) {
-                ByIdentity other = (ByIdentity) obj;
-                return this.wrapped == other.wrapped;
-            }
-            return false;
-        }
-    }
+    private static final int EXPECTED_COPIED_OBJECTS = 1024;
 
-    private ByIdentity byIdentity(Object value) {
-        return new ByIdentity(value);
-    }
+    /**
+     * The objects are compared by identity without calling their
+     * <code>hashCode</code>, that could be expensive or change while copying
+     */
+    private Map<Object, Object> alreadyCopiedObjects = new IdentityHashMap<Object, Object>(
+            EXPECTED_COPIED_OBJECTS);
 
     public <T> T copy(T entity) {
         return copy(entity, null);
@@ -319,23 +423,28 @@ public class DeepCopy {
             return null;
         }
         T value = desproxify(couldBeProxyValue);
-        if (alreadyCopiedObjects.containsKey(byIdentity(value))) {
-            return (T) alreadyCopiedObjects.get(byIdentity(value));
+        Object alreadyCopied = alreadyCopiedObjects.get(value);
+        if (alreadyCopied != null || alreadyCopiedObjects.containsKey(value)) {
+            return (T) alreadyCopied;
         }
-        if (Strategy.SHARE == strategy || isImmutable(value)) {
+        if (Strategy.SHARE == strategy) {
             return value;
         }
-        ICustomCopy copier = findCopier(value);
+        CopyPlan plan = getCopyPlan(value.getClass());
+        if (plan.isImmutable()) {
+            return value;
+        }
+        ICustomCopy copier = plan.getCustomCopy();
         if (copier != null) {
             Object resultData = copier.instantiateCopy(strategy, value);
-            alreadyCopiedObjects.put(byIdentity(value), resultData);
+            alreadyCopiedObjects.put(value, resultData);
             copier.copyDataToResult(this, value, strategy, resultData);
             return (T) resultData;
         }
-        T result = instantiateUsingDefaultConstructor(getTypedClassFrom(value));
-        alreadyCopiedObjects.put(byIdentity(value), result);
-        copyProperties(value, result);
-        callAferCopyHooks(result);
+        T result = (T) plan.instantiate();
+        alreadyCopiedObjects.put(value, result);
+        plan.copyProperties(this, value, result);
+        plan.callAfterCopyHooks(result);
         return result;
     }
 
@@ -348,55 +457,9 @@ public class DeepCopy {
         return value;
     }
 
-    private boolean isImmutable(Object value) {
-        return isImmutableType(value.getClass());
-    }
-
-    @SuppressWarnings("unchecked")
-    private <T> Class<T> getTypedClassFrom(T entity) {
-        return (Class<T>) entity.getClass();
-    }
-
-    private <T> T instantiateUsingDefaultConstructor(Class<T> klass) {
-        Constructor<T> constructor;
-        try {
-            constructor = klass.getConstructor();
-        } catch (SecurityException e) {
-            throw new RuntimeException(e);
-        } catch (NoSuchMethodException e) {
-            throw new IllegalArgumentException(
-                    "could not invoke default no-args constructor for "
-                            + klass, e);
-        }
-        try {
-            return constructor.newInstance();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private void copyProperties(Object source, Object target) {
-        List<Field> fields = getAllFieldsFor(source);
-        for (Field each : fields) {
-            each.setAccessible(true);
-            if (!isIgnored(each)) {
-                Object sourceValue = readFieldValue(source, each);
-                if (sourceValue != null) {
-                    Strategy strategy = getStrategy(each, sourceValue);
-                    try {
-                        writeFieldValue(target, each, copy(sourceValue, strategy));
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        throw new RuntimeException(e);
-                    }
-                }
-            }
-        }
-    }
-
-    private List<Field> getAllFieldsFor(Object source) {
+    private static List<Field> getAllFieldsFor(Class<?> klass) {
         List<Field> result = new ArrayList<Field>();
-        Class<? extends Object> currentClass = source.getClass();
+        Class<?> currentClass = klass;
         while (currentClass != null) {
             result.addAll(Arrays.asList(currentClass.getDeclaredFields()));
             currentClass = currentClass.getSuperclass();
@@ -404,20 +467,21 @@ public class DeepCopy {
         return result;
     }
 
-    private boolean isIgnored(Field field) {
+    private static boolean isIgnored(Field field) {
         return isStatic(field) || isMarkedWithIgnore(field);
     }
 
-    private boolean isStatic(Field field) {
+    private static boolean isStatic(Field field) {
         return Modifier.isStatic(field.getModifiers());
     }
 
-    private boolean isMarkedWithIgnore(Field each) {
+    private static boolean isMarkedWithIgnore(Field each) {
         OnCopy onCopy = each.getAnnotation(OnCopy.class);
         return onCopy != null && onCopy.value() == Strategy.IGNORE;
     }
 
-    private void writeFieldValue(Object target, Field field, Object value) {
+    private static void writeFieldValue(Object target, Field field,
+            Object value) {
         try {
             field.set(target, value);
         } catch (Exception e) {
@@ -425,7 +489,7 @@ public class DeepCopy {
         }
     }
 
-    private Object readFieldValue(Object source, Field field) {
+    private static Object readFieldValue(Object source, Field field) {
         try {
             return field.get(source);
         } catch (Exception e) {
@@ -433,33 +497,12 @@ public class DeepCopy {
         }
     }
 
-    private Strategy getStrategy(Field field, Object sourceValue) {
+    private static Strategy getStrategy(Field field) {
         OnCopy onCopy = field.getAnnotation(OnCopy.class);
         return onCopy != null ? onCopy.value() : null;
     }
 
-    private ICustomCopy findCopier(Object sourceValue) {
-        for (ICustomCopy each : DEFAULT_CUSTOM_COPIERS) {
-            if (each.canHandle(sourceValue)) {
-                return each;
-            }
-        }
-        return null;
-    }
-
-    private void callAferCopyHooks(Object value) {
-        assert value != null;
-        for (Method each : getAfterCopyHooks(value.getClass())) {
-            each.setAccessible(true);
-            try {
-                each.invoke(value);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }
-    }
-
-    private List<Method> getAfterCopyHooks(Class<?> klass) {
+    private static List<Method> getAfterCopyHooks(Class<?> klass) {
         Class<?> current = klass;
         List<Method> result = new ArrayList<Method>();
         while (current != null) {
@@ -469,23 +512,24 @@ public class DeepCopy {
         return result;
     }
 
-    private List<Method> getAfterCopyDeclaredAt(Class<?> klass) {
+    private static List<Method> getAfterCopyDeclaredAt(Class<?> klass) {
         List<Method> result = new ArrayList<Method>();
         for (Method each : klass.getDeclaredMethods()) {
             if (isAfterCopyHook(each)) {
+                each.setAccessible(true);
                 result.add(each);
             }
         }
         return result;
     }
 
-    private boolean isAfterCopyHook(Method each) {
+    private static boolean isAfterCopyHook(Method each) {
         AfterCopy annotation = each.getAnnotation(AfterCopy.class);
         return annotation != null;
     }
 
     public <T> DeepCopy replace(T toBeReplaced, T substitution) {
-        alreadyCopiedObjects.put(byIdentity(toBeReplaced), substitution);
+        alreadyCopiedObjects.put(toBeReplaced, substitution);
         return this;
     }
 }
@@ -21,6 +21,7 @@
 
 package org.libreplan.business.workreports.daos;
 
+import java.util.Date;
 import java.util.List;
 
 import org.joda.time.LocalDate;
@@ -62,4 +63,11 @@ public interface IWorkReportDAO extends IIntegrationEntityDAO<WorkReport> {
     List<WorkReport> findPersonalTimesheetsByResourceAndOrderElement(
             Resource resource);
 
+    /**
+     * Like {@link #scrollAll(IEntityConsumer)} but only for the work reports
+     * having any line with date equal or after <code>since</code>.
+     */
+    void scrollWithLinesSince(Date since,
+            IEntityConsumer<WorkReport> consumer);
+
 }
@@ -31,7 +31,11 @@ import java.util.Set;
 import org.hibernate.Criteria;
 import org.hibernate.NonUniqueResultException;
 import org.hibernate.Query;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.criterion.Subqueries;
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
@@ -205,4 +209,16 @@ public class WorkReportDAO extends IntegrationEntityDAO<WorkReport>
         return  criteria.list();
     }
 
+    @Override
+    public void scrollWithLinesSince(Date since,
+            IEntityConsumer<WorkReport> consumer) {
+        DetachedCriteria linesSince = DetachedCriteria
+                .forClass(WorkReportLine.class)
+                .add(Restrictions.ge("date", since))
+                .setProjection(Projections.property("workReport.id"));
+        scroll(getSession().createCriteria(WorkReport.class)
+                .add(Subqueries.propertyIn("id", linesSince))
+                .addOrder(Order.asc("code")), consumer);
+    }
+
 }
@@ -57,7 +57,7 @@ public class WorkReportTypeDAO extends IntegrationEntityDAO<WorkReportType>
     @Override
     public WorkReportType findUniqueByName(String name)
             throws InstanceNotFoundException, NonUniqueResultException {
-        Criteria c = getSession().createCriteria(WorkReportType.class);
+        Criteria c = createCacheableCriteria(WorkReportType.class);
         c.add(Restrictions.eq("name", name));
         WorkReportType workReportType = (WorkReportType) c.uniqueResult();
 
@@ -94,7 +94,7 @@ public class WorkReportTypeDAO extends IntegrationEntityDAO<WorkReportType>
     @Override
     public WorkReportType findUniqueByCode(String code)
             throws InstanceNotFoundException, NonUniqueResultException {
-        Criteria c = getSession().createCriteria(WorkReportType.class);
+        Criteria c = createCacheableCriteria(WorkReportType.class);
         c.add(Restrictions.eq("code", code));
         WorkReportType workReportType = (WorkReportType) c.uniqueResult();
 
@@ -122,7 +122,7 @@ public class WorkReportTypeDAO extends IntegrationEntityDAO<WorkReportType>
 
     @Override
     public List<WorkReportType> getWorkReportTypes() {
-        return list(WorkReportType.class);
+        return listCacheable(WorkReportType.class);
     }
 
 }
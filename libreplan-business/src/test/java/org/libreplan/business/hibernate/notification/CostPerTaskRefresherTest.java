@@ -0,0 +1,206 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.easymock.classextension.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots.CostPerTaskRefresher;
+import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots.ICostPerTask;
+import org.libreplan.business.planner.daos.IDayAssignmentDAO;
+import org.libreplan.business.planner.daos.ITaskElementDAO;
+import org.libreplan.business.planner.entities.DerivedDayAssignment;
+import org.libreplan.business.planner.entities.GenericDayAssignment;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.entities.TaskElement;
+
+/**
+ * Tests for {@link CostPerTaskRefresher}
+ */
+public class CostPerTaskRefresherTest {
+
+    private Task task1;
+
+    private Task task2;
+
+    private Map<TaskElement, SortedMap<LocalDate, BigDecimal>> previous;
+
+    private Set<Task> calculated;
+
+    private ITaskElementDAO taskElementDAO;
+
+    private IDayAssignmentDAO dayAssignmentDAO;
+
+    private ChangedEntities changes;
+
+    @Before
+    public void setUp() {
+        task1 = createTask(1L);
+        task2 = createTask(2L);
+        previous = new HashMap<TaskElement, SortedMap<LocalDate, BigDecimal>>();
+        previous.put(task1, costOf(0));
+        previous.put(task2, costOf(0));
+        calculated = new HashSet<Task>();
+        taskElementDAO = createMock(ITaskElementDAO.class);
+        dayAssignmentDAO = createMock(IDayAssignmentDAO.class);
+        changes = new ChangedEntities();
+    }
+
+    private static Task createTask(Long id) {
+        Task result = createNiceMock(Task.class);
+        expect(result.getId()).andReturn(id).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private static SortedMap<LocalDate, BigDecimal> costOf(long amount) {
+        SortedMap<LocalDate, BigDecimal> result = new TreeMap<LocalDate, BigDecimal>();
+        result.put(new LocalDate(2010, 1, 1), BigDecimal.valueOf(amount));
+        return result;
+    }
+
+    private ICostPerTask costPerTask(final boolean fullReload) {
+        return new ICostPerTask() {
+
+            @Override
+            public SortedMap<LocalDate, BigDecimal> calculate(Task task) {
+                calculated.add(task);
+                return costOf(task.getId() * 10);
+            }
+
+            @Override
+            public boolean needsFullReload(ChangedEntities changes) {
+                return fullReload;
+            }
+        };
+    }
+
+    private Map<TaskElement, SortedMap<LocalDate, BigDecimal>> refresh()
+            throws Exception {
+        replay(taskElementDAO, dayAssignmentDAO);
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = new CostPerTaskRefresher(
+                costPerTask(false), taskElementDAO, dayAssignmentDAO).refresh(
+                previous, changes);
+        verify(taskElementDAO, dayAssignmentDAO);
+        return result;
+    }
+
+    private void givenTasksOfDayAssignments(Set<Long> dayAssignmentIds,
+            Long... taskIds) {
+        expect(dayAssignmentDAO.findTaskIdsOf(dayAssignmentIds)).andReturn(
+                new HashSet<Long>(Arrays.asList(taskIds)));
+    }
+
+    @Test
+    public void changingOnlyDayAssignmentsRecalculatesTheirTasks()
+            throws Exception {
+        changes.insertedOrUpdated(SpecificDayAssignment.class, 100L);
+        givenTasksOfDayAssignments(Collections.singleton(100L), 1L);
+        expect(taskElementDAO.findByIds(Collections.singleton(1L)))
+                .andReturn(Arrays.<TaskElement> asList(task1));
+
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = refresh();
+
+        assertEquals(2, result.size());
+        assertEquals(costOf(10), result.get(task1));
+        assertSame(previous.get(task2), result.get(task2));
+        assertEquals(Collections.singleton(task1), calculated);
+    }
+
+    @Test
+    public void theDayAssignmentsOfAllKindsAreMappedToTheirTasks()
+            throws Exception {
+        changes.insertedOrUpdated(SpecificDayAssignment.class, 100L);
+        changes.insertedOrUpdated(GenericDayAssignment.class, 101L);
+        changes.insertedOrUpdated(DerivedDayAssignment.class, 102L);
+        givenTasksOfDayAssignments(
+                new HashSet<Long>(Arrays.asList(100L, 101L, 102L)), 1L, 2L);
+        expect(
+                taskElementDAO.findByIds(new HashSet<Long>(Arrays.asList(1L,
+                        2L)))).andReturn(
+                Arrays.<TaskElement> asList(task1, task2));
+
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = refresh();
+
+        assertEquals(costOf(10), result.get(task1));
+        assertEquals(costOf(20), result.get(task2));
+    }
+
+    @Test
+    public void deletingADayAssignmentRecalculatesAllTheTasks()
+            throws Exception {
+        changes.deleted(GenericDayAssignment.class, 100L);
+        expect(taskElementDAO.list(TaskElement.class)).andReturn(
+                Arrays.<TaskElement> asList(task1, task2));
+
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = refresh();
+
+        assertEquals(costOf(10), result.get(task1));
+        assertEquals(costOf(20), result.get(task2));
+        assertEquals(new HashSet<Task>(Arrays.asList(task1, task2)),
+                calculated);
+    }
+
+    @Test
+    public void withoutDayAssignmentChangesTheyAreNotQueried()
+            throws Exception {
+        changes.insertedOrUpdated(Task.class, 2L);
+        expect(taskElementDAO.findByIds(Collections.singleton(2L)))
+                .andReturn(Arrays.<TaskElement> asList(task2));
+
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = refresh();
+
+        assertSame(previous.get(task1), result.get(task1));
+        assertEquals(costOf(20), result.get(task2));
+    }
+
+    @Test
+    public void deletedTasksAreDropped() throws Exception {
+        changes.deleted(Task.class, 2L);
+
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = refresh();
+
+        assertEquals(Collections.singleton(task1), result.keySet());
+        assertTrue(calculated.isEmpty());
+    }
+
+}
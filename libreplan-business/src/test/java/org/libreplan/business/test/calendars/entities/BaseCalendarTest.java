@@ -912,4 +912,69 @@ public class BaseCalendarTest {
         AvailabilityTimeLine availability = calendar.getAvailability();
         assertFalse(availability.isValid(MONDAY_LOCAL_DATE));
     }
+
+    private static EffortDuration sumDayByDay(BaseCalendar calendar,
+            LocalDate init, LocalDate endInclusive) {
+        EffortDuration result = zero();
+        for (LocalDate current = init; current.compareTo(endInclusive) <= 0; current = current
+                .plusDays(1)) {
+            result = result.plus(calendar.getCapacityOn(wholeDay(current)));
+        }
+        return result;
+    }
+
+    @Test
+    public void theWorkableDurationOfAnIntervalIsTheSumOfTheCapacityOfEachDay() {
+        BaseCalendar baseCalendar = createChristmasCalendar();
+        BaseCalendar calendar = baseCalendar.newDerivedCalendar();
+        calendar.newVersion(WEDNESDAY_LOCAL_DATE);
+        setHoursForAllDays(calendar, 2);
+        addExceptionOn(calendar, FRIDAY_LOCAL_DATE.plusWeeks(3),
+                Capacity.create(hours(7)));
+
+        LocalDate init = MONDAY_LOCAL_DATE.minusWeeks(5).plusDays(3);
+        LocalDate end = CHRISTMAS_DAY_LOCAL_DATE.plusWeeks(2);
+        assertThat(calendar.getWorkableDuration(init, end),
+                equalTo(sumDayByDay(calendar, init, end)));
+        assertThat(baseCalendar.getWorkableDuration(init, end),
+                equalTo(sumDayByDay(baseCalendar, init, end)));
+    }
+
+    @Test
+    public void theCapacitiesAreUpdatedWhenTheParentIsModified() {
+        BaseCalendar baseCalendar = createBasicCalendar();
+        BaseCalendar calendar = baseCalendar.newDerivedCalendar();
+        assertThat(calendar.getWorkableHoursPerWeek(MONDAY_LOCAL_DATE),
+                equalTo(40));
+
+        baseCalendar.setCapacityAt(Days.SATURDAY,
+                withNormalDuration(hours(4)));
+        addExceptionOn(baseCalendar, MONDAY_LOCAL_DATE,
+                Capacity.create(hours(0)));
+
+        assertThat(calendar.getWorkableHoursPerWeek(MONDAY_LOCAL_DATE),
+                equalTo(36));
+        assertThat(calendar.getCapacityOn(wholeDay(MONDAY_LOCAL_DATE)),
+                equalTo(zero()));
+    }
+
+    @Test
+    public void theNonWorkableDaysIncludeWeekendsAndExceptions() {
+        BaseCalendar calendar = createChristmasCalendar();
+        LocalDate christmasWeek = CHRISTMAS_DAY_LOCAL_DATE.dayOfWeek()
+                .withMinimumValue();
+
+        Set<LocalDate> nonWorkableDays = calendar.getNonWorkableDays(
+                christmasWeek, christmasWeek.plusDays(6));
+
+        assertThat(nonWorkableDays.size(),
+                equalTo(isWeekend(CHRISTMAS_DAY_LOCAL_DATE) ? 2 : 3));
+        assertTrue(nonWorkableDays.contains(CHRISTMAS_DAY_LOCAL_DATE));
+        assertTrue(nonWorkableDays.contains(christmasWeek.plusDays(5)));
+        assertTrue(nonWorkableDays.contains(christmasWeek.plusDays(6)));
+    }
+
+    private static boolean isWeekend(LocalDate date) {
+        return date.getDayOfWeek() > 5;
+    }
 }
@@ -21,11 +21,16 @@
 
 package org.libreplan.business.test.materials.daos;
 
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import javax.annotation.Resource;
@@ -116,4 +121,25 @@ public class MaterialAssignmentDAOTest {
         assertTrue(materialAssignmentDAO.getByMaterial(assignment1.getMaterial()).contains(assignment2));
     }
 
+    @Test
+    @Transactional
+    public void testGetByIds() {
+        MaterialAssignment assignment1 = createValidMaterialAssignment();
+        MaterialAssignment assignment2 = createValidMaterialAssignment();
+        MaterialAssignment assignment3 = createValidMaterialAssignment();
+        materialAssignmentDAO.save(assignment1);
+        materialAssignmentDAO.save(assignment2);
+        materialAssignmentDAO.save(assignment3);
+
+        List<MaterialAssignment> result = materialAssignmentDAO
+                .getByIds(Arrays.asList(assignment3.getId(),
+                        assignment1.getId()));
+        assertThat(result.size(), equalTo(2));
+        assertTrue(result.contains(assignment1));
+        assertTrue(result.contains(assignment3));
+
+        assertTrue(materialAssignmentDAO.getByIds(
+                Collections.<Long> emptyList()).isEmpty());
+    }
+
 }
@@ -27,26 +27,44 @@ import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.UUID;
 
+import javax.annotation.Resource;
+
 import org.joda.time.LocalDate;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.libreplan.business.IDataBootstrap;
 import org.libreplan.business.calendars.daos.IBaseCalendarDAO;
 import org.libreplan.business.calendars.entities.BaseCalendar;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.exceptions.ValidationException;
+import org.libreplan.business.costcategories.daos.ITypeOfWorkHoursDAO;
+import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
 import org.libreplan.business.externalcompanies.entities.DeadlineCommunication;
 import org.libreplan.business.orders.daos.IOrderDAO;
 import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.orders.entities.OrderLine;
+import org.libreplan.business.resources.daos.IResourceDAO;
+import org.libreplan.business.resources.entities.Worker;
 import org.libreplan.business.scenarios.IScenarioManager;
 import org.libreplan.business.scenarios.bootstrap.IScenariosBootstrap;
 import org.libreplan.business.scenarios.entities.OrderVersion;
 import org.libreplan.business.test.calendars.entities.BaseCalendarTest;
 import org.libreplan.business.test.planner.daos.ResourceAllocationDAOTest;
+import org.libreplan.business.test.resources.daos.ResourceDAOTest;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workreports.daos.IWorkReportDAO;
+import org.libreplan.business.workreports.daos.IWorkReportTypeDAO;
+import org.libreplan.business.workreports.entities.WorkReport;
+import org.libreplan.business.workreports.entities.WorkReportLine;
+import org.libreplan.business.workreports.entities.WorkReportType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -67,6 +85,7 @@ public class OrderDAOTest {
         transactionService.runOnAnotherTransaction(new IOnTransaction<Void>() {
             @Override
             public Void execute() {
+                configurationBootstrap.loadRequiredData();
                 scenariosBootstrap.loadRequiredData();
                 return null;
             }
@@ -88,6 +107,21 @@ public class OrderDAOTest {
     @Autowired
     private IAdHocTransactionService transactionService;
 
+    @Autowired
+    private IResourceDAO resourceDAO;
+
+    @Autowired
+    private ITypeOfWorkHoursDAO typeOfWorkHoursDAO;
+
+    @Autowired
+    private IWorkReportTypeDAO workReportTypeDAO;
+
+    @Autowired
+    private IWorkReportDAO workReportDAO;
+
+    @Resource
+    private IDataBootstrap configurationBootstrap;
+
     @Test
     @Transactional
     public void testInSpringContainer() {
@@ -207,4 +241,89 @@ public class OrderDAOTest {
         });
     }
 
+    private static final LocalDate firstDay = new LocalDate(1990, 1, 8);
+
+    private static Date dayAfterFirst(int days) {
+        return firstDay.plusDays(days).toDateTimeAtStartOfDay().toDate();
+    }
+
+    private OrderLine addOrderLine(Order order, String name) {
+        OrderLine result = OrderLine.createOrderLineWithUnfixedPercentage(10);
+        result.setName(name + UUID.randomUUID());
+        result.setCode(UUID.randomUUID().toString());
+        order.add(result);
+        return result;
+    }
+
+    /**
+     * Stores a work report with a line of one hour for a new worker in each of
+     * the <code>days</code> after {@link #firstDay}
+     */
+    private void givenStoredWorkReportLines(OrderLine orderLine,
+            Integer... days) {
+        Worker worker = ResourceDAOTest.givenValidWorker();
+        resourceDAO.save(worker);
+        WorkReportType workReportType = WorkReportType.create(UUID
+                .randomUUID().toString(), UUID.randomUUID().toString());
+        workReportTypeDAO.save(workReportType);
+        TypeOfWorkHours typeOfWorkHours = TypeOfWorkHours.create(UUID
+                .randomUUID().toString(), UUID.randomUUID().toString());
+        typeOfWorkHours.setDefaultPrice(BigDecimal.TEN);
+        typeOfWorkHoursDAO.save(typeOfWorkHours);
+        WorkReport workReport = WorkReport.create(workReportType);
+        for (Integer each : days) {
+            WorkReportLine line = WorkReportLine.create(workReport);
+            workReport.addWorkReportLine(line);
+            line.setDate(dayAfterFirst(each));
+            line.setEffort(EffortDuration.hours(1));
+            line.setResource(worker);
+            line.setOrderElement(orderLine);
+            line.setTypeOfWorkHours(typeOfWorkHours);
+        }
+        workReportDAO.save(workReport);
+        workReportDAO.flush();
+    }
+
+    @Test
+    @Transactional
+    public void testGetOrderElementsWithCostsByPagesOrderedByName() {
+        Order order = createValidOrder("order" + UUID.randomUUID());
+        OrderLine second = addOrderLine(order, "b");
+        OrderLine first = addOrderLine(order, "a");
+        addOrderLine(order, "c");
+        orderDAO.save(order);
+        givenStoredWorkReportLines(second, 0, 1);
+        givenStoredWorkReportLines(first, 2);
+
+        assertThat(orderDAO.getOrderElementsWithCosts(dayAfterFirst(0),
+                dayAfterFirst(2), 0, 10),
+                equalTo(Arrays.<OrderElement> asList(first, second)));
+        assertThat(orderDAO.getOrderElementsWithCosts(dayAfterFirst(0),
+                dayAfterFirst(2), 0, 1),
+                equalTo(Arrays.<OrderElement> asList(first)));
+        assertThat(orderDAO.getOrderElementsWithCosts(dayAfterFirst(0),
+                dayAfterFirst(2), 1, 1),
+                equalTo(Arrays.<OrderElement> asList(second)));
+        assertTrue(orderDAO.getOrderElementsWithCosts(dayAfterFirst(0),
+                dayAfterFirst(2), 2, 1).isEmpty());
+    }
+
+    @Test
+    @Transactional
+    public void testGetOrderElementsWithCostsBetweenTheDates() {
+        Order order = createValidOrder("order" + UUID.randomUUID());
+        OrderLine second = addOrderLine(order, "b");
+        OrderLine first = addOrderLine(order, "a");
+        orderDAO.save(order);
+        givenStoredWorkReportLines(second, 0, 1);
+        givenStoredWorkReportLines(first, 2);
+
+        assertThat(orderDAO.getOrderElementsWithCosts(dayAfterFirst(1),
+                dayAfterFirst(1), 0, 10),
+                equalTo(Arrays.<OrderElement> asList(second)));
+        assertThat(orderDAO.getOrderElementsWithCosts(dayAfterFirst(2),
+                null, 0, 10),
+                equalTo(Arrays.<OrderElement> asList(first)));
+    }
+
 }
@@ -55,6 +55,8 @@ import org.libreplan.business.advance.exceptions.DuplicateAdvanceAssignmentForOr
 import org.libreplan.business.advance.exceptions.DuplicateValueTrueReportGlobalAdvanceException;
 import org.libreplan.business.calendars.daos.IBaseCalendarDAO;
 import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.labels.daos.ILabelDAO;
@@ -130,6 +132,9 @@ public class OrderElementDAOTest {
     @Autowired
     private ICriterionTypeDAO criterionTypeDAO;
 
+    @Autowired
+    private IAdHocTransactionService transactionService;
+
     @Before
     public void loadRequiredData() {
         scenariosBootstrap.loadRequiredData();
@@ -752,4 +757,129 @@ public class OrderElementDAOTest {
         assertEquals(orderLine3.getId(), orderELements.get(0).getId());
     }
 
+    private Long givenStoredOrderWithLines(final String... codes) {
+        return transactionService
+                .runOnAnotherTransaction(new IOnTransaction<Long>() {
+                    @Override
+                    public Long execute() {
+                        Order order = createValidOrder();
+                        for (String each : codes) {
+                            order.add(createStandAloneLine(each, each));
+                        }
+                        orderElementDAO.save(order);
+                        orderElementDAO.flush();
+                        return order.getId();
+                    }
+                });
+    }
+
+    private Set<String> findCodesInAnotherOrderAfter(final Long orderId,
+            final IOnOrder modification) {
+        return transactionService
+                .runOnAnotherReadOnlyTransaction(new IOnTransaction<Set<String>>() {
+                    @Override
+                    public Set<String> execute() {
+                        Order order = (Order) orderElementDAO
+                                .findExistingEntity(orderId);
+                        modification.modify(order);
+                        return orderElementDAO
+                                .findCodesInAnotherOrderAnotherTransaction(order);
+                    }
+                });
+    }
+
+    private interface IOnOrder {
+
+        void modify(Order order);
+    }
+
+    private static OrderElement childWithCode(Order order, String code) {
+        for (OrderElement each : order.getChildren()) {
+            if (code.equals(each.getCode())) {
+                return each;
+            }
+        }
+        throw new IllegalArgumentException("no child with code " + code);
+    }
+
+    @Test
+    public void testCodeMovedToAnotherElementOfTheSameOrderIsNotReported() {
+        final String code1 = UUID.randomUUID().toString();
+        final String code2 = UUID.randomUUID().toString();
+        Long orderId = givenStoredOrderWithLines(code1, code2);
+
+        Set<String> found = findCodesInAnotherOrderAfter(orderId,
+                new IOnOrder() {
+                    @Override
+                    public void modify(Order order) {
+                        OrderElement first = childWithCode(order, code1);
+                        OrderElement second = childWithCode(order, code2);
+                        first.setCode(UUID.randomUUID().toString());
+                        second.setCode(code1);
+                    }
+                });
+
+        assertTrue(found.isEmpty());
+    }
+
+    @Test
+    public void testCodeMovedToANewElementOfTheSameOrderIsNotReported() {
+        final String code = UUID.randomUUID().toString();
+        Long orderId = givenStoredOrderWithLines(code);
+
+        Set<String> found = findCodesInAnotherOrderAfter(orderId,
+                new IOnOrder() {
+                    @Override
+                    public void modify(Order order) {
+                        order.remove(childWithCode(order, code));
+                        order.add(createStandAloneLine(code, code));
+                    }
+                });
+
+        assertTrue(found.isEmpty());
+    }
+
+    @Test
+    public void testCodeUsedInAnotherOrderIsReported() {
+        final String usedCode = UUID.randomUUID().toString();
+        givenStoredOrderWithLines(usedCode);
+        final String ownCode = UUID.randomUUID().toString();
+        Long orderId = givenStoredOrderWithLines(ownCode);
+
+        Set<String> found = findCodesInAnotherOrderAfter(orderId,
+                new IOnOrder() {
+                    @Override
+                    public void modify(Order order) {
+                        order.add(createStandAloneLine(usedCode, usedCode));
+                    }
+                });
+
+        assertThat(found, equalTo(Collections.singleton(usedCode)));
+    }
+
+    @Test
+    public void testCodesOfANewOrderUsedInAnotherOrderAreReported() {
+        final String usedCode = UUID.randomUUID().toString();
+        givenStoredOrderWithLines(usedCode);
+        final String newCode = UUID.randomUUID().toString();
+
+        Set<String> found = transactionService
+                .runOnAnotherReadOnlyTransaction(new IOnTransaction<Set<String>>() {
+                    @Override
+                    public Set<String> execute() {
+                        Order order = Order.create();
+                        order.setName(UUID.randomUUID().toString());
+                        order.setCode(UUID.randomUUID().toString());
+                        order.useSchedulingDataFor(ResourceAllocationDAOTest
+                                .setupVersionUsing(scenarioManager, order));
+                        order.add(createStandAloneLine(newCode, newCode));
+                        order.add(createStandAloneLine(usedCode, usedCode));
+                        return orderElementDAO
+                                .findCodesInAnotherOrderAnotherTransaction(order);
+                    }
+                });
+
+        assertThat(found, equalTo(Collections.singleton(usedCode)));
+    }
+
 }
@@ -0,0 +1,305 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.orders.daos;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
+import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Resource;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.libreplan.business.IDataBootstrap;
+import org.libreplan.business.calendars.daos.IBaseCalendarDAO;
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.costcategories.daos.ITypeOfWorkHoursDAO;
+import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
+import org.libreplan.business.orders.daos.IOrderElementDAO;
+import org.libreplan.business.orders.daos.ISumChargedEffortDAO;
+import org.libreplan.business.orders.daos.SumChargedEffortDAO;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.orders.entities.OrderLine;
+import org.libreplan.business.orders.entities.OrderLineGroup;
+import org.libreplan.business.orders.entities.SumChargedEffort;
+import org.libreplan.business.resources.daos.IResourceDAO;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.bootstrap.IScenariosBootstrap;
+import org.libreplan.business.test.calendars.entities.BaseCalendarTest;
+import org.libreplan.business.test.planner.daos.ResourceAllocationDAOTest;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workreports.daos.IWorkReportDAO;
+import org.libreplan.business.workreports.daos.IWorkReportTypeDAO;
+import org.libreplan.business.workreports.entities.WorkReport;
+import org.libreplan.business.workreports.entities.WorkReportLine;
+import org.libreplan.business.workreports.entities.WorkReportType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test cases for {@link SumChargedEffortDAO}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { BUSINESS_SPRING_CONFIG_FILE,
+        BUSINESS_SPRING_CONFIG_TEST_FILE })
+@Transactional
+public class SumChargedEffortDAOTest {
+
+    @Resource
+    private IDataBootstrap defaultAdvanceTypesBootstrapListener;
+
+    @Resource
+    private IDataBootstrap configurationBootstrap;
+
+    @Autowired
+    private IScenariosBootstrap scenariosBootstrap;
+
+    @Autowired
+    private IScenarioManager scenarioManager;
+
+    @Autowired
+    private ISumChargedEffortDAO sumChargedEffortDAO;
+
+    @Autowired
+    private IOrderElementDAO orderElementDAO;
+
+    @Autowired
+    private IBaseCalendarDAO calendarDAO;
+
+    @Autowired
+    private IWorkReportDAO workReportDAO;
+
+    @Autowired
+    private IWorkReportTypeDAO workReportTypeDAO;
+
+    @Autowired
+    private ITypeOfWorkHoursDAO typeOfWorkHoursDAO;
+
+    @Autowired
+    private IResourceDAO resourceDAO;
+
+    private Order order;
+
+    private OrderLineGroup group;
+
+    private OrderLine lineInGroup;
+
+    private OrderLine otherLineInGroup;
+
+    private OrderLine line;
+
+    private WorkReport workReport;
+
+    private Worker worker;
+
+    private TypeOfWorkHours typeOfWorkHours;
+
+    @Before
+    public void loadRequiredData() {
+        defaultAdvanceTypesBootstrapListener.loadRequiredData();
+        configurationBootstrap.loadRequiredData();
+        scenariosBootstrap.loadRequiredData();
+    }
+
+    private void givenAnOrderWithAGroup() {
+        order = Order.create();
+        order.setName(UUID.randomUUID().toString());
+        order.setCode(UUID.randomUUID().toString());
+        order.setInitDate(new Date());
+        BaseCalendar calendar = BaseCalendarTest.createBasicCalendar();
+        calendarDAO.save(calendar);
+        order.setCalendar(calendar);
+        ResourceAllocationDAOTest.setupVersionUsing(scenarioManager, order);
+
+        group = OrderLineGroup.create();
+        group.setName(UUID.randomUUID().toString());
+        group.setCode(UUID.randomUUID().toString());
+        order.add(group);
+        lineInGroup = createLine();
+        group.add(lineInGroup);
+        otherLineInGroup = createLine();
+        group.add(otherLineInGroup);
+        line = createLine();
+        order.add(line);
+
+        orderElementDAO.save(order);
+        orderElementDAO.flush();
+    }
+
+    private OrderLine createLine() {
+        OrderLine result = OrderLine.createOrderLineWithUnfixedPercentage(10);
+        result.setName(UUID.randomUUID().toString());
+        result.setCode(UUID.randomUUID().toString());
+        return result;
+    }
+
+    private void givenAWorkReport() {
+        WorkReportType workReportType = WorkReportType.create(UUID
+                .randomUUID().toString(), UUID.randomUUID().toString());
+        workReportTypeDAO.save(workReportType);
+        workReport = WorkReport.create(workReportType);
+
+        worker = Worker.create();
+        worker.setFirstName(UUID.randomUUID().toString());
+        worker.setSurname(UUID.randomUUID().toString());
+        worker.setNif(UUID.randomUUID().toString());
+        resourceDAO.save(worker);
+
+        typeOfWorkHours = TypeOfWorkHours.create(UUID.randomUUID().toString(),
+                UUID.randomUUID().toString());
+        typeOfWorkHours.setDefaultPrice(BigDecimal.TEN);
+        typeOfWorkHoursDAO.save(typeOfWorkHours);
+    }
+
+    private WorkReportLine addLine(OrderElement orderElement, LocalDate date,
+            int hours, boolean finished) {
+        WorkReportLine result = WorkReportLine.create(workReport);
+        workReport.addWorkReportLine(result);
+        result.setDate(date.toDateTimeAtStartOfDay().toDate());
+        result.setEffort(EffortDuration.hours(hours));
+        result.setResource(worker);
+        result.setOrderElement(orderElement);
+        result.setTypeOfWorkHours(typeOfWorkHours);
+        result.setFinished(finished);
+        return result;
+    }
+
+    /**
+     * Saves the work report calculating the {@link SumChargedEffort} element
+     * by element, like it's done when a work report is saved
+     */
+    private void saveCalculatingPerElement() {
+        sumChargedEffortDAO
+                .updateRelatedSumChargedEffortWithWorkReportLineSet(workReport
+                        .getWorkReportLines());
+        workReportDAO.save(workReport);
+        orderElementDAO.flush();
+
+        Set<OrderElement> charged = new HashSet<OrderElement>();
+        for (WorkReportLine each : workReport.getWorkReportLines()) {
+            charged.add(each.getOrderElement());
+        }
+        sumChargedEffortDAO.recalculateTimesheetData(charged);
+        orderElementDAO.flush();
+    }
+
+    private List<OrderElement> allElements() {
+        return Arrays.<OrderElement> asList(order, group, lineInGroup,
+                otherLineInGroup, line);
+    }
+
+    private Map<OrderElement, List<Object>> storedValues() {
+        Map<OrderElement, List<Object>> result = new HashMap<OrderElement, List<Object>>();
+        for (OrderElement each : allElements()) {
+            SumChargedEffort sum = sumChargedEffortDAO
+                    .findByOrderElement(each);
+            if (sum == null || sum.isZero()) {
+                result.put(each, null);
+                continue;
+            }
+            result.put(each, Arrays.<Object> asList(
+                    sum.getDirectChargedEffort(),
+                    sum.getIndirectChargedEffort(),
+                    timeOf(sum.getFirstTimesheetDate()),
+                    timeOf(sum.getLastTimesheetDate()),
+                    Boolean.TRUE.equals(sum.isFinishedTimesheets())));
+        }
+        return result;
+    }
+
+    private static Long timeOf(Date date) {
+        return date == null ? null : date.getTime();
+    }
+
+    private void resetStoredValues() {
+        for (OrderElement each : allElements()) {
+            SumChargedEffort sum = sumChargedEffortDAO
+                    .findByOrderElement(each);
+            if (sum != null) {
+                sum.reset();
+                sum.setFinishedTimesheets(false);
+                sumChargedEffortDAO.save(sum);
+            }
+        }
+        orderElementDAO.flush();
+    }
+
+    private void assertBulkRecalculationMatchesPerElementCalculation() {
+        saveCalculatingPerElement();
+        Map<OrderElement, List<Object>> perElement = storedValues();
+
+        resetStoredValues();
+        sumChargedEffortDAO.recalculateSumChargedEfforts(order.getId());
+
+        assertThat(storedValues(), equalTo(perElement));
+    }
+
+    @Test
+    public void theBulkRecalculationMatchesThePerElementCalculation() {
+        givenAnOrderWithAGroup();
+        givenAWorkReport();
+        LocalDate today = new LocalDate();
+        addLine(lineInGroup, today.minusDays(3), 4, false);
+        addLine(lineInGroup, today, 2, true);
+        addLine(otherLineInGroup, today.minusDays(5), 3, false);
+        addLine(line, today.plusDays(1), 8, false);
+        addLine(order, today.minusDays(1), 1, false);
+
+        assertBulkRecalculationMatchesPerElementCalculation();
+
+        SumChargedEffort ofOrder = sumChargedEffortDAO
+                .findByOrderElement(order);
+        assertThat(ofOrder.getTotalChargedEffort(),
+                equalTo(EffortDuration.hours(18)));
+    }
+
+    @Test
+    public void theBulkRecalculationKeepsTheElementsWithoutWorkReportLines() {
+        givenAnOrderWithAGroup();
+        givenAWorkReport();
+        addLine(lineInGroup, new LocalDate(), 5, false);
+
+        assertBulkRecalculationMatchesPerElementCalculation();
+
+        SumChargedEffort ofLine = sumChargedEffortDAO.findByOrderElement(line);
+        assertTrue(ofLine == null || ofLine.isZero());
+    }
+
+}
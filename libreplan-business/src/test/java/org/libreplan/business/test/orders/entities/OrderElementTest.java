@@ -1188,6 +1188,55 @@ public class OrderElementTest {
                 .getAdvanceType(), equalTo(advanceType2));
     }
 
+    @Test
+    @Transactional
+    public void checkAdvancePercentageAtDateIsUpdatedWhenChildrenChange()
+            throws DuplicateValueTrueReportGlobalAdvanceException,
+            DuplicateAdvanceAssignmentForOrderElementException {
+        OrderLineGroup orderLineGroup = givenOrderLineGroupWithTwoOrderLines(
+                1000, 2000);
+        List<OrderElement> children = orderLineGroup.getChildren();
+        LocalDate today = new LocalDate();
+
+        AdvanceType advanceType1 = AdvanceType.create("test1", new BigDecimal(
+                10000), true, new BigDecimal(1), true, false);
+        addAvanceAssignmentWithMeasurement(children.get(0), advanceType1,
+                new BigDecimal(1000), new BigDecimal(600), true, today);
+
+        for (IndirectAdvanceAssignment each : orderLineGroup
+                .getIndirectAdvanceAssignments()) {
+            each.setReportGlobalAdvance(each.getAdvanceType().getUnitName()
+                    .equals(PredefinedAdvancedTypes.CHILDREN.getTypeName()));
+        }
+        assertThat(orderLineGroup.getAdvancePercentage(today),
+                equalTo(new BigDecimal("0.2000")));
+
+        // the assignment already has its measurement, so only adding it can
+        // discard the percentages calculated before
+        AdvanceType advanceType2 = AdvanceType.create("test2", new BigDecimal(
+                10000), true, new BigDecimal(1), true, false);
+        AdvanceMeasurement advanceMeasurement = AdvanceMeasurement.create();
+        advanceMeasurement.setDate(today);
+        advanceMeasurement.setValue(new BigDecimal(300));
+        DirectAdvanceAssignment newAdvanceAssignment = givenAdvanceAssigement(
+                new BigDecimal(2000), advanceType2);
+        newAdvanceAssignment.addAdvanceMeasurements(advanceMeasurement);
+        children.get(1).addAdvanceAssignment(newAdvanceAssignment);
+        assertThat(orderLineGroup.getAdvancePercentage(today),
+                equalTo(new BigDecimal("0.3000")));
+
+        DirectAdvanceAssignment advanceAssignment = children.get(0)
+                .getReportGlobalAdvanceAssignment();
+        advanceAssignment.getLastAdvanceMeasurement().setValue(
+                new BigDecimal(900));
+        assertThat(orderLineGroup.getAdvancePercentage(today),
+                equalTo(new BigDecimal("0.4000")));
+
+        ((OrderLine) children.get(1)).setWorkHours(1000);
+        assertThat(orderLineGroup.getAdvancePercentage(today),
+                equalTo(new BigDecimal("0.5250")));
+    }
+
     @Test
     @Transactional
     public void checkPositiveBudgetInOrderLine() {
@@ -0,0 +1,132 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2011 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.chart;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+import static org.libreplan.business.workingday.EffortDuration.zero;
+
+import java.util.SortedMap;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.planner.chart.ContiguousDaysLine;
+import org.libreplan.business.planner.chart.EffortDurationDaysLine;
+import org.libreplan.business.workingday.EffortDuration;
+
+public class EffortDurationDaysLineTest {
+
+    private static final LocalDate someDate = new LocalDate(2002, 2, 10);
+
+    private static EffortDurationDaysLine lineWith(int... hoursPerDay) {
+        EffortDurationDaysLine result = EffortDurationDaysLine.create(
+                someDate, someDate.plusDays(hoursPerDay.length));
+        for (int i = 0; i < hoursPerDay.length; i++) {
+            result.set(someDate.plusDays(i), hours(hoursPerDay[i]));
+        }
+        return result;
+    }
+
+    private static void assertHours(EffortDurationDaysLine line,
+            int... hoursPerDay) {
+        assertThat(line.size(), equalTo(hoursPerDay.length));
+        for (int i = 0; i < hoursPerDay.length; i++) {
+            assertThat(line.get(line.getStart().plusDays(i)),
+                    equalTo(hours(hoursPerDay[i])));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aLineCannotBeCreatedWithAStartBeforeTheEnd() {
+        EffortDurationDaysLine.create(someDate, someDate.minusDays(1));
+    }
+
+    @Test
+    public void initiallyTheValuesAreZero() {
+        EffortDurationDaysLine line = EffortDurationDaysLine.create(someDate,
+                someDate.plusDays(3));
+        for (int i = 0; i < 3; i++) {
+            assertThat(line.get(someDate.plusDays(i)), equalTo(zero()));
+        }
+    }
+
+    @Test
+    public void theOperationsAreDoneDayByDay() {
+        EffortDurationDaysLine a = lineWith(1, 5, 3);
+        EffortDurationDaysLine b = lineWith(2, 4, 3);
+        assertHours(EffortDurationDaysLine.sum(a, b), 3, 9, 6);
+        assertHours(EffortDurationDaysLine.min(a, b), 1, 4, 3);
+        assertHours(EffortDurationDaysLine.substract(a, b), 0, 1, 0);
+        assertThat(a.sumAll(), equalTo(hours(9)));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void theSumOfAllTheDaysCannotOverflow() {
+        EffortDurationDaysLine line = EffortDurationDaysLine.create(someDate,
+                someDate.plusDays(2));
+        line.setSeconds(someDate, Integer.MAX_VALUE);
+        line.setSeconds(someDate.plusDays(1), 1);
+        line.sumAll();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void theLinesJoinedMustHaveTheSameDays() {
+        EffortDurationDaysLine.sum(lineWith(1, 2), lineWith(1, 2, 3));
+    }
+
+    @Test
+    public void aSubIntervalIsAViewOfTheOriginalLine() {
+        EffortDurationDaysLine line = lineWith(1, 2, 3, 4);
+        EffortDurationDaysLine subInterval = line.subInterval(
+                someDate.plusDays(1), someDate.plusDays(3));
+        assertThat(subInterval.getStart(), equalTo(someDate.plusDays(1)));
+        assertHours(subInterval, 2, 3);
+
+        subInterval.set(someDate.plusDays(2), hours(7));
+        assertThat(line.get(someDate.plusDays(2)), equalTo(hours(7)));
+    }
+
+    @Test
+    public void aSubIntervalOutsideTheLineIsInvalid() {
+        EffortDurationDaysLine line = lineWith(1, 2);
+        assertTrue(line.subInterval(someDate.plusDays(5),
+                someDate.plusDays(8)).isNotValid());
+    }
+
+    @Test
+    public void canBeConvertedFromAndToContiguousDaysLine() {
+        ContiguousDaysLine<EffortDuration> original = ContiguousDaysLine
+                .create(someDate, someDate.plusDays(2));
+        original.set(someDate, hours(3));
+        EffortDurationDaysLine line = EffortDurationDaysLine.from(original);
+        assertHours(line, 3, 0);
+
+        SortedMap<LocalDate, EffortDuration> map = line.toSortedMap();
+        assertThat(map.size(), equalTo(2));
+        assertThat(map.get(someDate), equalTo(hours(3)));
+        assertThat(line.toContiguousDaysLine().get(someDate.plusDays(1)),
+                equalTo(zero()));
+    }
+
+}
@@ -0,0 +1,386 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.daos;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
+import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.Resource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.libreplan.business.IDataBootstrap;
+import org.libreplan.business.common.daos.IConfigurationDAO;
+import org.libreplan.business.labels.daos.ILabelDAO;
+import org.libreplan.business.labels.daos.ILabelTypeDAO;
+import org.libreplan.business.labels.entities.Label;
+import org.libreplan.business.labels.entities.LabelType;
+import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.entities.HoursGroup;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.orders.entities.OrderLine;
+import org.libreplan.business.orders.entities.TaskSource;
+import org.libreplan.business.orders.entities.TaskSource.TaskSourceSynchronization;
+import org.libreplan.business.planner.daos.IPlanningDataBatchLoader;
+import org.libreplan.business.planner.daos.ITaskElementDAO;
+import org.libreplan.business.planner.daos.ITaskSourceDAO;
+import org.libreplan.business.planner.daos.PlanningDataBatchLoader;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.Dependency;
+import org.libreplan.business.planner.entities.Dependency.Type;
+import org.libreplan.business.planner.entities.GenericResourceAllocation;
+import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.entities.TaskElement;
+import org.libreplan.business.planner.entities.TaskGroup;
+import org.libreplan.business.resources.daos.IResourceDAO;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.bootstrap.IScenariosBootstrap;
+import org.libreplan.business.scenarios.daos.IScenarioDAO;
+import org.libreplan.business.scenarios.entities.OrderVersion;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate;
+import org.libreplan.business.workingday.ResourcesPerDay;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test cases for {@link PlanningDataBatchLoader}. The planning data of an
+ * order is described navigating its associations after loading it lazily and
+ * after loading it in batch. Both descriptions must be equal and the second
+ * one must not hit the database.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { BUSINESS_SPRING_CONFIG_FILE,
+        BUSINESS_SPRING_CONFIG_TEST_FILE })
+@Transactional
+public class PlanningDataBatchLoaderTest {
+
+    @Resource
+    private IDataBootstrap configurationBootstrap;
+
+    @Autowired
+    private IScenariosBootstrap scenariosBootstrap;
+
+    @Autowired
+    private IScenarioManager scenarioManager;
+
+    @Autowired
+    private IScenarioDAO scenarioDAO;
+
+    @Autowired
+    private IPlanningDataBatchLoader planningDataBatchLoader;
+
+    @Autowired
+    private ITaskElementDAO taskElementDAO;
+
+    @Autowired
+    private ITaskSourceDAO taskSourceDAO;
+
+    @Autowired
+    private IOrderDAO orderDAO;
+
+    @Autowired
+    private IResourceDAO resourceDAO;
+
+    @Autowired
+    private ILabelTypeDAO labelTypeDAO;
+
+    @Autowired
+    private ILabelDAO labelDAO;
+
+    @Autowired
+    private IConfigurationDAO configurationDAO;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Before
+    public void loadRequiredData() {
+        configurationBootstrap.loadRequiredData();
+        scenariosBootstrap.loadRequiredData();
+    }
+
+    private Label givenStoredLabel() {
+        LabelType labelType = LabelType.create(UUID.randomUUID().toString());
+        labelTypeDAO.save(labelType);
+        Label label = Label.create(UUID.randomUUID().toString());
+        label.setType(labelType);
+        labelDAO.save(label);
+        return label;
+    }
+
+    private Order givenStoredOrderWithLines(int lines) {
+        Order order = Order.create();
+        OrderVersion orderVersion = ResourceAllocationDAOTest
+                .setupVersionUsing(scenarioManager, order);
+        order.setName("order-" + UUID.randomUUID());
+        order.setInitDate(new Date());
+        order.setCode("code-" + UUID.randomUUID());
+        order.useSchedulingDataFor(orderVersion);
+        order.setCalendar(configurationDAO.getConfiguration()
+                .getDefaultCalendar());
+        for (int i = 0; i < lines; i++) {
+            HoursGroup hoursGroup = new HoursGroup();
+            hoursGroup.setCode("hours-group-code-" + UUID.randomUUID());
+            OrderLine orderLine = OrderLine.create();
+            orderLine.setName("line-" + i);
+            orderLine.setCode("code-" + UUID.randomUUID());
+            orderLine.addHoursGroup(hoursGroup);
+            order.add(orderLine);
+        }
+        order.addLabel(givenStoredLabel());
+        order.getChildren().get(0).addLabel(givenStoredLabel());
+        order.useSchedulingDataFor(orderVersion);
+        orderDAO.save(order);
+        for (TaskSourceSynchronization each : order
+                .calculateSynchronizationsNeeded()) {
+            each.apply(TaskSource.persistTaskSources(taskSourceDAO));
+        }
+        sessionFactory.getCurrentSession().flush();
+        return order;
+    }
+
+    private static List<Task> tasksOf(Order order) {
+        List<Task> result = new ArrayList<Task>();
+        for (TaskElement each : order.getAssociatedTaskElement()
+                .getChildren()) {
+            result.add((Task) each);
+        }
+        return result;
+    }
+
+    private Worker createWorker() {
+        Worker result = Worker.create();
+        result.setFirstName(UUID.randomUUID().toString());
+        result.setSurname(UUID.randomUUID().toString());
+        result.setNif(UUID.randomUUID().toString());
+        resourceDAO.save(result);
+        return result;
+    }
+
+    private void givenAllocationsAndDependencies(Order order) {
+        Worker worker = createWorker();
+        List<Task> tasks = tasksOf(order);
+        for (Task each : tasks.subList(0, 2)) {
+            SpecificResourceAllocation allocation = SpecificResourceAllocation
+                    .create(each);
+            allocation.setResource(worker);
+            LocalDate start = each.getStartAsLocalDate();
+            each.setIntraDayEndDate(IntraDayDate.startOfDay(start
+                    .plusDays(3)));
+            allocation.onIntervalWithinTask(start, start.plusDays(3))
+                    .allocateHours(24);
+            each.addResourceAllocation(allocation);
+        }
+        Task last = tasks.get(tasks.size() - 1);
+        last.addResourceAllocation(GenericResourceAllocation.createForTesting(
+                ResourcesPerDay.amount(1), last));
+        Dependency.create(tasks.get(0), tasks.get(1), Type.END_START);
+        for (Task each : tasks) {
+            taskElementDAO.save(each);
+        }
+        sessionFactory.getCurrentSession().flush();
+    }
+
+    /**
+     * Reloads the order in a clean session like the planner does. The
+     * scenario is loaded first, so the entities associated to it are the
+     * same instance.
+     */
+    private Order reload(Order order, Scenario scenario) {
+        Order result = orderDAO.findExistingEntity(order.getId());
+        result.useSchedulingDataFor(scenario);
+        return result;
+    }
+
+    private Scenario reloadedScenario() {
+        sessionFactory.getCurrentSession().clear();
+        return scenarioDAO.findExistingEntity(scenarioManager.getCurrent()
+                .getId());
+    }
+
+    private List<String> describeLazily(Order order) {
+        Scenario scenario = reloadedScenario();
+        return describe(reload(order, scenario), scenario);
+    }
+
+    private List<String> describeLoadedInBatch(Order order) {
+        Scenario scenario = reloadedScenario();
+        Order reloaded = reload(order, scenario);
+        planningDataBatchLoader.loadPlanningDataOf(reloaded);
+
+        Statistics statistics = sessionFactory.getStatistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        try {
+            long statementsBefore = statistics.getPrepareStatementCount();
+            List<String> result = describe(reloaded, scenario);
+            assertThat(statistics.getPrepareStatementCount(),
+                    equalTo(statementsBefore));
+            return result;
+        } finally {
+            statistics.setStatisticsEnabled(statisticsEnabled);
+        }
+    }
+
+    private List<String> describe(Order order, Scenario scenario) {
+        List<String> result = new ArrayList<String>();
+        describe(result, order);
+        TaskGroup root = order.getAssociatedTaskElement();
+        if (root != null) {
+            describe(result, root, scenario);
+        }
+        return result;
+    }
+
+    private void describe(List<String> result, OrderElement orderElement) {
+        result.add(orderElement.getCode() + " labels "
+                + labelNames(orderElement.getLabels()) + " requirements "
+                + orderElement.getCriterionRequirements().size());
+        if (orderElement instanceof OrderLine) {
+            for (HoursGroup each : ((OrderLine) orderElement)
+                    .getHoursGroups()) {
+                result.add(each.getCode() + " requirements "
+                        + each.getCriterionRequirements().size());
+            }
+        }
+        for (OrderElement each : orderElement.getChildren()) {
+            describe(result, each);
+        }
+    }
+
+    private static List<String> labelNames(Collection<Label> labels) {
+        List<String> result = new ArrayList<String>();
+        for (Label each : labels) {
+            result.add(each.getName());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private void describe(List<String> result, TaskElement taskElement,
+            Scenario scenario) {
+        List<String> destinations = new ArrayList<String>();
+        for (Dependency each : taskElement.getDependenciesWithThisOrigin()) {
+            destinations.add(each.getDestination().getName() + " "
+                    + each.getType());
+        }
+        Collections.sort(destinations);
+        result.add(taskElement.getName() + " dependencies " + destinations
+                + " incoming "
+                + taskElement.getDependenciesWithThisDestination().size());
+        if (taskElement instanceof Task) {
+            List<String> allocations = new ArrayList<String>();
+            for (ResourceAllocation<?> each : ((Task) taskElement)
+                    .getAllResourceAllocations()) {
+                allocations.add(describe(each, scenario));
+            }
+            Collections.sort(allocations);
+            result.add(taskElement.getName() + " allocations " + allocations);
+        }
+        if (taskElement instanceof TaskGroup) {
+            for (TaskElement each : taskElement.getChildren()) {
+                describe(result, each, scenario);
+            }
+        }
+    }
+
+    private String describe(ResourceAllocation<?> allocation, Scenario scenario) {
+        allocation.switchToScenario(scenario);
+        EffortDuration assigned = EffortDuration.zero();
+        for (DayAssignment each : allocation.getAssignments()) {
+            assigned = assigned.plus(each.getDuration());
+        }
+        String assignedTo;
+        if (allocation instanceof SpecificResourceAllocation) {
+            assignedTo = ((SpecificResourceAllocation) allocation)
+                    .getResource().getName();
+        } else {
+            assignedTo = ((GenericResourceAllocation) allocation)
+                    .getCriterions().size() + " criteria";
+        }
+        if (assigned.isZero()) {
+            return assignedTo + " without assignments";
+        }
+        return assignedTo + " assigned " + assigned + " in "
+                + allocation.getAssignments().size() + " days";
+    }
+
+    private static int countContaining(List<String> lines, String text) {
+        int result = 0;
+        for (String each : lines) {
+            if (each.contains(text)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void theBatchedLoadInitializesTheSameDataThanLazyLoading() {
+        Order order = givenStoredOrderWithLines(3);
+        givenAllocationsAndDependencies(order);
+
+        List<String> lazily = describeLazily(order);
+        List<String> inBatch = describeLoadedInBatch(order);
+
+        assertThat(inBatch, equalTo(lazily));
+        // order, lines, hours groups, task group, and each task twice
+        assertThat(lazily.size(), equalTo(1 + 3 + 3 + 1 + 3 * 2));
+        assertThat(countContaining(lazily, " assigned "), equalTo(2));
+        assertThat(countContaining(lazily, "without assignments"), equalTo(1));
+        assertThat(countContaining(lazily, Type.END_START.toString()),
+                equalTo(1));
+    }
+
+    @Test
+    public void anOrderWithoutAllocationsCanBeLoadedInBatch() {
+        Order order = givenStoredOrderWithLines(2);
+
+        List<String> lazily = describeLazily(order);
+        List<String> inBatch = describeLoadedInBatch(order);
+
+        assertThat(inBatch, equalTo(lazily));
+        assertThat(countContaining(lazily, "allocations []"), equalTo(2));
+    }
+
+}
@@ -0,0 +1,287 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.daos;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
+import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import javax.annotation.Resource;
+
+import org.hibernate.SessionFactory;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.libreplan.business.IDataBootstrap;
+import org.libreplan.business.common.daos.IConfigurationDAO;
+import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.entities.HoursGroup;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderLine;
+import org.libreplan.business.orders.entities.TaskSource;
+import org.libreplan.business.planner.daos.IResourceDailyLoadDAO;
+import org.libreplan.business.planner.daos.ITaskElementDAO;
+import org.libreplan.business.planner.daos.ITaskSourceDAO;
+import org.libreplan.business.planner.daos.ResourceDailyLoadDAO;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.resources.daos.IResourceDAO;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.bootstrap.IScenariosBootstrap;
+import org.libreplan.business.scenarios.entities.OrderVersion;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test cases for {@link ResourceDailyLoadDAO}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { BUSINESS_SPRING_CONFIG_FILE,
+        BUSINESS_SPRING_CONFIG_TEST_FILE })
+@Transactional
+public class ResourceDailyLoadDAOTest {
+
+    @Resource
+    private IDataBootstrap configurationBootstrap;
+
+    @Autowired
+    private IScenariosBootstrap scenariosBootstrap;
+
+    @Autowired
+    private IScenarioManager scenarioManager;
+
+    @Autowired
+    private IResourceDailyLoadDAO resourceDailyLoadDAO;
+
+    @Autowired
+    private ITaskElementDAO taskElementDAO;
+
+    @Autowired
+    private ITaskSourceDAO taskSourceDAO;
+
+    @Autowired
+    private IOrderDAO orderDAO;
+
+    @Autowired
+    private IResourceDAO resourceDAO;
+
+    @Autowired
+    private IConfigurationDAO configurationDAO;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    private Worker worker;
+
+    private SpecificResourceAllocation allocation;
+
+    @Before
+    public void loadRequiredData() {
+        configurationBootstrap.loadRequiredData();
+        scenariosBootstrap.loadRequiredData();
+    }
+
+    private Task createTask() {
+        HoursGroup hoursGroup = new HoursGroup();
+        hoursGroup.setCode("hours-group-code-" + UUID.randomUUID());
+        OrderLine orderLine = OrderLine.create();
+        orderLine.setName("bla");
+        orderLine.setCode("code-" + UUID.randomUUID());
+        orderLine.addHoursGroup(hoursGroup);
+        Order order = Order.create();
+        OrderVersion orderVersion = ResourceAllocationDAOTest
+                .setupVersionUsing(scenarioManager, order);
+        order.setName("bla-" + UUID.randomUUID());
+        order.setInitDate(new Date());
+        order.setCode("code-" + UUID.randomUUID());
+        order.useSchedulingDataFor(orderVersion);
+        order.add(orderLine);
+        order.setCalendar(configurationDAO.getConfiguration()
+                .getDefaultCalendar());
+        orderDAO.save(order);
+        orderLine.useSchedulingDataFor(orderVersion);
+        TaskSource taskSource = TaskSource.create(
+                orderLine.getCurrentSchedulingDataForVersion(),
+                Arrays.asList(hoursGroup));
+        TaskSource.mustAdd(taskSource).apply(
+                TaskSource.persistTaskSources(taskSourceDAO));
+        return (Task) taskSource.getTask();
+    }
+
+    private Worker createWorker() {
+        Worker result = Worker.create();
+        result.setFirstName(UUID.randomUUID().toString());
+        result.setSurname(UUID.randomUUID().toString());
+        result.setNif(UUID.randomUUID().toString());
+        resourceDAO.save(result);
+        return result;
+    }
+
+    private void givenAnAllocatedWorker() {
+        worker = createWorker();
+        Task task = createTask();
+        allocation = SpecificResourceAllocation.create(task);
+        allocation.setResource(worker);
+        LocalDate start = task.getStartAsLocalDate();
+        task.setIntraDayEndDate(IntraDayDate.startOfDay(start.plusDays(3)));
+        allocation.onIntervalWithinTask(start, start.plusDays(3))
+                .allocateHours(24);
+        task.addResourceAllocation(allocation);
+        taskElementDAO.save(task);
+        sessionFactory.getCurrentSession().flush();
+    }
+
+    private SortedMap<LocalDate, EffortDuration> assignedPerDay() {
+        SortedMap<LocalDate, EffortDuration> result = new TreeMap<LocalDate, EffortDuration>();
+        for (SpecificDayAssignment each : allocation.getAssignments()) {
+            if (each.getDuration().isZero()) {
+                continue;
+            }
+            EffortDuration previous = result.get(each.getDay());
+            result.put(each.getDay(), previous == null ? each.getDuration()
+                    : previous.plus(each.getDuration()));
+        }
+        return result;
+    }
+
+    private SortedMap<LocalDate, EffortDuration> storedPerDay() {
+        sessionFactory.getCurrentSession().flush();
+        return resourceDailyLoadDAO.getLoadPerDay(scenarioManager.getCurrent(),
+                worker, null, null);
+    }
+
+    private Map<Long, Set<LocalDate>> daysOfWorker(Set<LocalDate> days) {
+        Map<Long, Set<LocalDate>> result = new HashMap<Long, Set<LocalDate>>();
+        result.put(worker.getId(), new HashSet<LocalDate>(days));
+        return result;
+    }
+
+    private void storeLoad(LocalDate day, EffortDuration effort) {
+        Scenario current = scenarioManager.getCurrent();
+        ResourceDailyLoad load = ResourceDailyLoad.create(worker, current, day);
+        load.setEffort(effort);
+        resourceDailyLoadDAO.save(load);
+        sessionFactory.getCurrentSession().flush();
+    }
+
+    @Test
+    public void recalculateStoresTheEffortAssignedEachDay() {
+        givenAnAllocatedWorker();
+        SortedMap<LocalDate, EffortDuration> assigned = assignedPerDay();
+        assertFalse(assigned.isEmpty());
+
+        resourceDailyLoadDAO.recalculate(daysOfWorker(assigned.keySet()));
+
+        assertThat(storedPerDay(), equalTo(assigned));
+    }
+
+    @Test
+    public void recalculateFixesTheStoredLoads() {
+        givenAnAllocatedWorker();
+        SortedMap<LocalDate, EffortDuration> assigned = assignedPerDay();
+        LocalDate withoutAssignments = assigned.lastKey().plusDays(1);
+        storeLoad(assigned.firstKey(), EffortDuration.hours(100));
+        storeLoad(withoutAssignments, EffortDuration.hours(100));
+
+        Set<LocalDate> days = new HashSet<LocalDate>(assigned.keySet());
+        days.add(withoutAssignments);
+        resourceDailyLoadDAO.recalculate(daysOfWorker(days));
+
+        assertThat(storedPerDay(), equalTo(assigned));
+    }
+
+    @Test
+    public void recalculateOnlyChangesTheGivenDays() {
+        givenAnAllocatedWorker();
+        SortedMap<LocalDate, EffortDuration> assigned = assignedPerDay();
+        LocalDate first = assigned.firstKey();
+        LocalDate notRecalculated = assigned.lastKey().plusDays(1);
+        storeLoad(notRecalculated, EffortDuration.hours(5));
+
+        resourceDailyLoadDAO.recalculate(daysOfWorker(Collections
+                .singleton(first)));
+
+        SortedMap<LocalDate, EffortDuration> stored = storedPerDay();
+        assertThat(stored.get(first), equalTo(assigned.get(first)));
+        assertThat(stored.get(notRecalculated),
+                equalTo(EffortDuration.hours(5)));
+        assertThat(stored.size(), equalTo(2));
+    }
+
+    @Test
+    public void recalculatingTwiceDoesNotDuplicateTheLoads() {
+        givenAnAllocatedWorker();
+        SortedMap<LocalDate, EffortDuration> assigned = assignedPerDay();
+
+        resourceDailyLoadDAO.recalculate(daysOfWorker(assigned.keySet()));
+        resourceDailyLoadDAO.recalculate(daysOfWorker(assigned.keySet()));
+
+        assertThat(storedPerDay(), equalTo(assigned));
+    }
+
+    @Test
+    public void recalculateAllReplacesAllTheLoads() {
+        givenAnAllocatedWorker();
+        SortedMap<LocalDate, EffortDuration> assigned = assignedPerDay();
+        storeLoad(assigned.lastKey().plusDays(1), EffortDuration.hours(5));
+
+        resourceDailyLoadDAO.recalculateAll();
+
+        assertThat(storedPerDay(), equalTo(assigned));
+        assertFalse(resourceDailyLoadDAO.isEmpty());
+    }
+
+    @Test
+    public void recalculateAllWithoutAssignmentsOfAWorkerLeavesItWithoutLoads() {
+        givenAnAllocatedWorker();
+        worker = createWorker();
+        storeLoad(new LocalDate(), EffortDuration.hours(5));
+
+        resourceDailyLoadDAO.recalculateAll();
+
+        assertTrue(storedPerDay().isEmpty());
+    }
+
+}
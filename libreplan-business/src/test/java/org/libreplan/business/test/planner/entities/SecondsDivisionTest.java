@@ -0,0 +1,62 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.entities;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+import org.libreplan.business.planner.entities.SecondsDivision;
+
+public class SecondsDivisionTest {
+
+    private SecondsDivision division = SecondsDivision.create();
+
+    @Test
+    public void theSharesWithLessAreGivenMoreAndTheRemainderToTheFirstOnes() {
+        assertArrayEquals(new int[] { 1, 5, 5, 0 },
+                division.divide(new int[] { 10, 5, 5, 10 }, 11));
+        assertArrayEquals(new int[] { 0, 3, 0 },
+                division.divide(new int[] { 2, -5, -3 }, 3));
+        assertArrayEquals(new int[] { 3, 0, 0, 3, 3, 0 }, division.divide(
+                new int[] { Integer.MIN_VALUE, Integer.MAX_VALUE,
+                        Integer.MAX_VALUE, Integer.MIN_VALUE,
+                        Integer.MIN_VALUE, Integer.MAX_VALUE }, 9));
+    }
+
+    @Test
+    public void nothingIsGivenIfThereIsNoIncrease() {
+        assertArrayEquals(new int[] { 0, 0 },
+                division.divide(new int[] { 3, 1 }, 0));
+        assertArrayEquals(new int[0], division.divide(new int[0], 5));
+    }
+
+    @Test
+    public void onlyTheRequestedLengthIsUsedSoTheArraysCanBeReused() {
+        int[] increments = new int[] { -1, -1, -1, 7 };
+        division.divide(new int[] { 2, 5, 10, 0 }, 3, 4, increments);
+        assertArrayEquals(new int[] { 4, 0, 0, 7 }, increments);
+
+        division.divide(new int[] { 10, 10, 10, 10 }, 3, 8, increments);
+        assertArrayEquals(new int[] { 3, 3, 2, 7 }, increments);
+    }
+
+}
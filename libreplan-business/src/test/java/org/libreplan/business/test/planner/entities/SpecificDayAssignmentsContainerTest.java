@@ -0,0 +1,173 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.test.planner.entities;
+
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.planner.entities.SpecificDayAssignmentsContainer;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Tests for the sharing of assignments between
+ * {@link SpecificDayAssignmentsContainer}
+ */
+public class SpecificDayAssignmentsContainerTest {
+
+    private static final LocalDate DAY = new LocalDate(2000, 2, 4);
+
+    private Worker worker;
+
+    private SpecificDayAssignmentsContainer original;
+
+    private SpecificDayAssignmentsContainer derived;
+
+    private Set<SpecificDayAssignment> originalAssignments;
+
+    @Before
+    public void givenAContainerSharingTheAssignmentsOfAnother() {
+        worker = createNiceMock(Worker.class);
+        SpecificResourceAllocation allocation = createNiceMock(SpecificResourceAllocation.class);
+        Scenario originalScenario = createNiceMock(Scenario.class);
+        Scenario derivedScenario = createNiceMock(Scenario.class);
+        replay(worker, allocation, originalScenario, derivedScenario);
+
+        original = SpecificDayAssignmentsContainer.create(allocation,
+                originalScenario);
+        original.addAll(Arrays.asList(assignment(DAY, hours(8)),
+                assignment(DAY.plusDays(1), hours(4)),
+                assignment(DAY.plusDays(2), hours(2))));
+        originalAssignments = original.getDayAssignments();
+
+        derived = SpecificDayAssignmentsContainer.create(allocation,
+                derivedScenario);
+        derived.shareAssignmentsOf(original);
+    }
+
+    private SpecificDayAssignment assignment(LocalDate day,
+            EffortDuration duration) {
+        return SpecificDayAssignment.create(day, duration, worker);
+    }
+
+    @Test
+    public void theSharedAssignmentsAreExposedWithoutCopyingThem() {
+        assertTrue(derived.isSharingAssignments());
+        assertThat(derived.getDayAssignments(), equalTo(originalAssignments));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aContainerCannotShareItsOwnAssignments() {
+        original.shareAssignmentsOf(original);
+    }
+
+    @Test
+    public void addingAssignmentsCopiesTheSharedOnes() {
+        derived.addAll(Arrays.asList(assignment(DAY.plusDays(3), hours(1))));
+
+        assertFalse(derived.isSharingAssignments());
+        assertThat(derived.getDayAssignments().size(), equalTo(4));
+        assertNoneOf(originalAssignments, derived.getDayAssignments());
+        assertThat(original.getDayAssignments(), equalTo(originalAssignments));
+    }
+
+    @Test
+    public void removingAssignmentsCopiesTheRemainingOnes() {
+        SpecificDayAssignment removed = originalAssignments.iterator().next();
+        derived.removeAll(Arrays.asList(removed));
+
+        assertFalse(derived.isSharingAssignments());
+        assertThat(derived.getDayAssignments().size(), equalTo(2));
+        assertNoneOf(originalAssignments, derived.getDayAssignments());
+        Set<SpecificDayAssignment> remaining = new HashSet<SpecificDayAssignment>(
+                originalAssignments);
+        remaining.remove(removed);
+        assertThat(durationsByDay(derived.getDayAssignments()),
+                equalTo(durationsByDay(remaining)));
+        assertThat(original.getDayAssignments(), equalTo(originalAssignments));
+    }
+
+    @Test
+    public void resettingTheAssignmentsStopsSharing() {
+        derived.resetTo(Arrays.asList(assignment(DAY, hours(3))));
+
+        assertFalse(derived.isSharingAssignments());
+        assertThat(derived.getDayAssignments().size(), equalTo(1));
+        assertThat(original.getDayAssignments(), equalTo(originalAssignments));
+    }
+
+    @Test
+    public void copyingTheSharedAssignmentsPutsThemInTheContainer() {
+        derived.copySharedAssignments();
+
+        assertFalse(derived.isSharingAssignments());
+        assertNoneOf(originalAssignments, derived.getDayAssignments());
+        assertThat(durationsByDay(derived.getDayAssignments()),
+                equalTo(durationsByDay(originalAssignments)));
+        for (SpecificDayAssignment each : derived.getDayAssignments()) {
+            assertThat(each.getScenario(), equalTo(derived.getScenario()));
+        }
+        for (SpecificDayAssignment each : originalAssignments) {
+            assertThat(each.getScenario(), equalTo(original.getScenario()));
+        }
+    }
+
+    @Test
+    public void copyingWhenNotSharingDoesNothing() {
+        original.copySharedAssignments();
+        assertThat(original.getDayAssignments(), equalTo(originalAssignments));
+    }
+
+    private static void assertNoneOf(Collection<SpecificDayAssignment> notExpected,
+            Collection<SpecificDayAssignment> assignments) {
+        for (SpecificDayAssignment each : assignments) {
+            assertFalse(notExpected.contains(each));
+        }
+    }
+
+    private static Map<LocalDate, EffortDuration> durationsByDay(
+            Collection<SpecificDayAssignment> assignments) {
+        Map<LocalDate, EffortDuration> result = new HashMap<LocalDate, EffortDuration>();
+        for (SpecificDayAssignment each : assignments) {
+            result.put(each.getDay(), each.getDuration());
+        }
+        return result;
+    }
+
+}
@@ -61,6 +61,7 @@ import org.libreplan.business.planner.entities.SpecificDayAssignment;
 import org.libreplan.business.planner.entities.SpecificResourceAllocation;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.entities.Scenario;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.IntraDayDate;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
@@ -866,4 +867,55 @@ public class SpecificResourceAllocationTest {
                 .isAlreadyFinishedBy(specificResourceAllocation.getEndDate()));
     }
 
+    @Test
+    public void removingCopiedAssignmentsKeepsTheOnesOfTheOriginalScenario() {
+        IntraDayDate start = date(2000, 2, 4);
+        givenSpecificResourceAllocation(start, 4);
+        Scenario original = createNiceMock(Scenario.class);
+        Scenario derived = createNiceMock(Scenario.class);
+        replay(original, derived);
+        specificResourceAllocation.switchToScenario(original);
+        specificResourceAllocation.allocate(ResourcesPerDay.amount(1));
+        List<SpecificDayAssignment> originalAssignments = specificResourceAllocation
+                .getAssignments();
+
+        specificResourceAllocation.copyAssignmentsFromOneScenarioToAnother(
+                original, derived);
+        specificResourceAllocation.switchToScenario(derived);
+        specificResourceAllocation.removeDayAssignmentsBeyondDate(plusDays(
+                start, 2).getDate());
+
+        assertThat(specificResourceAllocation.getAssignments(), from(start)
+                .consecutiveDays(2));
+        for (SpecificDayAssignment each : originalAssignments) {
+            assertThat(each.getScenario(), equalTo(original));
+        }
+        specificResourceAllocation.switchToScenario(original);
+        assertThat(specificResourceAllocation.getAssignments(),
+                equalTo(originalAssignments));
+    }
+
+    @Test
+    public void theCopiedAssignmentsBelongToTheTargetScenarioOnceCopied() {
+        IntraDayDate start = date(2000, 2, 4);
+        givenSpecificResourceAllocation(start, 2);
+        Scenario original = createNiceMock(Scenario.class);
+        Scenario derived = createNiceMock(Scenario.class);
+        replay(original, derived);
+        specificResourceAllocation.switchToScenario(original);
+        specificResourceAllocation.allocate(ResourcesPerDay.amount(1));
+
+        specificResourceAllocation.copyAssignmentsFromOneScenarioToAnother(
+                original, derived);
+        specificResourceAllocation.copySharedAssignments();
+        specificResourceAllocation.switchToScenario(derived);
+
+        assertThat(specificResourceAllocation.getAssignments(), from(start)
+                .consecutiveDays(2));
+        for (SpecificDayAssignment each : specificResourceAllocation
+                .getAssignments()) {
+            assertThat(each.getScenario(), equalTo(derived));
+        }
+    }
+
 }
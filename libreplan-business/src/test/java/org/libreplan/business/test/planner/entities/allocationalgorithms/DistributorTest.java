@@ -1,5 +1,6 @@
 package org.libreplan.business.test.planner.entities.allocationalgorithms;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertThat;
 import static org.libreplan.business.workingday.EffortDuration.hours;
 
@@ -75,6 +76,22 @@ public class DistributorTest {
         assertThat(distributor.distribute(hours(4)), hasEfforts(hours(0)));
     }
 
+    @Test
+    public void theEffortCanBeDistributedInSecondsReusingTheResult() {
+        Distributor distributor = Distributor.among(Capacity.create(hours(8))
+                .withAllowedExtraEffort(hours(2)), Capacity.create(hours(8))
+                .notOverAssignableWithoutLimit());
+        int[] result = new int[2];
+
+        distributor.distribute(hours(17).getSeconds(), result);
+        assertArrayEquals(new int[] { hours(9).getSeconds(),
+                hours(8).getSeconds() }, result);
+
+        distributor.distribute(hours(4).getSeconds(), result);
+        assertArrayEquals(new int[] { hours(2).getSeconds(),
+                hours(2).getSeconds() }, result);
+    }
+
     private Matcher<List<EffortDuration>> hasEfforts(
             final EffortDuration... efforts) {
         return new BaseMatcher<List<EffortDuration>>() {
@@ -0,0 +1,196 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.limiting.entities;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+import static org.libreplan.business.workingday.EffortDuration.minutes;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.Gap;
+import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
+import org.libreplan.business.planner.limiting.entities.GapsIndex;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+
+/**
+ * Tests for {@link GapsIndex}
+ */
+public class GapsIndexTest {
+
+    private static final LocalDate start = new LocalDate(2012, 3, 5);
+
+    private Worker worker;
+
+    @Before
+    public void setUpWorkerWithEightHoursEveryDay() {
+        worker = workerWithEveryDay(hours(8));
+    }
+
+    private static Worker workerWithEveryDay(EffortDuration capacity) {
+        ResourceCalendar calendar = createNiceMock(ResourceCalendar.class);
+        expect(calendar.getCapacityOn(isA(PartialDay.class))).andReturn(
+                capacity).anyTimes();
+        replay(calendar);
+        Worker result = createNiceMock(Worker.class);
+        expect(result.getCalendar()).andReturn(calendar).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private static DateAndHour day(int days) {
+        return DateAndHour.from(start.plusDays(days));
+    }
+
+    private GapOnQueue gap(int fromDay, Integer toDay) {
+        return Gap.create(worker, day(fromDay),
+                toDay == null ? null : day(toDay)).onQueue(null);
+    }
+
+    @Test
+    public void theGapsAreOrderedByStart() {
+        GapOnQueue first = gap(0, 2);
+        GapOnQueue second = gap(5, 6);
+        GapOnQueue last = gap(10, null);
+        GapsIndex index = GapsIndex.create(Arrays.asList(last, first, second));
+
+        assertThat(index.size(), equalTo(3));
+        assertThat(index.asList(), equalTo(Arrays.asList(first, second, last)));
+    }
+
+    @Test
+    public void aGapCanBeRemoved() {
+        GapOnQueue first = gap(0, 2);
+        GapOnQueue second = gap(5, 6);
+        GapOnQueue sameStart = gap(5, 7);
+        GapsIndex index = GapsIndex.create(Arrays.asList(first, second,
+                sameStart));
+
+        index.remove(second);
+
+        assertThat(index.size(), equalTo(2));
+        assertThat(index.asList(), equalTo(Arrays.asList(first, sameStart)));
+    }
+
+    @Test
+    public void onlyTheGapsEndingAfterTheTimeAreReturned() {
+        GapOnQueue first = gap(0, 2);
+        GapOnQueue second = gap(5, 6);
+        GapOnQueue last = gap(10, null);
+        GapsIndex index = GapsIndex.create(Arrays.asList(first, second, last));
+
+        List<GapOnQueue> gaps = index.getGapsEndingAfter(day(3));
+
+        assertThat(gaps, equalTo(Arrays.asList(second, last)));
+    }
+
+    @Test
+    public void theLatestEndIsUpdatedWhenAGapIsRemoved() {
+        GapOnQueue first = gap(0, 2);
+        GapOnQueue second = gap(5, 6);
+        GapOnQueue last = gap(10, null);
+        GapsIndex index = GapsIndex.create(Arrays.asList(first, second, last));
+
+        index.remove(last);
+
+        assertThat(index.getGapsEndingAfter(day(3)),
+                equalTo(Arrays.asList(second)));
+        assertTrue(index.getGapsEndingAfter(day(6)).isEmpty());
+    }
+
+    @Test
+    public void theFirstGapEndingAfterTheTimeWithEnoughCapacityIsFound() {
+        GapOnQueue small = gap(0, 1);
+        GapOnQueue big = gap(2, 5);
+        GapOnQueue medium = gap(6, 8);
+        GapOnQueue last = gap(10, null);
+        GapsIndex index = GapsIndex.create(Arrays.asList(last, medium, big,
+                small));
+
+        assertThat(index.getFirstGapWithAtLeast(day(0), hours(8)),
+                equalTo(small));
+        assertThat(index.getFirstGapWithAtLeast(day(0), hours(10)),
+                equalTo(big));
+        assertThat(index.getFirstGapWithAtLeast(day(5), hours(10)),
+                equalTo(medium));
+        assertThat(index.getFirstGapWithAtLeast(day(0), hours(20)),
+                equalTo(big));
+        assertThat(index.getFirstGapWithAtLeast(day(5), hours(20)),
+                equalTo(last));
+    }
+
+    @Test
+    public void theGapsWithoutEnoughCapacityAreSkipped() {
+        GapOnQueue small = gap(0, 1);
+        GapOnQueue big = gap(2, 5);
+        GapOnQueue medium = gap(6, 8);
+        GapOnQueue last = gap(10, null);
+        GapsIndex index = GapsIndex.create(Arrays.asList(small, big, medium,
+                last));
+
+        assertThat(index.getGapsWithAtLeast(day(0), hours(16)),
+                equalTo(Arrays.asList(big, medium, last)));
+        assertThat(index.getGapsWithAtLeast(day(0), hours(17)),
+                equalTo(Arrays.asList(big, last)));
+    }
+
+    @Test
+    public void theBiggestCapacityIsUpdatedWhenAGapIsRemoved() {
+        GapOnQueue small = gap(0, 1);
+        GapOnQueue big = gap(2, 5);
+        GapsIndex index = GapsIndex.create(Arrays.asList(small, big));
+
+        index.remove(big);
+
+        assertNull(index.getFirstGapWithAtLeast(day(0), hours(10)));
+        assertThat(index.getFirstGapWithAtLeast(day(0), hours(8)),
+                equalTo(small));
+    }
+
+    @Test
+    public void theCapacityOfEachDayIsRoundedToHoursLikeWhenAllocating() {
+        worker = workerWithEveryDay(minutes(20));
+        GapOnQueue gap = gap(0, 4);
+        GapsIndex index = GapsIndex.create(Arrays.asList(gap));
+
+        assertThat(gap.getGap().getHoursInGap(), equalTo(1));
+        assertThat(gap.getGap().getCapacityUpperBound(), equalTo(hours(4)));
+        assertThat(index.getFirstGapWithAtLeast(day(0), hours(4)),
+                equalTo(gap));
+    }
+
+}
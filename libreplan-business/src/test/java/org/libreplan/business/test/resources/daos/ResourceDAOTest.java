@@ -27,12 +27,16 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -44,11 +48,19 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.libreplan.business.IDataBootstrap;
+import org.libreplan.business.calendars.daos.IBaseCalendarDAO;
+import org.libreplan.business.calendars.entities.BaseCalendar;
 import org.libreplan.business.calendars.entities.ResourceCalendar;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
+import org.libreplan.business.costcategories.daos.ITypeOfWorkHoursDAO;
+import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
+import org.libreplan.business.orders.daos.IOrderElementDAO;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderLine;
+import org.libreplan.business.reports.dtos.HoursWorkedPerResourceDTO;
 import org.libreplan.business.resources.daos.ICriterionDAO;
 import org.libreplan.business.resources.daos.ICriterionTypeDAO;
 import org.libreplan.business.resources.daos.IResourceDAO;
@@ -59,8 +71,18 @@ import org.libreplan.business.resources.entities.CriterionType;
 import org.libreplan.business.resources.entities.Interval;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.bootstrap.IScenariosBootstrap;
+import org.libreplan.business.test.calendars.entities.BaseCalendarTest;
+import org.libreplan.business.test.planner.daos.ResourceAllocationDAOTest;
 import org.libreplan.business.users.daos.IUserDAO;
 import org.libreplan.business.users.entities.User;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workreports.daos.IWorkReportDAO;
+import org.libreplan.business.workreports.daos.IWorkReportTypeDAO;
+import org.libreplan.business.workreports.entities.WorkReport;
+import org.libreplan.business.workreports.entities.WorkReportLine;
+import org.libreplan.business.workreports.entities.WorkReportType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -97,12 +119,34 @@ public class ResourceDAOTest {
     @Autowired
     private IUserDAO userDAO;
 
+    @Autowired
+    private IScenariosBootstrap scenariosBootstrap;
+
+    @Autowired
+    private IScenarioManager scenarioManager;
+
+    @Autowired
+    private IOrderElementDAO orderElementDAO;
+
+    @Autowired
+    private IBaseCalendarDAO calendarDAO;
+
+    @Autowired
+    private IWorkReportDAO workReportDAO;
+
+    @Autowired
+    private IWorkReportTypeDAO workReportTypeDAO;
+
+    @Autowired
+    private ITypeOfWorkHoursDAO typeOfWorkHoursDAO;
+
     @javax.annotation.Resource
     private IDataBootstrap configurationBootstrap;
 
     @Before
     public void loadRequiredaData() {
         configurationBootstrap.loadRequiredData();
+        scenariosBootstrap.loadRequiredData();
     }
 
     @Test
@@ -290,4 +334,137 @@ public class ResourceDAOTest {
         });
     }
 
+    private static final LocalDate firstDay = new LocalDate(2012, 3, 5);
+
+    private Worker givenStoredWorker(String surname) {
+        Worker result = givenValidWorker();
+        result.setSurname(surname + UUID.randomUUID());
+        resourceDAO.save(result);
+        return result;
+    }
+
+    private OrderLine givenStoredOrderLine() {
+        Order order = Order.create();
+        order.setName(UUID.randomUUID().toString());
+        order.setCode(UUID.randomUUID().toString());
+        order.setInitDate(new Date());
+        BaseCalendar calendar = BaseCalendarTest.createBasicCalendar();
+        calendarDAO.save(calendar);
+        order.setCalendar(calendar);
+        ResourceAllocationDAOTest.setupVersionUsing(scenarioManager, order);
+        OrderLine result = OrderLine.createOrderLineWithUnfixedPercentage(10);
+        result.setName(UUID.randomUUID().toString());
+        result.setCode(UUID.randomUUID().toString());
+        order.add(result);
+        orderElementDAO.save(order);
+        return result;
+    }
+
+    /**
+     * Stores a work report with a line of one hour for <code>worker</code> in
+     * each of the <code>days</code> after {@link #firstDay}
+     */
+    private void givenStoredWorkReportLines(OrderLine orderLine,
+            Worker worker, Integer... days) {
+        WorkReportType workReportType = WorkReportType.create(UUID
+                .randomUUID().toString(), UUID.randomUUID().toString());
+        workReportTypeDAO.save(workReportType);
+        TypeOfWorkHours typeOfWorkHours = TypeOfWorkHours.create(UUID
+                .randomUUID().toString(), UUID.randomUUID().toString());
+        typeOfWorkHours.setDefaultPrice(BigDecimal.TEN);
+        typeOfWorkHoursDAO.save(typeOfWorkHours);
+        WorkReport workReport = WorkReport.create(workReportType);
+        for (Integer each : days) {
+            WorkReportLine line = WorkReportLine.create(workReport);
+            workReport.addWorkReportLine(line);
+            line.setDate(dayAfterFirst(each));
+            line.setEffort(EffortDuration.hours(1));
+            line.setResource(worker);
+            line.setOrderElement(orderLine);
+            line.setTypeOfWorkHours(typeOfWorkHours);
+        }
+        workReportDAO.save(workReport);
+        sessionFactory.getCurrentSession().flush();
+    }
+
+    private static Date dayAfterFirst(int days) {
+        return firstDay.plusDays(days).toDateTimeAtStartOfDay().toDate();
+    }
+
+    private List<HoursWorkedPerResourceDTO> pageOf(Worker worker,
+            Date startingDate, Date endingDate, int firstResult,
+            int maxResults) {
+        return resourceDAO.getWorkingHoursPerWorker(worker, null, null, null,
+                startingDate, endingDate, firstResult, maxResults);
+    }
+
+    private static List<Date> datesOf(List<HoursWorkedPerResourceDTO> lines) {
+        List<Date> result = new ArrayList<Date>();
+        for (HoursWorkedPerResourceDTO each : lines) {
+            result.add(new Date(each.getDate().getTime()));
+        }
+        return result;
+    }
+
+    @Test
+    @Transactional
+    public void theWorkingHoursOfAWorkerAreRetrievedByPagesOrderedByDate() {
+        OrderLine orderLine = givenStoredOrderLine();
+        Worker worker = givenStoredWorker("a");
+        Worker other = givenStoredWorker("b");
+        givenStoredWorkReportLines(orderLine, worker, 4, 0, 3, 1, 2);
+        givenStoredWorkReportLines(orderLine, other, 0, 1);
+
+        List<Date> all = new ArrayList<Date>();
+        for (int firstResult = 0; firstResult < 6; firstResult += 2) {
+            List<HoursWorkedPerResourceDTO> page = pageOf(worker, null, null,
+                    firstResult, 2);
+            assertTrue(page.size() <= 2);
+            for (HoursWorkedPerResourceDTO each : page) {
+                assertThat(each.getWorkerName(), equalTo(worker.getName()));
+            }
+            all.addAll(datesOf(page));
+        }
+
+        assertThat(all, equalTo(Arrays.asList(dayAfterFirst(0),
+                dayAfterFirst(1), dayAfterFirst(2), dayAfterFirst(3),
+                dayAfterFirst(4))));
+        assertTrue(pageOf(worker, null, null, 6, 2).isEmpty());
+    }
+
+    @Test
+    @Transactional
+    public void thePagesOfAWorkerOnlyIncludeTheLinesBetweenTheDates() {
+        OrderLine orderLine = givenStoredOrderLine();
+        Worker worker = givenStoredWorker("a");
+        givenStoredWorkReportLines(orderLine, worker, 0, 1, 2, 3, 4);
+
+        assertThat(datesOf(pageOf(worker, dayAfterFirst(1), dayAfterFirst(3),
+                0, 10)), equalTo(Arrays.asList(dayAfterFirst(1),
+                dayAfterFirst(2), dayAfterFirst(3))));
+        assertThat(datesOf(pageOf(worker, dayAfterFirst(1), dayAfterFirst(3),
+                1, 1)), equalTo(Arrays.asList(dayAfterFirst(2))));
+    }
+
+    @Test
+    @Transactional
+    public void theResourcesWithWorkingHoursAreOrderedByName() {
+        OrderLine orderLine = givenStoredOrderLine();
+        Worker second = givenStoredWorker("b");
+        Worker first = givenStoredWorker("a");
+        Worker withoutLines = givenStoredWorker("c");
+        givenStoredWorkReportLines(orderLine, second, 0, 1);
+        givenStoredWorkReportLines(orderLine, first, 2);
+
+        List<Resource> result = resourceDAO.getResourcesWithWorkingHours(
+                Arrays.<Resource> asList(second, first, withoutLines), null,
+                null, null, null, null);
+
+        assertThat(result, equalTo(Arrays.<Resource> asList(first, second)));
+        assertThat(resourceDAO.getResourcesWithWorkingHours(
+                Arrays.<Resource> asList(first, second), null, null, null,
+                dayAfterFirst(1), dayAfterFirst(1)),
+                equalTo(Arrays.<Resource> asList(second)));
+    }
+
 }
@@ -0,0 +1,203 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.resources.daos;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
+import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Resource;
+
+import org.hibernate.SessionFactory;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.libreplan.business.IDataBootstrap;
+import org.libreplan.business.common.daos.IConfigurationDAO;
+import org.libreplan.business.planner.daos.IResourceDailyLoadDAO;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
+import org.libreplan.business.resources.daos.IResourceDAO;
+import org.libreplan.business.resources.daos.IResourceLoadRatiosCalculator;
+import org.libreplan.business.resources.daos.IResourceLoadRatiosCalculator.ILoadRatiosDataType;
+import org.libreplan.business.resources.daos.ResourceLoadRatiosCalculator;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.bootstrap.IScenariosBootstrap;
+import org.libreplan.business.workingday.EffortDuration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test cases for {@link ResourceLoadRatiosCalculator}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { BUSINESS_SPRING_CONFIG_FILE,
+        BUSINESS_SPRING_CONFIG_TEST_FILE })
+@Transactional
+public class ResourceLoadRatiosCalculatorTest {
+
+    private static final LocalDate monday = new LocalDate(2012, 3, 5);
+
+    private static final LocalDate friday = monday.plusDays(4);
+
+    @Resource
+    private IDataBootstrap configurationBootstrap;
+
+    @Autowired
+    private IScenariosBootstrap scenariosBootstrap;
+
+    @Autowired
+    private IScenarioManager scenarioManager;
+
+    @Autowired
+    private IConfigurationDAO configurationDAO;
+
+    @Autowired
+    private IResourceDAO resourceDAO;
+
+    @Autowired
+    private IResourceDailyLoadDAO resourceDailyLoadDAO;
+
+    @Autowired
+    private IResourceLoadRatiosCalculator resourceLoadRatiosCalculator;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Before
+    public void loadRequiredData() {
+        configurationBootstrap.loadRequiredData();
+        scenariosBootstrap.loadRequiredData();
+    }
+
+    private Worker createWorker() {
+        Worker result = Worker.create();
+        result.setFirstName(UUID.randomUUID().toString());
+        result.setSurname(UUID.randomUUID().toString());
+        result.setNif(UUID.randomUUID().toString());
+        result.setCalendar(configurationDAO.getConfiguration()
+                .getDefaultCalendar().newDerivedResourceCalendar());
+        resourceDAO.save(result);
+        return result;
+    }
+
+    private void storeLoad(Worker worker, LocalDate day, EffortDuration effort) {
+        ResourceDailyLoad load = ResourceDailyLoad.create(worker,
+                scenarioManager.getCurrent(), day);
+        load.setEffort(effort);
+        resourceDailyLoadDAO.save(load);
+    }
+
+    private List<Worker> givenWorkersWithDifferentLoads() {
+        Worker overloaded = createWorker();
+        storeLoad(overloaded, monday, hours(20));
+        storeLoad(overloaded, monday.plusDays(1), hours(4));
+        storeLoad(overloaded, friday.plusDays(1), hours(20));
+        Worker partiallyLoaded = createWorker();
+        storeLoad(partiallyLoaded, monday.plusDays(2), hours(3));
+        storeLoad(partiallyLoaded, friday, hours(6));
+        storeLoad(partiallyLoaded, monday.minusDays(1), hours(8));
+        Worker withoutLoads = createWorker();
+        sessionFactory.getCurrentSession().flush();
+        return Arrays.asList(overloaded, partiallyLoaded, withoutLoads);
+    }
+
+    private ILoadRatiosDataType calculateForOne(Worker worker) {
+        return resourceLoadRatiosCalculator.calculateLoadRatios(worker,
+                monday, friday, scenarioManager.getCurrent());
+    }
+
+    private Map<?, ILoadRatiosDataType> calculateForAll(
+            List<Worker> workers) {
+        return resourceLoadRatiosCalculator.calculateLoadRatios(workers,
+                monday, friday, scenarioManager.getCurrent());
+    }
+
+    private static void assertSameRatios(ILoadRatiosDataType expected,
+            ILoadRatiosDataType actual) {
+        assertThat(actual.getLoad(), equalTo(expected.getLoad()));
+        assertThat(actual.getOverload(), equalTo(expected.getOverload()));
+        assertThat(actual.getCapacity(), equalTo(expected.getCapacity()));
+        assertThat(actual.getOvertimeRatio(),
+                equalTo(expected.getOvertimeRatio()));
+        assertThat(actual.getAvailiabilityRatio(),
+                equalTo(expected.getAvailiabilityRatio()));
+    }
+
+    @Test
+    public void theRatiosOfSeveralResourcesAreTheSameThanOneByOne() {
+        List<Worker> workers = givenWorkersWithDifferentLoads();
+
+        Map<?, ILoadRatiosDataType> all = calculateForAll(workers);
+
+        assertThat(all.size(), equalTo(workers.size()));
+        for (Worker each : workers) {
+            assertSameRatios(calculateForOne(each), all.get(each));
+        }
+    }
+
+    @Test
+    public void onlyTheLoadsInsideTheDatesAreUsed() {
+        List<Worker> workers = givenWorkersWithDifferentLoads();
+
+        Map<?, ILoadRatiosDataType> all = calculateForAll(workers);
+
+        assertThat(all.get(workers.get(0)).getLoad(), equalTo(hours(24)));
+        assertFalse(all.get(workers.get(0)).getOverload().isZero());
+        assertThat(all.get(workers.get(1)).getLoad(), equalTo(hours(9)));
+        assertThat(all.get(workers.get(1)).getOverload(),
+                equalTo(EffortDuration.zero()));
+        assertThat(all.get(workers.get(2)).getLoad(),
+                equalTo(EffortDuration.zero()));
+    }
+
+    @Test
+    public void theResultIsInTheSameOrderThanTheResources() {
+        List<Worker> workers = new ArrayList<Worker>(
+                givenWorkersWithDifferentLoads());
+        Collections.reverse(workers);
+
+        assertThat(new ArrayList<Object>(calculateForAll(workers).keySet()),
+                equalTo(new ArrayList<Object>(workers)));
+    }
+
+    @Test
+    public void withoutResourcesTheResultIsEmpty() {
+        assertThat(
+                calculateForAll(Collections.<Worker> emptyList()).size(),
+                equalTo(0));
+    }
+
+}
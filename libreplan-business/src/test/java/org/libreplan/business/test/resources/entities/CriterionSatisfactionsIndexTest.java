@@ -0,0 +1,119 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.resources.entities;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.resources.entities.Criterion;
+import org.libreplan.business.resources.entities.CriterionSatisfactionsIndex;
+
+/**
+ * Tests for {@link CriterionSatisfactionsIndex}
+ */
+public class CriterionSatisfactionsIndexTest {
+
+    private static final LocalDate start = new LocalDate(2011, 1, 1);
+
+    private Criterion parent;
+
+    private Criterion child;
+
+    private Criterion other;
+
+    private CriterionSatisfactionsIndex index;
+
+    private static Criterion criterion(long id, Criterion... children) {
+        Criterion result = createNiceMock(Criterion.class);
+        expect(result.getId()).andReturn(id).anyTimes();
+        expect(result.getChildren()).andReturn(
+                new HashSet<Criterion>(Arrays.asList(children))).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private static Set<Long> ids(Long... ids) {
+        return new HashSet<Long>(Arrays.asList(ids));
+    }
+
+    @Before
+    public void setUp() {
+        child = criterion(2);
+        parent = criterion(1, child);
+        other = criterion(3);
+        index = CriterionSatisfactionsIndex.create();
+        index.add(10L, 1L, start, start.plusDays(10));
+        index.add(11L, 2L, start.plusDays(5), null);
+        index.add(12L, 3L, start, start.plusDays(3));
+        index.add(12L, 1L, start.plusDays(20), null);
+    }
+
+    @Test
+    public void theResourcesAreIndexed() {
+        assertThat(index.size(), equalTo(3));
+    }
+
+    @Test
+    public void aCriterionIsSatisfiedByTheSatisfactionsOfItsDescendants() {
+        assertThat(index.findSatisfyingAtSomePoint(Arrays.asList(child)),
+                equalTo(ids(11L)));
+        assertThat(
+                index.findSatisfyingAtSomePoint(Arrays.asList(parent, child)),
+                equalTo(ids(11L)));
+    }
+
+    @Test
+    public void theSatisfactionsOfEachCriterionMustOverlap() {
+        index.add(11L, 3L, start.plusDays(10), start.plusDays(11));
+        assertThat(
+                index.findSatisfyingAtSomePoint(Arrays.asList(child, other)),
+                equalTo(ids(11L)));
+        index.add(10L, 3L, start.plusDays(10), start.plusDays(11));
+        assertThat(
+                index.findSatisfyingAtSomePoint(Arrays.asList(parent, other)),
+                equalTo(ids(11L)));
+    }
+
+    @Test
+    public void theCriteriaMustBeSatisfiedAtTheSameTimeAtSomePoint() {
+        assertThat(index.findSatisfyingAtSomePoint(Arrays.asList(parent)),
+                equalTo(ids(10L, 11L, 12L)));
+        assertThat(
+                index.findSatisfyingAtSomePoint(Arrays.asList(parent, other)),
+                equalTo(ids()));
+        assertTrue(index.findSatisfyingAtSomePoint(
+                Collections.singletonList(criterion(4))).isEmpty());
+    }
+
+}
@@ -388,4 +388,16 @@ public class DeepCopyTest {
         assertNotSame(copied.getSet1(), copied.getSet2());
     }
 
+    @Test
+    public void theSameClassCanBeCopiedSeveralTimes() {
+        EntityA entityA = new EntityA();
+        entityA.setSet1(new HashSet<Object>());
+        EntityA first = new DeepCopy().copy(entityA);
+        EntityA second = new DeepCopy().copy(entityA);
+        assertNotSame(first, second);
+        assertNotSame(first.getSet1(), second.getSet1());
+        assertTrue(first.isFirstHookCalled());
+        assertTrue(second.isFirstHookCalled());
+    }
+
 }
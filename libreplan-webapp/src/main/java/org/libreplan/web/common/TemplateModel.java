@@ -369,6 +369,9 @@ public class TemplateModel implements ITemplateModel {
 
     private void doReassignationsOn(Order order, Scenario from, Scenario to) {
         copyAssignments(order, from, to);
+        // the resources only see the assignments of the target scenario once
+        // they are copied, and the reassignations depend on their load
+        copySharedAssignments(order);
         GanttDiagramBuilder.createForcingDependencies(order,
                 TemplateModelAdapter.create(to,
                         asLocalDate(order.getInitDate()),
@@ -387,6 +390,12 @@ public class TemplateModel implements ITemplateModel {
         }
     }
 
+    private void copySharedAssignments(Order order) {
+        for (Task each : getTasksFrom(order)) {
+            each.copySharedAssignments();
+        }
+    }
+
     private void doReassignations(Order order, Scenario scenario) {
         for (Task each : getTasksFrom(order)) {
             each.reassignAllocationsWithNewResources(scenario,
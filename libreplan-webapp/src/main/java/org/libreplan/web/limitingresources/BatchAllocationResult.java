@@ -0,0 +1,201 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.limitingresources;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+
+/**
+ * Outcome of allocating a batch of unassigned
+ * {@link LimitingResourceQueueElement} in one pass. It keeps the plan, i.e.
+ * where every element was placed, the elements that couldn't be placed and
+ * some timing stats.<br />
+ * When the batch is a dry run the queues are left untouched, so the plan is
+ * only a preview of what a real allocation would do.
+ */
+public class BatchAllocationResult {
+
+    /**
+     * Position assigned to an element in the plan
+     */
+    public static class PlannedAllocation {
+
+        private static PlannedAllocation of(
+                LimitingResourceQueueElement element, boolean rescheduling) {
+            return new PlannedAllocation(element,
+                    element.getLimitingResourceQueue(),
+                    element.getStartTime(), element.getEndTime(), rescheduling);
+        }
+
+        private final LimitingResourceQueueElement element;
+
+        private final LimitingResourceQueue queue;
+
+        private final DateAndHour start;
+
+        private final DateAndHour end;
+
+        private final boolean rescheduling;
+
+        private PlannedAllocation(LimitingResourceQueueElement element,
+                LimitingResourceQueue queue, DateAndHour start,
+                DateAndHour end, boolean rescheduling) {
+            Validate.notNull(element);
+            Validate.notNull(queue);
+            this.element = element;
+            this.queue = queue;
+            this.start = start;
+            this.end = end;
+            this.rescheduling = rescheduling;
+        }
+
+        public LimitingResourceQueueElement getElement() {
+            return element;
+        }
+
+        public LimitingResourceQueue getQueue() {
+            return queue;
+        }
+
+        public DateAndHour getStart() {
+            return start;
+        }
+
+        public DateAndHour getEnd() {
+            return end;
+        }
+
+        /**
+         * @return <code>true</code> if placing the element implies moving
+         *         already allocated elements in order to satisfy the
+         *         dependencies
+         */
+        public boolean isRescheduling() {
+            return rescheduling;
+        }
+
+    }
+
+    private final boolean dryRun;
+
+    private final List<PlannedAllocation> plan = new ArrayList<PlannedAllocation>();
+
+    private final List<LimitingResourceQueueElement> notAllocated = new ArrayList<LimitingResourceQueueElement>();
+
+    private final Set<LimitingResourceQueueElement> modified = new HashSet<LimitingResourceQueueElement>();
+
+    private long orderingMillis;
+
+    private long allocationMillis;
+
+    BatchAllocationResult(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    void allocated(LimitingResourceQueueElement element, boolean rescheduling) {
+        plan.add(PlannedAllocation.of(element, rescheduling));
+        modified.add(element);
+    }
+
+    void alsoModified(List<LimitingResourceQueueElement> elements) {
+        modified.addAll(elements);
+    }
+
+    void notAllocated(LimitingResourceQueueElement element) {
+        notAllocated.add(element);
+    }
+
+    void setOrderingMillis(long orderingMillis) {
+        this.orderingMillis = orderingMillis;
+    }
+
+    void setAllocationMillis(long allocationMillis) {
+        this.allocationMillis = allocationMillis;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * @return the allocations done in the order they were done
+     */
+    public List<PlannedAllocation> getPlan() {
+        return Collections.unmodifiableList(plan);
+    }
+
+    public List<LimitingResourceQueueElement> getNotAllocated() {
+        return Collections.unmodifiableList(notAllocated);
+    }
+
+    /**
+     * @return the elements allocated plus the already allocated ones that
+     *         have been moved because of them. It's empty for a dry run
+     */
+    public Set<LimitingResourceQueueElement> getModified() {
+        if (dryRun) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(modified);
+    }
+
+    public int getReschedulingCount() {
+        int result = 0;
+        for (PlannedAllocation each : plan) {
+            if (each.isRescheduling()) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    public long getOrderingMillis() {
+        return orderingMillis;
+    }
+
+    public long getAllocationMillis() {
+        return allocationMillis;
+    }
+
+    public long getTotalMillis() {
+        return orderingMillis + allocationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s%d allocated (%d rescheduling), %d not allocated, "
+                        + "ordering: %d ms, allocation: %d ms",
+                dryRun ? "[dry run] " : "", plan.size(),
+                getReschedulingCount(), notAllocated.size(), orderingMillis,
+                allocationMillis);
+    }
+
+}
@@ -22,11 +22,11 @@ package org.libreplan.web.limitingresources;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
-import org.apache.commons.collections.comparators.BooleanComparator;
 import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
 
 
@@ -48,18 +48,22 @@ public class GapsMergeSort {
         static List<CurrentGap> convert(
                 Collection<? extends Iterator<GapOnQueue>> iterators) {
             List<CurrentGap> result = new ArrayList<CurrentGap>();
+            int position = 0;
             for (Iterator<GapOnQueue> iterator : iterators) {
-                result.add(new CurrentGap(iterator));
+                result.add(new CurrentGap(iterator, position++));
             }
             return result;
         }
 
         private Iterator<GapOnQueue> iterator;
 
+        private final int position;
+
         private GapOnQueue current;
 
-        private CurrentGap(Iterator<GapOnQueue> iterator) {
+        private CurrentGap(Iterator<GapOnQueue> iterator, int position) {
             this.iterator = iterator;
+            this.position = position;
         }
 
         public GapOnQueue consume() {
@@ -83,23 +87,16 @@ public class GapsMergeSort {
         }
 
         /**
-         * Ordering by hasFinished and the gap. An already finished is
-         * considered bigger than a not finished
+         * Ordering by the current gap. Only not finished ones can be compared.
+         * If the gaps start at the same time, the one of the first list goes
+         * first
          */
         @Override
         public int compareTo(CurrentGap other) {
-            int finishComparison = BooleanComparator.getFalseFirstComparator()
-                    .compare(hasFinished(), other.hasFinished());
-            if (finishComparison != 0) {
-                return finishComparison;
-            } else if (hasFinished()) {
-                assert other.hasFinished();
-                return 0;
-            } else {
-                assert !hasFinished() && !other.hasFinished();
-                return getCurrent().getGap().compareTo(
-                        other.getCurrent().getGap());
-            }
+            assert !hasFinished() && !other.hasFinished();
+            int result = getCurrent().getGap().compareTo(
+                    other.getCurrent().getGap());
+            return result != 0 ? result : position - other.position;
         }
     }
 
@@ -114,19 +111,52 @@ public class GapsMergeSort {
         if (orderedListsOfGaps.size() == 1) {
             return orderedListsOfGaps.get(0);
         }
+        Iterator<GapOnQueue> merged = merge(iteratorsFor(orderedListsOfGaps));
+        while (merged.hasNext()) {
+            result.add(merged.next());
+        }
+        return result;
+    }
 
-        List<CurrentGap> currentGaps = CurrentGap.convert(iteratorsFor(orderedListsOfGaps));
-        CurrentGap min = Collections.min(currentGaps);
-        while (!currentGaps.isEmpty() && !min.hasFinished()) {
-            result.add(min.consume());
-            if (min.hasFinished()) {
-                currentGaps.remove(min);
-                if (!currentGaps.isEmpty()) {
-                    min = Collections.min(currentGaps);
-                }
+    /**
+     * Like {@link #sort(List)} but the gaps are taken from the iterators as
+     * they are requested, so only the gaps before the one searched are
+     * consumed
+     */
+    public static Iterator<GapOnQueue> merge(
+            List<? extends Iterator<GapOnQueue>> orderedGaps) {
+        final PriorityQueue<CurrentGap> currentGaps = new PriorityQueue<CurrentGap>(
+                Math.max(1, orderedGaps.size()));
+        for (CurrentGap each : CurrentGap.convert(orderedGaps)) {
+            if (!each.hasFinished()) {
+                currentGaps.add(each);
             }
         }
-        return result;
+        return new Iterator<GapOnQueue>() {
+
+            @Override
+            public boolean hasNext() {
+                return !currentGaps.isEmpty();
+            }
+
+            @Override
+            public GapOnQueue next() {
+                if (currentGaps.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                CurrentGap min = currentGaps.poll();
+                GapOnQueue result = min.consume();
+                if (!min.hasFinished()) {
+                    currentGaps.add(min);
+                }
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
     private static List<Iterator<GapOnQueue>> iteratorsFor(
@@ -148,4 +148,17 @@ public interface ILimitingResourceQueueModel {
     Set<LimitingResourceQueueElement> assignLimitingResourceQueueElements(
             List<LimitingResourceQueueElement> elements);
 
+    /**
+     * Allocates all the unassigned {@link LimitingResourceQueueElement} in one
+     * pass. They are allocated in topological order and, when the dependencies
+     * allow it, the ones with higher priority go first. Every element is
+     * placed at the first gap that fits it, taking into account the elements
+     * already placed by the batch.
+     *
+     * @param dryRun
+     *            if <code>true</code> the queues are left as they were and
+     *            only the resulting plan is returned
+     */
+    BatchAllocationResult assignAllUnassignedElements(boolean dryRun);
+
 }
@@ -27,9 +27,11 @@ import static org.libreplan.business.planner.limiting.entities.LimitingResourceQ
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -641,14 +643,21 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
      * @return
      */
     private AllocationSpec findAllocationSpecFor(InsertionRequirements requirements) {
-        List<GapOnQueue> potentiallyValidGapsFor = queuesState
-                .getPotentiallyValidGapsFor(requirements);
-        return findAllocationSpecFor(potentiallyValidGapsFor, requirements);
+        return findAllocationSpecFor(
+                queuesState.getPotentiallyValidGapsFor(requirements),
+                requirements);
     }
 
-    private AllocationSpec findAllocationSpecFor(List<GapOnQueue> gapsOnQueue, InsertionRequirements requirements) {
+    /**
+     * The gaps are requested one by one, so the search stops at the first fit
+     * without looking for the rest of gaps
+     */
+    private AllocationSpec findAllocationSpecFor(
+            Iterator<GapOnQueue> gapsOnQueue,
+            InsertionRequirements requirements) {
         boolean generic = requirements.getElement().isGeneric();
-        for (GapOnQueue each : gapsOnQueue) {
+        while (gapsOnQueue.hasNext()) {
+            GapOnQueue each = gapsOnQueue.next();
             for (GapOnQueue eachSubGap : getSubGaps(each,
                     requirements.getElement(), generic)) {
                 AllocationSpec allocation = requirements
@@ -680,16 +689,15 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
 
     private AllocationSpec findAllocationSpecForInQueue(
             InsertionRequirements requirements, LimitingResourceQueue queue) {
-
-        List<GapOnQueue> potentiallyValidGapsFor = new ArrayList<GapOnQueue>();
-
-        for (GapOnQueue each : queuesState
-                .getPotentiallyValidGapsFor(requirements)) {
-            if (each.getOriginQueue().equals(queue)) {
-                potentiallyValidGapsFor.add(each);
+        for (LimitingResourceQueue each : queuesState
+                .getAssignableQueues(requirements.getElement())) {
+            if (each.equals(queue)) {
+                return findAllocationSpecFor(
+                        each.getGapsPotentiallyValidFor(requirements),
+                        requirements);
             }
         }
-        return findAllocationSpecFor(potentiallyValidGapsFor, requirements);
+        return null;
     }
 
     private boolean checkAllocationIsAppropriative = true;
@@ -1246,4 +1254,116 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
         return result;
     }
 
+    @Override
+    public BatchAllocationResult assignAllUnassignedElements(boolean dryRun) {
+        BatchAllocationResult result = new BatchAllocationResult(dryRun);
+        List<LimitingResourceQueueElement> previouslyUnassigned = new ArrayList<LimitingResourceQueueElement>(
+                queuesState.getUnassigned());
+
+        long start = System.currentTimeMillis();
+        List<LimitingResourceQueueElement> ordered = queuesState
+                .inTopologicalOrder(previouslyUnassigned,
+                        byPriorityAndEarliestStart());
+        result.setOrderingMillis(System.currentTimeMillis() - start);
+
+        start = System.currentTimeMillis();
+        List<LimitingResourceQueueElement> placed = new ArrayList<LimitingResourceQueueElement>();
+        for (LimitingResourceQueueElement each : ordered) {
+            if (batchAllocation(each, dryRun, result)) {
+                placed.add(each);
+            } else {
+                result.notAllocated(each);
+            }
+        }
+        if (dryRun) {
+            queuesState.revertAssignments(placed, previouslyUnassigned);
+        }
+        result.setAllocationMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * Elements with a higher priority go first. If they have the same priority
+     * the one that can start earlier goes first.
+     */
+    static Comparator<LimitingResourceQueueElement> byPriorityAndEarliestStart() {
+        return new Comparator<LimitingResourceQueueElement>() {
+
+            @Override
+            public int compare(LimitingResourceQueueElement o1,
+                    LimitingResourceQueueElement o2) {
+                int result = o2.getTask().getPriority()
+                        - o1.getTask().getPriority();
+                if (result != 0) {
+                    return result;
+                }
+                result = compareNullsLast(
+                        o1.getEarliestStartDateBecauseOfGantt(),
+                        o2.getEarliestStartDateBecauseOfGantt());
+                if (result != 0) {
+                    return result;
+                }
+                return Long.valueOf(o1.getCreationTimestamp()).compareTo(
+                        o2.getCreationTimestamp());
+            }
+        };
+    }
+
+    private static int compareNullsLast(Date a, Date b) {
+        if (a == null || b == null) {
+            return a == b ? 0 : (a == null ? 1 : -1);
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * Allocates <code>element</code> at the first gap found for it. As the
+     * batch goes in topological order the origins of the element are already
+     * allocated, so the element doesn't need to move anything unless the gap
+     * breaks its end requirements or some of its destinations were already
+     * allocated. Only in those cases it goes through
+     * {@link #assignLimitingResourceQueueElement(LimitingResourceQueueElement)}
+     * .<br />
+     * In a dry run the element is only positioned in the queue, without
+     * creating day assignments nor moving the task.
+     *
+     * @return <code>false</code> if there is no gap for the element
+     */
+    private boolean batchAllocation(LimitingResourceQueueElement element,
+            boolean dryRun, BatchAllocationResult result) {
+        InsertionRequirements requirements = queuesState
+                .getRequirementsFor(element);
+        AllocationSpec allocation = findAllocationSpecFor(requirements);
+        if (allocation == null) {
+            return false;
+        }
+        boolean rescheduling = requirements
+                .isAppropiativeAllocation(allocation)
+                || queuesState.hasAllocatedDestinations(element);
+        if (dryRun) {
+            positionAt(allocation);
+        } else if (rescheduling) {
+            List<LimitingResourceQueueElement> inserted = assignLimitingResourceQueueElement(element);
+            if (inserted.isEmpty()) {
+                return false;
+            }
+            result.alsoModified(inserted);
+        } else {
+            applyAllocation(allocation);
+        }
+        result.allocated(element, rescheduling);
+        return true;
+    }
+
+    private void positionAt(AllocationSpec allocation) {
+        LimitingResourceQueueElement element = allocation.getElement();
+        DateAndHour startTime = allocation.getStartInclusive();
+        DateAndHour endTime = allocation.getEndExclusive();
+        element.setStartDate(startTime.getDate());
+        element.setStartHour(startTime.getHour());
+        element.setEndDate(endTime.getDate());
+        element.setEndHour(endTime.getHour());
+        addLimitingResourceQueueElementIfNeeded(allocation.getQueue(), element);
+    }
+
 }
@@ -32,6 +32,8 @@ import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.libreplan.business.calendars.entities.BaseCalendar;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
@@ -83,6 +85,9 @@ import org.zkoss.zul.api.Rows;
 @Scope(BeanDefinition.SCOPE_PROTOTYPE)
 public class LimitingResourcesController extends GenericForwardComposer {
 
+    private static final Log LOG = LogFactory
+            .getLog(LimitingResourcesController.class);
+
     @Autowired
     private ILimitingResourceQueueModel limitingResourceQueueModel;
 
@@ -589,8 +594,7 @@ public class LimitingResourcesController extends GenericForwardComposer {
     public void assignAllSelectedElements() {
         List<LimitingResourceQueueElement> elements = getAllSelectedQueueElements();
         if (!elements.isEmpty()) {
-            Set<LimitingResourceQueueElement> inserted = limitingResourceQueueModel
-                    .assignLimitingResourceQueueElements(elements);
+            Set<LimitingResourceQueueElement> inserted = assign(elements);
             clearSelectAllCheckbox();
 
             if (inserted.isEmpty()) {
@@ -603,6 +607,19 @@ public class LimitingResourcesController extends GenericForwardComposer {
         }
     }
 
+    private Set<LimitingResourceQueueElement> assign(
+            List<LimitingResourceQueueElement> elements) {
+        if (elements.size() < limitingResourceQueueModel
+                .getUnassignedLimitingResourceQueueElements().size()) {
+            return limitingResourceQueueModel
+                    .assignLimitingResourceQueueElements(elements);
+        }
+        BatchAllocationResult result = limitingResourceQueueModel
+                .assignAllUnassignedElements(false);
+        LOG.debug("allocated all unassigned queue elements: " + result);
+        return result.getModified();
+    }
+
     private void clearSelectAllCheckbox() {
         cbSelectAll.setChecked(false);
     }
@@ -25,10 +25,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import org.apache.commons.lang.Validate;
@@ -293,20 +295,19 @@ public class QueuesState {
 
     /**
      * @return all the gaps that could potentially fit <code>element</code>
-     *         ordered by start date
+     *         ordered by start date. They are searched as they are requested
      */
-    public List<GapOnQueue> getPotentiallyValidGapsFor(
+    public Iterator<GapOnQueue> getPotentiallyValidGapsFor(
             InsertionRequirements requirements) {
         List<LimitingResourceQueue> assignableQueues = getAssignableQueues(requirements
                 .getElement());
-        List<List<GapOnQueue>> allGaps = gapsFor(assignableQueues, requirements);
-        return GapsMergeSort.sort(allGaps);
+        return GapsMergeSort.merge(gapsFor(assignableQueues, requirements));
     }
 
-    private List<List<GapOnQueue>> gapsFor(
+    private List<Iterator<GapOnQueue>> gapsFor(
             List<LimitingResourceQueue> assignableQueues,
             InsertionRequirements requirements) {
-        List<List<GapOnQueue>> result = new ArrayList<List<GapOnQueue>>();
+        List<Iterator<GapOnQueue>> result = new ArrayList<Iterator<GapOnQueue>>();
         for (LimitingResourceQueue each : assignableQueues) {
             result.add(each.getGapsPotentiallyValidFor(requirements));
         }
@@ -605,6 +606,81 @@ public class QueuesState {
         return toList(topologicalIterator(buildSubgraphFor(queueElements)));
     }
 
+    /**
+     * Like {@link #inTopologicalOrder(List)} but, among the elements whose
+     * origins have already been returned, the one that goes first according
+     * to <code>tieBreaker</code> is picked
+     */
+    public List<LimitingResourceQueueElement> inTopologicalOrder(
+            List<LimitingResourceQueueElement> queueElements,
+            Comparator<? super LimitingResourceQueueElement> tieBreaker) {
+        DirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> subGraph = buildSubgraphFor(queueElements);
+        Map<LimitingResourceQueueElement, Integer> pendingOrigins = new HashMap<LimitingResourceQueueElement, Integer>();
+        PriorityQueue<LimitingResourceQueueElement> ready = new PriorityQueue<LimitingResourceQueueElement>(
+                Math.max(1, subGraph.vertexSet().size()), tieBreaker);
+        for (LimitingResourceQueueElement each : subGraph.vertexSet()) {
+            int inDegree = subGraph.inDegreeOf(each);
+            if (inDegree == 0) {
+                ready.add(each);
+            } else {
+                pendingOrigins.put(each, inDegree);
+            }
+        }
+        List<LimitingResourceQueueElement> result = new ArrayList<LimitingResourceQueueElement>();
+        while (!ready.isEmpty()) {
+            LimitingResourceQueueElement current = ready.poll();
+            result.add(current);
+            for (LimitingResourceQueueDependency each : subGraph
+                    .outgoingEdgesOf(current)) {
+                LimitingResourceQueueElement destiny = each.getHasAsDestiny();
+                int pending = pendingOrigins.get(destiny) - 1;
+                if (pending == 0) {
+                    pendingOrigins.remove(destiny);
+                    ready.add(destiny);
+                } else {
+                    pendingOrigins.put(destiny, pending);
+                }
+            }
+        }
+        if (!pendingOrigins.isEmpty()) {
+            throw new IllegalStateException("queue elements have cycles");
+        }
+        return result;
+    }
+
+    /**
+     * @return <code>true</code> if some of the elements depending on
+     *         <code>element</code> are already allocated in a queue
+     */
+    public boolean hasAllocatedDestinations(LimitingResourceQueueElement element) {
+        for (LimitingResourceQueueDependency each : graph
+                .outgoingEdgesOf(getEquivalent(element))) {
+            if (!each.getHasAsDestiny().isDetached()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes out of their queues the provided elements, that must have been
+     * unassigned elements, and leaves the unassigned elements as
+     * <code>previouslyUnassigned</code>. It's used to undo a simulated
+     * allocation, so the day assignments of the elements are not kept.
+     */
+    public void revertAssignments(List<LimitingResourceQueueElement> assigned,
+            List<LimitingResourceQueueElement> previouslyUnassigned) {
+        for (int i = assigned.size() - 1; i >= 0; i--) {
+            LimitingResourceQueueElement each = assigned.get(i);
+            LimitingResourceQueue queue = each.getLimitingResourceQueue();
+            if (queue != null) {
+                queue.removeLimitingResourceQueueElement(each);
+            }
+        }
+        unassignedElements.clear();
+        unassignedElements.addAll(previouslyUnassigned);
+    }
+
     /**
      * Constructs a graph composed only by queueElements
      *
@@ -614,6 +690,8 @@ public class QueuesState {
     private DirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> buildSubgraphFor(
             List<LimitingResourceQueueElement> queueElements) {
         SimpleDirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> result = instantiateDirectedGraph();
+        Set<LimitingResourceQueueElement> elements = new HashSet<LimitingResourceQueueElement>(
+                queueElements);
 
         // Iterate through elements and construct graph
         for (LimitingResourceQueueElement each : queueElements) {
@@ -622,7 +700,7 @@ public class QueuesState {
                     .getDependenciesAsOrigin()) {
                 LimitingResourceQueueElement destiny = dependency
                         .getHasAsDestiny();
-                if (queueElements.contains(destiny)) {
+                if (elements.contains(destiny)) {
                     // Add source, destiny and edge between them
                     addDependency(result, dependency);
                 }
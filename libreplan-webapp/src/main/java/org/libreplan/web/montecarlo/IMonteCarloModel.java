@@ -38,6 +38,14 @@ public interface IMonteCarloModel {
     Map<LocalDate, BigDecimal> calculateMonteCarlo(List<MonteCarloTask> tasks,
             int times, IDesktopUpdatesEmitter<Integer> iterationProgress);
 
+    /**
+     * Same as {@link #calculateMonteCarlo(List, int, IDesktopUpdatesEmitter)}
+     * but using the given seed, so the result can be reproduced
+     */
+    Map<LocalDate, BigDecimal> calculateMonteCarlo(List<MonteCarloTask> tasks,
+            int times, long seed,
+            IDesktopUpdatesEmitter<Integer> iterationProgress);
+
     void setCriticalPath(List<TaskElement> criticalPath);
 
     String getOrderName();
@@ -74,7 +74,7 @@ public class MonteCarloController extends GenericForwardComposer {
 
     private final Integer DEFAULT_ITERATIONS = Integer.valueOf(10000);
 
-    private final Integer MAX_NUMBER_ITERATIONS = Integer.valueOf(100000);
+    private final Integer MAX_NUMBER_ITERATIONS = Integer.valueOf(1000000);
 
     private final RowRenderer gridCriticalPathTasksRender = new CriticalPathTasksRender();
 
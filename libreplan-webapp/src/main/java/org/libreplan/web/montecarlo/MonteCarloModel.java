@@ -27,13 +27,16 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
@@ -196,17 +199,29 @@ public class MonteCarloModel implements IMonteCarloModel {
     public Map<LocalDate, BigDecimal> calculateMonteCarlo(
             List<MonteCarloTask> _tasks, int iterations,
             IDesktopUpdatesEmitter<Integer> iterationProgress) {
+        return calculateMonteCarlo(_tasks, iterations, System.nanoTime(),
+                iterationProgress);
+    }
+
+    @Override
+    public Map<LocalDate, BigDecimal> calculateMonteCarlo(
+            List<MonteCarloTask> _tasks, int iterations, long seed,
+            IDesktopUpdatesEmitter<Integer> iterationProgress) {
 
         MonteCarloCalculation monteCarloCalculation = new MonteCarloCalculation(
-                copyOf(_tasks), iterations, iterationProgress);
-        Map<LocalDate, BigDecimal> monteCarloValues = monteCarloCalculation.doCalculation();
+                copyOf(_tasks), iterations, seed, iterationProgress);
+        long[] timesByDay = monteCarloCalculation.doCalculation();
 
         // Convert number of times to probability
-        for (LocalDate key : monteCarloValues.keySet()) {
-            BigDecimal times = monteCarloValues.get(key);
-            BigDecimal probability = times.divide(
+        Map<LocalDate, BigDecimal> monteCarloValues = new HashMap<LocalDate, BigDecimal>();
+        LocalDate start = monteCarloCalculation.getStartDate();
+        for (int i = 0; i < timesByDay.length; i++) {
+            if (timesByDay[i] == 0) {
+                continue;
+            }
+            BigDecimal probability = BigDecimal.valueOf(timesByDay[i]).divide(
                     BigDecimal.valueOf(iterations), 8, RoundingMode.HALF_UP);
-            monteCarloValues.put(key, probability);
+            monteCarloValues.put(start.plusDays(i), probability);
         }
         return monteCarloValues;
     }
@@ -232,79 +247,145 @@ public class MonteCarloModel implements IMonteCarloModel {
         return StringUtils.join(result, ",");
     }
 
+    /**
+     * Runs the iterations in blocks of {@link #ITERATIONS_PER_BLOCK} using
+     * as many threads as available processors. Each block has its own
+     * {@link Random} seeded from the seed of the calculation and the index of
+     * the block, so the same seed always produces the same result regardless
+     * of how the blocks are scheduled.
+     * <p>
+     * The results are stored in a histogram indexed by the number of days
+     * from the start of the first task.
+     */
     private static class MonteCarloCalculation {
 
-        private Map<MonteCarloTask, Set<EstimationRange>> estimationRangesForTasks = new HashMap<MonteCarloTask, Set<EstimationRange>>();
+        private static final int ITERATIONS_PER_BLOCK = 10000;
+
+        private final LocalDate startDate;
+
+        private final int[] pessimisticDuration;
+
+        private final int[] normalDuration;
+
+        private final int[] optimisticDuration;
 
-        private List<MonteCarloTask> tasks;
+        private final double[] pessimisticUpperLimit;
 
-        private int iterations;
+        private final double[] normalUpperLimit;
 
-        private IDesktopUpdatesEmitter<Integer> iterationProgress;
+        private final int maxDuration;
+
+        private final int iterations;
+
+        private final long seed;
+
+        private final IDesktopUpdatesEmitter<Integer> iterationProgress;
 
         public MonteCarloCalculation(List<MonteCarloTask> tasks,
-                int iterations,
+                int iterations, long seed,
                 IDesktopUpdatesEmitter<Integer> iterationProgress) {
+            Validate.notEmpty(tasks);
             adjustDurationDays(tasks);
-            initializeEstimationRanges(tasks);
-            this.tasks = tasks;
+            this.startDate = tasks.get(0).getStartDate();
+            int size = tasks.size();
+            this.pessimisticDuration = new int[size];
+            this.normalDuration = new int[size];
+            this.optimisticDuration = new int[size];
+            this.pessimisticUpperLimit = new double[size];
+            this.normalUpperLimit = new double[size];
+            int max = 0;
+            for (int i = 0; i < size; i++) {
+                MonteCarloTask each = tasks.get(i);
+                pessimisticDuration[i] = each.getPessimisticDuration()
+                        .intValue();
+                normalDuration[i] = each.getNormalDuration().intValue();
+                optimisticDuration[i] = each.getOptimisticDuration()
+                        .intValue();
+                pessimisticUpperLimit[i] = each
+                        .getPessimisticDurationPercentageUpperLimit()
+                        .doubleValue();
+                normalUpperLimit[i] = each
+                        .getNormalDurationPercentageUpperLimit().doubleValue();
+                max += Math.max(pessimisticDuration[i],
+                        Math.max(normalDuration[i], optimisticDuration[i]));
+            }
+            this.maxDuration = max;
             this.iterations = iterations;
+            this.seed = seed;
             this.iterationProgress = iterationProgress;
         }
 
-        public Map<LocalDate, BigDecimal> doCalculation() {
-            Map<LocalDate, BigDecimal> result = new HashMap<LocalDate, BigDecimal>();
-
-            final int ONE_PERCENT = iterations / 100;
-            Random randomGenerator = new Random((new Date()).getTime());
-            // Calculate number of times a date is repeated
-            for (int i = 0; i < iterations; i++) {
-                LocalDate endDate = calculateEndDateFor(tasks, randomGenerator);
-                BigDecimal times = result.get(endDate);
-                times = times != null ? times.add(BigDecimal.ONE) : BigDecimal.ONE;
-                result.put(endDate, times);
-                if (i % ONE_PERCENT == 0) {
-                    increaseProgressMeter((i * 100) / iterations);
+        public LocalDate getStartDate() {
+            return startDate;
+        }
+
+        public long[] doCalculation() {
+            long[] result = new long[maxDuration + 1];
+            int blocks = (iterations + ITERATIONS_PER_BLOCK - 1)
+                    / ITERATIONS_PER_BLOCK;
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+                    Math.max(blocks, 1), Runtime.getRuntime()
+                            .availableProcessors()));
+            try {
+                List<Future<int[]>> pending = new ArrayList<Future<int[]>>();
+                for (int i = 0; i < blocks; i++) {
+                    int blockIterations = Math.min(ITERATIONS_PER_BLOCK,
+                            iterations - i * ITERATIONS_PER_BLOCK);
+                    pending.add(executor.submit(block(i, blockIterations)));
+                }
+                int done = 0;
+                for (Future<int[]> each : pending) {
+                    int[] timesByDay = each.get();
+                    for (int i = 0; i < timesByDay.length; i++) {
+                        result[i] += timesByDay[i];
+                    }
+                    increaseProgressMeter((++done * 100) / blocks);
                 }
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                executor.shutdownNow();
             }
-
-            return result;
         }
 
-        private void increaseProgressMeter(int completedPercent) {
-            iterationProgress.doUpdate(completedPercent);
+        private Callable<int[]> block(final int blockIndex,
+                final int blockIterations) {
+            return new Callable<int[]>() {
+
+                @Override
+                public int[] call() {
+                    Random random = new Random(seed + blockIndex
+                            * 0x9E3779B97F4A7C15L);
+                    int[] result = new int[maxDuration + 1];
+                    for (int i = 0; i < blockIterations; i++) {
+                        result[calculateDurationDays(random)]++;
+                    }
+                    return result;
+                }
+            };
         }
 
-        private LocalDate calculateEndDateFor(List<MonteCarloTask> tasks,
-                Random randomGenerator) {
-            Validate.notEmpty(tasks);
-            BigDecimal durationDays = BigDecimal.ZERO;
-            MonteCarloTask first = tasks.get(0);
-
-            for (MonteCarloTask each : tasks) {
-                BigDecimal randomNumber = generate(randomGenerator);
-                durationDays = durationDays.add(getDuration(each, randomNumber));
+        private int calculateDurationDays(Random random) {
+            int result = 0;
+            for (int i = 0; i < normalDuration.length; i++) {
+                double randomNumber = random.nextDouble();
+                if (randomNumber <= pessimisticUpperLimit[i]) {
+                    result += pessimisticDuration[i];
+                } else if (randomNumber <= normalUpperLimit[i]) {
+                    result += normalDuration[i];
+                } else {
+                    result += optimisticDuration[i];
+                }
             }
-            return first.getStartDate().plusDays(durationDays.intValue());
-        }
-
-        private BigDecimal generate(Random randomGenerator) {
-            return BigDecimal.valueOf(randomGenerator.nextDouble());
+            return result;
         }
 
-        private BigDecimal getDuration(MonteCarloTask each, BigDecimal random) {
-            ESTIMATION_TYPE type = getEstimationType(each, random);
-            Validate.notNull(type);
-            switch (type) {
-            case PESSIMISTIC:
-                BigDecimal duration = each.getPessimisticDuration();
-                return duration;
-            case NORMAL:
-                return each.getNormalDuration();
-            case OPTIMISTIC:
-                return each.getOptimisticDuration();
-            }
-            return BigDecimal.ZERO;
+        private void increaseProgressMeter(int completedPercent) {
+            iterationProgress.doUpdate(completedPercent);
         }
 
         private void adjustDurationDays(List<MonteCarloTask> tasks) {
@@ -319,33 +400,6 @@ public class MonteCarloModel implements IMonteCarloModel {
             }
         }
 
-        private void initializeEstimationRanges(List<MonteCarloTask> tasks) {
-            estimationRangesForTasks.clear();
-            for (MonteCarloTask each : tasks) {
-                createEstimationRangesFor(each);
-            }
-        }
-
-        private void createEstimationRangesFor(MonteCarloTask task) {
-            Set<EstimationRange> estimationRanges = new HashSet<EstimationRange>();
-            estimationRanges.add(EstimationRange.pessimisticRangeFor(task));
-            estimationRanges.add(EstimationRange.normalRangeFor(task));
-            estimationRanges.add(EstimationRange.optimisticRangeFor(task));
-            estimationRangesForTasks.put(task, estimationRanges);
-        }
-
-        public ESTIMATION_TYPE getEstimationType(MonteCarloTask task,
-                BigDecimal random) {
-            Set<EstimationRange> estimationRanges = estimationRangesForTasks
-                    .get(task);
-            for (EstimationRange each : estimationRanges) {
-                if (each.contains(random)) {
-                    return each.getEstimationType();
-                }
-            }
-            return null;
-        }
-
     }
 
 }
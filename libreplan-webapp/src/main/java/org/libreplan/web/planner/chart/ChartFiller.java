@@ -45,6 +45,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.joda.time.DateTime;
 import org.joda.time.Days;
 import org.joda.time.LocalDate;
+import org.libreplan.business.planner.chart.EffortDurationDaysLine;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.workingday.EffortDuration;
@@ -394,6 +395,42 @@ public abstract class ChartFiller implements IChartFiller {
         return average(accumulatePerWeek(map));
     }
 
+    protected SortedMap<LocalDate, EffortDuration> groupAsNeededByZoom(
+            EffortDurationDaysLine line) {
+        if (isZoomByDayOrWeek()) {
+            return line.toSortedMap();
+        }
+        return groupByWeekDurations(line);
+    }
+
+    /**
+     * Same as {@link #groupByWeekDurations(SortedMap)} but the seconds of each
+     * week are accumulated directly from the line, without creating an
+     * {@link EffortDuration} for each day.
+     */
+    protected SortedMap<LocalDate, EffortDuration> groupByWeekDurations(
+            EffortDurationDaysLine line) {
+        SortedMap<LocalDate, EffortDuration> result = new TreeMap<LocalDate, EffortDuration>();
+        if (line.isNotValid()) {
+            return result;
+        }
+        LocalDate day = line.getStart();
+        int i = 0;
+        while (i < line.size()) {
+            LocalDate centerOfWeek = getThursdayOfThisWeek(day);
+            LocalDate nextWeek = centerOfWeek.plusDays(7 - DAYS_TO_THURSDAY);
+            int accumulated = 0;
+            while (i < line.size() && day.isBefore(nextWeek)) {
+                accumulated += line.getSecondsAt(i);
+                day = day.plusDays(1);
+                i++;
+            }
+            result.put(centerOfWeek, EffortDuration.seconds(accumulated)
+                    .divideBy(7));
+        }
+        return result;
+    }
+
     private static SortedMap<LocalDate, EffortDuration> accumulatePerWeek(
             SortedMap<LocalDate, EffortDuration> map) {
         SortedMap<LocalDate, EffortDuration> result = new TreeMap<LocalDate, EffortDuration>();
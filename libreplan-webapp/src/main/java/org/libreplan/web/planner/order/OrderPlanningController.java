@@ -180,6 +180,8 @@ public class OrderPlanningController implements Composer {
         }
         planner.setAreContainersExpandedByDefault(Planner
                 .guessContainersExpandedByDefault(parameters));
+        planner.setAreAllRowsShownByDefault(Planner
+                .guessAllRowsShownByDefault(parameters));
 
         planner.setAreShownAdvancesByDefault(Planner
                 .guessShowAdvancesByDefault(parameters));
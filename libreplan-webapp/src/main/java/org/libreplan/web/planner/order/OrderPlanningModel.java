@@ -21,9 +21,8 @@
 
 package org.libreplan.web.planner.order;
 
-import static org.libreplan.business.planner.chart.ContiguousDaysLine.min;
-import static org.libreplan.business.planner.chart.ContiguousDaysLine.sum;
-import static org.libreplan.business.planner.chart.ContiguousDaysLine.toSortedMap;
+import static org.libreplan.business.planner.chart.EffortDurationDaysLine.min;
+import static org.libreplan.business.planner.chart.EffortDurationDaysLine.sum;
 import static org.libreplan.web.I18nHelper._;
 
 import java.math.BigDecimal;
@@ -54,7 +53,7 @@ import org.libreplan.business.orders.entities.HoursGroup;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.orders.entities.OrderStatusEnum;
-import org.libreplan.business.planner.chart.ContiguousDaysLine;
+import org.libreplan.business.planner.chart.EffortDurationDaysLine;
 import org.libreplan.business.planner.entities.ICostCalculator;
 import org.libreplan.business.planner.entities.IOrderEarnedValueCalculator;
 import org.libreplan.business.planner.entities.IOrderResourceLoadCalculator;
@@ -68,7 +67,6 @@ import org.libreplan.business.users.entities.OrderAuthorization;
 import org.libreplan.business.users.entities.OrderAuthorizationType;
 import org.libreplan.business.users.entities.User;
 import org.libreplan.business.users.entities.UserRole;
-import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.web.calendars.BaseCalendarModel;
 import org.libreplan.web.common.ConfirmCloseUtil;
 import org.libreplan.web.common.FilterUtils;
@@ -318,6 +316,7 @@ public class OrderPlanningModel implements IOrderPlanningModel {
         }
         configuration.setExpandPlanningViewCharts(user
                 .isExpandOrderPlanningViewCharts());
+        configuration.setVirtualizedRowsEnabled(true);
         addAdditional(additional, configuration);
 
         planner.setInitialZoomLevel(getZoomLevel(configuration, order));
@@ -1265,36 +1264,35 @@ public class OrderPlanningModel implements IOrderPlanningModel {
         protected Plotinfo[] getPlotInfos(Interval interval) {
             resourceLoadCalculator.setOrder(order, planningState.getAssignmentsCalculator());
 
-            ContiguousDaysLine<EffortDuration> maxCapacityOnResources = resourceLoadCalculator
+            EffortDurationDaysLine maxCapacityOnResources = resourceLoadCalculator
                     .getMaxCapacityOnResources();
-            ContiguousDaysLine<EffortDuration> orderLoad = resourceLoadCalculator
+            EffortDurationDaysLine orderLoad = resourceLoadCalculator
                     .getOrderLoad();
-            ContiguousDaysLine<EffortDuration> allLoad = resourceLoadCalculator
+            EffortDurationDaysLine allLoad = resourceLoadCalculator
                     .getAllLoad();
-            ContiguousDaysLine<EffortDuration> orderOverload = resourceLoadCalculator
+            EffortDurationDaysLine orderOverload = resourceLoadCalculator
                     .getOrderOverload();
-            ContiguousDaysLine<EffortDuration> allOverload = resourceLoadCalculator
+            EffortDurationDaysLine allOverload = resourceLoadCalculator
                     .getAllOverload();
 
             Plotinfo plotOrderLoad = createPlotinfoFromDurations(
-                    groupAsNeededByZoom(toSortedMap(ContiguousDaysLine.min(
-                            orderLoad, maxCapacityOnResources))), interval);
+                    groupAsNeededByZoom(min(orderLoad, maxCapacityOnResources)),
+                    interval);
 
             Plotinfo plotOtherLoad = createPlotinfoFromDurations(
-                    groupAsNeededByZoom(toSortedMap(min(allLoad,
-                            maxCapacityOnResources))), interval);
+                    groupAsNeededByZoom(min(allLoad, maxCapacityOnResources)),
+                    interval);
 
             Plotinfo plotMaxCapacity = createPlotinfoFromDurations(
-                    groupAsNeededByZoom(toSortedMap(maxCapacityOnResources)),
-                    interval);
+                    groupAsNeededByZoom(maxCapacityOnResources), interval);
 
             Plotinfo plotOrderOverload = createPlotinfoFromDurations(
-                    groupAsNeededByZoom(toSortedMap(sum(orderOverload,
-                            maxCapacityOnResources))), interval);
+                    groupAsNeededByZoom(sum(orderOverload,
+                            maxCapacityOnResources)), interval);
 
             Plotinfo plotOtherOverload = createPlotinfoFromDurations(
-                    groupAsNeededByZoom(toSortedMap(sum(allOverload,
-                            maxCapacityOnResources))), interval);
+                    groupAsNeededByZoom(sum(allOverload,
+                            maxCapacityOnResources)), interval);
 
             plotOrderLoad.setFillColor(COLOR_ASSIGNED_LOAD);
             plotOrderLoad.setLineWidth(0);
@@ -39,7 +39,7 @@ import org.libreplan.web.planner.order.PlanningStateCreator.IActionsOnRetrieval;
 import org.libreplan.web.planner.order.PlanningStateCreator.PlanningState;
 import org.zkoss.ganttz.data.GanttDiagramGraph;
 import org.zkoss.ganttz.data.GanttDiagramGraph.IAdapter;
-import org.zkoss.ganttz.data.criticalpath.CriticalPathCalculator;
+import org.zkoss.ganttz.data.criticalpath.CompiledCriticalPathCalculator;
 import org.zkoss.zk.ui.Desktop;
 
 /**
@@ -105,7 +105,7 @@ public class CriticalPathBuilder {
                         asLocalDate(order.getDeadline()), resourcesSearcher);
         GanttDiagramGraph<TaskElement, DependencyWithVisibility> graph = GanttDiagramBuilder
                 .createForcingDependencies(order, adapter);
-        CriticalPathCalculator<TaskElement, DependencyWithVisibility> criticalPathCalculator = CriticalPathCalculator
+        CompiledCriticalPathCalculator<TaskElement, DependencyWithVisibility> criticalPathCalculator = CompiledCriticalPathCalculator
                 .create(order.getDependenciesConstraintsHavePriority());
         return criticalPathCalculator.calculateCriticalPath(graph);
     }
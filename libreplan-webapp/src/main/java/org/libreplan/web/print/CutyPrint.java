@@ -256,6 +256,8 @@ public class CutyPrint {
             for (Entry<String, String> entry : printParameters.entrySet()) {
                 result = result.queryParam(entry.getKey(), entry.getValue());
             }
+            // all the rows have to be created to be printed
+            result = result.queryParam("rows", "all");
             return result.build().toASCIIString();
         }
 
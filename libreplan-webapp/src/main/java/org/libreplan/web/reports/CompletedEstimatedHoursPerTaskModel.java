@@ -31,9 +31,9 @@ import java.util.Set;
 
 import net.sf.jasperreports.engine.JRDataSource;
 import net.sf.jasperreports.engine.JREmptyDataSource;
-import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
 
 import org.joda.time.LocalDate;
+import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.labels.daos.ILabelDAO;
 import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.orders.daos.IOrderDAO;
@@ -41,13 +41,13 @@ import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.entities.Task;
-import org.libreplan.business.planner.entities.TaskElement;
 import org.libreplan.business.reports.dtos.CompletedEstimatedHoursPerTaskDTO;
 import org.libreplan.business.resources.daos.ICriterionTypeDAO;
 import org.libreplan.business.resources.entities.Criterion;
 import org.libreplan.business.resources.entities.CriterionType;
 import org.libreplan.business.resources.entities.ResourceEnum;
 import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.daos.IScenarioDAO;
 import org.libreplan.web.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -81,6 +81,12 @@ public class CompletedEstimatedHoursPerTaskModel implements ICompletedEstimatedH
     @Autowired
     private ICriterionTypeDAO criterionTypeDAO;
 
+    @Autowired
+    private IScenarioDAO scenarioDAO;
+
+    @Autowired
+    private IAdHocTransactionService adHocTransactionService;
+
     private List<Label> selectedLabels = new ArrayList<Label>();
 
     private List<Criterion> selectedCriterions = new ArrayList<Criterion>();
@@ -141,25 +147,39 @@ public class CompletedEstimatedHoursPerTaskModel implements ICompletedEstimatedH
         initializeOrderElements(order.getAllOrderElements());
     }
 
+    /**
+     * The rows of the report are built in chunks while the report is filled,
+     * see {@link OrderTasksRows}
+     */
     @Override
     @Transactional(readOnly = true)
     public JRDataSource getCompletedEstimatedHoursReportPerTask(Order order,
             Date deadline, List<Label> labels, List<Criterion> criterions) {
         reattachmentOrder(order);
         order.useSchedulingDataFor(scenarioManager.getCurrent());
-        LocalDate deadlineLocalDate = new LocalDate(deadline);
+        final LocalDate deadlineLocalDate = new LocalDate(deadline);
 
         reattachLabels();
         final List<Task> tasks = commonQueries.filteredTaskElements(order,
                 labels, criterions);
-        final List<CompletedEstimatedHoursPerTaskDTO> completedEstimatedHoursPerTaskList =
-            new ArrayList<CompletedEstimatedHoursPerTaskDTO>();
-        for (TaskElement task: tasks) {
-                completedEstimatedHoursPerTaskList.add(
-                        new CompletedEstimatedHoursPerTaskDTO((Task)task, deadlineLocalDate));
+        List<Long> orderElementIds = new ArrayList<Long>();
+        for (Task task : tasks) {
+            orderElementIds.add(task.getOrderElement().getId());
         }
-        if (!completedEstimatedHoursPerTaskList.isEmpty()) {
-            return new JRBeanCollectionDataSource(completedEstimatedHoursPerTaskList);
+        if (!orderElementIds.isEmpty()) {
+            return StreamingBeanDataSource
+                    .create(new OrderTasksRows<CompletedEstimatedHoursPerTaskDTO>(
+                            adHocTransactionService, orderDAO, scenarioDAO,
+                            scenarioManager.getCurrent(), order.getId(),
+                            orderElementIds) {
+
+                        @Override
+                        protected CompletedEstimatedHoursPerTaskDTO createRow(
+                                Task task) {
+                            return new CompletedEstimatedHoursPerTaskDTO(task,
+                                    deadlineLocalDate);
+                        }
+                    });
         } else {
             return new JREmptyDataSource();
         }
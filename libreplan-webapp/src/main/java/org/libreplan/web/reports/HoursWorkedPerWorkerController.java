@@ -114,6 +114,21 @@ public class HoursWorkedPerWorkerController extends LibrePlanReportController {
                 getStartingDate(), getEndingDate());
     }
 
+    @Override
+    protected String getReportKey() {
+        StringBuilder result = new StringBuilder();
+        for (Resource each : getSelectedResources()) {
+            result.append(each.getId()).append(',');
+        }
+        for (Label each : getSelectedLabels()) {
+            result.append('l').append(each.getId()).append(',');
+        }
+        for (Criterion each : getSelectedCriterions()) {
+            result.append('c').append(each.getId()).append(',');
+        }
+        return result.append(getSelectedFilterLabels()).toString();
+    }
+
     private LabelFilterType getSelectedFilterLabels() {
         if (filterByWorkReports.isChecked()) {
             return LabelFilterType.WORK_REPORT;
@@ -31,8 +31,9 @@ import java.util.Set;
 
 import net.sf.jasperreports.engine.JRDataSource;
 import net.sf.jasperreports.engine.JREmptyDataSource;
-import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
 
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.labels.daos.ILabelDAO;
 import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.reports.dtos.HoursWorkedPerResourceDTO;
@@ -43,6 +44,7 @@ import org.libreplan.business.resources.entities.Criterion;
 import org.libreplan.business.resources.entities.CriterionType;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.resources.entities.ResourceEnum;
+import org.libreplan.web.reports.StreamingBeanDataSource.IRowsSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
@@ -66,6 +68,9 @@ public class HoursWorkedPerWorkerModel implements IHoursWorkedPerWorkerModel {
     @Autowired
     private ICriterionTypeDAO criterionTypeDAO;
 
+    @Autowired
+    private IAdHocTransactionService adHocTransactionService;
+
     private Set<Resource> selectedResources = new HashSet<Resource>();
 
     private List<Label> selectedLabels = new ArrayList<Label>();
@@ -90,26 +95,99 @@ public class HoursWorkedPerWorkerModel implements IHoursWorkedPerWorkerModel {
 
     private boolean showReportMessage = false;
 
+    /**
+     * The lines of the report are retrieved worker by worker and in chunks
+     * while the report is filled, see {@link StreamingBeanDataSource}
+     */
     @Transactional(readOnly = true)
     public JRDataSource getHoursWorkedPerWorkerReport(List<Resource> resources,
             List<Label> labels, LabelFilterType labelFilterType,
             List<Criterion> criterions, Date startingDate,
             Date endingDate) {
 
-        final List<HoursWorkedPerResourceDTO> workingHoursPerWorkerList = resourceDAO
-                .getWorkingHoursPerWorker(resources, labels, labelFilterType,
-                        criterions, startingDate, endingDate);
+        final List<Resource> resourcesWithWorkingHours = resourceDAO
+                .getResourcesWithWorkingHours(resources, labels,
+                        labelFilterType, criterions, startingDate, endingDate);
 
-        if (workingHoursPerWorkerList != null && !workingHoursPerWorkerList.isEmpty()) {
-            Collections.sort(workingHoursPerWorkerList);
+        if (!resourcesWithWorkingHours.isEmpty()) {
             setShowReportMessage(false);
-            return new JRBeanCollectionDataSource(workingHoursPerWorkerList);
+            return StreamingBeanDataSource
+                    .create(new WorkingHoursPerWorkerRows(
+                            resourcesWithWorkingHours, labels,
+                            labelFilterType, criterions, startingDate,
+                            endingDate));
         } else {
             setShowReportMessage(true);
             return new JREmptyDataSource();
         }
     }
 
+    private class WorkingHoursPerWorkerRows implements
+            IRowsSource<HoursWorkedPerResourceDTO> {
+
+        private final List<Resource> resources;
+
+        private final List<Label> labels;
+
+        private final LabelFilterType labelFilterType;
+
+        private final List<Criterion> criterions;
+
+        private final Date startingDate;
+
+        private final Date endingDate;
+
+        private int resourceIndex = 0;
+
+        private int firstResult = 0;
+
+        WorkingHoursPerWorkerRows(List<Resource> resources, List<Label> labels,
+                LabelFilterType labelFilterType, List<Criterion> criterions,
+                Date startingDate, Date endingDate) {
+            this.resources = resources;
+            this.labels = labels;
+            this.labelFilterType = labelFilterType;
+            this.criterions = criterions;
+            this.startingDate = startingDate;
+            this.endingDate = endingDate;
+        }
+
+        @Override
+        public List<HoursWorkedPerResourceDTO> next(final int maxRows) {
+            while (resourceIndex < resources.size()) {
+                List<HoursWorkedPerResourceDTO> result = adHocTransactionService
+                        .runOnReadOnlyTransaction(new IOnTransaction<List<HoursWorkedPerResourceDTO>>() {
+
+                            @Override
+                            public List<HoursWorkedPerResourceDTO> execute() {
+                                return resourceDAO.getWorkingHoursPerWorker(
+                                        resources.get(resourceIndex), labels,
+                                        labelFilterType, criterions,
+                                        startingDate, endingDate, firstResult,
+                                        maxRows);
+                            }
+                        });
+                if (result.size() < maxRows) {
+                    resourceIndex++;
+                    firstResult = 0;
+                } else {
+                    firstResult += maxRows;
+                }
+                if (!result.isEmpty()) {
+                    return result;
+                }
+            }
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void reset() {
+            resourceIndex = 0;
+            firstResult = 0;
+        }
+
+    }
+
     @Override
     @Transactional(readOnly = true)
     public void init() {
@@ -0,0 +1,72 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.reports;
+
+import java.util.List;
+import java.util.Map;
+
+import net.sf.jasperreports.engine.JRDataSource;
+
+import org.libreplan.business.common.exceptions.ValidationException;
+
+/**
+ * Queue rendering reports in background threads, so the request threads are
+ * not blocked while the reports are filled.<br />
+ *
+ * Jobs with the same key submitted by the same user are shared while they are
+ * pending or during some time after finishing, so the same report is not
+ * rendered several times.
+ */
+public interface IReportJobsQueue {
+
+    /**
+     * Creates the {@link JRDataSource} of a report. It's only called if the
+     * report has to be rendered, it's done in the thread submitting the job.
+     */
+    public interface IDataSourceProvider {
+
+        JRDataSource getDataSource();
+
+    }
+
+    /**
+     * @param key
+     *            identifies the parameters used for the report, if
+     *            <code>null</code> the job is never shared
+     * @throws ValidationException
+     *             if the user has already too many pending jobs or the queue
+     *             is full
+     */
+    ReportJob submit(String owner, String reportName, String format,
+            Map<String, Object> parameters, String key,
+            IDataSourceProvider dataSourceProvider)
+            throws ValidationException;
+
+    /**
+     * @return the job with the given id or <code>null</code> if it doesn't
+     *         exist or it has already expired
+     */
+    ReportJob getJob(String id);
+
+    List<ReportJob> getJobsOf(String owner);
+
+}
@@ -21,6 +21,8 @@
 
 package org.libreplan.web.reports;
 
+import static org.libreplan.web.I18nHelper._;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,12 +31,21 @@ import net.sf.jasperreports.engine.JRParameter;
 
 import org.apache.commons.lang.StringUtils;
 import org.libreplan.business.common.Registry;
+import org.libreplan.business.common.exceptions.ValidationException;
+import org.libreplan.web.reports.IReportJobsQueue.IDataSourceProvider;
+import org.libreplan.web.security.SecurityUtils;
 import org.zkoss.util.Locales;
 import org.zkoss.zk.au.out.AuDownload;
 import org.zkoss.zk.ui.Executions;
+import org.zkoss.zk.ui.event.Event;
+import org.zkoss.zk.ui.event.EventListener;
+import org.zkoss.zk.ui.event.Events;
 import org.zkoss.zk.ui.util.GenericForwardComposer;
 import org.zkoss.zul.A;
+import org.zkoss.zul.Filedownload;
 import org.zkoss.zul.Hbox;
+import org.zkoss.zul.Messagebox;
+import org.zkoss.zul.Timer;
 
 import com.igalia.java.zk.components.JasperreportComponent;
 
@@ -47,6 +58,10 @@ import com.igalia.java.zk.components.JasperreportComponent;
  * takes care of this behaviour. In addition, when a new report is shown, a link
  * to the report shows up as well.
  *
+ * Reports in formats other than HTML are rendered in background by
+ * {@link IReportJobsQueue}, the controller polls the job and downloads the
+ * report once it's finished.
+ *
  * @author Diego Pino Garcia <dpino@igalia.com>
  * @author Manuel Rego Casasnovas <rego@igalia.com>
  *
@@ -55,15 +70,28 @@ public abstract class LibrePlanReportController extends GenericForwardComposer {
 
     private static final String HTML = "html";
 
+    private static final int POLLING_INTERVAL_MILLIS = 1000;
+
     protected ComboboxOutputFormat outputFormat;
 
     protected Hbox URItext;
 
     protected A URIlink;
 
+    private IReportJobsQueue reportJobsQueue;
+
+    private ReportJob reportJob;
+
+    private Timer reportJobTimer;
+
     public void showReport(JasperreportComponent jasperreport){
         final String type = outputFormat.getOutputFormat();
 
+        if (!type.equals(HTML) && reportJobsQueue != null) {
+            renderInBackground(type);
+            return;
+        }
+
         jasperreport.setSrc(getReportName());
         jasperreport.setDatasource(getDataSource());
         jasperreport.setParameters(getParameters());
@@ -84,6 +112,93 @@ public abstract class LibrePlanReportController extends GenericForwardComposer {
         }
     }
 
+    private void renderInBackground(String type) {
+        try {
+            reportJob = reportJobsQueue.submit(
+                    SecurityUtils.getSessionUserLoginName(), getReportName(),
+                    type, getParameters(), getReportKey(),
+                    new IDataSourceProvider() {
+
+                        @Override
+                        public JRDataSource getDataSource() {
+                            return LibrePlanReportController.this
+                                    .getDataSource();
+                        }
+                    });
+        } catch (ValidationException e) {
+            showErrorMessage(e.getMessage());
+            return;
+        }
+        URItext.setStyle("display: none");
+        getReportJobTimer().start();
+    }
+
+    private Timer getReportJobTimer() {
+        if (reportJobTimer == null) {
+            reportJobTimer = new Timer(POLLING_INTERVAL_MILLIS);
+            reportJobTimer.setRepeats(true);
+            reportJobTimer.addEventListener(Events.ON_TIMER,
+                    new EventListener() {
+
+                        @Override
+                        public void onEvent(Event event) {
+                            checkReportJob();
+                        }
+                    });
+            URItext.getParent().appendChild(reportJobTimer);
+
+            URIlink.addEventListener(Events.ON_CLICK, new EventListener() {
+
+                @Override
+                public void onEvent(Event event) {
+                    downloadReportJob();
+                }
+            });
+        }
+        return reportJobTimer;
+    }
+
+    private void checkReportJob() {
+        if (reportJob == null || reportJob.isPending()) {
+            return;
+        }
+        reportJobTimer.stop();
+        if (reportJob.isFailed()) {
+            showErrorMessage(_("The report could not be generated: {0}",
+                    reportJob.getErrorMessage()));
+            return;
+        }
+        downloadReportJob();
+        URItext.setStyle("display: inline");
+        URIlink.setHref(null);
+    }
+
+    private void downloadReportJob() {
+        if (reportJob != null && reportJob.isFinished()) {
+            Filedownload.save(reportJob.getOutput(),
+                    reportJob.getContentType(), reportJob.getFileName());
+        }
+    }
+
+    private void showErrorMessage(String error) {
+        try {
+            Messagebox.show(error, _("Error"), Messagebox.OK, Messagebox.ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Identifies the filters used to generate the report which are not already
+     * in {@link #getParameters()}. Reports rendered in background with the
+     * same parameters and key are shared for a while.
+     *
+     * @return <code>null</code> by default, so the reports are never shared
+     */
+    protected String getReportKey() {
+        return null;
+    }
+
     protected Map<String, Object> getParameters() {
         Map<String, Object> parameters = new HashMap<String, Object>();
         String companyLogo = Registry.getConfigurationDAO()
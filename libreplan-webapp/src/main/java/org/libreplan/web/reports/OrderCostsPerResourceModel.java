@@ -35,10 +35,11 @@ import java.util.Map;
 import java.util.Set;
 
 import net.sf.jasperreports.engine.JRDataSource;
-import net.sf.jasperreports.engine.JREmptyDataSource;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
 
 import org.joda.time.LocalDate;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.daos.IConfigurationDAO;
 import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
 import org.libreplan.business.expensesheet.entities.ExpenseSheetLine;
@@ -52,7 +53,6 @@ import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.reports.dtos.CostExpenseSheetDTO;
 import org.libreplan.business.reports.dtos.OrderCostMasterDTO;
 import org.libreplan.business.reports.dtos.OrderCostsPerResourceDTO;
-import org.libreplan.business.reports.dtos.ReportPerOrderElementDTO;
 import org.libreplan.business.resources.daos.ICriterionTypeDAO;
 import org.libreplan.business.resources.entities.Criterion;
 import org.libreplan.business.resources.entities.CriterionType;
@@ -61,6 +61,7 @@ import org.libreplan.business.resources.entities.Worker;
 import org.libreplan.business.scenarios.IScenarioManager;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workreports.entities.WorkReportLine;
+import org.libreplan.web.reports.StreamingBeanDataSource.IRowsSource;
 import org.libreplan.web.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -95,6 +96,9 @@ public class OrderCostsPerResourceModel implements IOrderCostsPerResourceModel {
     @Autowired
     private IScenarioManager scenarioManager;
 
+    @Autowired
+    private IAdHocTransactionService adHocTransactionService;
+
     private List<Order> selectedOrders = new ArrayList<Order>();
 
     private List<Label> selectedLabels = new ArrayList<Label>();
@@ -121,6 +125,10 @@ public class OrderCostsPerResourceModel implements IOrderCostsPerResourceModel {
         applicableResources.add(ResourceEnum.WORKER);
     }
 
+    /**
+     * The rows of the report are built for a page of order elements at a time
+     * while the report is filled, see {@link StreamingBeanDataSource}
+     */
     @Override
     @Transactional(readOnly = true)
     public JRDataSource getOrderReport(List<Order> orders, Date startingDate,
@@ -128,44 +136,142 @@ public class OrderCostsPerResourceModel implements IOrderCostsPerResourceModel {
         if (orders.isEmpty()) {
             orders = allOrders;
         }
+        return StreamingBeanDataSource.create(new OrderCostMastersRows(orders,
+                startingDate, endingDate, labels, criterions));
+    }
+
+    /**
+     * The empty rows are created on construction, as the chunks are built from
+     * the thread filling the report, where the messages can't be translated
+     */
+    private class OrderCostMastersRows implements
+            IRowsSource<OrderCostMasterDTO> {
+
+        private final List<Order> orders;
+
+        private final Date startingDate;
+
+        private final Date endingDate;
+
+        private final Set<Long> labelIds = new HashSet<Long>();
+
+        private final List<Criterion> criterions;
+
+        private final Order allProjects;
+
+        private final List<OrderCostsPerResourceDTO> emptyWorkReportLines;
+
+        private final List<CostExpenseSheetDTO> emptyExpenses;
+
+        private int firstResult = 0;
+
+        private boolean finished = false;
+
+        private boolean anyRow = false;
+
+        OrderCostMastersRows(List<Order> orders, Date startingDate,
+                Date endingDate, List<Label> labels, List<Criterion> criterions) {
+            this.orders = orders;
+            this.startingDate = startingDate;
+            this.endingDate = endingDate;
+            if (labels != null) {
+                for (Label each : labels) {
+                    labelIds.add(each.getId());
+                }
+            }
+            this.criterions = criterions;
+            this.allProjects = Order.create();
+            this.allProjects.setName(_("All projects"));
+            this.emptyWorkReportLines = createEmptyWorkReportLineList(allProjects);
+            this.emptyExpenses = createEmptyExpenseSheetLineList(allProjects);
+        }
 
-        reattachLabels();
-
-        // list to the master report
-        List<OrderCostMasterDTO> listOrderCostMasterDTO = new ArrayList<OrderCostMasterDTO>();
-
-        // list to the WorkReportLine subreport
-        List<OrderCostsPerResourceDTO> workingHoursPerWorkerList = orderDAO
-                .getOrderCostsPerResource(orders, startingDate, endingDate, criterions);
-        filteredOrderElementsByLabels(workingHoursPerWorkerList, labels);
-        Collections.sort(workingHoursPerWorkerList);
-        Map<OrderElement, List<OrderCostsPerResourceDTO>> mapWRL = groupWorkReportLinesByOrderElment(workingHoursPerWorkerList);
-
-        // list to the ExpenseSheet subreport
-        List<CostExpenseSheetDTO> costExpenseSheetList = orderDAO.getCostExpenseSheet(orders,
-                startingDate, endingDate, criterions);
-        filteredOrderElementsByLabels(costExpenseSheetList, labels);
-        Map<OrderElement, List<CostExpenseSheetDTO>> mapES = groupExpensesByOrderElment(costExpenseSheetList);
-
-        Set<OrderElement> listOrderElement = new HashSet<OrderElement>(mapWRL.keySet());
-        listOrderElement.addAll(mapES.keySet());
-
-        if (listOrderElement.isEmpty()) {
-            listOrderCostMasterDTO.add(createEmptyOrderCostMasterDTO());
-        } else {
-            for (OrderElement orderElement : listOrderElement) {
-                List<OrderCostsPerResourceDTO> listWorkReportLineDTO = mapWRL.get(orderElement);
-                if (listWorkReportLineDTO == null || listWorkReportLineDTO.isEmpty()) {
-                    Order order = Order.create();
-                    order.setName(_("All projects"));
-                    listWorkReportLineDTO = createEmptyWorkReportLineList(order);
+        @Override
+        public List<OrderCostMasterDTO> next(final int maxRows) {
+            while (!finished) {
+                List<OrderCostMasterDTO> result = adHocTransactionService
+                        .runOnReadOnlyTransaction(new IOnTransaction<List<OrderCostMasterDTO>>() {
+
+                            @Override
+                            public List<OrderCostMasterDTO> execute() {
+                                List<OrderElement> orderElements = orderDAO
+                                        .getOrderElementsWithCosts(
+                                                startingDate, endingDate,
+                                                firstResult, maxRows);
+                                finished = orderElements.size() < maxRows;
+                                firstResult += maxRows;
+                                return createOrderCostMasters(filteredOrderElementsByLabels(orderElements));
+                            }
+                        });
+                if (!result.isEmpty()) {
+                    anyRow = true;
+                    return result;
+                }
+            }
+            if (!anyRow) {
+                anyRow = true;
+                return Collections.singletonList(new OrderCostMasterDTO(
+                        allProjects, new JRBeanCollectionDataSource(
+                                emptyWorkReportLines),
+                        new JRBeanCollectionDataSource(emptyExpenses)));
+            }
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void reset() {
+            firstResult = 0;
+            finished = false;
+            anyRow = false;
+        }
+
+        private List<OrderElement> filteredOrderElementsByLabels(
+                List<OrderElement> orderElements) {
+            if (labelIds.isEmpty()) {
+                return orderElements;
+            }
+            List<OrderElement> result = new ArrayList<OrderElement>();
+            for (OrderElement each : orderElements) {
+                if (containsAny(labelIds, getInheritedLabels(each))) {
+                    result.add(each);
+                }
+            }
+            return result;
+        }
+
+        private List<OrderCostMasterDTO> createOrderCostMasters(
+                List<OrderElement> orderElements) {
+            // list to the WorkReportLine subreport
+            List<OrderCostsPerResourceDTO> workingHoursPerWorkerList = orderDAO
+                    .getOrderCostsPerResource(orderElements, orders,
+                            startingDate, endingDate, criterions);
+            Collections.sort(workingHoursPerWorkerList);
+            Map<Long, List<OrderCostsPerResourceDTO>> mapWRL = groupWorkReportLinesByOrderElment(workingHoursPerWorkerList);
+
+            // list to the ExpenseSheet subreport
+            List<CostExpenseSheetDTO> costExpenseSheetList = orderDAO
+                    .getCostExpenseSheet(orderElements, orders, startingDate,
+                            endingDate, criterions);
+            Map<Long, List<CostExpenseSheetDTO>> mapES = groupExpensesByOrderElment(costExpenseSheetList);
+
+            List<OrderCostMasterDTO> result = new ArrayList<OrderCostMasterDTO>();
+            for (OrderElement orderElement : orderElements) {
+                List<OrderCostsPerResourceDTO> listWorkReportLineDTO = mapWRL
+                        .get(orderElement.getId());
+                List<CostExpenseSheetDTO> listExpenseSheetDTO = mapES
+                        .get(orderElement.getId());
+                if (listWorkReportLineDTO == null
+                        && listExpenseSheetDTO == null) {
+                    continue;
+                }
+                if (listWorkReportLineDTO == null) {
+                    listWorkReportLineDTO = emptyWorkReportLines;
                 }
 
                 JRDataSource dsWRL = new JRBeanCollectionDataSource(listWorkReportLineDTO);
 
-                List<CostExpenseSheetDTO> listExpenseSheetDTO = mapES.get(orderElement);
                 JRDataSource dsES = null;
-                if (listExpenseSheetDTO != null && !listExpenseSheetDTO.isEmpty()) {
+                if (listExpenseSheetDTO != null) {
                     dsES = new JRBeanCollectionDataSource(listExpenseSheetDTO);
                 }
 
@@ -173,15 +279,12 @@ public class OrderCostsPerResourceModel implements IOrderCostsPerResourceModel {
                         dsES);
                 initOrderInOrderCostMasterDTO(orderCostMasterDTO, listWorkReportLineDTO,
                         listExpenseSheetDTO);
-                listOrderCostMasterDTO.add(orderCostMasterDTO);
+                result.add(orderCostMasterDTO);
             }
+            Collections.sort(result);
+            return result;
         }
-        if (listOrderCostMasterDTO != null && !listOrderCostMasterDTO.isEmpty()) {
-            Collections.sort(listOrderCostMasterDTO);
-            return new JRBeanCollectionDataSource(listOrderCostMasterDTO);
-        } else {
-            return new JREmptyDataSource();
-        }
+
     }
 
     private void initOrderInOrderCostMasterDTO(OrderCostMasterDTO orderCostMasterDTO,
@@ -197,11 +300,11 @@ public class OrderCostsPerResourceModel implements IOrderCostsPerResourceModel {
         }
     }
 
-    private Map<OrderElement, List<OrderCostsPerResourceDTO>> groupWorkReportLinesByOrderElment(
+    private Map<Long, List<OrderCostsPerResourceDTO>> groupWorkReportLinesByOrderElment(
             List<OrderCostsPerResourceDTO> workingHoursPerWorkerList) {
-        Map<OrderElement, List<OrderCostsPerResourceDTO>> mapWRL = new HashMap<OrderElement, List<OrderCostsPerResourceDTO>>();
+        Map<Long, List<OrderCostsPerResourceDTO>> mapWRL = new HashMap<Long, List<OrderCostsPerResourceDTO>>();
         for (OrderCostsPerResourceDTO dto : workingHoursPerWorkerList) {
-            OrderElement orderElement = dto.getOrderElement();
+            Long orderElement = dto.getOrderElement().getId();
             if (mapWRL.get(orderElement) == null) {
                 mapWRL.put(orderElement, new ArrayList<OrderCostsPerResourceDTO>());
             }
@@ -210,11 +313,11 @@ public class OrderCostsPerResourceModel implements IOrderCostsPerResourceModel {
         return mapWRL;
     }
 
-    private Map<OrderElement, List<CostExpenseSheetDTO>> groupExpensesByOrderElment(
+    private Map<Long, List<CostExpenseSheetDTO>> groupExpensesByOrderElment(
             List<CostExpenseSheetDTO> costExpenseSheetList) {
-        Map<OrderElement, List<CostExpenseSheetDTO>> mapES = new HashMap<OrderElement, List<CostExpenseSheetDTO>>();
+        Map<Long, List<CostExpenseSheetDTO>> mapES = new HashMap<Long, List<CostExpenseSheetDTO>>();
         for (CostExpenseSheetDTO dto : costExpenseSheetList) {
-            OrderElement orderElement = dto.getOrderElement();
+            Long orderElement = dto.getOrderElement().getId();
             if (mapES.get(orderElement) == null) {
                 mapES.put(orderElement, new ArrayList<CostExpenseSheetDTO>());
             }
@@ -253,22 +356,6 @@ public class OrderCostsPerResourceModel implements IOrderCostsPerResourceModel {
         return emptyDTO;
     }
 
-    private OrderCostMasterDTO createEmptyOrderCostMasterDTO() {
-        // create empty order
-        Order order = Order.create();
-        order.setName(_("All projects"));
-
-        // create empty subreport to expense sheets
-        JRDataSource emptyES = new JRBeanCollectionDataSource(
-                createEmptyExpenseSheetLineList(order));
-
-        // create empty subreport to work report lines
-        JRDataSource emptyWRL = new JRBeanCollectionDataSource(createEmptyWorkReportLineList(order));
-
-        OrderCostMasterDTO emptyDTO = new OrderCostMasterDTO(order, emptyWRL, emptyES);
-        return emptyDTO;
-    }
-
     private void loadAllOrders() {
         this.allOrders = orderDAO.getOrdersByReadAuthorizationByScenario(
                 SecurityUtils.getSessionUserLoginName(),
@@ -339,26 +426,12 @@ public class OrderCostsPerResourceModel implements IOrderCostsPerResourceModel {
         loadAllCriterions();
     }
 
-    @Transactional(readOnly = true)
-    private void filteredOrderElementsByLabels(
-            List<? extends ReportPerOrderElementDTO> listExpenses, List<Label> labels) {
-        List<ReportPerOrderElementDTO> listExpensesCopy = new ArrayList<ReportPerOrderElementDTO>(
-                listExpenses);
-
-        if (labels != null && !labels.isEmpty()) {
-            for (ReportPerOrderElementDTO dto : listExpensesCopy) {
-                List<Label> inheritedLabels = getInheritedLabels(dto.getOrderElement());
-
-                if (!containsAny(labels, inheritedLabels)) {
-                    listExpenses.remove(dto);
-                }
-            }
-        }
-    }
-
-    private boolean containsAny(List<Label> labelsA, List<Label> labelsB) {
-        for (Label label : labelsB) {
-            if (labelsA.contains(label)) {
+    /**
+     * The labels are compared by id, as they are loaded in another transaction
+     */
+    private boolean containsAny(Set<Long> labelIds, List<Label> labels) {
+        for (Label label : labels) {
+            if (labelIds.contains(label.getId())) {
                 return true;
             }
         }
@@ -378,12 +451,6 @@ public class OrderCostsPerResourceModel implements IOrderCostsPerResourceModel {
         return result;
     }
 
-    private void reattachLabels() {
-        for (Label label : getAllLabels()) {
-            labelDAO.reattach(label);
-        }
-    }
-
     @Override
     public List<Label> getAllLabels() {
         return allLabels;
@@ -0,0 +1,166 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.reports;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.daos.IScenarioDAO;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.web.reports.StreamingBeanDataSource.IRowsSource;
+
+/**
+ * Rows of a report with a row per {@link Task} of an {@link Order}.<br />
+ *
+ * Only the ids of the {@link OrderElement order elements} of the tasks are
+ * kept. Each chunk reloads the order in its own transaction and builds the
+ * rows for the tasks of that chunk, so the rows of the previous chunks and the
+ * entities loaded for them can be discarded.<br />
+ *
+ * The chunks are built from the thread filling the report, where there isn't
+ * a logged user, so the {@link Scenario} is given instead of taken from the
+ * {@link IScenarioManager}.
+ */
+abstract class OrderTasksRows<T> implements IRowsSource<T> {
+
+    /**
+     * @return the ids of the order elements of the tasks in the order they
+     *         must be shown
+     */
+    static List<Long> orderElementIds(Order order, List<Task> tasks) {
+        Map<Long, Task> tasksByOrderElement = new HashMap<Long, Task>();
+        for (Task each : tasks) {
+            tasksByOrderElement.put(each.getOrderElement().getId(), each);
+        }
+        List<Long> result = new ArrayList<Long>();
+        for (OrderElement each : order.getAllChildren()) {
+            if (tasksByOrderElement.containsKey(each.getId())) {
+                result.add(each.getId());
+            }
+        }
+        return result;
+    }
+
+    private final IAdHocTransactionService adHocTransactionService;
+
+    private final IOrderDAO orderDAO;
+
+    private final IScenarioDAO scenarioDAO;
+
+    private final Long scenarioId;
+
+    private final Long orderId;
+
+    private final List<Long> orderElementIds;
+
+    private int position = 0;
+
+    OrderTasksRows(IAdHocTransactionService adHocTransactionService,
+            IOrderDAO orderDAO, IScenarioDAO scenarioDAO, Scenario scenario,
+            Long orderId, List<Long> orderElementIds) {
+        Validate.notNull(scenario.getId());
+        Validate.notNull(orderId);
+        Validate.noNullElements(orderElementIds);
+        this.adHocTransactionService = adHocTransactionService;
+        this.orderDAO = orderDAO;
+        this.scenarioDAO = scenarioDAO;
+        this.scenarioId = scenario.getId();
+        this.orderId = orderId;
+        this.orderElementIds = orderElementIds;
+    }
+
+    protected abstract T createRow(Task task);
+
+    @Override
+    public List<T> next(int maxRows) {
+        while (position < orderElementIds.size()) {
+            int end = Math.min(position + maxRows, orderElementIds.size());
+            final List<Long> chunk = orderElementIds.subList(position, end);
+            position = end;
+            List<T> result = adHocTransactionService
+                    .runOnReadOnlyTransaction(new IOnTransaction<List<T>>() {
+
+                        @Override
+                        public List<T> execute() {
+                            return createRows(chunk);
+                        }
+                    });
+            if (!result.isEmpty()) {
+                return result;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private List<T> createRows(List<Long> chunk) {
+        Scenario scenario = scenarioDAO.findExistingEntity(scenarioId);
+        Order order = orderDAO.findExistingEntity(orderId);
+        order.useSchedulingDataFor(scenario);
+
+        Map<Long, OrderElement> orderElementsById = new HashMap<Long, OrderElement>();
+        for (OrderElement each : order.getAllChildren()) {
+            orderElementsById.put(each.getId(), each);
+        }
+        List<OrderElement> orderElements = new ArrayList<OrderElement>();
+        for (Long each : chunk) {
+            OrderElement orderElement = orderElementsById.get(each);
+            if (orderElement != null) {
+                orderElements.add(orderElement);
+            }
+        }
+
+        Map<Long, Task> tasksByOrderElement = new HashMap<Long, Task>();
+        for (Task each : orderDAO.getFilteredTask(orderElements, null)) {
+            tasksByOrderElement.put(each.getOrderElement().getId(), each);
+        }
+        List<T> result = new ArrayList<T>();
+        for (Long each : chunk) {
+            Task task = tasksByOrderElement.get(each);
+            if (task != null) {
+                for (ResourceAllocation<?> allocation : task
+                        .getAllResourceAllocations()) {
+                    allocation.switchToScenario(scenario);
+                }
+                result.add(createRow(task));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        position = 0;
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.reports;
+
+import java.util.Date;
+
+/**
+ * Report rendered in background by {@link IReportJobsQueue}.<br />
+ *
+ * The output of the report is kept in memory once the job is
+ * {@link ReportJobStatus#FINISHED} so it can be downloaded later.
+ */
+public class ReportJob {
+
+    public enum ReportJobStatus {
+        QUEUED, RUNNING, FINISHED, FAILED;
+
+        public boolean isPending() {
+            return this == QUEUED || this == RUNNING;
+        }
+    }
+
+    private final String id;
+
+    private final String owner;
+
+    private final String key;
+
+    private final String reportName;
+
+    private final String format;
+
+    private final Date creationDate = new Date();
+
+    private volatile ReportJobStatus status = ReportJobStatus.QUEUED;
+
+    private volatile Date finishDate;
+
+    private volatile byte[] output;
+
+    private volatile String errorMessage;
+
+    ReportJob(String id, String owner, String key, String reportName,
+            String format) {
+        this.id = id;
+        this.owner = owner;
+        this.key = key;
+        this.reportName = reportName;
+        this.format = format;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return the key identifying the parameters of the report or
+     *         <code>null</code> if the job can not be shared
+     */
+    String getKey() {
+        return key;
+    }
+
+    public String getReportName() {
+        return reportName;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public String getFileName() {
+        return reportName + "." + format;
+    }
+
+    public String getContentType() {
+        if (format.equals("pdf")) {
+            return "application/pdf";
+        }
+        if (format.equals("odt")) {
+            return "application/vnd.oasis.opendocument.text";
+        }
+        return "application/octet-stream";
+    }
+
+    public Date getCreationDate() {
+        return creationDate;
+    }
+
+    public Date getFinishDate() {
+        return finishDate;
+    }
+
+    public ReportJobStatus getStatus() {
+        return status;
+    }
+
+    public boolean isPending() {
+        return status.isPending();
+    }
+
+    public boolean isFinished() {
+        return status == ReportJobStatus.FINISHED;
+    }
+
+    public boolean isFailed() {
+        return status == ReportJobStatus.FAILED;
+    }
+
+    /**
+     * @return the rendered report or <code>null</code> if the job is not
+     *         finished
+     */
+    public byte[] getOutput() {
+        return output;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    void running() {
+        status = ReportJobStatus.RUNNING;
+    }
+
+    void finished(byte[] output) {
+        this.output = output;
+        this.finishDate = new Date();
+        this.status = ReportJobStatus.FINISHED;
+    }
+
+    void failed(String errorMessage) {
+        this.errorMessage = errorMessage;
+        this.finishDate = new Date();
+        this.status = ReportJobStatus.FAILED;
+    }
+
+    boolean isExpired(long now, long timeToLive) {
+        return finishDate != null
+                && now - finishDate.getTime() > timeToLive;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportJob [id=" + id + ", owner=" + owner + ", report="
+                + getFileName() + ", status=" + status + "]";
+    }
+
+}
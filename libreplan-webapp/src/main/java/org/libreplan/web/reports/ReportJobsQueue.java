@@ -0,0 +1,291 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.reports;
+
+import static org.libreplan.web.I18nHelper._;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRExporter;
+import net.sf.jasperreports.engine.JRExporterParameter;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.export.JRPdfExporter;
+import net.sf.jasperreports.engine.export.oasis.JROdtExporter;
+import net.sf.jasperreports.engine.util.JRLoader;
+
+import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.libreplan.business.common.exceptions.ValidationException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default implementation of {@link IReportJobsQueue}.<br />
+ *
+ * Reports are rendered by a pool of <code>WORKERS</code> threads, with at most
+ * <code>MAX_QUEUED_JOBS</code> jobs waiting. Each user can have at most
+ * <code>MAX_PENDING_JOBS_PER_USER</code> jobs queued or running at the same
+ * time. Finished jobs are kept during <code>TIME_TO_LIVE_MILLIS</code> so the
+ * output can be downloaded and reused by identical requests.
+ */
+@Component
+@Scope(BeanDefinition.SCOPE_SINGLETON)
+public class ReportJobsQueue implements IReportJobsQueue {
+
+    private static final Log LOG = LogFactory.getLog(ReportJobsQueue.class);
+
+    protected static final int WORKERS = 2;
+
+    protected static final int MAX_QUEUED_JOBS = 20;
+
+    protected static final int MAX_PENDING_JOBS_PER_USER = 2;
+
+    protected static final long TIME_TO_LIVE_MILLIS = 10 * 60 * 1000;
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(MAX_QUEUED_JOBS));
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<String, ReportJob>();
+
+    /**
+     * The job is added to the queue before its data source is built, so it's
+     * found by identical submissions and counted in the limits meanwhile. The
+     * data source is built out of the lock, as it can take a while.
+     */
+    @Override
+    public ReportJob submit(String owner, String reportName, String format,
+            Map<String, Object> parameters, String key,
+            IDataSourceProvider dataSourceProvider) throws ValidationException {
+        Validate.notNull(owner);
+        Validate.notNull(reportName);
+        Validate.notNull(format);
+
+        ReportJob job;
+        synchronized (this) {
+            removeExpiredJobs();
+            String jobKey = key == null ? null : buildKey(reportName, format,
+                    parameters, key);
+            ReportJob reusable = findReusable(owner, jobKey);
+            if (reusable != null) {
+                LOG.info("Reusing " + reusable);
+                return reusable;
+            }
+            if (countPendingJobsOf(owner) >= MAX_PENDING_JOBS_PER_USER) {
+                throw new ValidationException(
+                        _("You have already {0} reports being generated, please wait until they finish",
+                                MAX_PENDING_JOBS_PER_USER));
+            }
+            job = new ReportJob(UUID.randomUUID().toString(), owner, jobKey,
+                    reportName, format);
+            jobs.put(job.getId(), job);
+        }
+
+        JRDataSource dataSource;
+        try {
+            dataSource = dataSourceProvider.getDataSource();
+        } catch (RuntimeException e) {
+            discard(job, e.getMessage());
+            throw e;
+        }
+
+        synchronized (this) {
+            try {
+                executor.execute(renderingTask(job, parameters, dataSource));
+            } catch (RejectedExecutionException e) {
+                String message = _("There are too many reports being generated, please try again later");
+                discard(job, message);
+                throw new ValidationException(message);
+            }
+        }
+        LOG.info("Queued " + job);
+        return job;
+    }
+
+    /**
+     * Marks as failed a job that couldn't be queued, for the ones sharing it,
+     * and removes it
+     */
+    private void discard(ReportJob job, String errorMessage) {
+        job.failed(errorMessage);
+        jobs.remove(job.getId());
+    }
+
+    private String buildKey(String reportName, String format,
+            Map<String, Object> parameters, String key) {
+        StringBuilder result = new StringBuilder();
+        result.append(reportName).append('|').append(format).append('|')
+                .append(key);
+        for (Entry<String, Object> each : new TreeMap<String, Object>(
+                parameters).entrySet()) {
+            result.append('|').append(each.getKey()).append('=')
+                    .append(each.getValue());
+        }
+        return result.toString();
+    }
+
+    private ReportJob findReusable(String owner, String jobKey) {
+        if (jobKey == null) {
+            return null;
+        }
+        for (ReportJob each : jobs.values()) {
+            if (owner.equals(each.getOwner()) && jobKey.equals(each.getKey())
+                    && !each.isFailed()) {
+                return each;
+            }
+        }
+        return null;
+    }
+
+    private int countPendingJobsOf(String owner) {
+        int result = 0;
+        for (ReportJob each : jobs.values()) {
+            if (owner.equals(each.getOwner()) && each.isPending()) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private void removeExpiredJobs() {
+        long now = currentTimeMillis();
+        Iterator<ReportJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired(now, TIME_TO_LIVE_MILLIS)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private Runnable renderingTask(final ReportJob job,
+            final Map<String, Object> parameters, final JRDataSource dataSource) {
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                job.running();
+                long start = System.currentTimeMillis();
+                try {
+                    job.finished(render(job, parameters, dataSource));
+                    LOG.info("Finished " + job + " in "
+                            + (System.currentTimeMillis() - start) + " ms");
+                } catch (Exception e) {
+                    LOG.error("Error rendering " + job, e);
+                    job.failed(e.getMessage());
+                }
+            }
+        };
+    }
+
+    /**
+     * Fills and exports the report of the job. It's called from the worker
+     * threads.
+     */
+    protected byte[] render(ReportJob job, Map<String, Object> parameters,
+            JRDataSource dataSource) throws JRException {
+        return export(job.getFormat(),
+                fill(job.getReportName(), parameters, dataSource));
+    }
+
+    private JasperPrint fill(String reportName, Map<String, Object> parameters,
+            JRDataSource dataSource) throws JRException {
+        URL compiled = getClass().getClassLoader().getResource(
+                reportName + ".jasper");
+        if (compiled == null) {
+            throw new JRException("Compiled report not found: " + reportName);
+        }
+        JasperReport report = (JasperReport) JRLoader.loadObject(compiled);
+        return JasperFillManager.fillReport(report, parameters, dataSource);
+    }
+
+    private byte[] export(String format, JasperPrint print) throws JRException {
+        JRExporter exporter = createExporter(format);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exporter.setParameter(JRExporterParameter.JASPER_PRINT, print);
+        exporter.setParameter(JRExporterParameter.OUTPUT_STREAM, output);
+        exporter.exportReport();
+        return output.toByteArray();
+    }
+
+    private JRExporter createExporter(String format) throws JRException {
+        if (format.equals("pdf")) {
+            return new JRPdfExporter();
+        }
+        if (format.equals("odt")) {
+            return new JROdtExporter();
+        }
+        throw new JRException("Format not supported in background: " + format);
+    }
+
+    @Override
+    public ReportJob getJob(String id) {
+        ReportJob result = jobs.get(id);
+        if (result != null
+                && result.isExpired(currentTimeMillis(), TIME_TO_LIVE_MILLIS)) {
+            jobs.remove(id);
+            return null;
+        }
+        return result;
+    }
+
+    @Override
+    public List<ReportJob> getJobsOf(String owner) {
+        List<ReportJob> result = new ArrayList<ReportJob>();
+        for (ReportJob each : jobs.values()) {
+            if (owner.equals(each.getOwner())) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
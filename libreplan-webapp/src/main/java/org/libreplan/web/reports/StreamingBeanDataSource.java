@@ -0,0 +1,117 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.reports;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+import net.sf.jasperreports.engine.data.JRAbstractBeanDataSource;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Data source for JasperReports that gets its beans in chunks from a
+ * {@link IRowsSource} instead of holding all of them from the beginning like
+ * {@link net.sf.jasperreports.engine.data.JRBeanCollectionDataSource} does. So
+ * only a chunk of rows is kept in memory while the report is filled.<br />
+ *
+ * As the report is filled after the request that created the data source, the
+ * {@link IRowsSource} should retrieve each chunk in its own transaction.
+ */
+public class StreamingBeanDataSource<T> extends JRAbstractBeanDataSource {
+
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * Provides the rows of the report in order
+     */
+    public interface IRowsSource<T> {
+
+        /**
+         * @return the rows after the ones already returned, at most
+         *         <code>maxRows</code>. An empty list means that there aren't
+         *         more rows
+         */
+        List<T> next(int maxRows);
+
+        /**
+         * Starts again from the first row
+         */
+        void reset();
+
+    }
+
+    public static <T> StreamingBeanDataSource<T> create(IRowsSource<T> source) {
+        return create(source, DEFAULT_CHUNK_SIZE);
+    }
+
+    public static <T> StreamingBeanDataSource<T> create(IRowsSource<T> source,
+            int chunkSize) {
+        return new StreamingBeanDataSource<T>(source, chunkSize);
+    }
+
+    private final IRowsSource<T> source;
+
+    private final int chunkSize;
+
+    private Iterator<T> chunk = Collections.<T> emptyList().iterator();
+
+    private boolean finished = false;
+
+    private T current;
+
+    private StreamingBeanDataSource(IRowsSource<T> source, int chunkSize) {
+        super(true);
+        Validate.notNull(source);
+        Validate.isTrue(chunkSize > 0);
+        this.source = source;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean next() {
+        if (!chunk.hasNext() && !finished) {
+            List<T> rows = source.next(chunkSize);
+            finished = rows.isEmpty();
+            chunk = rows.iterator();
+        }
+        current = chunk.hasNext() ? chunk.next() : null;
+        return current != null;
+    }
+
+    @Override
+    public Object getFieldValue(JRField field) throws JRException {
+        return getFieldValue(current, field);
+    }
+
+    @Override
+    public void moveFirst() {
+        source.reset();
+        chunk = Collections.<T> emptyList().iterator();
+        finished = false;
+        current = null;
+    }
+
+}
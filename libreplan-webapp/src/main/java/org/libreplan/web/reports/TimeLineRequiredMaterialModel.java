@@ -24,13 +24,20 @@ package org.libreplan.web.reports;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import net.sf.jasperreports.engine.JRDataSource;
 import net.sf.jasperreports.engine.JREmptyDataSource;
-import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
 
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.materials.daos.IMaterialAssignmentDAO;
 import org.libreplan.business.materials.daos.IMaterialCategoryDAO;
 import org.libreplan.business.materials.daos.IMaterialDAO;
 import org.libreplan.business.materials.entities.Material;
@@ -46,7 +53,9 @@ import org.libreplan.business.planner.daos.ITaskSourceDAO;
 import org.libreplan.business.planner.entities.TaskElement;
 import org.libreplan.business.reports.dtos.TimeLineRequiredMaterialDTO;
 import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.daos.IScenarioDAO;
 import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.web.reports.StreamingBeanDataSource.IRowsSource;
 import org.libreplan.web.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -82,6 +91,15 @@ public class TimeLineRequiredMaterialModel implements
     @Autowired
     private IMaterialCategoryDAO categoryDAO;
 
+    @Autowired
+    private IMaterialAssignmentDAO materialAssignmentDAO;
+
+    @Autowired
+    private IScenarioDAO scenarioDAO;
+
+    @Autowired
+    private IAdHocTransactionService adHocTransactionService;
+
     private Date startingDate;
 
     private Date endingDate;
@@ -152,6 +170,11 @@ public class TimeLineRequiredMaterialModel implements
         initializeOrderElements(order.getAllOrderElements());
     }
 
+    /**
+     * Only the material assignments to show and their dates are kept, the rows
+     * of the report are built in chunks while the report is filled, see
+     * {@link StreamingBeanDataSource}
+     */
     @Override
     @Transactional(readOnly = true)
     public JRDataSource getTimeLineRequiredMaterial(Date startingDate,
@@ -172,12 +195,12 @@ public class TimeLineRequiredMaterialModel implements
             each.useSchedulingDataFor(currentScenario);
         }
 
-        List<TimeLineRequiredMaterialDTO> result = filterConsult(startingDate,
+        List<RequiredMaterial> result = filterRequiredMaterials(startingDate,
                 endingDate, status, orders, categories, materials);
 
-
-         if (result != null && !result.isEmpty()) {
-            return new JRBeanCollectionDataSource(result);
+        if (!result.isEmpty()) {
+            return StreamingBeanDataSource.create(new RequiredMaterialRows(
+                    currentScenario, result));
         } else {
             return new JREmptyDataSource();
         }
@@ -188,6 +211,87 @@ public class TimeLineRequiredMaterialModel implements
     public List<TimeLineRequiredMaterialDTO> filterConsult(Date startingDate,
             Date endingDate, MaterialStatusEnum status, List<Order> listOrders,
             List<MaterialCategory> categories, List<Material> materials) {
+        return createMaterialDTOs(scenarioManager.getCurrent(),
+                filterRequiredMaterials(startingDate, endingDate, status,
+                        listOrders, categories, materials));
+    }
+
+    /**
+     * A {@link MaterialAssignment} that is shown in the report
+     */
+    private static class RequiredMaterial {
+
+        private final Long materialAssignmentId;
+
+        private final Long orderId;
+
+        private final Date initDate;
+
+        RequiredMaterial(Long materialAssignmentId, Long orderId,
+                Date initDate) {
+            this.materialAssignmentId = materialAssignmentId;
+            this.orderId = orderId;
+            this.initDate = initDate;
+        }
+
+    }
+
+    /**
+     * The chunks are built from the thread filling the report, where there
+     * isn't a logged user, so the {@link Scenario} is kept instead of taken
+     * from the {@link IScenarioManager}
+     */
+    private class RequiredMaterialRows implements
+            IRowsSource<TimeLineRequiredMaterialDTO> {
+
+        private final Long scenarioId;
+
+        private final List<RequiredMaterial> requiredMaterials;
+
+        private int position = 0;
+
+        RequiredMaterialRows(Scenario scenario,
+                List<RequiredMaterial> requiredMaterials) {
+            this.scenarioId = scenario.getId();
+            this.requiredMaterials = requiredMaterials;
+        }
+
+        @Override
+        public List<TimeLineRequiredMaterialDTO> next(int maxRows) {
+            while (position < requiredMaterials.size()) {
+                int end = Math.min(position + maxRows,
+                        requiredMaterials.size());
+                final List<RequiredMaterial> chunk = requiredMaterials
+                        .subList(position, end);
+                position = end;
+                List<TimeLineRequiredMaterialDTO> result = adHocTransactionService
+                        .runOnReadOnlyTransaction(new IOnTransaction<List<TimeLineRequiredMaterialDTO>>() {
+
+                            @Override
+                            public List<TimeLineRequiredMaterialDTO> execute() {
+                                return createMaterialDTOs(
+                                        scenarioDAO
+                                                .findExistingEntity(scenarioId),
+                                        chunk);
+                            }
+                        });
+                if (!result.isEmpty()) {
+                    return result;
+                }
+            }
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void reset() {
+            position = 0;
+        }
+
+    }
+
+    private List<RequiredMaterial> filterRequiredMaterials(Date startingDate,
+            Date endingDate, MaterialStatusEnum status, List<Order> listOrders,
+            List<MaterialCategory> categories, List<Material> materials) {
 
         this.startingDate = startingDate;
         this.endingDate = endingDate;
@@ -196,13 +300,11 @@ public class TimeLineRequiredMaterialModel implements
                 listOrders, categories, materials);
         loadDataMaterial();
 
-        List<TimeLineRequiredMaterialDTO> result = new ArrayList<TimeLineRequiredMaterialDTO>();
-        result = sort(filterAndCreateMaterialDTOs());
-        return result;
+        return sortRequiredMaterials(filterMaterials());
     }
 
-    private List<TimeLineRequiredMaterialDTO> filterAndCreateMaterialDTOs() {
-        List<TimeLineRequiredMaterialDTO> result = new ArrayList<TimeLineRequiredMaterialDTO>();
+    private List<RequiredMaterial> filterMaterials() {
+        List<RequiredMaterial> result = new ArrayList<RequiredMaterial>();
         for (MaterialAssignment material : listMaterialAssignment) {
             OrderElement order = orderDAO.loadOrderAvoidingProxyFor(material
                     .getOrderElement());
@@ -210,7 +312,6 @@ public class TimeLineRequiredMaterialModel implements
             order.getSchedulingState();
 
             TaskElement task = findTaskBy(material);
-            reloadTask(task);
             Date startDate;
             Date endDate;
 
@@ -223,13 +324,69 @@ public class TimeLineRequiredMaterialModel implements
             }
             // check if the dates match
             if(acceptDates(startDate,endDate)){
-                result.add(new TimeLineRequiredMaterialDTO(material, task,
-                        startDate, order));
+                result.add(new RequiredMaterial(material.getId(), order
+                        .getId(), startDate));
             }
         }
         return result;
     }
 
+    /**
+     * Same order as {@link #sort(List)}: the latest dates first and, for the
+     * same date, the last found first
+     */
+    private List<RequiredMaterial> sortRequiredMaterials(
+            List<RequiredMaterial> requiredMaterials) {
+        List<RequiredMaterial> result = new ArrayList<RequiredMaterial>(
+                requiredMaterials);
+        Collections.reverse(result);
+        Collections.sort(result, new Comparator<RequiredMaterial>() {
+
+            @Override
+            public int compare(RequiredMaterial o1, RequiredMaterial o2) {
+                return o2.initDate.compareTo(o1.initDate);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The orders of the material assignments are loaded again, so it can be
+     * called from a different transaction than the one that found them
+     */
+    private List<TimeLineRequiredMaterialDTO> createMaterialDTOs(
+            Scenario scenario, List<RequiredMaterial> requiredMaterials) {
+        Map<Long, Order> orders = new HashMap<Long, Order>();
+        Set<Long> materialAssignmentIds = new HashSet<Long>();
+        for (RequiredMaterial each : requiredMaterials) {
+            if (!orders.containsKey(each.orderId)) {
+                Order order = orderDAO.findExistingEntity(each.orderId);
+                order.useSchedulingDataFor(scenario);
+                orders.put(each.orderId, order);
+            }
+            materialAssignmentIds.add(each.materialAssignmentId);
+        }
+        Map<Long, MaterialAssignment> materialAssignments = new HashMap<Long, MaterialAssignment>();
+        for (MaterialAssignment each : materialAssignmentDAO
+                .getByIds(materialAssignmentIds)) {
+            materialAssignments.put(each.getId(), each);
+        }
+
+        List<TimeLineRequiredMaterialDTO> result = new ArrayList<TimeLineRequiredMaterialDTO>();
+        for (RequiredMaterial each : requiredMaterials) {
+            MaterialAssignment material = materialAssignments
+                    .get(each.materialAssignmentId);
+            if (material == null) {
+                continue;
+            }
+            TaskElement task = findTaskBy(material);
+            reloadTask(task);
+            result.add(new TimeLineRequiredMaterialDTO(material, task,
+                    each.initDate, orders.get(each.orderId)));
+        }
+        return result;
+    }
+
     private void reloadTask(TaskElement task) {
         if (task != null) {
             task.getOrderElement().getName();
@@ -31,14 +31,13 @@ import java.util.Set;
 
 import net.sf.jasperreports.engine.JRDataSource;
 import net.sf.jasperreports.engine.JREmptyDataSource;
-import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
 
 import org.joda.time.LocalDate;
+import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.labels.daos.ILabelDAO;
 import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.orders.daos.IOrderDAO;
 import org.libreplan.business.orders.entities.Order;
-import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.reports.dtos.WorkingProgressPerTaskDTO;
@@ -47,6 +46,7 @@ import org.libreplan.business.resources.entities.Criterion;
 import org.libreplan.business.resources.entities.CriterionType;
 import org.libreplan.business.resources.entities.ResourceEnum;
 import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.daos.IScenarioDAO;
 import org.libreplan.web.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -80,6 +80,12 @@ public class WorkingProgressPerTaskModel implements IWorkingProgressPerTaskModel
     @Autowired
     private ICriterionTypeDAO criterionTypeDAO;
 
+    @Autowired
+    private IScenarioDAO scenarioDAO;
+
+    @Autowired
+    private IAdHocTransactionService adHocTransactionService;
+
     private List<Label> selectedLabels = new ArrayList<Label>();
 
     private List<Criterion> selectedCriterions = new ArrayList<Criterion>();
@@ -113,6 +119,10 @@ public class WorkingProgressPerTaskModel implements IWorkingProgressPerTaskModel
         return result;
     }
 
+    /**
+     * The rows of the report are built in chunks while the report is filled,
+     * see {@link OrderTasksRows}
+     */
     @Override
     @Transactional(readOnly = true)
     public JRDataSource getWorkingProgressPerTaskReport(Order order,
@@ -120,49 +130,32 @@ public class WorkingProgressPerTaskModel implements IWorkingProgressPerTaskModel
 
         orderDAO.reattachUnmodifiedEntity(order);
         order.useSchedulingDataFor(scenarioManager.getCurrent());
-        LocalDate referenceLocalDate = new LocalDate(referenceDate);
-
-        final List<WorkingProgressPerTaskDTO> workingHoursPerWorkerList =
-            new ArrayList<WorkingProgressPerTaskDTO>();
+        final LocalDate referenceLocalDate = new LocalDate(referenceDate);
 
         reattachLabels();
         final List<Task> tasks = commonQueries.filteredTaskElements(order,
                 labels, criterions);
-        final List<Task> sortTasks = sortTasks(order, tasks);
-        for (Task task : sortTasks) {
-            workingHoursPerWorkerList.add(new WorkingProgressPerTaskDTO(task,
-                    referenceLocalDate));
-        }
-        if (!workingHoursPerWorkerList.isEmpty()) {
-            return new JRBeanCollectionDataSource(workingHoursPerWorkerList);
+        List<Long> orderElementIds = OrderTasksRows.orderElementIds(order,
+                tasks);
+        if (!orderElementIds.isEmpty()) {
+            return StreamingBeanDataSource
+                    .create(new OrderTasksRows<WorkingProgressPerTaskDTO>(
+                            adHocTransactionService, orderDAO, scenarioDAO,
+                            scenarioManager.getCurrent(), order.getId(),
+                            orderElementIds) {
+
+                        @Override
+                        protected WorkingProgressPerTaskDTO createRow(
+                                Task task) {
+                            return new WorkingProgressPerTaskDTO(task,
+                                    referenceLocalDate);
+                        }
+                    });
         } else {
             return new JREmptyDataSource();
         }
     }
 
-    private List<Task> sortTasks(Order order, List<Task> tasks) {
-        List<Task> sortTasks = new ArrayList<Task>();
-        final List<OrderElement> orderElements = order.getAllChildren();
-        for (OrderElement orderElement : orderElements) {
-            Task task = findOrderElementInTasks(orderElement, tasks);
-            if (task != null) {
-                sortTasks.add(task);
-            }
-        }
-        return sortTasks;
-    }
-
-    private Task findOrderElementInTasks(OrderElement orderElement,
-            List<Task> tasks) {
-        for (Task task : tasks) {
-            if (task != null
-                    && task.getOrderElement().getId().equals(
-                            orderElement.getId())) {
-                return task;
-            }
-        }
-        return null;
-    }
     @Override
     @Transactional(readOnly = true)
     public void init() {
@@ -1054,6 +1054,11 @@ public class ResourceLoadController implements Composer {
 
         @Override
         protected ILoadChartData getDataOn(Interval interval) {
+            if (generatedData.hasDailyLoadsConsidered()) {
+                return ResourceLoadChartData.fromDailyLoads(
+                        generatedData.getDailyLoadsConsidered(), resources,
+                        interval.getStart(), interval.getFinish());
+            }
             List<DayAssignment> assignments = generatedData
                     .getDayAssignmentsConsidered();
             return new ResourceLoadChartData(assignments,
@@ -1,6 +1,8 @@
 package org.libreplan.web.resourceload;
 
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 import java.util.concurrent.Callable;
 
 import org.apache.commons.lang.Validate;
@@ -8,6 +10,7 @@ import org.joda.time.LocalDate;
 import org.libreplan.business.common.BaseEntity;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.web.resourceload.ResourceLoadParameters.Paginator;
 import org.zkoss.ganttz.data.resourceload.LoadTimeLine;
 import org.zkoss.ganttz.timetracker.zoom.ZoomLevel;
@@ -57,6 +60,8 @@ public class ResourceLoadDisplayData {
 
     private final Callable<List<DayAssignment>> assignmentsConsidered;
 
+    private final Callable<Map<Resource, SortedMap<LocalDate, EffortDuration>>> dailyLoadsConsidered;
+
     private final LocalDate filterStart;
 
     private final LocalDate filterEnd;
@@ -66,6 +71,24 @@ public class ResourceLoadDisplayData {
             Paginator<? extends BaseEntity> paginator,
             Callable<List<Resource>> resourcesConsidered,
             Callable<List<DayAssignment>> assignmentsConsidered) {
+        this(timeLines, filterStart, filterEnd, paginator,
+                resourcesConsidered, assignmentsConsidered, null);
+    }
+
+    /**
+     * @param dailyLoadsConsidered
+     *            the effort assigned per day to the resources considered. If
+     *            it's not <code>null</code> it's used instead of the
+     *            assignments to calculate the load chart.
+     */
+    public ResourceLoadDisplayData(
+            List<LoadTimeLine> timeLines,
+            LocalDate filterStart,
+            LocalDate filterEnd,
+            Paginator<? extends BaseEntity> paginator,
+            Callable<List<Resource>> resourcesConsidered,
+            Callable<List<DayAssignment>> assignmentsConsidered,
+            Callable<Map<Resource, SortedMap<LocalDate, EffortDuration>>> dailyLoadsConsidered) {
         Validate.notNull(timeLines);
         Validate.notNull(paginator);
         Validate.notNull(resourcesConsidered);
@@ -77,6 +100,8 @@ public class ResourceLoadDisplayData {
         this.paginator = paginator;
         this.resourcesConsidered = cached(resourcesConsidered);
         this.assignmentsConsidered = cached(assignmentsConsidered);
+        this.dailyLoadsConsidered = dailyLoadsConsidered == null ? null
+                : cached(dailyLoadsConsidered);
     }
 
     private static Interval getViewIntervalFrom(List<LoadTimeLine> timeLines) {
@@ -110,6 +135,15 @@ public class ResourceLoadDisplayData {
         return resolve(assignmentsConsidered);
     }
 
+    public boolean hasDailyLoadsConsidered() {
+        return dailyLoadsConsidered != null;
+    }
+
+    public Map<Resource, SortedMap<LocalDate, EffortDuration>> getDailyLoadsConsidered() {
+        Validate.isTrue(hasDailyLoadsConsidered());
+        return resolve(dailyLoadsConsidered);
+    }
+
     public LocalDate getFilterStart() {
         return filterStart;
     }
@@ -39,6 +39,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.concurrent.Callable;
 
 import org.joda.time.LocalDate;
@@ -51,6 +52,7 @@ import org.libreplan.business.orders.daos.IOrderDAO;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.planner.daos.IResourceAllocationDAO;
+import org.libreplan.business.planner.daos.IResourceDailyLoadDAO;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.GenericResourceAllocation;
 import org.libreplan.business.planner.entities.ResourceAllocation;
@@ -70,6 +72,7 @@ import org.libreplan.business.users.entities.OrderAuthorization;
 import org.libreplan.business.users.entities.OrderAuthorizationType;
 import org.libreplan.business.users.entities.User;
 import org.libreplan.business.users.entities.UserRole;
+import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.web.calendars.BaseCalendarModel;
 import org.libreplan.web.planner.order.PlanningStateCreator.IAllocationCriteria;
 import org.libreplan.web.planner.order.PlanningStateCreator.PlanningState;
@@ -109,6 +112,9 @@ public class ResourceLoadModel implements IResourceLoadModel {
     @Autowired
     private IResourceAllocationDAO resourceAllocationDAO;
 
+    @Autowired
+    private IResourceDailyLoadDAO resourceDailyLoadDAO;
+
     @Autowired
     private IUserDAO userDAO;
 
@@ -140,7 +146,8 @@ public class ResourceLoadModel implements IResourceLoadModel {
                 parameters.getInitDateFilter(),
                 parameters.getEndDateFilter(), allocationsFinder.getPaginator(),
                 allocationsFinder.lazilyGetResourcesIncluded(),
-                allocationsFinder.lazilyGetAssignmentsShown());
+                allocationsFinder.lazilyGetAssignmentsShown(),
+                allocationsFinder.lazilyGetDailyLoadsShown());
     }
 
 
@@ -236,6 +243,15 @@ public class ResourceLoadModel implements IResourceLoadModel {
             return new ArrayList<DayAssignment>(result);
         }
 
+        /**
+         * @return the effort assigned per day to the resources included or
+         *         <code>null</code> if it can't be known without the
+         *         assignments
+         */
+        Callable<Map<Resource, SortedMap<LocalDate, EffortDuration>>> lazilyGetDailyLoadsShown() {
+            return null;
+        }
+
         abstract List<LoadTimeLine> buildTimeLines();
 
         abstract Map<T, List<ResourceAllocation<?>>> getFoundAllocations();
@@ -294,6 +310,25 @@ public class ResourceLoadModel implements IResourceLoadModel {
             return allocationsByResource;
         }
 
+        @Override
+        Callable<Map<Resource, SortedMap<LocalDate, EffortDuration>>> lazilyGetDailyLoadsShown() {
+            if (parameters.getPlanningState() != null) {
+                // the allocations of the planning state could be not saved yet
+                return null;
+            }
+            return new Callable<Map<Resource, SortedMap<LocalDate, EffortDuration>>>() {
+
+                @Override
+                public Map<Resource, SortedMap<LocalDate, EffortDuration>> call()
+                        throws Exception {
+                    return resourceDailyLoadDAO.getLoadPerDay(
+                            getCurrentScenario(), getResourcesIncluded(),
+                            parameters.getInitDateFilter(),
+                            parameters.getEndDateFilter());
+                }
+            };
+        }
+
         @Override
         List<LoadTimeLine> buildTimeLines() {
             return new ByResourceLoadTimesLinesBuilder(parameters)
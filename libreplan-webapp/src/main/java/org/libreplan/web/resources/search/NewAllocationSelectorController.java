@@ -237,14 +237,14 @@ public class NewAllocationSelectorController extends
 
         List<ResourceWithItsLoadRatios> result = new ArrayList<ResourceWithItsLoadRatios>();
 
+        Map<Resource, ILoadRatiosDataType> loadRatios = resourceLoadRatiosCalculator
+                .calculateLoadRatios(listResources, LocalDate
+                        .fromDateFields(startDateLoadRatiosDatebox.getValue()),
+                        LocalDate.fromDateFields(endDateLoadRatiosDatebox
+                                .getValue()), scenarioManager.getCurrent());
         for (Resource each : listResources) {
-            ILoadRatiosDataType t = resourceLoadRatiosCalculator
-                    .calculateLoadRatios(each, LocalDate
-                            .fromDateFields(startDateLoadRatiosDatebox
-                                    .getValue()),
-                            LocalDate.fromDateFields(endDateLoadRatiosDatebox
-                                    .getValue()), scenarioManager.getCurrent());
-            result.add(new ResourceWithItsLoadRatios(each, t));
+            result.add(new ResourceWithItsLoadRatios(each, loadRatios
+                    .get(each)));
         }
 
         return result;
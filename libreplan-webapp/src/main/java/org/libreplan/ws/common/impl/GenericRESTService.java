@@ -21,16 +21,34 @@
 
 package org.libreplan.ws.common.impl;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.xc.JaxbAnnotationIntrospector;
 
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.IntegrationEntity;
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
+import org.libreplan.business.common.daos.IIntegrationEntityDAO.IEntityConsumer;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsDTO;
@@ -47,6 +65,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 public abstract class GenericRESTService<E extends IntegrationEntity,
     DTO extends IntegrationEntityDTO> {
 
+    private static final Log LOG = LogFactory.getLog(GenericRESTService.class);
+
     @Autowired
     protected IAdHocTransactionService transactionService;
 
@@ -58,46 +78,174 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
     }
 
     /**
-     * It saves (inserts or updates) a list of entities. Each entity is
-     * saved in a separate transaction.
+     * Media type of the responses returned by {@link #streamAll(Date)}, one
+     * JSON document per line.
+     */
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    /**
+     * Name of the only field of the line written by {@link #streamAll(Date)}
+     * when the entities can't be written completely. As the status of the
+     * response has already been sent, this line is the way to know that the
+     * response is truncated.
+     */
+    public static final String STREAM_ERROR_FIELD = "error";
+
+    /**
+     * It returns a response that writes all the entities, one DTO per line in
+     * JSON format. Unlike {@link #findAll()}, the entities are converted and
+     * written while they are scrolled, so neither the entities nor the DTOs
+     * are kept in memory. If there is an error in the middle, a last line
+     * with only the {@link #STREAM_ERROR_FIELD} field is written.
+     *
+     * @param since
+     *            if not <code>null</code> it is passed to
+     *            {@link #scrollAll(Date, IEntityConsumer)} to restrict the
+     *            entities written
+     */
+    protected Response streamAll(final Date since) {
+        StreamingOutput output = new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                final Writer writer = new BufferedWriter(
+                        new OutputStreamWriter(outputStream, "UTF-8"));
+                try {
+                    writeAll(since, writer);
+                } catch (StreamingWriteException e) {
+                    throw e.getCause();
+                } catch (RuntimeException e) {
+                    LOG.error("error writing the entities, the response "
+                            + "is truncated", e);
+                    writeErrorLine(writer, e);
+                }
+                writer.flush();
+            }
+
+        };
+        return Response.ok(output, NDJSON_MEDIA_TYPE).build();
+    }
+
+    private void writeAll(final Date since, final Writer writer) {
+        final ObjectMapper mapper = createNDJSONMapper();
+        transactionService
+                .runOnAnotherReadOnlyTransaction(new IOnTransaction<Void>() {
+
+                    @Override
+                    public Void execute() {
+                        scrollAll(since, new IEntityConsumer<E>() {
+
+                            @Override
+                            public void consume(E entity) {
+                                writeLine(mapper, writer, toDTO(entity));
+                            }
+                        });
+                        return null;
+                    }
+                });
+    }
+
+    private static void writeErrorLine(Writer writer, RuntimeException e)
+            throws IOException {
+        String message = e.getMessage() != null ? e.getMessage() : e
+                .getClass().getName();
+        createNDJSONMapper().writeValue(writer,
+                Collections.singletonMap(STREAM_ERROR_FIELD, message));
+        writer.write('\n');
+    }
+
+    private static ObjectMapper createNDJSONMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setAnnotationIntrospector(new JaxbAnnotationIntrospector());
+        mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        return mapper;
+    }
+
+    private static void writeLine(ObjectMapper mapper, Writer writer,
+            Object dto) {
+        try {
+            mapper.writeValue(writer, dto);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new StreamingWriteException(e);
+        }
+    }
+
+    /**
+     * Wraps the {@link IOException} thrown writing to the response, so it
+     * rolls back the transaction and it is thrown again outside it.
+     */
+    private static class StreamingWriteException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        StreamingWriteException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public IOException getCause() {
+            return (IOException) super.getCause();
+        }
+
+    }
+
+    /**
+     * It iterates over the entities written by {@link #streamAll(Date)}.
+     *
+     * Default implementation scrolls over all the entities and ignores
+     * <code>since</code>.
+     */
+    protected void scrollAll(Date since, IEntityConsumer<E> consumer) {
+        getIntegrationEntityDAO().scrollAll(consumer);
+    }
+
+    /**
+     * Default number of DTOs saved in the same transaction by the services
+     * that use the batched import mode. It can be changed with the
+     * <code>libreplan-ws-import-batch-size</code> system property.
+     */
+    protected static final int DEFAULT_IMPORT_BATCH_SIZE = Integer.getInteger(
+            "libreplan-ws-import-batch-size", 50);
+
+    /**
+     * It saves (inserts or updates) a list of entities. The entities are saved
+     * in chunks of {@link #getImportBatchSize()} elements, each chunk in a
+     * separate transaction. If a chunk fails, its entities are saved again one
+     * by one, so the constraint violations are reported for each item as if
+     * the batched import mode was not used.
      */
     protected InstanceConstraintViolationsListDTO save(
         List<? extends DTO> entityDTOs) {
 
         List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList =
             new ArrayList<InstanceConstraintViolationsDTO>();
-        long numItem = 1;
-
-        for (DTO entityDTO : entityDTOs) {
-
-            InstanceConstraintViolationsDTO instanceConstraintViolationsDTO =
-                null;
-
-            try {
-                insertOrUpdate(entityDTO);
-            } catch (ValidationException e) {
-                instanceConstraintViolationsDTO =
-                    ConstraintViolationConverter.toDTO(
-                        Util.generateInstanceConstraintViolationsDTOId(
-                            numItem, entityDTO), e);
-            } catch (RecoverableErrorException e) {
-                instanceConstraintViolationsDTO =
-                    ConstraintViolationConverter.toDTO(
-                        Util.generateInstanceConstraintViolationsDTOId(
-                            numItem, entityDTO), e);
-            } catch (RuntimeException e) {
-                instanceConstraintViolationsDTO =
-                    ConstraintViolationConverter.toDTO(
-                        Util.generateInstanceConstraintViolationsDTOId(
-                            numItem, entityDTO), e);
-            }
+        int batchSize = Math.max(1, getImportBatchSize());
+
+        for (int from = 0; from < entityDTOs.size(); from += batchSize) {
 
-            if (instanceConstraintViolationsDTO != null) {
-                instanceConstraintViolationsList.add(
-                    instanceConstraintViolationsDTO);
+            List<? extends DTO> chunk = entityDTOs.subList(from,
+                Math.min(from + batchSize, entityDTOs.size()));
+
+            if (chunk.size() > 1 && !hasRepeatedKeys(chunk)) {
+                try {
+                    insertOrUpdateChunk(chunk);
+                    continue;
+                } catch (RuntimeException e) {
+                    /* Retry item by item to report the violations. */
+                }
             }
 
-            numItem++;
+            long numItem = from + 1;
+            for (DTO entityDTO : chunk) {
+                InstanceConstraintViolationsDTO instanceConstraintViolationsDTO =
+                    saveItem(numItem, entityDTO);
+                if (instanceConstraintViolationsDTO != null) {
+                    instanceConstraintViolationsList.add(
+                        instanceConstraintViolationsDTO);
+                }
+                numItem++;
+            }
 
         }
 
@@ -106,6 +254,73 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
 
     }
 
+    private InstanceConstraintViolationsDTO saveItem(long numItem,
+        DTO entityDTO) {
+
+        try {
+            insertOrUpdate(entityDTO);
+            return null;
+        } catch (ValidationException e) {
+            return ConstraintViolationConverter.toDTO(
+                Util.generateInstanceConstraintViolationsDTOId(
+                    numItem, entityDTO), e);
+        } catch (RecoverableErrorException e) {
+            return ConstraintViolationConverter.toDTO(
+                Util.generateInstanceConstraintViolationsDTOId(
+                    numItem, entityDTO), e);
+        } catch (RuntimeException e) {
+            return ConstraintViolationConverter.toDTO(
+                Util.generateInstanceConstraintViolationsDTOId(
+                    numItem, entityDTO), e);
+        }
+
+    }
+
+    /**
+     * Some uniqueness checks are done in another transaction, so they would
+     * not see the entities of the same chunk. Chunks with repeated keys are
+     * saved item by item.
+     */
+    private boolean hasRepeatedKeys(List<? extends DTO> chunk) {
+        Set<String> keys = new HashSet<String>();
+        for (DTO each : chunk) {
+            for (String key : getKeysCheckedInAnotherTransaction(each)) {
+                if (!keys.add(key)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * It returns the values of the DTO whose uniqueness is checked in another
+     * transaction, and not by a database constraint. Two DTOs of the same chunk
+     * returning the same key are not saved in the same transaction. The keys
+     * of different values should be prefixed, e.g. <code>"code:"</code>.
+     *
+     * Default implementation returns the code of the DTO.
+     */
+    protected Collection<String> getKeysCheckedInAnotherTransaction(
+        DTO entityDTO) {
+        if (entityDTO.code == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList("code:" + entityDTO.code);
+    }
+
+    /**
+     * It returns the number of entities saved in the same transaction by
+     * {@link #save(List)}.
+     *
+     * Default implementation returns 1, i.e. each entity is saved in a
+     * separate transaction. Services importing large lists of entities can
+     * return {@link #DEFAULT_IMPORT_BATCH_SIZE}.
+     */
+    protected int getImportBatchSize() {
+        return 1;
+    }
+
     /**
      * It saves (inserts or updates) an entity DTO by using a new transaction.
      *
@@ -113,6 +328,19 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
      * @throws RecoverableErrorException if a recoverable error occurs
      */
     protected void insertOrUpdate(final DTO entityDTO)
+        throws ValidationException, RecoverableErrorException {
+        insertOrUpdateChunk(Collections.singletonList(entityDTO));
+    }
+
+    /**
+     * It saves (inserts or updates) several entity DTOs by using a new
+     * transaction. The entities referenced from the DTOs are looked up through
+     * a {@link ReferencedCodesCache} shared by all of them.
+     *
+     * @throws ValidationException if validations are not passed
+     * @throws RecoverableErrorException if a recoverable error occurs
+     */
+    private void insertOrUpdateChunk(final List<? extends DTO> entityDTOs)
         throws ValidationException, RecoverableErrorException {
         /*
          * NOTE: ValidationException and RecoverableErrorException are runtime
@@ -125,26 +353,15 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
             @Override
             public Void execute() {
 
-                E entity = null;
-                IIntegrationEntityDAO<E> entityDAO =
-                    getIntegrationEntityDAO();
-
-                /* Insert or update? */
+                ReferencedCodesCache.open();
                 try {
-                    entity = entityDAO.findByCode(entityDTO.code);
-                    updateEntity(entity, entityDTO);
-                } catch (InstanceNotFoundException e) {
-                    entity = toEntity(entityDTO);
+                    for (DTO entityDTO : entityDTOs) {
+                        insertOrUpdateOnTransaction(entityDTO);
+                    }
+                } finally {
+                    ReferencedCodesCache.close();
                 }
 
-                /*
-                 * Validate and save (insert or update) the entity.
-                 */
-                entity.validate();
-                beforeSaving(entity);
-                entityDAO.saveWithoutValidating(entity);
-                afterSaving(entity);
-
                 return null;
 
             }
@@ -155,6 +372,29 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
 
     }
 
+    private void insertOrUpdateOnTransaction(DTO entityDTO) {
+
+        E entity = null;
+        IIntegrationEntityDAO<E> entityDAO = getIntegrationEntityDAO();
+
+        /* Insert or update? */
+        try {
+            entity = entityDAO.findByCode(entityDTO.code);
+            updateEntity(entity, entityDTO);
+        } catch (InstanceNotFoundException e) {
+            entity = toEntity(entityDTO);
+        }
+
+        /*
+         * Validate and save (insert or update) the entity.
+         */
+        entity.validate();
+        beforeSaving(entity);
+        entityDAO.saveWithoutValidating(entity);
+        afterSaving(entity);
+
+    }
+
     /**
      * It allows to add operations that must be done before saving.
      *
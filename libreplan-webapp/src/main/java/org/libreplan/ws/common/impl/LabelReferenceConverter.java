@@ -24,7 +24,6 @@ package org.libreplan.ws.common.impl;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.libreplan.business.common.Registry;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.labels.entities.Label;
 import org.libreplan.ws.common.api.LabelReferenceDTO;
@@ -68,7 +67,7 @@ public final class LabelReferenceConverter {
             throw new InstanceNotFoundException(null, Label.class.getName());
         }
 
-        return Registry.getLabelDAO().findByCode(labelReferenceDTO.code);
+        return ReferencedCodesCache.findLabel(labelReferenceDTO.code);
     }
 
 }
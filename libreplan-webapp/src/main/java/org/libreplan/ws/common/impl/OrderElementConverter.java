@@ -470,8 +470,8 @@ public final class OrderElementConverter {
     }
 
     private static Criterion getCriterion(String name, String type) {
-        List<Criterion> criterions = Registry.getCriterionDAO()
-                .findByNameAndType(name, type);
+        List<Criterion> criterions = ReferencedCodesCache
+                .findCriterionsByNameAndType(name, type);
         if (criterions.size() != 1) {
             return null;
         }
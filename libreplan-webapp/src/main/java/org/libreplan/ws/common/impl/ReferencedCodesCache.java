@@ -0,0 +1,130 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.common.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.libreplan.business.common.Registry;
+import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
+import org.libreplan.business.labels.entities.Label;
+import org.libreplan.business.resources.entities.Criterion;
+import org.libreplan.business.resources.entities.CriterionType;
+
+/**
+ * Lookup cache for the entities that the imported DTOs reference by code or
+ * by name (criteria, labels and types of work hours).
+ *
+ * It is bound to the current thread between {@link #open()} and
+ * {@link #close()}, which {@link GenericRESTService} calls around each chunk
+ * of DTOs saved in the same transaction. That way the entities found are
+ * attached to the session of the chunk. When there is no cache open, the
+ * lookups go directly to the DAOs.
+ */
+public class ReferencedCodesCache {
+
+    private static final ThreadLocal<ReferencedCodesCache> current = new ThreadLocal<ReferencedCodesCache>();
+
+    public static void open() {
+        current.set(new ReferencedCodesCache());
+    }
+
+    public static void close() {
+        current.remove();
+    }
+
+    public static boolean isOpen() {
+        return current.get() != null;
+    }
+
+    public static Label findLabel(String code)
+            throws InstanceNotFoundException {
+        ReferencedCodesCache cache = current.get();
+        if (cache == null) {
+            return Registry.getLabelDAO().findByCode(code);
+        }
+        Label result = cache.labels.get(code);
+        if (result == null) {
+            result = Registry.getLabelDAO().findByCode(code);
+            cache.labels.put(code, result);
+        }
+        return result;
+    }
+
+    public static TypeOfWorkHours findTypeOfWorkHours(String code)
+            throws InstanceNotFoundException {
+        ReferencedCodesCache cache = current.get();
+        if (cache == null) {
+            return Registry.getTypeOfWorkHoursDAO().findUniqueByCode(code);
+        }
+        TypeOfWorkHours result = cache.typesOfWorkHours.get(code);
+        if (result == null) {
+            result = Registry.getTypeOfWorkHoursDAO().findUniqueByCode(code);
+            cache.typesOfWorkHours.put(code, result);
+        }
+        return result;
+    }
+
+    public static CriterionType findCriterionType(String name)
+            throws InstanceNotFoundException {
+        ReferencedCodesCache cache = current.get();
+        if (cache == null) {
+            return Registry.getCriterionTypeDAO().findUniqueByName(name);
+        }
+        CriterionType result = cache.criterionTypes.get(name);
+        if (result == null) {
+            result = Registry.getCriterionTypeDAO().findUniqueByName(name);
+            cache.criterionTypes.put(name, result);
+        }
+        return result;
+    }
+
+    public static List<Criterion> findCriterionsByNameAndType(String name,
+            String type) {
+        ReferencedCodesCache cache = current.get();
+        if (cache == null) {
+            return Registry.getCriterionDAO().findByNameAndType(name, type);
+        }
+        List<String> key = Arrays.asList(name, type);
+        List<Criterion> result = cache.criterions.get(key);
+        if (result == null) {
+            result = Registry.getCriterionDAO().findByNameAndType(name, type);
+            cache.criterions.put(key, result);
+        }
+        return result;
+    }
+
+    private final Map<String, Label> labels = new HashMap<String, Label>();
+
+    private final Map<String, TypeOfWorkHours> typesOfWorkHours = new HashMap<String, TypeOfWorkHours>();
+
+    private final Map<String, CriterionType> criterionTypes = new HashMap<String, CriterionType>();
+
+    private final Map<List<String>, List<Criterion>> criterions = new HashMap<List<String>, List<Criterion>>();
+
+    private ReferencedCodesCache() {
+    }
+
+}
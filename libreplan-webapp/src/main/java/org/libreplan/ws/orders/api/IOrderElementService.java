@@ -37,6 +37,8 @@ public interface IOrderElementService {
 
     OrderListDTO getOrders();
 
+    Response getOrdersStream();
+
     Response getOrderElement(String code);
 
     Response removeOrderElement(String code);
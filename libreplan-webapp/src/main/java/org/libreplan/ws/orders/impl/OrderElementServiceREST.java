@@ -21,6 +21,9 @@
 
 package org.libreplan.ws.orders.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import javax.ws.rs.Consumes;
@@ -33,6 +36,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.apache.commons.lang.StringUtils;
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
@@ -45,6 +49,8 @@ import org.libreplan.web.orders.IOrderModel;
 import org.libreplan.ws.common.api.ErrorDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.common.api.OrderDTO;
+import org.libreplan.ws.common.api.OrderElementDTO;
+import org.libreplan.ws.common.api.OrderLineGroupDTO;
 import org.libreplan.ws.common.impl.ConfigurationOrderElementConverter;
 import org.libreplan.ws.common.impl.GenericRESTService;
 import org.libreplan.ws.common.impl.OrderElementConverter;
@@ -91,6 +97,45 @@ public class OrderElementServiceREST extends
         return save(orderListDTO.orderDTOs);
     }
 
+    @Override
+    @GET
+    @Path("/stream/")
+    @Produces(NDJSON_MEDIA_TYPE)
+    public Response getOrdersStream() {
+        return streamAll(null);
+    }
+
+    @Override
+    protected int getImportBatchSize() {
+        return DEFAULT_IMPORT_BATCH_SIZE;
+    }
+
+    /**
+     * The name of the orders and the codes of their elements are checked in
+     * another transaction and there are no database constraints for them.
+     */
+    @Override
+    protected Collection<String> getKeysCheckedInAnotherTransaction(
+            OrderDTO entityDTO) {
+        List<String> keys = new ArrayList<String>();
+        if (!StringUtils.isBlank(entityDTO.name)) {
+            keys.add("name:" + entityDTO.name.toLowerCase());
+        }
+        addCodes(keys, entityDTO);
+        return keys;
+    }
+
+    private static void addCodes(List<String> keys, OrderElementDTO element) {
+        if (element.code != null) {
+            keys.add("code:" + element.code);
+        }
+        if (element instanceof OrderLineGroupDTO) {
+            for (OrderElementDTO each : ((OrderLineGroupDTO) element).children) {
+                addCodes(keys, each);
+            }
+        }
+    }
+
     @Override
     protected OrderDTO toDTO(Order entity) {
         return (OrderDTO) OrderElementConverter.toDTO(entity,
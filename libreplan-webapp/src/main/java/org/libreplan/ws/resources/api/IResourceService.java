@@ -43,6 +43,8 @@ public interface IResourceService {
 
     public ResourceListDTO getResources();
 
+    Response getResourcesStream();
+
     Response getResource(String code);
 
 }
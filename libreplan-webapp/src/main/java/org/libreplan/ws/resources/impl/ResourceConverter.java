@@ -43,6 +43,7 @@ import org.libreplan.ws.calendars.impl.CalendarConverter;
 import org.libreplan.ws.common.impl.DateConverter;
 import org.libreplan.ws.common.impl.InstanceNotFoundRecoverableErrorException;
 import org.libreplan.ws.common.impl.RecoverableErrorException;
+import org.libreplan.ws.common.impl.ReferencedCodesCache;
 import org.libreplan.ws.resources.api.CalendarAvailabilityDTO;
 import org.libreplan.ws.resources.api.CriterionSatisfactionDTO;
 import org.libreplan.ws.resources.api.MachineDTO;
@@ -162,7 +163,7 @@ public class ResourceConverter {
 
             return CriterionSatisfaction.createUnvalidated(
                 StringUtils.trim(criterionSatisfactionDTO.code),
-                StringUtils.trim(criterionSatisfactionDTO.criterionTypeName),
+                findCriterionType(criterionSatisfactionDTO.criterionTypeName),
                 StringUtils.trim(criterionSatisfactionDTO.criterionName),
                 resource,
                 DateConverter.toLocalDate(criterionSatisfactionDTO.startDate),
@@ -335,7 +336,7 @@ public class ResourceConverter {
         try {
 
             criterionSatisfaction.updateUnvalidated(
-                StringUtils.trim(criterionSatisfactionDTO.criterionTypeName),
+                findCriterionType(criterionSatisfactionDTO.criterionTypeName),
                 StringUtils.trim(criterionSatisfactionDTO.criterionName),
                 DateConverter.toLocalDate(criterionSatisfactionDTO.startDate),
                 DateConverter.toLocalDate(criterionSatisfactionDTO.endDate));
@@ -354,6 +355,17 @@ public class ResourceConverter {
 
     }
 
+    private static CriterionType findCriterionType(String criterionTypeName)
+        throws InstanceNotFoundException {
+
+        if (StringUtils.isBlank(criterionTypeName)) {
+            return null;
+        }
+        return ReferencedCodesCache.findCriterionType(
+            StringUtils.trim(criterionTypeName));
+
+    }
+
     private static void updateResourcesCostCategoryAssignments(
         Resource resource,
         List<ResourcesCostCategoryAssignmentDTO> resourcesCostCategoryAssignments) {
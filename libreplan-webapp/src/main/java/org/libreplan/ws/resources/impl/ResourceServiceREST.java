@@ -22,7 +22,9 @@
 package org.libreplan.ws.resources.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.ConcurrentModificationException;
+import java.util.Date;
 import java.util.List;
 
 import javax.ws.rs.Consumes;
@@ -37,6 +39,7 @@ import org.apache.commons.lang.StringUtils;
 import org.libreplan.business.common.IntegrationEntity;
 import org.libreplan.business.common.daos.IEntitySequenceDAO;
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
+import org.libreplan.business.common.daos.IIntegrationEntityDAO.IEntityConsumer;
 import org.libreplan.business.common.entities.EntityNameEnum;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.costcategories.entities.ResourcesCostCategoryAssignment;
@@ -51,6 +54,7 @@ import org.libreplan.ws.common.impl.RecoverableErrorException;
 import org.libreplan.ws.resources.api.IResourceService;
 import org.libreplan.ws.resources.api.ResourceDTO;
 import org.libreplan.ws.resources.api.ResourceListDTO;
+import org.libreplan.ws.resources.api.WorkerDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -98,6 +102,31 @@ public class ResourceServiceREST
 
     }
 
+    @Override
+    protected int getImportBatchSize() {
+        return DEFAULT_IMPORT_BATCH_SIZE;
+    }
+
+    /**
+     * The NIF of the workers is checked in another transaction and there is
+     * no database constraint for it.
+     */
+    @Override
+    protected Collection<String> getKeysCheckedInAnotherTransaction(
+        ResourceDTO entityDTO) {
+
+        List<String> keys = new ArrayList<String>(
+            super.getKeysCheckedInAnotherTransaction(entityDTO));
+        if (entityDTO instanceof WorkerDTO) {
+            String nif = ((WorkerDTO) entityDTO).nif;
+            if (!StringUtils.isBlank(nif)) {
+                keys.add("nif:" + nif.trim().toLowerCase());
+            }
+        }
+        return keys;
+
+    }
+
     @Override
     protected ResourceDTO toDTO(Resource entity) {
         return ResourceConverter.toDTO(entity);
@@ -131,6 +160,29 @@ public class ResourceServiceREST
         return new ResourceListDTO(findAll());
     }
 
+    @Override
+    @GET
+    @Path("/stream/")
+    @Produces(NDJSON_MEDIA_TYPE)
+    public Response getResourcesStream() {
+        return streamAll(null);
+    }
+
+    @Override
+    protected void scrollAll(Date since,
+            final IEntityConsumer<Resource> consumer) {
+        // virtual workers are not returned, like in findAll()
+        resourceDAO.scrollAll(new IEntityConsumer<Resource>() {
+
+            @Override
+            public void consume(Resource entity) {
+                if (!entity.isVirtual()) {
+                    consumer.consume(entity);
+                }
+            }
+        });
+    }
+
     @Override
     protected List<ResourceDTO> findAll() {
         List<Resource> result = new ArrayList<Resource>();
@@ -34,6 +34,14 @@ public interface IWorkReportService {
 
     public WorkReportListDTO getWorkReports();
 
+    /**
+     * @param since
+     *            if not <code>null</code>, only the work reports with lines
+     *            since this date (in <code>yyyy-MM-dd</code> format) are
+     *            returned
+     */
+    Response getWorkReportsStream(String since);
+
     public InstanceConstraintViolationsListDTO addWorkReports(
             WorkReportListDTO workReportListDTO);
 
@@ -46,6 +46,7 @@ import org.libreplan.business.workreports.valueobjects.DescriptionValue;
 import org.libreplan.ws.common.api.LabelReferenceDTO;
 import org.libreplan.ws.common.impl.DateConverter;
 import org.libreplan.ws.common.impl.LabelReferenceConverter;
+import org.libreplan.ws.common.impl.ReferencedCodesCache;
 import org.libreplan.ws.workreports.api.DescriptionValueDTO;
 import org.libreplan.ws.workreports.api.IBindingOrderElementStrategy;
 import org.libreplan.ws.workreports.api.OneOrderElementPerWorkReportLine;
@@ -141,9 +142,8 @@ public final class WorkReportConverter {
 
         if (workReportLineDTO.typeOfWorkHours != null) {
             try {
-                TypeOfWorkHours typeOfWorkHours = Registry
-                        .getTypeOfWorkHoursDAO().findUniqueByCode(
-                                workReportLineDTO.typeOfWorkHours);
+                TypeOfWorkHours typeOfWorkHours = ReferencedCodesCache
+                        .findTypeOfWorkHours(workReportLineDTO.typeOfWorkHours);
                 workReportLine.setTypeOfWorkHours(typeOfWorkHours);
             } catch (InstanceNotFoundException e) {
                 throw new ValidationException(
@@ -508,7 +508,8 @@ public final class WorkReportConverter {
         /* Step 3.4: Update the type of work hours. */
         if(workReportLineDTO.typeOfWorkHours != null){
             try{
-                TypeOfWorkHours typeOfWorkHours = Registry.getTypeOfWorkHoursDAO().findUniqueByCode(workReportLineDTO.typeOfWorkHours);
+                TypeOfWorkHours typeOfWorkHours = ReferencedCodesCache
+                        .findTypeOfWorkHours(workReportLineDTO.typeOfWorkHours);
                 workReportLine.setTypeOfWorkHours(typeOfWorkHours);
             } catch (InstanceNotFoundException e) {
                 throw new ValidationException(
@@ -564,7 +565,7 @@ public final class WorkReportConverter {
     private static void updateLabel(LabelReferenceDTO labelDTO,
             Set<Label> labels)
             throws InstanceNotFoundException {
-        Label labelToAdd = Registry.getLabelDAO().findByCode(labelDTO.code);
+        Label labelToAdd = ReferencedCodesCache.findLabel(labelDTO.code);
         LabelType labelType = labelToAdd.getType();
 
         Label labelToChange = getLabelByLabelType(labels, labelType);
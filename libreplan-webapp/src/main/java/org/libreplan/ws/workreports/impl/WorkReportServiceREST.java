@@ -23,6 +23,7 @@ package org.libreplan.ws.workreports.impl;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -33,10 +34,13 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
+import org.libreplan.business.common.daos.IIntegrationEntityDAO.IEntityConsumer;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.orders.daos.ISumChargedEffortDAO;
@@ -84,6 +88,30 @@ public class WorkReportServiceREST extends
         return new WorkReportListDTO(findAll());
     }
 
+    @Override
+    @GET
+    @Path("/stream/")
+    @Produces(NDJSON_MEDIA_TYPE)
+    public Response getWorkReportsStream(@QueryParam("since") String since) {
+        if (since == null) {
+            return streamAll(null);
+        }
+        try {
+            return streamAll(new LocalDate(since).toDate());
+        } catch (IllegalArgumentException e) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+    }
+
+    @Override
+    protected void scrollAll(Date since, IEntityConsumer<WorkReport> consumer) {
+        if (since == null) {
+            super.scrollAll(since, consumer);
+        } else {
+            workReportDAO.scrollWithLinesSince(since, consumer);
+        }
+    }
+
     @Override
     @POST
     @Consumes("application/xml")
@@ -101,6 +129,17 @@ public class WorkReportServiceREST extends
         }
     }
 
+    /**
+     * The codes of the lines have a database constraint, so a repeated one
+     * makes the chunk be saved again item by item. The check of the lines
+     * marking a task as finished in another work report doesn't need to be
+     * considered, as the lines imported are never marked as finished.
+     */
+    @Override
+    protected int getImportBatchSize() {
+        return DEFAULT_IMPORT_BATCH_SIZE;
+    }
+
     @Override
     protected WorkReportDTO toDTO(WorkReport entity) {
         return WorkReportConverter.toDTO(entity);
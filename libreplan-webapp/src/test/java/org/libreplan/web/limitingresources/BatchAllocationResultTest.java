@@ -0,0 +1,112 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.limitingresources;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+
+/**
+ * Tests for {@link BatchAllocationResult}
+ */
+public class BatchAllocationResultTest {
+
+    private static final LocalDate start = new LocalDate(2012, 3, 5);
+
+    private final LimitingResourceQueue queue = LimitingResourceQueue.create();
+
+    private LimitingResourceQueueElement placedAt(int fromDay, int toDay) {
+        LimitingResourceQueueElement result = LimitingResourceQueueElement
+                .create();
+        result.setStartDate(start.plusDays(fromDay));
+        result.setEndDate(start.plusDays(toDay));
+        result.setLimitingResourceQueue(queue);
+        return result;
+    }
+
+    @Test
+    public void theReschedulingCountOnlyIncludesTheReschedulingAllocations() {
+        BatchAllocationResult result = new BatchAllocationResult(false);
+        result.allocated(placedAt(0, 1), false);
+        result.allocated(placedAt(1, 2), true);
+        result.allocated(placedAt(2, 3), false);
+        result.allocated(placedAt(3, 4), true);
+        result.notAllocated(LimitingResourceQueueElement.create());
+
+        assertThat(result.getPlan().size(), equalTo(4));
+        assertThat(result.getReschedulingCount(), equalTo(2));
+        assertThat(result.getNotAllocated().size(), equalTo(1));
+    }
+
+    @Test
+    public void thePlanKeepsThePositionWhenTheElementWasAllocated() {
+        BatchAllocationResult result = new BatchAllocationResult(true);
+        LimitingResourceQueueElement element = placedAt(2, 5);
+        result.allocated(element, false);
+        element.setStartDate(null);
+        element.setEndDate(null);
+        element.setLimitingResourceQueue(null);
+
+        BatchAllocationResult.PlannedAllocation planned = result.getPlan()
+                .get(0);
+        assertThat(planned.getElement(), equalTo(element));
+        assertThat(planned.getQueue(), equalTo(queue));
+        assertThat(planned.getStart().getDate(), equalTo(start.plusDays(2)));
+        assertThat(planned.getEnd().getDate(), equalTo(start.plusDays(5)));
+        assertFalse(planned.isRescheduling());
+    }
+
+    @Test
+    public void theModifiedElementsIncludeTheMovedOnes() {
+        BatchAllocationResult result = new BatchAllocationResult(false);
+        LimitingResourceQueueElement allocated = placedAt(0, 1);
+        LimitingResourceQueueElement moved = placedAt(1, 2);
+        result.allocated(allocated, true);
+        result.alsoModified(asList(moved));
+
+        assertThat(result.getModified(),
+                equalTo(new HashSet<LimitingResourceQueueElement>(asList(
+                        allocated, moved))));
+    }
+
+    @Test
+    public void aDryRunDoesNotModifyAnything() {
+        BatchAllocationResult result = new BatchAllocationResult(true);
+        result.allocated(placedAt(0, 1), true);
+        result.alsoModified(asList(placedAt(1, 2)));
+
+        assertTrue(result.isDryRun());
+        assertThat(result.getPlan().size(), equalTo(1));
+        assertThat(result.getReschedulingCount(), equalTo(1));
+        assertTrue(result.getModified().isEmpty());
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.limitingresources;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.Gap;
+import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+
+/**
+ * Tests for {@link GapsMergeSort}
+ */
+public class GapsMergeSortTest {
+
+    private static final LocalDate start = new LocalDate(2012, 3, 5);
+
+    private Worker worker;
+
+    @Before
+    public void setUpWorkerWithEightHoursEveryDay() {
+        ResourceCalendar calendar = createNiceMock(ResourceCalendar.class);
+        expect(calendar.getCapacityOn(isA(PartialDay.class))).andReturn(
+                hours(8)).anyTimes();
+        replay(calendar);
+        worker = createNiceMock(Worker.class);
+        expect(worker.getCalendar()).andReturn(calendar).anyTimes();
+        replay(worker);
+    }
+
+    private static DateAndHour day(int days) {
+        return DateAndHour.from(start.plusDays(days));
+    }
+
+    private GapOnQueue gap(Integer fromDay, Integer toDay) {
+        return Gap.create(worker, fromDay == null ? null : day(fromDay),
+                toDay == null ? null : day(toDay)).onQueue(null);
+    }
+
+    private static List<List<GapOnQueue>> lists(List<GapOnQueue>... lists) {
+        return Arrays.asList(lists);
+    }
+
+    private static void assertOrderedByStart(List<GapOnQueue> gaps) {
+        for (int i = 1; i < gaps.size(); i++) {
+            assertTrue(gaps.get(i - 1) + " must not start after "
+                    + gaps.get(i), gaps.get(i - 1).getGap()
+                    .compareTo(gaps.get(i).getGap()) <= 0);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void withoutListsTheResultIsEmpty() {
+        assertTrue(GapsMergeSort.sort(
+                new ArrayList<List<GapOnQueue>>()).isEmpty());
+        assertTrue(GapsMergeSort.sort(
+                lists(new ArrayList<GapOnQueue>(),
+                        new ArrayList<GapOnQueue>())).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void aSingleListIsReturnedAsItIs() {
+        List<GapOnQueue> gaps = Arrays.asList(gap(0, 1), gap(2, null));
+        assertThat(GapsMergeSort.sort(lists(gaps)), equalTo(gaps));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void theGapsOfSeveralListsAreInterleavedByStart() {
+        GapOnQueue a1 = gap(0, 1);
+        GapOnQueue a2 = gap(4, 5);
+        GapOnQueue a3 = gap(8, null);
+        GapOnQueue b1 = gap(2, 3);
+        GapOnQueue b2 = gap(6, null);
+        GapOnQueue c1 = gap(null, 1);
+        GapOnQueue c2 = gap(7, null);
+
+        List<GapOnQueue> result = GapsMergeSort.sort(lists(
+                Arrays.asList(a1, a2, a3), Arrays.asList(b1, b2),
+                Arrays.asList(c1, c2)));
+
+        assertThat(result, equalTo(Arrays.asList(c1, a1, b1, a2, b2, c2, a3)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void theGapsStartingAtTheSameTimeKeepTheOrderOfTheLists() {
+        GapOnQueue a = gap(1, 2);
+        GapOnQueue b = gap(1, 3);
+        GapOnQueue c = gap(1, null);
+
+        assertThat(GapsMergeSort.sort(lists(Arrays.asList(c),
+                Arrays.asList(a), Arrays.asList(b))), equalTo(Arrays.asList(
+                c, a, b)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void emptyListsAreSkipped() {
+        GapOnQueue a = gap(0, 1);
+        GapOnQueue b = gap(2, 3);
+
+        assertThat(GapsMergeSort.sort(lists(new ArrayList<GapOnQueue>(),
+                Arrays.asList(b), new ArrayList<GapOnQueue>(),
+                Arrays.asList(a))), equalTo(Arrays.asList(a, b)));
+    }
+
+    @Test
+    public void manyRandomListsAreMergedInOrder() {
+        Random random = new Random(7);
+        List<List<GapOnQueue>> lists = new ArrayList<List<GapOnQueue>>();
+        int total = 0;
+        for (int i = 0; i < 20; i++) {
+            List<GapOnQueue> gaps = new ArrayList<GapOnQueue>();
+            int day = random.nextInt(5);
+            for (int j = random.nextInt(10); j > 0; j--) {
+                int end = day + 1 + random.nextInt(3);
+                gaps.add(gap(day, end));
+                day = end + random.nextInt(3);
+            }
+            lists.add(gaps);
+            total += gaps.size();
+        }
+
+        List<GapOnQueue> result = GapsMergeSort.sort(lists);
+
+        assertThat(result.size(), equalTo(total));
+        assertOrderedByStart(result);
+        for (List<GapOnQueue> each : lists) {
+            assertTrue(result.containsAll(each));
+        }
+    }
+
+}
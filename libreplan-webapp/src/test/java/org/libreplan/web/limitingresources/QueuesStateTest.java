@@ -0,0 +1,191 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.limitingresources;
+
+import static java.util.Arrays.asList;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.Dependency;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueDependency;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueDependency.QueueDependencyType;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.business.resources.entities.Worker;
+
+/**
+ * Tests for {@link QueuesState}
+ */
+public class QueuesStateTest {
+
+    private static final LocalDate start = new LocalDate(2012, 3, 5);
+
+    private LimitingResourceQueue queue;
+
+    @Before
+    public void createQueue() {
+        Worker worker = createNiceMock(Worker.class);
+        expect(worker.getId()).andReturn(1L).anyTimes();
+        replay(worker);
+        queue = LimitingResourceQueue.create();
+        queue.setResource(worker);
+    }
+
+    private static LimitingResourceQueueElement element(String name,
+            int priority, int earliestStartDay) {
+        Task task = createNiceMock(Task.class);
+        expect(task.getName()).andReturn(name).anyTimes();
+        expect(task.getPriority()).andReturn(priority).anyTimes();
+        replay(task);
+        SpecificResourceAllocation allocation = createNiceMock(SpecificResourceAllocation.class);
+        expect(allocation.getTask()).andReturn(task).anyTimes();
+        replay(allocation);
+        LimitingResourceQueueElement result = LimitingResourceQueueElement
+                .create();
+        result.setResourceAllocation(allocation);
+        result.setEarlierStartDateBecauseOfGantt(start
+                .plusDays(earliestStartDay).toDateTimeAtStartOfDay().toDate());
+        return result;
+    }
+
+    private static void dependency(LimitingResourceQueueElement origin,
+            LimitingResourceQueueElement destiny) {
+        LimitingResourceQueueDependency.create(origin, destiny,
+                createNiceMock(Dependency.class),
+                QueueDependencyType.END_START);
+    }
+
+    private static void positionAt(LimitingResourceQueueElement element,
+            int fromDay, int toDay) {
+        element.setStartDate(start.plusDays(fromDay));
+        element.setStartHour(0);
+        element.setEndDate(start.plusDays(toDay));
+        element.setEndHour(0);
+    }
+
+    private QueuesState stateWithUnassigned(
+            LimitingResourceQueueElement... unassigned) {
+        return new QueuesState(asList(queue), asList(unassigned));
+    }
+
+    private static List<LimitingResourceQueueElement> inPriorityOrder(
+            QueuesState state, LimitingResourceQueueElement... elements) {
+        return state.inTopologicalOrder(asList(elements),
+                LimitingResourceQueueModel.byPriorityAndEarliestStart());
+    }
+
+    @Test
+    public void withoutDependenciesTheHigherPriorityGoesFirst() {
+        LimitingResourceQueueElement low = element("low", 1, 0);
+        LimitingResourceQueueElement high = element("high", 5, 0);
+        LimitingResourceQueueElement medium = element("medium", 3, 0);
+        QueuesState state = stateWithUnassigned(low, high, medium);
+
+        assertThat(inPriorityOrder(state, low, high, medium),
+                equalTo(asList(high, medium, low)));
+    }
+
+    @Test
+    public void withTheSamePriorityTheEarliestStartGoesFirst() {
+        LimitingResourceQueueElement late = element("late", 1, 10);
+        LimitingResourceQueueElement early = element("early", 1, 2);
+        LimitingResourceQueueElement other = element("other", 1, 5);
+        QueuesState state = stateWithUnassigned(late, early, other);
+
+        assertThat(inPriorityOrder(state, late, early, other),
+                equalTo(asList(early, other, late)));
+    }
+
+    @Test
+    public void theOriginsGoFirstWhateverThePriority() {
+        LimitingResourceQueueElement origin = element("origin", 1, 10);
+        LimitingResourceQueueElement destiny = element("destiny", 9, 0);
+        LimitingResourceQueueElement free = element("free", 5, 0);
+        dependency(origin, destiny);
+        QueuesState state = stateWithUnassigned(destiny, free, origin);
+
+        assertThat(inPriorityOrder(state, destiny, free, origin),
+                equalTo(asList(free, origin, destiny)));
+    }
+
+    @Test
+    public void anElementIsPickedAsSoonAsItsOriginsAreDone() {
+        LimitingResourceQueueElement a = element("a", 5, 0);
+        LimitingResourceQueueElement b = element("b", 1, 0);
+        LimitingResourceQueueElement afterA = element("afterA", 3, 0);
+        LimitingResourceQueueElement afterB = element("afterB", 9, 0);
+        dependency(a, afterA);
+        dependency(b, afterB);
+        QueuesState state = stateWithUnassigned(a, b, afterA, afterB);
+
+        assertThat(inPriorityOrder(state, a, b, afterA, afterB),
+                equalTo(asList(a, afterA, b, afterB)));
+    }
+
+    @Test
+    public void revertingTheAssignmentsTakesTheElementsOutOfTheQueue() {
+        LimitingResourceQueueElement allocated = element("allocated", 1, 0);
+        positionAt(allocated, 0, 2);
+        queue.addLimitingResourceQueueElement(allocated);
+        LimitingResourceQueueElement first = element("first", 1, 0);
+        LimitingResourceQueueElement second = element("second", 1, 0);
+        QueuesState state = stateWithUnassigned(first, second);
+        List<LimitingResourceQueueElement> previouslyUnassigned = new ArrayList<LimitingResourceQueueElement>(
+                state.getUnassigned());
+
+        positionAt(first, 2, 4);
+        state.assignedToQueue(first, queue);
+        positionAt(second, 4, 6);
+        state.assignedToQueue(second, queue);
+        assertTrue(state.getUnassigned().isEmpty());
+
+        state.revertAssignments(asList(first, second), previouslyUnassigned);
+
+        assertThat(new ArrayList<LimitingResourceQueueElement>(queue
+                .getLimitingResourceQueueElements()),
+                equalTo(Collections.singletonList(allocated)));
+        assertThat(state.getUnassigned(), equalTo(asList(first, second)));
+        for (LimitingResourceQueueElement each : asList(first, second)) {
+            assertTrue(each.isDetached());
+            assertNull(each.getLimitingResourceQueue());
+            assertNull(each.getEndDate());
+        }
+        assertThat(allocated.getStartDate(), equalTo(start));
+        assertThat(allocated.getEndDate(), equalTo(start.plusDays(2)));
+        assertThat(allocated.getLimitingResourceQueue(), equalTo(queue));
+    }
+
+}
@@ -0,0 +1,365 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.reports;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import net.sf.jasperreports.engine.JRException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.common.exceptions.ValidationException;
+import org.libreplan.web.reports.IReportJobsQueue.IDataSourceProvider;
+
+/**
+ * Tests for {@link ReportJobsQueue}
+ */
+public class ReportJobsQueueTest {
+
+    private static final long WAIT_SECONDS = 10;
+
+    /**
+     * Renders the reports only when {@link #release} is opened and lets
+     * change the time
+     */
+    private static class TestReportJobsQueue extends ReportJobsQueue {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private volatile long timeOffset = 0;
+
+        private volatile boolean failing = false;
+
+        @Override
+        protected byte[] render(ReportJob job, Map<String, Object> parameters,
+                JRDataSource dataSource) throws JRException {
+            try {
+                release.await(WAIT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new JRException("failing on purpose");
+            }
+            return job.getId().getBytes();
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return System.currentTimeMillis() + timeOffset;
+        }
+
+    }
+
+    private static class CountingProvider implements IDataSourceProvider {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public JRDataSource getDataSource() {
+            calls.incrementAndGet();
+            return new JREmptyDataSource();
+        }
+
+    }
+
+    private TestReportJobsQueue queue;
+
+    private CountingProvider provider;
+
+    @Before
+    public void createQueue() {
+        queue = new TestReportJobsQueue();
+        provider = new CountingProvider();
+    }
+
+    @After
+    public void shutdownQueue() {
+        queue.release.countDown();
+        queue.shutdown();
+    }
+
+    private static Map<String, Object> parameters(String value) {
+        Map<String, Object> result = new HashMap<String, Object>();
+        result.put("parameter", value);
+        return result;
+    }
+
+    private ReportJob submit(String owner, String key)
+            throws ValidationException {
+        return submit(owner, key, parameters("value"));
+    }
+
+    private ReportJob submit(String owner, String key,
+            Map<String, Object> parameters) throws ValidationException {
+        return queue.submit(owner, "report", "pdf", parameters, key, provider);
+    }
+
+    private static void waitUntilDone(ReportJob job)
+            throws InterruptedException {
+        long limit = System.currentTimeMillis() + WAIT_SECONDS * 1000;
+        while (job.isPending() && System.currentTimeMillis() < limit) {
+            Thread.sleep(10);
+        }
+        assertFalse(job + " must be done", job.isPending());
+    }
+
+    private void finishAll(ReportJob... jobs) throws InterruptedException {
+        queue.release.countDown();
+        for (ReportJob each : jobs) {
+            waitUntilDone(each);
+        }
+    }
+
+    @Test
+    public void identicalSubmissionsOfTheSameUserShareTheJob()
+            throws ValidationException {
+        ReportJob first = submit("user", "key");
+        ReportJob second = submit("user", "key");
+
+        assertThat(second, sameInstance(first));
+        assertThat(provider.calls.get(), equalTo(1));
+    }
+
+    @Test
+    public void aFinishedJobIsSharedToo() throws Exception {
+        ReportJob first = submit("user", "key");
+        finishAll(first);
+
+        assertTrue(first.isFinished());
+        assertThat(submit("user", "key"), sameInstance(first));
+    }
+
+    @Test
+    public void jobsAreNotSharedWithDifferentUsersKeysOrParameters()
+            throws ValidationException {
+        ReportJob job = submit("user", "key");
+
+        assertThat(submit("other", "key"), not(sameInstance(job)));
+        assertThat(submit("user", "other key"), not(sameInstance(job)));
+        assertThat(submit("other", "key", parameters("other value")),
+                not(sameInstance(job)));
+    }
+
+    @Test
+    public void jobsWithoutKeyAreNeverShared() throws ValidationException {
+        ReportJob job = submit("user", null);
+
+        assertThat(submit("user", null), not(sameInstance(job)));
+        assertThat(provider.calls.get(), equalTo(2));
+    }
+
+    @Test
+    public void failedJobsAreNotShared() throws Exception {
+        queue.failing = true;
+        ReportJob failed = submit("user", "key");
+        finishAll(failed);
+
+        assertTrue(failed.isFailed());
+        assertThat(submit("user", "key"), not(sameInstance(failed)));
+    }
+
+    @Test
+    public void finishedJobsExpireAfterTheTimeToLive() throws Exception {
+        ReportJob job = submit("user", "key");
+        finishAll(job);
+        assertThat(queue.getJob(job.getId()), sameInstance(job));
+
+        queue.timeOffset = ReportJobsQueue.TIME_TO_LIVE_MILLIS + 1000;
+
+        assertNull(queue.getJob(job.getId()));
+        assertThat(submit("user", "key"), not(sameInstance(job)));
+        assertThat(provider.calls.get(), equalTo(2));
+    }
+
+    @Test
+    public void pendingJobsDoNotExpire() throws ValidationException {
+        ReportJob job = submit("user", "key");
+
+        queue.timeOffset = ReportJobsQueue.TIME_TO_LIVE_MILLIS + 1000;
+
+        assertThat(queue.getJob(job.getId()), sameInstance(job));
+        assertThat(submit("user", "key"), sameInstance(job));
+    }
+
+    @Test
+    public void eachUserHasALimitOfPendingJobs() throws Exception {
+        List<ReportJob> pending = new ArrayList<ReportJob>();
+        for (int i = 0; i < ReportJobsQueue.MAX_PENDING_JOBS_PER_USER; i++) {
+            pending.add(submit("user", null));
+        }
+        try {
+            submit("user", null);
+            fail("the limit of pending jobs must be enforced");
+        } catch (ValidationException e) {
+            // ok
+        }
+        assertThat(queue.getJobsOf("user").size(),
+                equalTo(ReportJobsQueue.MAX_PENDING_JOBS_PER_USER));
+
+        submit("other", null);
+
+        finishAll(pending.toArray(new ReportJob[0]));
+        submit("user", null);
+    }
+
+    @Test
+    public void theSharedJobsDoNotCountForTheLimit() throws Exception {
+        for (int i = 0; i < ReportJobsQueue.MAX_PENDING_JOBS_PER_USER; i++) {
+            submit("user", "key " + i);
+        }
+
+        submit("user", "key 0");
+    }
+
+    @Test
+    public void theJobsAreRejectedWhenTheQueueIsFull() throws Exception {
+        int capacity = ReportJobsQueue.WORKERS
+                + ReportJobsQueue.MAX_QUEUED_JOBS;
+        List<ReportJob> accepted = new ArrayList<ReportJob>();
+        for (int i = 0; i < capacity; i++) {
+            accepted.add(submit("user " + i, null));
+        }
+        waitUntilRunning(ReportJobsQueue.WORKERS, accepted);
+
+        try {
+            submit("rejected", "key");
+            fail("the job must be rejected");
+        } catch (ValidationException e) {
+            // ok
+        }
+        assertTrue(queue.getJobsOf("rejected").isEmpty());
+
+        finishAll(accepted.toArray(new ReportJob[0]));
+        ReportJob job = submit("rejected", "key");
+        assertTrue(job.isPending() || job.isFinished());
+    }
+
+    private static void waitUntilRunning(int expected, List<ReportJob> jobs)
+            throws InterruptedException {
+        long limit = System.currentTimeMillis() + WAIT_SECONDS * 1000;
+        while (countRunning(jobs) < expected
+                && System.currentTimeMillis() < limit) {
+            Thread.sleep(10);
+        }
+        assertThat(countRunning(jobs), equalTo(expected));
+    }
+
+    private static int countRunning(List<ReportJob> jobs) {
+        int result = 0;
+        for (ReportJob each : jobs) {
+            if (each.getStatus() == ReportJob.ReportJobStatus.RUNNING) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void aJobIsNotKeptIfItsDataSourceCanNotBeBuilt()
+            throws ValidationException {
+        try {
+            queue.submit("user", "report", "pdf", parameters("value"), "key",
+                    new IDataSourceProvider() {
+
+                        @Override
+                        public JRDataSource getDataSource() {
+                            throw new IllegalStateException("no data");
+                        }
+                    });
+            fail("the exception must be propagated");
+        } catch (IllegalStateException e) {
+            // ok
+        }
+
+        assertTrue(queue.getJobsOf("user").isEmpty());
+        assertThat(submit("user", "key").getStatus(),
+                equalTo(ReportJob.ReportJobStatus.QUEUED));
+    }
+
+    @Test
+    public void theDataSourceIsBuiltWithoutBlockingOtherSubmissions()
+            throws Exception {
+        final CountDownLatch building = new CountDownLatch(1);
+        final CountDownLatch built = new CountDownLatch(1);
+        final AtomicBoolean returned = new AtomicBoolean(false);
+        Thread slow = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    queue.submit("slow", "report", "pdf",
+                            parameters("value"), "key",
+                            new IDataSourceProvider() {
+
+                                @Override
+                                public JRDataSource getDataSource() {
+                                    building.countDown();
+                                    try {
+                                        built.await(WAIT_SECONDS,
+                                                TimeUnit.SECONDS);
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                    }
+                                    returned.set(true);
+                                    return new JREmptyDataSource();
+                                }
+                            });
+                } catch (ValidationException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        slow.start();
+        assertTrue(building.await(WAIT_SECONDS, TimeUnit.SECONDS));
+
+        ReportJob other = submit("user", "key");
+        ReportJob shared = submit("slow", "key");
+        assertFalse(returned.get());
+        built.countDown();
+        slow.join(WAIT_SECONDS * 1000);
+
+        assertThat(other.getOwner(), equalTo("user"));
+        assertThat(shared.getOwner(), equalTo("slow"));
+        assertThat(queue.getJobsOf("slow").size(), equalTo(1));
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
+ *                         Desenvolvemento Tecnolóxico de Galicia
+ * Copyright (C) 2010-2012 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.reports;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+
+import org.junit.Test;
+import org.libreplan.web.reports.StreamingBeanDataSource.IRowsSource;
+
+/**
+ * Tests for {@link StreamingBeanDataSource}
+ */
+public class StreamingBeanDataSourceTest {
+
+    public static class Row {
+
+        private final int value;
+
+        private Row(int value) {
+            this.value = value;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+    }
+
+    /**
+     * Returns the rows of a list and records the chunks requested
+     */
+    private static class ListRowsSource implements IRowsSource<Row> {
+
+        private final List<Row> rows = new ArrayList<Row>();
+
+        private final List<Integer> requested = new ArrayList<Integer>();
+
+        private int position = 0;
+
+        private int resets = 0;
+
+        private ListRowsSource(int size) {
+            for (int i = 0; i < size; i++) {
+                rows.add(new Row(i));
+            }
+        }
+
+        @Override
+        public List<Row> next(int maxRows) {
+            requested.add(maxRows);
+            int end = Math.min(position + maxRows, rows.size());
+            List<Row> result = new ArrayList<Row>(rows.subList(position, end));
+            position = end;
+            return result;
+        }
+
+        @Override
+        public void reset() {
+            position = 0;
+            resets++;
+        }
+
+    }
+
+    private static JRField valueField() {
+        JRField result = createNiceMock(JRField.class);
+        expect(result.getName()).andReturn("value").anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private static List<Integer> readAll(StreamingBeanDataSource<Row> dataSource)
+            throws JRException {
+        JRField field = valueField();
+        List<Integer> result = new ArrayList<Integer>();
+        while (dataSource.next()) {
+            result.add((Integer) dataSource.getFieldValue(field));
+        }
+        return result;
+    }
+
+    @Test
+    public void theRowsAreReturnedInOrderAcrossTheChunks() throws JRException {
+        ListRowsSource source = new ListRowsSource(5);
+        StreamingBeanDataSource<Row> dataSource = StreamingBeanDataSource
+                .create(source, 2);
+
+        assertThat(readAll(dataSource), equalTo(Arrays.asList(0, 1, 2, 3, 4)));
+        assertThat(source.requested, equalTo(Arrays.asList(2, 2, 2, 2)));
+    }
+
+    @Test
+    public void whenTheRowsFillTheLastChunkAnEmptyOneEndsTheReport()
+            throws JRException {
+        ListRowsSource source = new ListRowsSource(4);
+        StreamingBeanDataSource<Row> dataSource = StreamingBeanDataSource
+                .create(source, 2);
+
+        assertThat(readAll(dataSource), equalTo(Arrays.asList(0, 1, 2, 3)));
+        assertThat(source.requested.size(), equalTo(3));
+    }
+
+    @Test
+    public void theNextChunkIsOnlyRequestedWhenTheCurrentOneIsConsumed() {
+        ListRowsSource source = new ListRowsSource(5);
+        StreamingBeanDataSource<Row> dataSource = StreamingBeanDataSource
+                .create(source, 3);
+
+        assertTrue(dataSource.next());
+        assertThat(source.requested.size(), equalTo(1));
+        assertTrue(dataSource.next());
+        assertTrue(dataSource.next());
+        assertThat(source.requested.size(), equalTo(1));
+        assertTrue(dataSource.next());
+        assertThat(source.requested.size(), equalTo(2));
+    }
+
+    @Test
+    public void afterTheLastRowTheSourceIsNotAskedAgain() {
+        ListRowsSource source = new ListRowsSource(1);
+        StreamingBeanDataSource<Row> dataSource = StreamingBeanDataSource
+                .create(source, 2);
+
+        assertTrue(dataSource.next());
+        assertFalse(dataSource.next());
+        assertFalse(dataSource.next());
+        assertThat(source.requested.size(), equalTo(2));
+    }
+
+    @Test
+    public void anEmptySourceHasNoRows() {
+        ListRowsSource source = new ListRowsSource(0);
+        StreamingBeanDataSource<Row> dataSource = StreamingBeanDataSource
+                .create(source);
+
+        assertFalse(dataSource.next());
+        assertThat(source.requested, equalTo(Arrays
+                .asList(StreamingBeanDataSource.DEFAULT_CHUNK_SIZE)));
+    }
+
+    @Test
+    public void moveFirstStartsAgainFromTheFirstRow() throws JRException {
+        ListRowsSource source = new ListRowsSource(5);
+        StreamingBeanDataSource<Row> dataSource = StreamingBeanDataSource
+                .create(source, 2);
+        dataSource.next();
+        dataSource.next();
+        dataSource.next();
+
+        dataSource.moveFirst();
+
+        assertThat(source.resets, equalTo(1));
+        assertThat(readAll(dataSource), equalTo(Arrays.asList(0, 1, 2, 3, 4)));
+    }
+
+    @Test
+    public void moveFirstAfterTheEndReadsAllTheRowsAgain() throws JRException {
+        ListRowsSource source = new ListRowsSource(3);
+        StreamingBeanDataSource<Row> dataSource = StreamingBeanDataSource
+                .create(source, 2);
+        readAll(dataSource);
+
+        dataSource.moveFirst();
+
+        assertThat(readAll(dataSource), equalTo(Arrays.asList(0, 1, 2)));
+    }
+
+}
@@ -21,18 +21,28 @@
 
 package org.libreplan.web.test.ws.common;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsDTO;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
+import org.libreplan.ws.common.impl.GenericRESTService;
 
 /**
  * Utilities class related with web service tests.
@@ -65,6 +75,33 @@ public class Util {
         return UUID.randomUUID().toString();
     }
 
+    /**
+     * It writes the response returned by a stream method of a service and
+     * returns the codes of the entities written, checking that the stream has
+     * not been truncated by an error.
+     */
+    public static List<String> getCodesFromStream(Response response) {
+        assertTrue(response.getEntity() instanceof StreamingOutput);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        List<String> result = new ArrayList<String>();
+        try {
+            ((StreamingOutput) response.getEntity()).write(output);
+            ObjectMapper mapper = new ObjectMapper();
+            for (String line : output.toString("UTF-8").split("\n")) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                JsonNode node = mapper.readTree(line);
+                assertFalse(line, node
+                        .has(GenericRESTService.STREAM_ERROR_FIELD));
+                result.add(node.get("code").getTextValue());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
     public static void assertNoConstraintViolations(
         InstanceConstraintViolationsListDTO
         instanceConstraintViolationsListDTO) {
@@ -33,6 +33,7 @@ import static org.libreplan.web.WebappGlobalNames.WEBAPP_SPRING_CONFIG_FILE;
 import static org.libreplan.web.WebappGlobalNames.WEBAPP_SPRING_SECURITY_CONFIG_FILE;
 import static org.libreplan.web.test.WebappGlobalNames.WEBAPP_SPRING_CONFIG_TEST_FILE;
 import static org.libreplan.web.test.WebappGlobalNames.WEBAPP_SPRING_SECURITY_CONFIG_TEST_FILE;
+import static org.libreplan.web.test.ws.common.Util.getCodesFromStream;
 import static org.libreplan.web.test.ws.common.Util.mustEnd;
 
 import java.math.BigDecimal;
@@ -561,6 +562,46 @@ public class OrderElementServiceTest {
         checkIfExistsByCodeInAnotherTransaction(code);
     }
 
+    @Test
+    @Transactional
+    public void ordersWithTheSameNameInTheSameChunkAreRejected() {
+        OrderDTO orderDTO1 = createOrderDTOWithChildren(UUID.randomUUID()
+                .toString());
+        OrderDTO orderDTO2 = createOrderDTOWithChildren(UUID.randomUUID()
+                .toString());
+        orderDTO2.name = orderDTO1.name.toUpperCase();
+
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList = orderElementService
+                .addOrders(createOrderListDTO(orderDTO1, orderDTO2)).instanceConstraintViolationsList;
+        assertThat(instanceConstraintViolationsList.size(), equalTo(1));
+        assertThat(instanceConstraintViolationsList.get(0).numItem,
+                equalTo(2L));
+
+        checkIfExistsByCodeInAnotherTransaction(orderDTO1.code);
+    }
+
+    @Test
+    @Transactional
+    public void elementCodesRepeatedInOrdersOfTheSameChunkAreRejected() {
+        OrderDTO orderDTO1 = createOrderDTOWithChildren(UUID.randomUUID()
+                .toString());
+        OrderDTO orderDTO2 = createOrderDTOWithChildren(UUID.randomUUID()
+                .toString());
+        OrderLineGroupDTO group1 = (OrderLineGroupDTO) orderDTO1.children
+                .get(0);
+        OrderLineGroupDTO group2 = (OrderLineGroupDTO) orderDTO2.children
+                .get(0);
+        group2.children.get(0).code = group1.children.get(0).code;
+
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList = orderElementService
+                .addOrders(createOrderListDTO(orderDTO1, orderDTO2)).instanceConstraintViolationsList;
+        assertThat(instanceConstraintViolationsList.size(), equalTo(1));
+        assertThat(instanceConstraintViolationsList.get(0).numItem,
+                equalTo(2L));
+
+        checkIfExistsByCodeInAnotherTransaction(orderDTO1.code);
+    }
+
     private OrderDTO createOrderDTOWithChildren(String code) {
         OrderDTO orderDTO = new OrderDTO();
         orderDTO.name = "Order name " + UUID.randomUUID().toString();
@@ -586,6 +627,23 @@ public class OrderElementServiceTest {
         return orderDTO;
     }
 
+    @Test
+    @Transactional
+    public void getOrdersStream() {
+        String code = UUID.randomUUID().toString();
+        OrderDTO orderDTO = createOrderDTOWithChildren(code);
+
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList = orderElementService
+                .addOrders(createOrderListDTO(orderDTO)).instanceConstraintViolationsList;
+        assertTrue(instanceConstraintViolationsList.toString(),
+                instanceConstraintViolationsList.size() == 0);
+
+        List<String> codes = getCodesFromStream(orderElementService
+                .getOrdersStream());
+        assertTrue(codes.contains(code));
+        assertThat(codes.size(), equalTo(orderDAO.getOrders().size()));
+    }
+
     @Test
     @Transactional
     public void removeOrderElement() {
@@ -34,6 +34,7 @@ import static org.libreplan.web.test.ws.common.Util.assertNoConstraintViolations
 import static org.libreplan.web.test.ws.common.Util.assertOneConstraintViolation;
 import static org.libreplan.web.test.ws.common.Util.assertOneConstraintViolationPerInstance;
 import static org.libreplan.web.test.ws.common.Util.assertOneRecoverableError;
+import static org.libreplan.web.test.ws.common.Util.getCodesFromStream;
 import static org.libreplan.web.test.ws.common.Util.getUniqueName;
 
 import java.util.ArrayList;
@@ -73,6 +74,7 @@ import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.resources.entities.ResourceEnum;
 import org.libreplan.business.resources.entities.Worker;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsDTO;
+import org.libreplan.ws.common.impl.ReferencedCodesCache;
 import org.libreplan.ws.resources.api.CriterionSatisfactionDTO;
 import org.libreplan.ws.resources.api.IResourceService;
 import org.libreplan.ws.resources.api.MachineDTO;
@@ -208,6 +210,123 @@ public class ResourceServiceTest {
 
     }
 
+    @Test
+    @Transactional
+    public void testAddResourcesRetriesAFailedChunkItemByItem() {
+
+        /* Create a machine. */
+        Machine machine = Machine.createUnvalidated(getUniqueName(),
+            getUniqueName(), "desc");
+        saveResource(machine);
+
+        /*
+         * Create resource DTOs saved in the same chunk, one of them using the
+         * code of the previous machine.
+         */
+        WorkerDTO w1 = new WorkerDTO(getUniqueName(), "w1-surname",
+            getUniqueName());
+        WorkerDTO w2 = new WorkerDTO(machine.getCode(), getUniqueName(),
+            "w2-surname", getUniqueName());
+        MachineDTO m1 = new MachineDTO(getUniqueName(), "desc");
+
+        /* Test. */
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList =
+            resourceService.addResources(
+                createResourceListDTO(w1, w2, m1)).
+                    instanceConstraintViolationsList;
+
+        assertEquals(instanceConstraintViolationsList.toString(), 1,
+            instanceConstraintViolationsList.size());
+        assertEquals(Long.valueOf(2),
+            instanceConstraintViolationsList.get(0).numItem);
+        assertEquals(w2.code, instanceConstraintViolationsList.get(0).code);
+        assertTrue(resourceDAO.existsByCode(w1.code));
+        assertTrue(resourceDAO.existsByCode(m1.code));
+        assertFalse(ReferencedCodesCache.isOpen());
+
+    }
+
+    @Test
+    @Transactional
+    public void testAddResourcesWithRepeatedCodesInTheSameChunk() {
+
+        /* Create machine DTOs with the same code. */
+        MachineDTO m1 = new MachineDTO(getUniqueName(), "desc");
+        MachineDTO m2 = new MachineDTO(m1.code, m1.name + "UPDATED", "desc");
+
+        /* Test. */
+        assertNoConstraintViolations(
+            resourceService.addResources(createResourceListDTO(m1, m2)));
+        assertEquals(m2.name, machineDAO.findExistingEntityByCode(m1.code).getName());
+        assertFalse(ReferencedCodesCache.isOpen());
+
+    }
+
+    @Test
+    @Transactional
+    public void testAddWorkersWithTheSameNifInTheSameChunk() {
+
+        /* Create worker DTOs with the same ID saved in the same chunk. */
+        WorkerDTO w1 = new WorkerDTO(getUniqueName(), "surname",
+            getUniqueName());
+        WorkerDTO w2 = new WorkerDTO(getUniqueName(), "surname",
+            w1.nif.toUpperCase());
+
+        /* Test. */
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList =
+            resourceService.addResources(
+                createResourceListDTO(w1, w2)).
+                    instanceConstraintViolationsList;
+
+        assertEquals(instanceConstraintViolationsList.toString(), 1,
+            instanceConstraintViolationsList.size());
+        assertEquals(Long.valueOf(2),
+            instanceConstraintViolationsList.get(0).numItem);
+        assertTrue(resourceDAO.existsByCode(w1.code));
+        assertFalse(resourceDAO.existsByCode(w2.code));
+
+    }
+
+    @Test
+    @Transactional
+    public void testReferencedCodesCacheIsClosedWhenTheChunkFails() {
+
+        /* Create a worker DTO with a non existent criterion type. */
+        WorkerDTO w1 = new WorkerDTO(getUniqueName(), "surname",
+            getUniqueName());
+        w1.criterionSatisfactions.add(new CriterionSatisfactionDTO(
+            getUniqueName(), "c1", getDate(2000, 1, 1), null));
+        WorkerDTO w2 = new WorkerDTO(getUniqueName(), "surname",
+            getUniqueName());
+
+        /* Test. */
+        assertOneRecoverableError(
+            resourceService.addResources(createResourceListDTO(w1, w2)));
+        assertFalse(resourceDAO.existsByCode(w1.code));
+        assertTrue(resourceDAO.existsByCode(w2.code));
+        assertFalse(ReferencedCodesCache.isOpen());
+
+    }
+
+    @Test
+    @Transactional
+    public void testGetResourcesStream() {
+
+        /* Add resources. */
+        MachineDTO m1 = new MachineDTO(getUniqueName(), "desc");
+        WorkerDTO w1 = new WorkerDTO(getUniqueName(), "surname",
+            getUniqueName());
+        assertNoConstraintViolations(
+            resourceService.addResources(createResourceListDTO(m1, w1)));
+
+        /* Test. */
+        List<String> codes = getCodesFromStream(
+            resourceService.getResourcesStream());
+        assertTrue(codes.contains(m1.code));
+        assertTrue(codes.contains(w1.code));
+
+    }
+
     @Test
     @Transactional
     public void testAddResourceWithCriterionSatisfactions() {
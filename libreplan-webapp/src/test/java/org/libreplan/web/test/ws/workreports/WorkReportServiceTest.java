@@ -22,6 +22,7 @@
 package org.libreplan.web.test.ws.workreports;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
@@ -29,6 +30,7 @@ import static org.libreplan.web.WebappGlobalNames.WEBAPP_SPRING_CONFIG_FILE;
 import static org.libreplan.web.WebappGlobalNames.WEBAPP_SPRING_SECURITY_CONFIG_FILE;
 import static org.libreplan.web.test.WebappGlobalNames.WEBAPP_SPRING_CONFIG_TEST_FILE;
 import static org.libreplan.web.test.WebappGlobalNames.WEBAPP_SPRING_SECURITY_CONFIG_TEST_FILE;
+import static org.libreplan.web.test.ws.common.Util.getCodesFromStream;
 
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
@@ -42,6 +44,7 @@ import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Resource;
+import javax.ws.rs.core.Response.Status;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import org.hibernate.SessionFactory;
@@ -679,6 +682,37 @@ public class WorkReportServiceTest {
                 equalTo(hours));
     }
 
+    @Test
+    public void getWorkReportsStream() {
+        WorkReportDTO workReportDTO = createWorkReportDTO(workReportTypeCode);
+        InstanceConstraintViolationsListDTO instanceConstraintViolationsListDTO = workReportService
+                .addWorkReports(new WorkReportListDTO(Arrays
+                        .asList(workReportDTO)));
+        assertThat(
+                instanceConstraintViolationsListDTO.instanceConstraintViolationsList
+                        .size(), equalTo(0));
+
+        assertTrue(getCodesFromStream(
+                workReportService.getWorkReportsStream(null)).contains(
+                workReportDTO.code));
+
+        String yesterday = new LocalDate().minusDays(1).toString();
+        assertTrue(getCodesFromStream(
+                workReportService.getWorkReportsStream(yesterday)).contains(
+                workReportDTO.code));
+
+        String tomorrow = new LocalDate().plusDays(1).toString();
+        assertFalse(getCodesFromStream(
+                workReportService.getWorkReportsStream(tomorrow)).contains(
+                workReportDTO.code));
+    }
+
+    @Test
+    public void getWorkReportsStreamWithAWrongDate() {
+        assertThat(workReportService.getWorkReportsStream("wrong").getStatus(),
+                equalTo(Status.BAD_REQUEST.getStatusCode()));
+    }
+
     @Test
     public void importAndUpdateValidWorkReport() {
         int previous = transactionService